@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.feign.AtonServiceClient;
+import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The AtoN Lookup Cache Component.
+ * <p/>
+ * This component sits in front of the AtoN service, caching the AtoNs found
+ * within each station geometry, so that the stations and the UI requests
+ * sharing a geometry do not query the AtoN service over and over again. The
+ * entries are keyed by the GeoJSON of the geometry and are considered fresh
+ * for the configured TTL. Once an entry has been around for the refresh-ahead
+ * portion of its TTL, it is refreshed in the background on the remote I/O
+ * bulkhead, while the current entry keeps being served, so the advertising
+ * cycles rarely have to wait for the AtoN service. A failed refresh-ahead
+ * leaves the current entry fresh until its TTL runs out.
+ * <p/>
+ * Once the TTL of an entry has run out, it is still served straight away,
+ * marked as stale, while it is refreshed in the background, for as long as
+ * it is not older than the configured maximum staleness. Concurrent lookups
+ * for the same geometry share a single request to the AtoN service. If that
+ * request fails, the last known good list of AtoNs is kept, marked as stale
+ * and with the time it was last refreshed, so that the next lookup retries
+ * the AtoN service. Once the last known good AtoNs are older than the
+ * maximum staleness, or if the geometry was never looked up successfully,
+ * the AtoN service is queried in the foreground and any failure is reported.
+ * Entries that have not been requested for a while are considered gone and
+ * get evicted.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class AtonLookupCache {
+
+    /**
+     * The time in milliseconds for which the looked up AtoNs are fresh
+     */
+    @Value("${gla.rad.vdes-ctrl.aton-lookup-cache.ttl:120000}")
+    Long ttl;
+
+    /**
+     * The portion of the TTL after which the entries are refreshed ahead
+     */
+    @Value("${gla.rad.vdes-ctrl.aton-lookup-cache.refresh-ahead:0.5}")
+    Double refreshAhead;
+
+    /**
+     * The time in milliseconds after which unused entries get evicted
+     */
+    @Value("${gla.rad.vdes-ctrl.aton-lookup-cache.expiry:600000}")
+    Long expiry;
+
+    /**
+     * The time in milliseconds for which the last known AtoNs can be served stale
+     */
+    @Value("${gla.rad.vdes-ctrl.aton-lookup-cache.max-stale:1800000}")
+    Long maxStale;
+
+    /**
+     * The AtoN Service Client.
+     */
+    @Autowired
+    AtonServiceClient atonServiceClient;
+
+    /**
+     * The Executor Bulkheads.
+     */
+    @Autowired
+    ExecutorBulkheads executorBulkheads;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected final Map<String, CachedLookup> entries = new ConcurrentHashMap<>();
+    protected final Map<String, CompletableFuture<CachedLookup>> inFlight = new ConcurrentHashMap<>();
+    protected final AtomicLong hits = new AtomicLong();
+    protected final AtomicLong misses = new AtomicLong();
+    protected final AtomicLong evictions = new AtomicLong();
+    protected ThreadPoolExecutor bulkhead;
+    protected Timer refreshSuccessTimer;
+    protected Timer refreshFailureTimer;
+    protected Counter staleCounter;
+
+    /**
+     * Once the cache is initialised, we need to pick up the remote I/O
+     * bulkhead and register the cache metrics.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("AtoN Lookup Cache is booting up...");
+
+        // Pick up the remote I/O bulkhead
+        this.bulkhead = this.executorBulkheads.get(ExecutorBulkheads.REMOTE_IO);
+
+        // Register the cache metrics
+        Gauge.builder("aton.lookup.cache.size", this.entries, Map::size)
+                .description("The number of station geometries currently cached")
+                .register(this.meterRegistry);
+        FunctionCounter.builder("aton.lookup.cache.gets", this.hits, AtomicLong::get)
+                .description("The number of AtoN lookup cache lookups")
+                .tag("result", "hit")
+                .register(this.meterRegistry);
+        FunctionCounter.builder("aton.lookup.cache.gets", this.misses, AtomicLong::get)
+                .description("The number of AtoN lookup cache lookups")
+                .tag("result", "miss")
+                .register(this.meterRegistry);
+        Gauge.builder("aton.lookup.cache.hit.ratio", this, AtonLookupCache::getHitRatio)
+                .description("The ratio of the AtoN lookups served from the cache")
+                .register(this.meterRegistry);
+        FunctionCounter.builder("aton.lookup.cache.evictions", this.evictions, AtomicLong::get)
+                .description("The number of station geometries evicted from the cache")
+                .register(this.meterRegistry);
+        this.refreshSuccessTimer = Timer.builder("aton.lookup.cache.refresh")
+                .description("The time taken to look up the AtoNs of a geometry from the AtoN service")
+                .tag("result", "success")
+                .register(this.meterRegistry);
+        this.refreshFailureTimer = Timer.builder("aton.lookup.cache.refresh")
+                .description("The time taken to look up the AtoNs of a geometry from the AtoN service")
+                .tag("result", "failure")
+                .register(this.meterRegistry);
+        this.staleCounter = Counter.builder("aton.lookup.cache.stale")
+                .description("The number of AtoN lookups served stale after an AtoN service failure")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Returns the AtoNs found within the provided geometry. Fresh entries are
+     * returned straight away, and refreshed in the background if they are
+     * due. Expired entries within the maximum staleness are returned straight
+     * away as well, marked as stale, while they are refreshed in the
+     * background. Otherwise, the AtoN service is queried, sharing any request
+     * already in flight for the same geometry. If the AtoN service fails,
+     * the last known good AtoNs are returned, marked as stale, as long as
+     * they are not older than the maximum staleness.
+     *
+     * @param geometryJson the GeoJSON of the geometry to look up the AtoNs for
+     * @return the lookup of the AtoNs within the geometry
+     */
+    public Lookup get(String geometryJson) {
+        // Check if we already have a fresh entry for this geometry
+        final CachedLookup cached = this.entries.get(geometryJson);
+        final long now = System.currentTimeMillis();
+        if(Objects.nonNull(cached) && now - cached.getRefreshedAt() < this.ttl) {
+            this.hits.incrementAndGet();
+            if(now - cached.getRefreshedAt() >= this.ttl * this.refreshAhead) {
+                this.refresh(geometryJson, true);
+            }
+            return this.serve(cached, cached.isStale());
+        }
+
+        // Serve an expired entry as stale, while it is refreshed in the background
+        if(Objects.nonNull(cached) && now - cached.getRefreshedAt() <= this.maxStale) {
+            this.hits.incrementAndGet();
+            this.refresh(geometryJson, true);
+            return this.serve(cached, true);
+        }
+
+        // Otherwise query the AtoN service, or wait for the query in flight
+        this.misses.incrementAndGet();
+        try {
+            final CachedLookup refreshed = this.refresh(geometryJson, false).join();
+            return this.serve(refreshed, refreshed.isStale());
+        } catch (CompletionException ex) {
+            if(ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Evicts all the cache entries that have not been requested within the
+     * configured expiry period, e.g. the ones of the station geometries that
+     * have since been changed.
+     */
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000)
+    public void evictExpired() {
+        final long threshold = System.currentTimeMillis() - this.expiry;
+        this.entries.entrySet().removeIf(entry -> {
+            final boolean expired = entry.getValue().getLastAccessed() < threshold;
+            if(expired) {
+                log.debug("Evicting expired AtoN lookup {} from the cache", entry.getKey());
+                this.evictions.incrementAndGet();
+            }
+            return expired;
+        });
+    }
+
+    /**
+     * Clears all the entries of the cache.
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Gets the number of cache hits.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Gets the number of cache misses.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Gets the ratio of the lookups served from the cache.
+     *
+     * @return the ratio of the lookups served from the cache
+     */
+    public double getHitRatio() {
+        final long hits = this.hits.get();
+        final long total = hits + this.misses.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Gets the number of lookups served stale.
+     *
+     * @return the number of lookups served stale
+     */
+    public long getStaleServes() {
+        return (long) this.staleCounter.count();
+    }
+
+    /**
+     * Refreshes the entry of the provided geometry from the AtoN service,
+     * unless a refresh is already in flight, in which case that one is
+     * shared. The refresh is either performed by the calling thread or
+     * handed over to the remote I/O bulkhead. A full bulkhead simply skips
+     * the background refresh, since the current entry can still be served.
+     *
+     * @param geometryJson the GeoJSON of the geometry
+     * @param background whether to refresh on the remote I/O bulkhead
+     * @return the refreshed entry, once available
+     */
+    protected CompletableFuture<CachedLookup> refresh(String geometryJson, boolean background) {
+        final CompletableFuture<CachedLookup> refresh = new CompletableFuture<>();
+        final CompletableFuture<CachedLookup> existing = this.inFlight.putIfAbsent(geometryJson, refresh);
+        if(Objects.nonNull(existing)) {
+            return existing;
+        }
+
+        // Perform the refresh, making sure the next one can go ahead afterwards
+        final Runnable task = () -> {
+            try {
+                refresh.complete(this.load(geometryJson));
+            } catch (Throwable ex) {
+                refresh.completeExceptionally(ex);
+            } finally {
+                this.inFlight.remove(geometryJson, refresh);
+            }
+        };
+        if(!background) {
+            task.run();
+            return refresh;
+        }
+        try {
+            this.bulkhead.execute(task);
+        } catch (RejectedExecutionException ex) {
+            log.debug("AtoN lookup refresh skipped - remote I/O bulkhead is full");
+            this.inFlight.remove(geometryJson, refresh);
+            refresh.completeExceptionally(ex);
+        }
+        return refresh;
+    }
+
+    /**
+     * Looks up the AtoNs within the provided geometry from the AtoN service
+     * and updates the cache. If the AtoN service fails, an entry that is
+     * still fresh, i.e. one refreshed ahead, is kept as it is until its TTL
+     * runs out. Otherwise, the last known good AtoNs are kept, marked as
+     * stale, but with their original refresh time, so that the next lookup
+     * tries again. The failure is only propagated if there are none, or if
+     * they have been stale for too long.
+     *
+     * @param geometryJson the GeoJSON of the geometry
+     * @return the updated entry
+     */
+    protected CachedLookup load(String geometryJson) {
+        final CachedLookup previous = this.entries.get(geometryJson);
+        final long start = System.nanoTime();
+        CachedLookup updated;
+        try {
+            final List<S125Node> atons = Optional.ofNullable(this.atonServiceClient.getMessagesForGeometry(geometryJson))
+                    .<List<S125Node>>map(ArrayList::new)
+                    .orElseGet(ArrayList::new);
+            this.refreshSuccessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            updated = new CachedLookup(Collections.unmodifiableList(atons), System.currentTimeMillis(), false);
+        } catch (RuntimeException ex) {
+            this.refreshFailureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if(Objects.isNull(previous) || System.currentTimeMillis() - previous.getRefreshedAt() > this.maxStale) {
+                throw ex;
+            }
+            if(!previous.isStale() && System.currentTimeMillis() - previous.getRefreshedAt() < this.ttl) {
+                log.warn("AtoN service refresh-ahead failed, keeping the current AtoNs: {}", ex.getMessage());
+                return previous;
+            }
+            log.warn("AtoN service lookup failed, serving the last known AtoNs as stale: {}", ex.getMessage());
+            updated = new CachedLookup(previous.getAtons(), previous.getRefreshedAt(), true);
+            updated.touch();
+        }
+        this.entries.put(geometryJson, updated);
+        return updated;
+    }
+
+    /**
+     * Serves the provided entry, marking it as accessed and counting it if
+     * it is served stale.
+     *
+     * @param cached the cached entry
+     * @param stale whether the entry is served stale
+     * @return the lookup of the entry
+     */
+    protected Lookup serve(CachedLookup cached, boolean stale) {
+        cached.touch();
+        if(stale) {
+            this.staleCounter.increment();
+        }
+        return new Lookup(cached.getAtons(), stale);
+    }
+
+    /**
+     * The Lookup Class.
+     * <p/>
+     * Holds the AtoNs found within a geometry, along with whether they are
+     * stale, i.e. served after the AtoN service failed to refresh them.
+     */
+    public static class Lookup {
+
+        // Class Variables
+        private final List<S125Node> atons;
+        private final boolean stale;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param atons     The AtoNs found within the geometry
+         * @param stale     Whether the AtoNs are stale
+         */
+        public Lookup(List<S125Node> atons, boolean stale) {
+            this.atons = atons;
+            this.stale = stale;
+        }
+
+        /**
+         * Gets the AtoNs found within the geometry.
+         *
+         * @return the AtoNs found within the geometry
+         */
+        public List<S125Node> getAtons() {
+            return atons;
+        }
+
+        /**
+         * Gets whether the AtoNs are stale.
+         *
+         * @return whether the AtoNs are stale
+         */
+        public boolean isStale() {
+            return stale;
+        }
+
+    }
+
+    /**
+     * The Cached Lookup Class.
+     * <p/>
+     * Holds the AtoNs found within a geometry, along with the last time they
+     * were refreshed and accessed.
+     */
+    protected static class CachedLookup {
+
+        // Class Variables
+        private final List<S125Node> atons;
+        private final long refreshedAt;
+        private final boolean stale;
+        private volatile long lastAccessed;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param atons         The AtoNs found within the geometry
+         * @param refreshedAt   The time the entry was refreshed
+         * @param stale         Whether the AtoNs are stale
+         */
+        protected CachedLookup(List<S125Node> atons, long refreshedAt, boolean stale) {
+            this.atons = atons;
+            this.refreshedAt = refreshedAt;
+            this.stale = stale;
+            this.lastAccessed = refreshedAt;
+        }
+
+        /**
+         * Marks the entry as accessed.
+         */
+        protected void touch() {
+            this.lastAccessed = System.currentTimeMillis();
+        }
+
+        /**
+         * Gets the AtoNs found within the geometry.
+         *
+         * @return the AtoNs found within the geometry
+         */
+        protected List<S125Node> getAtons() {
+            return this.atons;
+        }
+
+        /**
+         * Gets the time the entry was refreshed.
+         *
+         * @return the time the entry was refreshed
+         */
+        protected long getRefreshedAt() {
+            return this.refreshedAt;
+        }
+
+        /**
+         * Gets whether the AtoNs are stale.
+         *
+         * @return whether the AtoNs are stale
+         */
+        protected boolean isStale() {
+            return this.stale;
+        }
+
+        /**
+         * Gets the last time the entry was accessed.
+         *
+         * @return the last time the entry was accessed
+         */
+        protected long getLastAccessed() {
+            return this.lastAccessed;
+        }
+
+    }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
+import org.grad.eNav.vdesCtrl.utils.AISMessageUtils;
+import org.grad.vdes1000.formats.ais.messages.AISMessage21;
+import org.locationtech.jts.geom.Geometry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLStreamException;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The AtoN Message Cache Component.
+ * <p/>
+ * This component holds the AIS Message 21 fields prepared for each AtoN
+ * across all stations, so that the S-125 content of an AtoN is only parsed
+ * once, no matter how many stations advertise it or how many cycles go by.
+ * The entries are keyed by the AtoN ID code and validated against all the
+ * S-125 node fields the message is populated from, i.e. the content, the
+ * geometry, the MMSI code and the display name, so any update of the AtoN
+ * will invalidate them. Since the same content string is normally looked up
+ * cycle after cycle, comparing it is usually just a reference check, rather
+ * than hashing the whole content on every lookup.
+ * <p/>
+ * Each lookup returns a fresh message copy stamped with the current time,
+ * so the timestamp-dependent parts (i.e. the signature stamp) are still
+ * computed per transmission. Entries that have not been requested for a
+ * while are considered gone and get evicted.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class AtonMessageCache {
+
+    /**
+     * The time in milliseconds after which unused entries get evicted
+     */
+    @Value("${gla.rad.vdes-ctrl.aton-message-cache.expiry:300000}")
+    Long expiry;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected final Map<String, CachedAtonMessage> entries = new ConcurrentHashMap<>();
+    protected final AtomicLong hits = new AtomicLong();
+    protected final AtomicLong misses = new AtomicLong();
+    protected final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Once the cache is initialised, we need to register its metrics so that
+     * they become available through the actuator.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("AtoN Message Cache is booting up...");
+
+        // Register the cache metrics
+        Gauge.builder("aton.message.cache.size", this.entries, Map::size)
+                .description("The number of AtoN messages currently cached")
+                .register(this.meterRegistry);
+        FunctionCounter.builder("aton.message.cache.gets", this.hits, AtomicLong::get)
+                .description("The number of AtoN message cache lookups")
+                .tag("result", "hit")
+                .register(this.meterRegistry);
+        FunctionCounter.builder("aton.message.cache.gets", this.misses, AtomicLong::get)
+                .description("The number of AtoN message cache lookups")
+                .tag("result", "miss")
+                .register(this.meterRegistry);
+        FunctionCounter.builder("aton.message.cache.evictions", this.evictions, AtomicLong::get)
+                .description("The number of AtoN messages evicted from the cache")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Returns the AIS Message 21 for the provided S-125 node. If the same
+     * AtoN content has already been prepared, the cached fields are used,
+     * otherwise the S-125 content gets parsed and the cache is updated.
+     * In both cases a new message is returned, stamped with the current
+     * time.
+     *
+     * @param s125Node the S-125 node to get the AIS Message 21 for
+     * @return the AIS Message 21 to be transmitted
+     * @throws XMLStreamException when the S-125 content cannot be parsed
+     */
+    public AISMessage21 getAisMessage21(S125Node s125Node) throws XMLStreamException {
+        // Entries without an ID code or content cannot really be cached
+        if(Objects.isNull(s125Node.getIdCode()) || Objects.isNull(s125Node.getContent())) {
+            return AISMessageUtils.s125ToAisMessage21(s125Node);
+        }
+
+        // Check if we already have a valid entry for this AtoN
+        final CachedAtonMessage cached = this.entries.get(s125Node.getIdCode());
+        if(Objects.nonNull(cached) && cached.matches(s125Node)) {
+            this.hits.incrementAndGet();
+            return cached.newAisMessage21();
+        }
+
+        // Otherwise parse the content and cache the prepared message
+        this.misses.incrementAndGet();
+        final CachedAtonMessage prepared = new CachedAtonMessage(s125Node, AISMessageUtils.s125ToAisMessage21(s125Node));
+        this.entries.put(s125Node.getIdCode(), prepared);
+        return prepared.newAisMessage21();
+    }
+
+    /**
+     * Evicts all the cache entries that have not been requested within the
+     * configured expiry period. Since all stations request their AtoNs on
+     * every cycle, this should only remove the AtoNs that are gone.
+     */
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000)
+    public void evictExpired() {
+        final long threshold = System.currentTimeMillis() - this.expiry;
+        this.entries.entrySet().removeIf(entry -> {
+            final boolean expired = entry.getValue().getLastAccessed() < threshold;
+            if(expired) {
+                log.debug("Evicting expired AtoN message {} from the cache", entry.getKey());
+                this.evictions.incrementAndGet();
+            }
+            return expired;
+        });
+    }
+
+    /**
+     * Clears all the entries of the cache.
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Gets the number of cache hits.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Gets the number of cache misses.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Gets the number of cache evictions.
+     *
+     * @return the number of cache evictions
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * The Cached AtoN Message Class.
+     * <p/>
+     * Holds the S-125 node fields the AIS Message 21 is populated from,
+     * along with the AIS Message 21 template, from which new messages can be
+     * generated for each transmission.
+     */
+    protected static class CachedAtonMessage {
+
+        // Class Variables
+        private final String content;
+        private final Geometry geometry;
+        private final BigInteger mmsiCode;
+        private final String displayName;
+        private final AISMessage21 template;
+        private volatile long lastAccessed;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param s125Node      The S-125 node the template was populated from
+         * @param template      The AIS Message 21 template
+         */
+        protected CachedAtonMessage(S125Node s125Node, AISMessage21 template) {
+            this.content = s125Node.getContent();
+            this.geometry = Optional.ofNullable(s125Node.getGeometry()).map(Geometry::copy).orElse(null);
+            this.mmsiCode = s125Node.getMmsiCode();
+            this.displayName = AISMessageUtils.getDisplayName(s125Node).orElse(null);
+            this.template = template;
+            this.lastAccessed = System.currentTimeMillis();
+        }
+
+        /**
+         * Checks whether the cached entry was generated from the same fields
+         * as the provided S-125 node. The content comparison only goes
+         * through the whole content if it is not the same string.
+         *
+         * @param s125Node the S-125 node to be checked
+         * @return whether the cached entry matches the S-125 node
+         */
+        protected boolean matches(S125Node s125Node) {
+            return Objects.equals(this.content, s125Node.getContent())
+                    && Objects.equals(this.geometry, s125Node.getGeometry())
+                    && Objects.equals(this.mmsiCode, s125Node.getMmsiCode())
+                    && Objects.equals(this.displayName, AISMessageUtils.getDisplayName(s125Node).orElse(null));
+        }
+
+        /**
+         * Generates a new AIS Message 21 from the cached template, stamped
+         * with the current time. This also marks the entry as accessed.
+         *
+         * @return the new AIS Message 21
+         */
+        protected AISMessage21 newAisMessage21() {
+            this.lastAccessed = System.currentTimeMillis();
+            final AISMessage21 aisMessage21 = new AISMessage21();
+            aisMessage21.setUid(this.template.getUid());
+            aisMessage21.setName(this.template.getName());
+            aisMessage21.setLatitude(this.template.getLatitude());
+            aisMessage21.setLongitude(this.template.getLongitude());
+            aisMessage21.setMmsi(this.template.getMmsi());
+            aisMessage21.setLength(this.template.getLength());
+            aisMessage21.setWidth(this.template.getWidth());
+            aisMessage21.setRaim(this.template.getRaim());
+            aisMessage21.setAtonType(this.template.getAtonType());
+            aisMessage21.setVaton(this.template.getVaton());
+            aisMessage21.setTimestamp(LocalDateTime.now());
+            return aisMessage21;
+        }
+
+        /**
+         * Gets the last time the entry was accessed.
+         *
+         * @return the last time the entry was accessed
+         */
+        protected long getLastAccessed() {
+            return this.lastAccessed;
+        }
+
+    }
+
+}
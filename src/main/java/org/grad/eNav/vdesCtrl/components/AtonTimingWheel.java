@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.config.AtonTimingWheelConfigProperties;
+import org.grad.vdes1000.formats.generic.AtonType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The AtoN Timing Wheel Component.
+ * <p/>
+ * This component schedules the periodic advertisement of each AtoN of each
+ * station, using its own interval, so that the transmissions are spread
+ * smoothly over time instead of going out in a burst every minute. The
+ * entries are kept in a hierarchical timing wheel, so that registering,
+ * cancelling and firing them is cheap, even for tens of thousands of them.
+ * <p/>
+ * The wheel is advanced by a single timer thread, while the advertisements
+ * themselves are dispatched to the executor each entry was registered with,
+ * i.e. the advertising bulkhead of its station type, so that the AtoNs of
+ * one station type cannot hold up the rest. New entries get their
+ * start offset spread evenly across their interval, and the delay between
+ * the time each entry was due and the time it actually fired is reported
+ * as the scheduler lag.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class AtonTimingWheel {
+
+    /**
+     * The golden ratio conjugate, used to spread the start offsets.
+     */
+    private static final double GOLDEN_RATIO_CONJUGATE = 0.6180339887498949;
+
+    /**
+     * The AtoN Timing Wheel Configuration Properties.
+     */
+    @Autowired
+    AtonTimingWheelConfigProperties atonTimingWheelConfigProperties;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected ScheduledExecutorService timer;
+    protected final Map<Object, Map<String, WheelEntry>> entries = new ConcurrentHashMap<>();
+    protected final List<WheelLevel> levels = new ArrayList<>();
+    protected final AtomicLong sequence = new AtomicLong();
+    protected long tick;
+    protected int wheelSize;
+    protected long currentTime;
+    protected Timer lag;
+    protected Counter rejected;
+
+    /**
+     * Once the timing wheel is initialised, we need to register its metrics
+     * and start the timer thread that advances it.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("AtoN Timing Wheel is booting up...");
+
+        // Initialise the wheel
+        this.tick = Math.max(1, this.atonTimingWheelConfigProperties.getTick());
+        this.wheelSize = Math.max(2, this.atonTimingWheelConfigProperties.getWheelSize());
+        this.currentTime = System.currentTimeMillis() / this.tick * this.tick;
+
+        // Register the timing wheel metrics
+        this.lag = Timer.builder("aton.timing.wheel.lag")
+                .description("The delay between the time the AtoN advertisements were due and when they fired")
+                .register(this.meterRegistry);
+        this.rejected = Counter.builder("aton.timing.wheel.rejected")
+                .description("The number of AtoN advertisements rejected by their executor")
+                .register(this.meterRegistry);
+        Gauge.builder("aton.timing.wheel.entries", this, AtonTimingWheel::size)
+                .description("The number of AtoN advertisements scheduled")
+                .register(this.meterRegistry);
+
+        // And start advancing the wheel
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "aton-timing-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.scheduleAtFixedRate(this::advance, this.tick, this.tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * When shutting down the application we need to make sure that the
+     * timer thread has been shut down.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("AtoN Timing Wheel is shutting down...");
+        Optional.ofNullable(this.timer).ifPresent(ScheduledExecutorService::shutdownNow);
+    }
+
+    /**
+     * Returns the advertisement interval configured for the provided AtoN
+     * type.
+     *
+     * @param atonType the AtoN type
+     * @return the advertisement interval in milliseconds
+     */
+    public long getInterval(AtonType atonType) {
+        return this.atonTimingWheelConfigProperties.getInterval(atonType);
+    }
+
+    /**
+     * Registers a periodic advertisement task for the provided owner and
+     * key, e.g. a station advertiser and an AtoN UID. If the entry already
+     * exists with the same interval, only its task is replaced, so its
+     * timing is not disturbed. Otherwise, a new entry is scheduled with a
+     * start offset spread within its interval. The task is run on the
+     * provided executor whenever the entry is due, e.g. the advertising
+     * bulkhead of the station type.
+     *
+     * @param owner the owner of the entry
+     * @param key the key of the entry for the owner
+     * @param intervalMillis the advertisement interval in milliseconds
+     * @param executor the executor to run the advertisement task on
+     * @param task the advertisement task
+     */
+    public void register(Object owner, String key, long intervalMillis, Executor executor, Runnable task) {
+        final Map<String, WheelEntry> ownerEntries = this.entries.computeIfAbsent(owner, o -> new ConcurrentHashMap<>());
+        final long interval = Math.max(intervalMillis, this.tick);
+
+        // If the entry exists with the same interval, just update the task
+        final WheelEntry existing = ownerEntries.get(key);
+        if(Objects.nonNull(existing) && existing.interval == interval) {
+            existing.executor = executor;
+            existing.task = task;
+            return;
+        }
+        Optional.ofNullable(existing).ifPresent(WheelEntry::cancel);
+
+        // Otherwise spread the start of the new entry within its interval
+        final double spread = (this.sequence.getAndIncrement() * GOLDEN_RATIO_CONJUGATE) % 1.0;
+        final WheelEntry entry = new WheelEntry(interval, System.currentTimeMillis() + (long) (spread * interval), executor, task);
+        ownerEntries.put(key, entry);
+        synchronized (this.levels) {
+            this.add(entry);
+        }
+    }
+
+    /**
+     * Removes all the entries of the provided owner, which are not included
+     * in the provided keys.
+     *
+     * @param owner the owner of the entries
+     * @param keys the keys of the entries to be retained
+     */
+    public void retain(Object owner, Collection<String> keys) {
+        Optional.ofNullable(this.entries.get(owner))
+                .ifPresent(ownerEntries -> ownerEntries.entrySet().removeIf(entry -> {
+                    final boolean remove = !keys.contains(entry.getKey());
+                    if(remove) {
+                        entry.getValue().cancel();
+                    }
+                    return remove;
+                }));
+    }
+
+    /**
+     * Cancels all the entries of the provided owner.
+     *
+     * @param owner the owner of the entries
+     */
+    public void cancel(Object owner) {
+        Optional.ofNullable(this.entries.remove(owner))
+                .ifPresent(ownerEntries -> ownerEntries.values().forEach(WheelEntry::cancel));
+    }
+
+    /**
+     * Returns the number of entries currently scheduled.
+     *
+     * @return the number of entries currently scheduled
+     */
+    public int size() {
+        return this.entries.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Advances the wheel up to the current time, dispatching all the entries
+     * that became due to their executors and rescheduling them for their
+     * next advertisement. If the timer thread fell behind, the missed
+     * advertisements are not repeated, but the entries are just moved to
+     * their next interval.
+     */
+    protected void advance() {
+        final long now = System.currentTimeMillis();
+        final List<WheelEntry> due = new ArrayList<>();
+        synchronized (this.levels) {
+            while(this.currentTime + this.tick <= now) {
+                // Cascade the higher levels down, when their tick boundary is reached
+                for(int l = this.levels.size() - 1; l > 0; l--) {
+                    final WheelLevel level = this.levels.get(l);
+                    if(this.currentTime % level.tick == 0) {
+                        level.drain(this.currentTime, this.wheelSize).forEach(this::add);
+                    }
+                }
+
+                // And collect the entries of the current tick
+                for(WheelEntry entry : this.getLevel(0).drain(this.currentTime, this.wheelSize)) {
+                    if(entry.cancelled) {
+                        continue;
+                    }
+                    due.add(entry);
+                    entry.fired = entry.deadline;
+                    while(entry.deadline <= now) {
+                        entry.deadline += entry.interval;
+                    }
+                    this.add(entry);
+                }
+                this.currentTime += this.tick;
+            }
+        }
+
+        // Dispatch the due entries
+        for(WheelEntry entry : due) {
+            this.lag.record(Math.max(0, now - entry.fired), TimeUnit.MILLISECONDS);
+            try {
+                entry.executor.execute(entry.task);
+            } catch (RejectedExecutionException ex) {
+                this.rejected.increment();
+                log.warn("AtoN advertisement rejected by its executor");
+            }
+        }
+    }
+
+    /**
+     * Adds an entry to the lowest wheel level that covers its deadline. This
+     * should only be called while holding the wheel lock.
+     *
+     * @param entry the entry to be added
+     */
+    protected void add(WheelEntry entry) {
+        if(entry.cancelled) {
+            return;
+        }
+        final long deadline = Math.max(entry.deadline, this.currentTime);
+        for(int l = 0; ; l++) {
+            final WheelLevel level = this.getLevel(l);
+            final long base = this.currentTime - this.currentTime % level.tick;
+            if(deadline < base + level.tick * this.wheelSize) {
+                level.bucket(deadline, this.wheelSize).add(entry);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the requested wheel level, creating it if required. Each level
+     * covers the whole span of the previous one in each of its buckets.
+     *
+     * @param l the index of the wheel level
+     * @return the wheel level
+     */
+    protected WheelLevel getLevel(int l) {
+        while(this.levels.size() <= l) {
+            this.levels.add(new WheelLevel(this.levels.isEmpty() ? this.tick : this.levels.getLast().tick * this.wheelSize, this.wheelSize));
+        }
+        return this.levels.get(l);
+    }
+
+    /**
+     * The Wheel Level Class.
+     * <p/>
+     * Each wheel level holds a ring of buckets, each covering a single tick
+     * of that level.
+     */
+    protected static class WheelLevel {
+
+        // Class Variables
+        private final long tick;
+        private final ArrayDeque<WheelEntry>[] buckets;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param tick      The tick of the level in milliseconds
+         * @param wheelSize The number of buckets in the level
+         */
+        @SuppressWarnings("unchecked")
+        protected WheelLevel(long tick, int wheelSize) {
+            this.tick = tick;
+            this.buckets = new ArrayDeque[wheelSize];
+        }
+
+        /**
+         * Returns the bucket covering the provided time.
+         *
+         * @param time the time in milliseconds
+         * @param wheelSize the number of buckets in the level
+         * @return the bucket covering the provided time
+         */
+        protected ArrayDeque<WheelEntry> bucket(long time, int wheelSize) {
+            final int index = (int) ((time / this.tick) % wheelSize);
+            if(Objects.isNull(this.buckets[index])) {
+                this.buckets[index] = new ArrayDeque<>();
+            }
+            return this.buckets[index];
+        }
+
+        /**
+         * Removes and returns all the entries of the bucket covering the
+         * provided time.
+         *
+         * @param time the time in milliseconds
+         * @param wheelSize the number of buckets in the level
+         * @return the entries of the bucket
+         */
+        protected List<WheelEntry> drain(long time, int wheelSize) {
+            final ArrayDeque<WheelEntry> bucket = this.bucket(time, wheelSize);
+            final List<WheelEntry> drained = new ArrayList<>(bucket);
+            bucket.clear();
+            return drained;
+        }
+
+    }
+
+    /**
+     * The Wheel Entry Class.
+     * <p/>
+     * Holds the periodic advertisement task of an entry, along with the
+     * executor to run it on, its interval and its next deadline.
+     */
+    protected static class WheelEntry {
+
+        // Class Variables
+        private final long interval;
+        private long deadline;
+        private long fired;
+        private volatile Executor executor;
+        private volatile Runnable task;
+        private volatile boolean cancelled;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param interval  The advertisement interval in milliseconds
+         * @param deadline  The first deadline in milliseconds
+         * @param executor  The executor to run the advertisement task on
+         * @param task      The advertisement task
+         */
+        protected WheelEntry(long interval, long deadline, Executor executor, Runnable task) {
+            this.interval = interval;
+            this.deadline = deadline;
+            this.executor = executor;
+            this.task = task;
+        }
+
+        /**
+         * Gets the next deadline of the entry.
+         *
+         * @return the next deadline of the entry
+         */
+        protected long getDeadline() {
+            return this.deadline;
+        }
+
+        /**
+         * Marks the entry as cancelled, so it will be dropped by the wheel.
+         */
+        protected void cancel() {
+            this.cancelled = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.services.StationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Blacklist Index Component.
+ * <p/>
+ * Holds the blacklisted AtoN numbers of every station in memory, so that the
+ * advertisers can check them on each transmission without any database
+ * access. The blacklists are loaded once on start-up, and each one is held as
+ * an immutable set, which is swapped atomically whenever it changes.
+ * Therefore, the blacklist changes apply from the next transmission onwards,
+ * without reloading the advertisers.
+ * <p/>
+ * The changes are persisted asynchronously, by a single background thread,
+ * so they are written in order. Any changes made to a station while its
+ * blacklist waits to be written are coalesced, since the latest blacklist is
+ * always the one persisted. The blacklists that fail to be written are
+ * queued again with an exponential backoff, until they are persisted, the
+ * maximum number of attempts is reached, or the station gets deleted.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class BlacklistIndex {
+
+    /**
+     * The delay before retrying a failed write in milliseconds
+     */
+    @Value("${gla.rad.vdes-ctrl.blacklist-index.retry-delay:1000}")
+    Long retryDelay;
+
+    /**
+     * The maximum delay before retrying a failed write in milliseconds
+     */
+    @Value("${gla.rad.vdes-ctrl.blacklist-index.max-retry-delay:60000}")
+    Long maxRetryDelay;
+
+    /**
+     * The maximum number of attempts to write a blacklist before giving up
+     */
+    @Value("${gla.rad.vdes-ctrl.blacklist-index.max-attempts:20}")
+    Integer maxAttempts;
+
+    /**
+     * The Station Service.
+     */
+    @Autowired
+    StationService stationService;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected final Map<BigInteger, Set<String>> blacklists = new ConcurrentHashMap<>();
+    protected final Set<BigInteger> pending = ConcurrentHashMap.newKeySet();
+    protected final AtomicInteger queued = new AtomicInteger();
+    protected ScheduledExecutorService persister;
+    protected Counter persistedCounter;
+    protected Counter failedCounter;
+    protected Counter abandonedCounter;
+
+    /**
+     * Once the index is initialised, we need to load the stored blacklists,
+     * start the persisting thread and register the index metrics.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("Blacklist Index is booting up...");
+
+        // Load the stored blacklists
+        this.stationService.findAllBlacklists()
+                .forEach((stationId, atonIdCodes) -> this.blacklists.put(stationId, Set.copyOf(atonIdCodes)));
+
+        // Start the persisting thread
+        this.persister = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "blacklist-persister");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Register the index metrics
+        this.persistedCounter = Counter.builder("blacklist.index.persisted")
+                .description("The number of station blacklists persisted")
+                .register(this.meterRegistry);
+        this.failedCounter = Counter.builder("blacklist.index.failed")
+                .description("The number of station blacklists that failed to be persisted")
+                .register(this.meterRegistry);
+        this.abandonedCounter = Counter.builder("blacklist.index.abandoned")
+                .description("The number of station blacklists given up on after failing to be persisted")
+                .register(this.meterRegistry);
+        Gauge.builder("blacklist.index.pending", this.pending, Set::size)
+                .description("The number of station blacklists waiting to be persisted")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * When shutting down the application we need to make sure that all the
+     * pending blacklists have been persisted, including the ones waiting to
+     * be retried.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("Blacklist Index is shutting down...");
+        Optional.ofNullable(this.persister).ifPresent(executor -> {
+            // Give the pending and retried writes a chance to complete
+            final long deadline = System.currentTimeMillis() + 5000;
+            try {
+                while(this.queued.get() > 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(50);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if(this.queued.get() > 0) {
+                log.warn("Blacklist Index shut down with {} blacklists not persisted", this.queued.get());
+            }
+            executor.shutdownNow();
+        });
+    }
+
+    /**
+     * Returns the blacklisted AtoN numbers of the provided station.
+     *
+     * @param stationId the ID of the station
+     * @return the blacklisted AtoN numbers of the station
+     */
+    public Set<String> get(BigInteger stationId) {
+        return Optional.ofNullable(stationId)
+                .map(this.blacklists::get)
+                .orElseGet(Collections::emptySet);
+    }
+
+    /**
+     * Returns whether the provided AtoN number is blacklisted for the
+     * provided station.
+     *
+     * @param stationId the ID of the station
+     * @param atonIdCode the AtoN number
+     * @return whether the AtoN number is blacklisted for the station
+     */
+    public boolean isBlacklisted(BigInteger stationId, String atonIdCode) {
+        return Objects.nonNull(atonIdCode) && this.get(stationId).contains(atonIdCode);
+    }
+
+    /**
+     * Adds the provided AtoN number into the blacklist of the provided
+     * station, and persists the blacklist asynchronously.
+     *
+     * @param stationId the ID of the station
+     * @param atonIdCode the AtoN number to be blacklisted
+     */
+    public void add(BigInteger stationId, String atonIdCode) {
+        this.blacklists.compute(stationId, (id, blacklist) -> {
+            final Set<String> updated = new HashSet<>(Optional.ofNullable(blacklist).orElseGet(Collections::emptySet));
+            updated.add(atonIdCode);
+            return Set.copyOf(updated);
+        });
+        this.persist(stationId);
+    }
+
+    /**
+     * Removes the provided AtoN number from the blacklist of the provided
+     * station, and persists the blacklist asynchronously.
+     *
+     * @param stationId the ID of the station
+     * @param atonIdCode the AtoN number to be removed from the blacklist
+     */
+    public void remove(BigInteger stationId, String atonIdCode) {
+        this.blacklists.computeIfPresent(stationId, (id, blacklist) -> {
+            final Set<String> updated = new HashSet<>(blacklist);
+            updated.remove(atonIdCode);
+            return Set.copyOf(updated);
+        });
+        this.persist(stationId);
+    }
+
+    /**
+     * Removes the blacklist of the provided station from the index, e.g.
+     * when the station is deleted.
+     *
+     * @param stationId the ID of the station
+     */
+    public void evict(BigInteger stationId) {
+        this.blacklists.remove(stationId);
+    }
+
+    /**
+     * Schedules the blacklist of the provided station to be persisted, unless
+     * it is already waiting to be.
+     *
+     * @param stationId the ID of the station
+     */
+    protected void persist(BigInteger stationId) {
+        if(!this.pending.add(stationId)) {
+            return;
+        }
+        this.queued.incrementAndGet();
+        this.persister.execute(() -> this.write(stationId, 0));
+    }
+
+    /**
+     * Writes the latest blacklist of the provided station on the persisting
+     * thread. If the write fails, the blacklist is queued again after a
+     * delay, which doubles on every failed attempt up to the maximum one,
+     * unless a newer change has already queued it. The write is given up
+     * once the maximum number of attempts is reached, or if the station
+     * has been deleted in the meantime.
+     *
+     * @param stationId the ID of the station
+     * @param attempt the number of the previous failed attempts
+     */
+    protected void write(BigInteger stationId, int attempt) {
+        this.pending.remove(stationId);
+        try {
+            // The blacklists of the deleted stations need not be persisted
+            if(!this.blacklists.containsKey(stationId)) {
+                if(attempt > 0) {
+                    this.abandonedCounter.increment();
+                    log.warn("Station {} was deleted - giving up persisting its blacklist", stationId);
+                }
+                return;
+            }
+            this.stationService.saveBlacklist(stationId, this.get(stationId));
+            this.persistedCounter.increment();
+        } catch (Exception ex) {
+            this.failedCounter.increment();
+            if(attempt + 1 >= this.maxAttempts) {
+                this.abandonedCounter.increment();
+                log.error("Failed to persist the blacklist of station {} after {} attempts, giving up: {}", stationId, attempt + 1, ex.getMessage());
+                return;
+            }
+            final long delay = Math.min(this.maxRetryDelay, this.retryDelay << Math.min(attempt, 16));
+            log.error("Failed to persist the blacklist of station {}, retrying in {} ms: {}", stationId, delay, ex.getMessage());
+            if(this.pending.add(stationId)) {
+                this.queued.incrementAndGet();
+                try {
+                    this.persister.schedule(() -> this.write(stationId, attempt + 1), delay, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException rex) {
+                    this.queued.decrementAndGet();
+                    log.warn("Blacklist Index shutting down - the blacklist of station {} was not persisted", stationId);
+                }
+            }
+        } finally {
+            this.queued.decrementAndGet();
+        }
+    }
+
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.feign.CKeeperClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+
+/**
+ * The CKeeper Guard Component.
+ * <p/>
+ * This component wraps all the calls to the cKeeper service, so that a slow
+ * or unavailable cKeeper cannot stall the station advertisements. Each call
+ * is performed on its own cKeeper I/O bulkhead, with its bounded queue, so
+ * that it does not compete with the rest of the remote I/O calls, and is
+ * abandoned if it does not complete within the configured timeout.
+ * <p/>
+ * The calls are also protected by a circuit breaker. After a number of
+ * consecutive failures the circuit opens and all calls are rejected straight
+ * away, so that the messages go out unsigned without waiting. Once the open
+ * duration has elapsed, a single trial call is let through, which either
+ * closes the circuit again or keeps it open for another period.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class CKeeperGuard {
+
+    /**
+     * The circuit breaker states.
+     */
+    public enum CircuitState {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * The time to wait for each cKeeper call in milliseconds
+     */
+    @Value("${gla.rad.vdes-ctrl.ckeeper-guard.timeout:2000}")
+    Long timeout;
+
+    /**
+     * The number of consecutive failures that open the circuit
+     */
+    @Value("${gla.rad.vdes-ctrl.ckeeper-guard.failure-threshold:5}")
+    Integer failureThreshold;
+
+    /**
+     * The time to keep the circuit open for in milliseconds
+     */
+    @Value("${gla.rad.vdes-ctrl.ckeeper-guard.open-duration:30000}")
+    Long openDuration;
+
+    /**
+     * The CKeeper Client
+     */
+    @Autowired
+    CKeeperClient cKeeperClient;
+
+    /**
+     * The Executor Bulkheads.
+     */
+    @Autowired
+    ExecutorBulkheads executorBulkheads;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected ThreadPoolExecutor bulkhead;
+    protected CircuitState state = CircuitState.CLOSED;
+    protected int consecutiveFailures;
+    protected long openedAt;
+    protected boolean trialInFlight;
+    protected Counter rejectedOpenCounter;
+    protected Counter rejectedFullCounter;
+    protected Counter timeoutCounter;
+    protected Counter failureCounter;
+
+    /**
+     * Once the guard is initialised, we need to pick up the cKeeper I/O
+     * bulkhead and register the guard metrics.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("CKeeper Guard is booting up...");
+
+        // Pick up the cKeeper I/O bulkhead
+        this.bulkhead = this.executorBulkheads.get(ExecutorBulkheads.CKEEPER_IO);
+
+        // Register the guard metrics
+        this.rejectedOpenCounter = Counter.builder("ckeeper.guard.rejected")
+                .description("The number of cKeeper calls rejected")
+                .tag("reason", "open")
+                .register(this.meterRegistry);
+        this.rejectedFullCounter = Counter.builder("ckeeper.guard.rejected")
+                .description("The number of cKeeper calls rejected")
+                .tag("reason", "bulkhead")
+                .register(this.meterRegistry);
+        this.timeoutCounter = Counter.builder("ckeeper.guard.timeouts")
+                .description("The number of cKeeper calls that timed out")
+                .register(this.meterRegistry);
+        this.failureCounter = Counter.builder("ckeeper.guard.failures")
+                .description("The number of cKeeper calls that failed")
+                .register(this.meterRegistry);
+        Gauge.builder("ckeeper.guard.state", this, guard -> guard.getState().ordinal())
+                .description("The circuit breaker state (0: closed, 1: open, 2: half-open)")
+                .register(this.meterRegistry);
+        Gauge.builder("ckeeper.guard.in.flight", this.bulkhead, ThreadPoolExecutor::getActiveCount)
+                .description("The number of cKeeper calls in flight")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * When shutting down the application we just need to log the event, as
+     * the cKeeper I/O bulkhead is shut down along with the rest of them.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("CKeeper Guard is shutting down...");
+    }
+
+    /**
+     * Generates an entity signature through the cKeeper service, protected
+     * by the circuit breaker, the bulkhead and the call timeout. If the call
+     * is not permitted or does not succeed in time, a CKeeperUnavailableException
+     * is thrown.
+     *
+     * @param entityName the name of the entity to sign for
+     * @param mmsi the MMSI of the entity
+     * @param algorithm the signature algorithm
+     * @param entityType the type of the entity
+     * @param signaturePayload the payload to be signed
+     * @return the generated signature
+     */
+    public byte[] generateEntitySignature(String entityName,
+                                          String mmsi,
+                                          String algorithm,
+                                          String entityType,
+                                          byte[] signaturePayload) {
+        // Check whether the call is permitted
+        if(!this.acquirePermission()) {
+            this.rejectedOpenCounter.increment();
+            throw new CKeeperUnavailableException("cKeeper circuit is open - call not permitted");
+        }
+
+        // Hand the call over to the bulkhead
+        final Future<byte[]> call;
+        try {
+            call = this.bulkhead.submit(() -> this.cKeeperClient.generateEntitySignature(entityName, mmsi, algorithm, entityType, signaturePayload));
+        } catch (RejectedExecutionException ex) {
+            this.releasePermission();
+            this.rejectedFullCounter.increment();
+            throw new CKeeperUnavailableException("cKeeper bulkhead is full - call rejected");
+        }
+
+        // And wait for it within the timeout
+        try {
+            final byte[] signature = call.get(this.timeout, TimeUnit.MILLISECONDS);
+            this.onSuccess();
+            return signature;
+        } catch (TimeoutException ex) {
+            call.cancel(true);
+            this.timeoutCounter.increment();
+            this.onFailure();
+            throw new CKeeperUnavailableException("cKeeper call timed out after " + this.timeout + "ms");
+        } catch (InterruptedException ex) {
+            call.cancel(true);
+            this.releasePermission();
+            Thread.currentThread().interrupt();
+            throw new CKeeperUnavailableException("cKeeper call interrupted");
+        } catch (ExecutionException ex) {
+            this.failureCounter.increment();
+            this.onFailure();
+            throw new CKeeperUnavailableException("cKeeper call failed: " + ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
+    /**
+     * Returns the current circuit breaker state. An open circuit whose open
+     * duration has elapsed is reported as half-open, since the next call will
+     * be let through as a trial.
+     *
+     * @return the current circuit breaker state
+     */
+    public synchronized CircuitState getState() {
+        if(this.state == CircuitState.OPEN && System.currentTimeMillis() - this.openedAt >= this.openDuration) {
+            return CircuitState.HALF_OPEN;
+        }
+        return this.state;
+    }
+
+    /**
+     * Returns the number of consecutive cKeeper call failures.
+     *
+     * @return the number of consecutive failures
+     */
+    public synchronized int getConsecutiveFailures() {
+        return this.consecutiveFailures;
+    }
+
+    /**
+     * Returns the number of calls rejected because the circuit was open.
+     *
+     * @return the number of calls rejected because the circuit was open
+     */
+    public long getRejectedOpen() {
+        return (long) this.rejectedOpenCounter.count();
+    }
+
+    /**
+     * Returns the number of calls rejected because the bulkhead was full.
+     *
+     * @return the number of calls rejected because the bulkhead was full
+     */
+    public long getRejectedFull() {
+        return (long) this.rejectedFullCounter.count();
+    }
+
+    /**
+     * Returns the number of calls that timed out.
+     *
+     * @return the number of calls that timed out
+     */
+    public long getTimeouts() {
+        return (long) this.timeoutCounter.count();
+    }
+
+    /**
+     * Returns the number of cKeeper calls currently in flight.
+     *
+     * @return the number of cKeeper calls in flight
+     */
+    public int getInFlight() {
+        return this.bulkhead.getActiveCount();
+    }
+
+    /**
+     * Returns the number of cKeeper calls waiting for the bulkhead.
+     *
+     * @return the number of cKeeper calls waiting
+     */
+    public int getQueued() {
+        return this.bulkhead.getQueue().size();
+    }
+
+    /**
+     * Checks whether a call is permitted by the circuit breaker. When the
+     * open duration has elapsed, a single trial call is permitted.
+     *
+     * @return whether the call is permitted
+     */
+    protected synchronized boolean acquirePermission() {
+        switch (this.getState()) {
+            case CLOSED -> {
+                return true;
+            }
+            case HALF_OPEN -> {
+                if(this.trialInFlight) {
+                    return false;
+                }
+                this.state = CircuitState.HALF_OPEN;
+                this.trialInFlight = true;
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Releases a permission that was not used, e.g. because the call was
+     * rejected by the bulkhead.
+     */
+    protected synchronized void releasePermission() {
+        if(this.state == CircuitState.HALF_OPEN) {
+            this.trialInFlight = false;
+        }
+    }
+
+    /**
+     * Records a successful call, closing the circuit if required.
+     */
+    protected synchronized void onSuccess() {
+        if(this.state != CircuitState.CLOSED) {
+            log.info("cKeeper circuit closed");
+        }
+        this.state = CircuitState.CLOSED;
+        this.consecutiveFailures = 0;
+        this.trialInFlight = false;
+    }
+
+    /**
+     * Records a failed call, opening the circuit if the failed call was a
+     * trial or the failure threshold has been reached.
+     */
+    protected synchronized void onFailure() {
+        this.consecutiveFailures++;
+        if(this.state == CircuitState.HALF_OPEN || this.consecutiveFailures >= this.failureThreshold) {
+            if(this.state != CircuitState.OPEN) {
+                log.warn("cKeeper circuit opened after {} consecutive failures", this.consecutiveFailures);
+            }
+            this.state = CircuitState.OPEN;
+            this.openedAt = System.currentTimeMillis();
+        }
+        this.trialInFlight = false;
+    }
+
+    /**
+     * The CKeeper Unavailable Exception Class.
+     * <p/>
+     * Thrown whenever a cKeeper call is not permitted or does not succeed in
+     * time, so that the callers can carry on without a signature.
+     */
+    public static class CKeeperUnavailableException extends RuntimeException {
+
+        /**
+         * The Message Constructor.
+         *
+         * @param message   The exception message
+         */
+        public CKeeperUnavailableException(String message) {
+            super(message);
+        }
+
+        /**
+         * The Message and Cause Constructor.
+         *
+         * @param message   The exception message
+         * @param cause     The exception cause
+         */
+        public CKeeperUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+
+    }
+
+}
@@ -0,0 +1,515 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.config.BulkheadConfigProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Executor Bulkheads Component.
+ * <p/>
+ * This component provides a separate, named thread pool for each kind of
+ * work performed by the application, i.e. the VDES-1000 advertising, the
+ * GNURadio advertising, the dispatching of the received messages, the
+ * cKeeper calls and the rest of the remote I/O calls, e.g. the AtoN lookups.
+ * This way, a burst of received traffic or a slow remote
+ * service can only saturate its own bulkhead, without delaying the station
+ * transmissions.
+ * <p/>
+ * Each bulkhead has its own bounded queue and rejection policy, and its pool
+ * size can be changed while running, e.g. through the bulkheads actuator
+ * endpoint. The active threads, queued tasks and rejected tasks of each
+ * bulkhead are reported as metrics, tagged with its name.
+ * <p/>
+ * When the virtual threads are enabled, the bulkheads no longer keep a pool
+ * of platform threads. Instead, each task is run on a new virtual thread,
+ * while a semaphore with as many permits as the maximum pool size limits
+ * the number of tasks running concurrently. The queue and the rejection
+ * policy still apply to the tasks waiting for a permit.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class ExecutorBulkheads {
+
+    /**
+     * The bulkhead names.
+     */
+    public static final String VDES1000_ADVERTISING = "vdes1000-advertising";
+    public static final String GNURADIO_ADVERTISING = "gnuradio-advertising";
+    public static final String RECEIVE_DISPATCH = "receive-dispatch";
+    public static final String REMOTE_IO = "remote-io";
+    public static final String CKEEPER_IO = "ckeeper-io";
+
+    /**
+     * The policies for handling the tasks rejected by a full bulkhead.
+     */
+    public enum RejectionPolicy {
+        ABORT,
+        CALLER_RUNS,
+        DISCARD,
+        DISCARD_OLDEST
+    }
+
+    /**
+     * Whether the tasks are run on virtual threads
+     */
+    @Value("${spring.threads.virtual.enabled:false}")
+    Boolean virtualThreads;
+
+    /**
+     * The Bulkhead Configuration Properties.
+     */
+    @Autowired
+    BulkheadConfigProperties bulkheadConfigProperties;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * Once the component is initialised, we need to create all the configured
+     * bulkheads and register their metrics.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("Executor Bulkheads are booting up - {} threads", this.isVirtualThreads() ? "virtual" : "platform");
+        this.bulkheadConfigProperties.getExecutors().forEach((name, properties) -> {
+            final Bulkhead bulkhead = new Bulkhead(name,
+                    properties.getCoreSize(),
+                    properties.getMaxSize(),
+                    properties.getQueueCapacity(),
+                    properties.getRejectionPolicy(),
+                    Counter.builder("bulkhead.rejected")
+                            .description("The number of tasks rejected by the bulkhead")
+                            .tag("name", name)
+                            .register(this.meterRegistry),
+                    this.isVirtualThreads());
+            Gauge.builder("bulkhead.active", bulkhead, ThreadPoolExecutor::getActiveCount)
+                    .description("The number of bulkhead threads running tasks")
+                    .tag("name", name)
+                    .register(this.meterRegistry);
+            Gauge.builder("bulkhead.queued", bulkhead, executor -> executor.getQueue().size())
+                    .description("The number of tasks waiting for a bulkhead thread")
+                    .tag("name", name)
+                    .register(this.meterRegistry);
+            Gauge.builder("bulkhead.pool.size", bulkhead, ThreadPoolExecutor::getMaximumPoolSize)
+                    .description("The maximum number of bulkhead threads")
+                    .tag("name", name)
+                    .register(this.meterRegistry);
+            this.bulkheads.put(name, bulkhead);
+        });
+    }
+
+    /**
+     * When shutting down the application we need to make sure that all the
+     * bulkheads have been shut down.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("Executor Bulkheads are shutting down...");
+        this.bulkheads.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    /**
+     * Returns whether the tasks are run on virtual threads.
+     *
+     * @return whether the tasks are run on virtual threads
+     */
+    public boolean isVirtualThreads() {
+        return Boolean.TRUE.equals(this.virtualThreads);
+    }
+
+    /**
+     * Returns the bulkhead with the provided name.
+     *
+     * @param name the name of the bulkhead
+     * @return the bulkhead
+     */
+    public Bulkhead get(String name) {
+        return Optional.ofNullable(this.bulkheads.get(name))
+                .orElseThrow(() -> new IllegalArgumentException("No bulkhead found with name " + name));
+    }
+
+    /**
+     * Returns all the bulkheads.
+     *
+     * @return all the bulkheads
+     */
+    public Collection<Bulkhead> getBulkheads() {
+        return Collections.unmodifiableCollection(this.bulkheads.values());
+    }
+
+    /**
+     * The Discardable Interface.
+     * <p/>
+     * Implemented by the tasks that need to know when they are discarded by
+     * a bulkhead without being run, e.g. to release any resources held for
+     * them.
+     */
+    public interface Discardable {
+
+        /**
+         * Called when the task is discarded without being run.
+         */
+        void discarded();
+
+    }
+
+    /**
+     * The Bulkhead Class.
+     * <p/>
+     * A named thread pool with a bounded queue, a configurable rejection
+     * policy and a count of its rejected tasks, which can be resized while
+     * running. In virtual thread mode, the queued tasks are instead started
+     * on virtual threads of their own, as long as the permits of the pool
+     * semaphore allow.
+     */
+    public static class Bulkhead extends ThreadPoolExecutor {
+
+        // Class Variables
+        private final String name;
+        private final Counter rejected;
+        private final boolean virtual;
+        private final ResizableSemaphore permits;
+        private final AtomicInteger running = new AtomicInteger();
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        private volatile RejectionPolicy rejectionPolicy;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param name              The name of the bulkhead
+         * @param coreSize          The number of threads kept in the pool
+         * @param maxSize           The maximum number of threads in the pool
+         * @param queueCapacity     The maximum number of tasks waiting
+         * @param rejectionPolicy   The policy for the rejected tasks
+         * @param rejected          The counter of the rejected tasks
+         */
+        public Bulkhead(String name, int coreSize, int maxSize, int queueCapacity, RejectionPolicy rejectionPolicy, Counter rejected) {
+            this(name, coreSize, maxSize, queueCapacity, rejectionPolicy, rejected, false);
+        }
+
+        /**
+         * The Fully Populated Constructor, including the thread mode.
+         *
+         * @param name              The name of the bulkhead
+         * @param coreSize          The number of threads kept in the pool
+         * @param maxSize           The maximum number of threads in the pool
+         * @param queueCapacity     The maximum number of tasks waiting
+         * @param rejectionPolicy   The policy for the rejected tasks
+         * @param rejected          The counter of the rejected tasks
+         * @param virtual           Whether the tasks are run on virtual threads
+         */
+        public Bulkhead(String name, int coreSize, int maxSize, int queueCapacity, RejectionPolicy rejectionPolicy, Counter rejected, boolean virtual) {
+            // In virtual thread mode the pool must never start any workers,
+            // e.g. when its core size grows, so no threads are provided
+            super(coreSize, Math.max(coreSize, maxSize), 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                    virtual ? runnable -> null : new BulkheadThreadFactory(name));
+            this.name = name;
+            this.rejected = rejected;
+            this.virtual = virtual;
+            this.permits = new ResizableSemaphore(Math.max(coreSize, maxSize));
+            this.rejectionPolicy = rejectionPolicy;
+            this.setRejectedExecutionHandler(this::reject);
+        }
+
+        /**
+         * Executes the provided task. In virtual thread mode, the task is
+         * queued and started on a virtual thread as soon as a permit is
+         * available, or rejected if the queue is full.
+         *
+         * @param task the task to be executed
+         */
+        @Override
+        public void execute(Runnable task) {
+            if(!this.virtual) {
+                super.execute(task);
+                return;
+            }
+            if(this.isShutdown() || !this.getQueue().offer(task)) {
+                this.reject(task, this);
+                return;
+            }
+            this.drain();
+        }
+
+        /**
+         * Returns the number of tasks currently running.
+         *
+         * @return the number of tasks currently running
+         */
+        @Override
+        public int getActiveCount() {
+            return this.virtual ? this.running.get() : super.getActiveCount();
+        }
+
+        /**
+         * Returns the number of threads currently in the pool, which in
+         * virtual thread mode are the ones running tasks.
+         *
+         * @return the number of threads currently in the pool
+         */
+        @Override
+        public int getPoolSize() {
+            return this.virtual ? this.running.get() : super.getPoolSize();
+        }
+
+        /**
+         * Shuts down the bulkhead, also interrupting any tasks running on
+         * virtual threads.
+         *
+         * @return the tasks that never started
+         */
+        @Override
+        public List<Runnable> shutdownNow() {
+            final List<Runnable> tasks = super.shutdownNow();
+            this.threads.forEach(Thread::interrupt);
+            return tasks;
+        }
+
+        /**
+         * Returns whether the tasks are run on virtual threads.
+         *
+         * @return whether the tasks are run on virtual threads
+         */
+        public boolean isVirtual() {
+            return virtual;
+        }
+
+        /**
+         * Gets the name of the bulkhead.
+         *
+         * @return the name of the bulkhead
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the policy for the rejected tasks.
+         *
+         * @return the policy for the rejected tasks
+         */
+        public RejectionPolicy getRejectionPolicy() {
+            return rejectionPolicy;
+        }
+
+        /**
+         * Sets the policy for the rejected tasks.
+         *
+         * @param rejectionPolicy the policy for the rejected tasks
+         */
+        public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+        }
+
+        /**
+         * Gets the number of tasks rejected by the bulkhead.
+         *
+         * @return the number of tasks rejected by the bulkhead
+         */
+        public long getRejected() {
+            return (long) rejected.count();
+        }
+
+        /**
+         * Resizes the bulkhead pool. The sizes are applied in an order that
+         * keeps the core size within the maximum size at all times.
+         *
+         * @param coreSize the number of threads kept in the pool
+         * @param maxSize the maximum number of threads in the pool
+         */
+        public synchronized void resize(int coreSize, int maxSize) {
+            if(coreSize < 1 || maxSize < coreSize) {
+                throw new IllegalArgumentException("Invalid bulkhead size - core: " + coreSize + ", max: " + maxSize);
+            }
+            this.permits.resize(this.getMaximumPoolSize(), maxSize);
+            if(maxSize >= this.getMaximumPoolSize()) {
+                this.setMaximumPoolSize(maxSize);
+                this.setCorePoolSize(coreSize);
+            } else {
+                this.setCorePoolSize(coreSize);
+                this.setMaximumPoolSize(maxSize);
+            }
+            log.info("Bulkhead {} resized to core: {}, max: {}", this.name, coreSize, maxSize);
+            if(this.virtual) {
+                this.drain();
+            }
+        }
+
+        /**
+         * Starts the queued tasks on virtual threads of their own, for as
+         * long as there are permits available. Each task releases its permit
+         * once completed, and then starts any tasks queued in the meantime.
+         */
+        protected void drain() {
+            while(!this.getQueue().isEmpty() && !this.isShutdown() && this.permits.tryAcquire()) {
+                final Runnable task = this.getQueue().poll();
+                if(task == null) {
+                    this.permits.release();
+                    continue;
+                }
+                this.running.incrementAndGet();
+                Thread.ofVirtual().name(this.name + "-virtual").start(() -> {
+                    this.threads.add(Thread.currentThread());
+                    try {
+                        task.run();
+                    } catch (Exception ex) {
+                        log.error(ex.getMessage());
+                    } finally {
+                        this.running.decrementAndGet();
+                        this.threads.remove(Thread.currentThread());
+                        this.permits.release();
+                        this.drain();
+                    }
+                });
+            }
+        }
+
+        /**
+         * Handles a task rejected by the bulkhead, based on its rejection
+         * policy. Any tasks dropped without being run are notified, if they
+         * are discardable.
+         *
+         * @param task the rejected task
+         * @param executor the bulkhead executor
+         */
+        protected void reject(Runnable task, ThreadPoolExecutor executor) {
+            this.rejected.increment();
+            switch(this.rejectionPolicy) {
+                case CALLER_RUNS:
+                    if(!executor.isShutdown()) {
+                        task.run();
+                    }
+                    break;
+                case DISCARD:
+                    discard(task);
+                    break;
+                case DISCARD_OLDEST:
+                    if(!executor.isShutdown()) {
+                        discard(executor.getQueue().poll());
+                        executor.execute(task);
+                    }
+                    break;
+                default:
+                    discard(task);
+                    throw new RejectedExecutionException("Task rejected by bulkhead " + this.name);
+            }
+        }
+
+        /**
+         * Notifies a task dropped without being run, if it is discardable.
+         *
+         * @param task the dropped task
+         */
+        protected static void discard(Runnable task) {
+            if(task instanceof Discardable) {
+                ((Discardable) task).discarded();
+            }
+        }
+
+    }
+
+    /**
+     * The Resizable Semaphore Class.
+     * <p/>
+     * A semaphore whose number of permits can be changed while running.
+     */
+    protected static class ResizableSemaphore extends Semaphore {
+
+        /**
+         * The Permits Constructor.
+         *
+         * @param permits   The initial number of permits
+         */
+        protected ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        /**
+         * Changes the total number of permits. Any permits removed while in
+         * use are only taken out once released.
+         *
+         * @param current the current number of permits
+         * @param permits the new number of permits
+         */
+        protected void resize(int current, int permits) {
+            if(permits > current) {
+                this.release(permits - current);
+            } else if(permits < current) {
+                this.reducePermits(current - permits);
+            }
+        }
+
+    }
+
+    /**
+     * The Bulkhead Thread Factory Class.
+     * <p/>
+     * Creates the daemon threads of a bulkhead, named after it.
+     */
+    protected static class BulkheadThreadFactory implements ThreadFactory {
+
+        // Class Variables
+        private final String name;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param name      The name of the bulkhead
+         */
+        protected BulkheadThreadFactory(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Creates a new bulkhead thread.
+         *
+         * @param runnable the runnable of the thread
+         * @return the new bulkhead thread
+         */
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, this.name + "-" + this.threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -16,19 +16,18 @@
 
 package org.grad.eNav.vdesCtrl.components;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import jakarta.annotation.PreDestroy;
 import jakarta.xml.bind.JAXBException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.Hex;
 import org.grad.eNav.vdesCtrl.exceptions.ValidationException;
-import org.grad.eNav.vdesCtrl.feign.CKeeperClient;
 import org.grad.eNav.vdesCtrl.models.domain.McpEntityType;
 import org.grad.eNav.vdesCtrl.models.domain.SignatureMode;
 import org.grad.eNav.vdesCtrl.models.domain.Station;
+import org.grad.eNav.vdesCtrl.models.domain.StationSnapshot;
 import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
 import org.grad.eNav.vdesCtrl.services.StationService;
-import org.grad.eNav.vdesCtrl.utils.AISMessageUtils;
+import org.grad.eNav.vdesCtrl.utils.AISPayloadEncoder;
 import org.grad.vdes1000.formats.ais.messages.AISMessage21;
 import org.grad.vdes1000.formats.ais.messages.AISMessage6;
 import org.grad.vdes1000.formats.ais.messages.AISMessage8;
@@ -39,20 +38,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
-import java.net.SocketException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Collections;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * The GNURadio AIS Advertiser Component Class
@@ -88,10 +86,10 @@ public class GrAisAdvertiser {
     String signatureAlgorithm;
 
     /**
-     * The CKeeper Client
+     * The CKeeper Guard
      */
     @Autowired
-    CKeeperClient cKeeperClient;
+    CKeeperGuard cKeeperGuard;
 
     /**
      * The Station Service.
@@ -99,9 +97,69 @@ public class GrAisAdvertiser {
     @Autowired
     StationService stationService;
 
+    /**
+     * The Blacklist Index.
+     */
+    @Autowired
+    BlacklistIndex blacklistIndex;
+
+    /**
+     * The AtoN Message Cache.
+     */
+    @Autowired
+    AtonMessageCache atonMessageCache;
+
+    /**
+     * The TDMA Slot Pacer.
+     */
+    @Autowired
+    TdmaSlotPacer tdmaSlotPacer;
+
+    /**
+     * The AtoN Timing Wheel.
+     */
+    @Autowired
+    AtonTimingWheel atonTimingWheel;
+
+    /**
+     * The Station Cycle Executor.
+     */
+    @Autowired
+    StationCycleExecutor stationCycleExecutor;
+
+    /**
+     * The Executor Bulkheads.
+     */
+    @Autowired
+    ExecutorBulkheads executorBulkheads;
+
+    /**
+     * The Signature Pipeline.
+     */
+    @Autowired
+    SignaturePipeline signaturePipeline;
+
+    /**
+     * The Local Signer.
+     */
+    @Autowired
+    LocalSigner localSigner;
+
+    /**
+     * The Pre-Signer.
+     */
+    @Autowired
+    PreSigner preSigner;
+
+    /**
+     * The GNURadio Transport.
+     */
+    @Autowired
+    GrAisTransport grAisTransport;
+
     // Component Variables
-    protected Station station;
-    protected DatagramSocket gnuRadioSocket;
+    protected volatile StationSnapshot station;
+    protected GrAisTransport.Endpoint gnuRadioEndpoint;
 
     /**
      * Once the advertiser is initialised it will have all the information
@@ -110,11 +168,27 @@ public class GrAisAdvertiser {
      *
      * @param station the station to send the advertisements from
      */
-    public void init(Station station) throws SocketException {
-        this.station = station;
+    public void init(Station station) {
+        this.station = StationSnapshot.of(station);
+
+        // Allocate the station's phase within the advertising cycle, on the station type's bulkhead
+        this.stationCycleExecutor.register(this, this.station.name(), this.executorBulkheads.get(ExecutorBulkheads.GNURADIO_ADVERTISING));
+
+        // Resolve the station endpoint on the shared UDP transport
+        this.gnuRadioEndpoint = this.grAisTransport.resolve(this.station.ipAddress(), this.station.port());
+    }
 
-        // Create the UDP Connection to the GNURadio stations
-        this.gnuRadioSocket = new DatagramSocket();
+    /**
+     * Updates the station of the running advertiser, for the changes that
+     * do not affect its endpoint, e.g. the channel or the signature mode.
+     * A new station snapshot is published, which will be picked up from the
+     * next transmission onwards.
+     *
+     * @param station the updated station
+     */
+    public void update(Station station) {
+        log.info("GNURadio Advertiser updating station {}", station.getName());
+        this.station = StationSnapshot.of(station);
     }
 
     /**
@@ -124,92 +198,193 @@ public class GrAisAdvertiser {
     @PreDestroy
     public void destroy() {
         log.info("GNURadio Advertiser is shutting down...");
-        this.gnuRadioSocket.close();
+        this.stationCycleExecutor.cancel(this);
+        this.atonTimingWheel.cancel(this);
+        this.signaturePipeline.cancel(this);
+        this.preSigner.cancel(this);
+        this.tdmaSlotPacer.cancel(this);
     }
 
     /**
      * This is the actual advertising task that is periodically called by the
-     * service. A fixed delay scheduler is used to execute the tasks at a
-     * specific time. Since the GNURadio transmission are quite primitive we
-     * should control the periodic transmissions manually.
+     * service. Rather than transmitting all the AtoNs in one go, it refreshes
+     * the AtoNs applicable to the station in the AtoN timing wheel, so that
+     * each of them gets advertised separately, in its own interval.
+     * <p/>
+     * The task runs on the station cycle executor, at the station's own phase
+     * within the cycle, so it is not run asynchronously here.
+     * <p/>
+     * The blacklisted AtoNs are registered as well, since the blacklist is
+     * checked on each transmission instead, so that any blacklist changes
+     * apply straight away.
      */
-    @Async("taskExecutor")
     public void advertiseAtons() {
-        // Get all the nodes applicable for the station and build the messages
-        List<AISMessage21> messages =  Optional.of(this.station)
-                .map(Station::getId)
-                .map(id -> this.stationService.findMessagesForStation(id, false))
-                .orElse(Collections.emptyList())
+        // Get all the nodes applicable for the station and register the messages
+        // to be advertised on the advertising bulkhead of the station type
+        final Executor bulkhead = this.executorBulkheads.get(ExecutorBulkheads.GNURADIO_ADVERTISING);
+        final Set<String> atonUids = new HashSet<>();
+        this.stationService.findMessagesForStation(this.station, true)
                 .stream()
                 .filter(Objects::nonNull)
                 .filter(S125Node.class::isInstance)
                 .map(S125Node.class::cast)
-                .map(s125 -> {
-                    try {
-                        return AISMessageUtils.s125ToAisMessage21(s125);
-                    }
-                    catch (JsonProcessingException ex) {
-                        log.error(ex.getMessage());
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .filter(AISMessage21::getVaton) // Only transmit Virtual AtoNs
-                .toList();
+                .forEach(s125 -> Optional.ofNullable(this.getAisMessage21(s125))
+                        .filter(AISMessage21::getVaton) // Only transmit Virtual AtoNs
+                        .filter(message -> Objects.nonNull(message.getUid()))
+                        .ifPresent(message -> {
+                            atonUids.add(message.getUid());
+                            this.atonTimingWheel.register(this,
+                                    message.getUid(),
+                                    this.atonTimingWheel.getInterval(message.getAtonType()),
+                                    bulkhead,
+                                    () -> this.advertiseAton(s125));
+                        }));
+
+        // Stop advertising the AtoNs that are no longer applicable
+        this.atonTimingWheel.retain(this, atonUids);
+        this.preSigner.retain(this, atonUids);
+    }
+
+    /**
+     * This is the advertising task of a single AtoN, called by the AtoN timing
+     * wheel whenever the AtoN is due. Since the GNURadio transmission are
+     * quite primitive we should control the periodic transmissions manually,
+     * so the messages are handed over to the TDMA slot pacer, which sends them
+     * on the AIS slot boundaries without holding up the worker thread.
+     * <p/>
+     * The AIS Message 21 of the AtoN is always scheduled straight away. If
+     * signature messages are enabled for the station, the signature is then
+     * generated through the signature pipeline, which keeps the order of the
+     * signature transmissions of the station while the signature requests are
+     * in flight. If the signature was already generated ahead of time by the
+     * pre-signer, it is used straight away. In both cases, the signature of
+     * the next planned transmission of the AtoN is then generated ahead of
+     * time. A failure to sign never holds back the AtoN itself.
+     *
+     * @param s125 the S-125 node of the AtoN to be advertised
+     */
+    public void advertiseAton(S125Node s125) {
+        // Skip the AtoNs currently blacklisted for this station
+        if(this.blacklistIndex.isBlacklisted(this.station.id(), s125.getIdCode())) {
+            return;
+        }
+
+        // Build the message to be advertised
+        final AISMessage21 message = this.getAisMessage21(s125);
+        if(Objects.isNull(message) || !message.getVaton()) {
+            return;
+        }
+
+        // Get the signature mode for this station - NONE by default. A Merkle
+        // root alone authenticates nothing without the leaf digests, which do
+        // not fit in AIS, so any MERKLE stations fall back to AIS signatures.
+        final SignatureMode stationSignatureMode = this.station.signatureMode() == SignatureMode.MERKLE ?
+                SignatureMode.AIS :
+                this.station.signatureMode();
+
+        // Without signatures there is nothing more to do
+        if (stationSignatureMode == SignatureMode.NONE) {
+            this.scheduleAdvertisement(message, message.getBinaryMessageString());
+            return;
+        }
+
+        // Pick up the signature generated ahead of time, if available - this
+        // also stamps the message with the time it was generated for
+        final byte[] preSignature = this.preSigner.take(this, message.getUid(), message).orElse(null);
+
+        // Compute the binary payload once, for sending and signing
+        final String binaryMessage = message.getBinaryMessageString();
 
-        // Get the signature mode for this station - NONE by default
-        final SignatureMode stationSignatureMode = Optional.ofNullable(station.getSignatureMode())
-                .orElse(SignatureMode.NONE);
+        // Schedule the message right away and its signature once available -
+        // a signature generated ahead of time does not need a signer
+        this.scheduleAdvertisement(message, binaryMessage);
+        if (Objects.nonNull(preSignature)) {
+            this.signaturePipeline.submit(this,
+                    CompletableFuture.completedFuture(preSignature),
+                    signature -> this.scheduleSignature(message, stationSignatureMode, signature));
+        } else {
+            this.signaturePipeline.submit(this,
+                    () -> this.getSignature(message, binaryMessage),
+                    signature -> this.scheduleSignature(message, stationSignatureMode, signature));
+        }
+
+        // And sign the next planned transmission ahead of time
+        this.preSignNext(s125);
+    }
 
-        // Now create the AIS advertisements - wait in between
+    /**
+     * Generates the signature of the next planned transmission of an AtoN
+     * ahead of time, based on the AtoN advertisement interval.
+     *
+     * @param s125 the S-125 node of the AtoN
+     */
+    protected void preSignNext(S125Node s125) {
+        if (!this.preSigner.isEnabled()) {
+            return;
+        }
+        Optional.ofNullable(this.getAisMessage21(s125))
+                .ifPresent(next -> {
+                    next.setTimestamp(LocalDateTime.now().plus(this.atonTimingWheel.getInterval(next.getAtonType()), ChronoUnit.MILLIS));
+                    this.preSigner.preSign(this, next.getUid(), next, () -> this.getSignature(next, next.getBinaryMessageString()));
+                });
+    }
+
+    /**
+     * Schedules the transmission of an AtoN advertisement, i.e. the AIS
+     * Message 21 of the AtoN, through the TDMA slot pacer.
+     *
+     * @param message the AIS Message 21 of the AtoN
+     * @param binaryMessage the binary payload of the AIS Message 21
+     */
+    protected void scheduleAdvertisement(AISMessage21 message, String binaryMessage) {
+        log.info("Station {} scheduling an advertisement AtoN {}", station.name(), message.getUid());
+        this.tdmaSlotPacer.schedule(this, this.aisInterval, List.of(() -> this.sendDatagram(binaryMessage)));
+    }
+
+    /**
+     * Schedules the transmission of the signature of an AtoN advertisement
+     * through the TDMA slot pacer, if one is available.
+     *
+     * @param message the AIS Message 21 of the AtoN
+     * @param stationSignatureMode the signature mode of the station
+     * @param signature the signature of the message, if available
+     */
+    protected void scheduleSignature(AISMessage21 message, SignatureMode stationSignatureMode, byte[] signature) {
+        // Sanity check
+        if (Objects.isNull(signature)) {
+            return;
+        }
+
+        // Now create the signature message
         try {
-            for (AISMessage21 message : messages) {
-                // First send the message right away and then check if to create a signature for it
-                log.info("Station {} sending an advertisement AtoN {}", station.getName(), message.getUid());
-                this.sendDatagram(station.getIpAddress(), station.getPort(), message);
-
-                // If signature messages are enabled, send one
-                if (stationSignatureMode != SignatureMode.NONE) {
-                    // Get the signature for the message sent
-                    final byte[] signature = this.getSignature(message);
-
-                    // If we have a signature and it's valid
-                    if (Objects.nonNull(signature)) {
-                        switch(stationSignatureMode) {
-                            case SignatureMode.AIS -> {
-                                // In AIS add the 2 least significant bytes of
-                                // the timestamp in the signature. These should
-                                // be added in the least significant part of
-                                // the signature in a bit endian manner.
-                                final byte[] signatureWithTimestamp = ByteBuffer.allocate(signature.length + 2)
-                                        .put(signature)
-                                        .putShort((short) (message.getUnixTxTimestamp() & 0xFFFFL))
-                                        .order(ByteOrder.BIG_ENDIAN)
-                                        .array();
-                                // Print the byte values
-                                log.info(String.format("Additional timestamp bytes added to signature: %d, %d",
-                                        signatureWithTimestamp[signatureWithTimestamp.length-2] & 0xFFL,
-                                        signatureWithTimestamp[signatureWithTimestamp.length-1] & 0xFFL));
-                                // Now construct the message
-                                final var msg = Optional.ofNullable(this.signatureDestMmmsi)
-                                        .map(destMmsi -> (AbstractMessage) new AISMessage6(message.getMmsi(), destMmsi, signatureWithTimestamp))
-                                        .orElseGet(() -> (AbstractMessage) new AISMessage8(message.getMmsi(), signatureWithTimestamp));
-                                // And send as a UDP packet
-                                this.sendDatagram(station.getIpAddress(), station.getPort(), msg);
-                            }
-                            default -> throw new ValidationException("Only the AIS signature transmission mode is supported for GNU_Radio stations");
-                        }
-
-                        // Also log the signature transmission
-                        log.debug(String.format("Message signature sent: %s", new String(StringBinUtils.convertBytes(signature, true))));
-                        log.debug(String.format("Message signature timestamp: %d", message.getUnixTxTimestamp()));
-                    }
+            switch(stationSignatureMode) {
+                case SignatureMode.AIS -> {
+                    // In AIS add the 2 least significant bytes of
+                    // the timestamp in the signature. These should
+                    // be added in the least significant part of
+                    // the signature in a bit endian manner.
+                    final byte[] signatureWithTimestamp = AISPayloadEncoder.appendTimestamp(signature, message.getUnixTxTimestamp());
+                    // Print the byte values
+                    log.info("Additional timestamp bytes added to signature: {}, {}",
+                            signatureWithTimestamp[signatureWithTimestamp.length-2] & 0xFFL,
+                            signatureWithTimestamp[signatureWithTimestamp.length-1] & 0xFFL);
+                    // Now construct the message
+                    final var msg = Optional.ofNullable(this.signatureDestMmmsi)
+                            .map(destMmsi -> (AbstractMessage) new AISMessage6(message.getMmsi(), destMmsi, signatureWithTimestamp))
+                            .orElseGet(() -> (AbstractMessage) new AISMessage8(message.getMmsi(), signatureWithTimestamp));
+                    // And reserve the next free slot for it, after the message
+                    final String binarySignatureMessage = msg.getBinaryMessageString();
+                    this.tdmaSlotPacer.schedule(this, this.aisInterval, List.of(() -> this.sendDatagram(binarySignatureMessage)));
                 }
+                default -> throw new ValidationException("Only the AIS signature transmission mode is supported for GNU_Radio stations");
+            }
 
-                // Wait to give enough time for the AIS TDMA slot
-                Thread.sleep(this.aisInterval);
+            // Also log the signature transmission
+            if (log.isDebugEnabled()) {
+                log.debug("Message signature scheduled: {}", StringBinUtils.convertBytesToBinary(signature, true));
+                log.debug("Message signature timestamp: {}", message.getUnixTxTimestamp());
             }
-        } catch (ValidationException | InterruptedException ex) {
+        } catch (ValidationException ex) {
             log.error(ex.getMessage());
         }
     }
@@ -221,32 +396,37 @@ public class GrAisAdvertiser {
      * the operation requirements and returned back.
      *
      * @param aisMessage21 the generated signature
+     * @param binaryMessage the binary payload of the AIS Message 21
      */
-    private byte[] getSignature(AISMessage21 aisMessage21) {
+    private byte[] getSignature(AISMessage21 aisMessage21, String binaryMessage) {
         // Sanity check
         if(Objects.isNull(aisMessage21)) {
             return null;
         }
 
         // Construct the NMEA sentence of message 21 to be signed
-        log.debug(String.format("Generating signature for Message 21 NMEA Sentence: %s", new String(aisMessage21.getBinaryMessage(true))));
+        if(log.isDebugEnabled()) {
+            log.debug("Generating signature for Message 21 NMEA Sentence: {}", AISPayloadEncoder.toString(AISPayloadEncoder.encodeNmea(binaryMessage, null, 0)));
+        }
 
         // Construct the UDP message for the VDES station
-        final AbstractMessage abstractMessage;
         final byte[] signature;
         try {
             // Combine the AIS message and the timestamp into a hash
-            log.debug(String.format("Stamping AIS message with timestamp %d", aisMessage21.getUnixTxTimestamp()));
-            byte[] stampedAisMessage = GrAisUtils.getStampedAISMessage(aisMessage21.getBinaryMessage(false), aisMessage21.getUnixTxTimestamp());
-
-            // Get the signature
-            signature = this.cKeeperClient.generateEntitySignature(
-                    aisMessage21.getUid(),
-                    Optional.of(aisMessage21).map(AISMessage21::getMmsi).map(String::valueOf).orElse("0"),
-                    this.signatureAlgorithm,
-                    McpEntityType.DEVICE.getValue(),
-                    stampedAisMessage);
-            log.debug(String.format("Signature sentence generated: %s", Hex.encodeHexString(signature)));
+            log.debug("Stamping AIS message with timestamp {}", aisMessage21.getUnixTxTimestamp());
+            byte[] stampedAisMessage = GrAisUtils.getStampedAISMessage(AISPayloadEncoder.encodeBytes(binaryMessage), aisMessage21.getUnixTxTimestamp());
+
+            // Get the signature - locally if possible, otherwise from cKeeper
+            signature = this.localSigner.sign(aisMessage21.getUid(), this.signatureAlgorithm, stampedAisMessage)
+                    .orElseGet(() -> this.cKeeperGuard.generateEntitySignature(
+                            aisMessage21.getUid(),
+                            Optional.of(aisMessage21).map(AISMessage21::getMmsi).map(String::valueOf).orElse("0"),
+                            this.signatureAlgorithm,
+                            McpEntityType.DEVICE.getValue(),
+                            stampedAisMessage));
+            if(log.isDebugEnabled()) {
+                log.debug("Signature sentence generated: {}", Hex.encodeHexString(signature));
+            }
         } catch (IOException ex) {
             log.error(ex.getMessage());
             return null;
@@ -257,29 +437,40 @@ public class GrAisAdvertiser {
     }
 
     /**
-     * Sends the provided message as a UDP datagram to the specified address and
-     * port. Any exceptions will be handled internally and an error message will
-     * be logged.
+     * Builds the AIS Message 21 for the provided S-125 node, through the AtoN
+     * message cache. Any parsing errors will be logged and a null message
+     * will be returned.
      *
-     * @param address the IP address to send the UDP package to
-     * @param port the UDP port number to direct the package to
-     * @param abstractMessage the message to be sent
+     * @param s125 the S-125 node of the AtoN
+     * @return the AIS Message 21 of the AtoN
      */
-    private void sendDatagram(String address, int port, AbstractMessage abstractMessage) {
+    private AISMessage21 getAisMessage21(S125Node s125) {
+        try {
+            return this.atonMessageCache.getAisMessage21(s125);
+        }
+        catch (XMLStreamException ex) {
+            log.error(ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Sends the provided binary payload as a UDP datagram to the station,
+     * through the shared GNURadio transport. The payload is encoded into a
+     * buffer reused by the sending thread, and the station endpoint has
+     * already been resolved, so no lookups take place per message. Any
+     * errors will be logged and counted by the transport.
+     *
+     * @param binaryMessage the binary payload of the message to be sent
+     */
+    private void sendDatagram(String binaryMessage) {
         // Sanity check
-        if(Objects.isNull(abstractMessage)) {
+        if(Objects.isNull(binaryMessage)) {
             return;
         }
 
-        // Create and send the UDP datagram packet
-        byte[] buffer = (abstractMessage.getBinaryMessageString() + '\n').getBytes();
-        try {
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length,
-                    InetAddress.getByName(address), port);
-            this.gnuRadioSocket.send(packet);
-        } catch (IOException e) {
-            log.error(e.getMessage());
-        }
+        // And send the UDP datagram
+        this.grAisTransport.send(this.gnuRadioEndpoint, AISPayloadEncoder.encodeBinary(binaryMessage));
     }
 
 }
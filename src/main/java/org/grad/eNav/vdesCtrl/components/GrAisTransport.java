@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The GNURadio Transport Component.
+ * <p/>
+ * This component provides a single non-blocking UDP channel, shared by all
+ * the GNURadio advertisers. The station endpoints are resolved once, when
+ * each advertiser is initialised, so no address lookups take place while
+ * sending. The payloads are copied into direct buffers taken from a pool,
+ * so that the channel can send them without any further copies.
+ * <p/>
+ * The number of datagrams sent and failed is reported per endpoint.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class GrAisTransport {
+
+    /**
+     * The capacity of each pooled buffer in bytes
+     */
+    @Value("${gla.rad.vdes-ctrl.gr-ais-transport.buffer-size:2048}")
+    Integer bufferSize;
+
+    /**
+     * The maximum number of buffers to keep in the pool
+     */
+    @Value("${gla.rad.vdes-ctrl.gr-ais-transport.pool-size:16}")
+    Integer poolSize;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected DatagramChannel channel;
+    protected final Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Once the transport is initialised, we need to open the shared UDP
+     * channel and register the pool metrics.
+     *
+     * @throws IOException if the UDP channel cannot be opened
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        log.info("GNURadio Transport is booting up...");
+
+        // Open the shared non-blocking UDP channel
+        this.channel = DatagramChannel.open();
+        this.channel.configureBlocking(false);
+
+        // Register the pool metrics
+        Gauge.builder("gr.ais.transport.pooled.buffers", this.bufferPool, Queue::size)
+                .description("The number of direct buffers available in the pool")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * When shutting down the application we need to make sure that the
+     * shared UDP channel has been closed.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("GNURadio Transport is shutting down...");
+        Optional.ofNullable(this.channel).ifPresent(channel -> {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                log.error(ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Resolves the endpoint of a GNURadio station, along with its metrics.
+     * The address is looked up only once, so this should be called whenever
+     * the station configuration is (re)loaded.
+     *
+     * @param address the IP address of the station
+     * @param port the UDP port of the station
+     * @return the resolved endpoint
+     */
+    public Endpoint resolve(String address, int port) {
+        final InetSocketAddress socketAddress = new InetSocketAddress(address, port);
+        if(socketAddress.isUnresolved()) {
+            log.error("Could not resolve the GNURadio station address {}", address);
+        }
+        final String name = address + ":" + port;
+        return new Endpoint(socketAddress,
+                Counter.builder("gr.ais.transport.sent")
+                        .description("The number of datagrams sent to the endpoint")
+                        .tag("endpoint", name)
+                        .register(this.meterRegistry),
+                Counter.builder("gr.ais.transport.errors")
+                        .description("The number of datagrams that failed to be sent to the endpoint")
+                        .tag("endpoint", name)
+                        .register(this.meterRegistry));
+    }
+
+    /**
+     * Sends the provided payload as a single datagram to the provided
+     * endpoint. Any errors will be logged and counted against the endpoint.
+     *
+     * @param endpoint the endpoint to send the datagram to
+     * @param payload the payload of the datagram
+     * @return whether the datagram was sent
+     */
+    public boolean send(Endpoint endpoint, ByteBuffer payload) {
+        // Sanity check
+        if(Objects.isNull(endpoint) || Objects.isNull(payload)) {
+            return false;
+        }
+
+        // Copy the payload into a pooled direct buffer and send it
+        final ByteBuffer buffer = this.acquireBuffer(payload.remaining());
+        try {
+            buffer.put(payload.duplicate()).flip();
+            if(!endpoint.address.isUnresolved() && this.channel.send(buffer, endpoint.address) > 0) {
+                endpoint.sent.increment();
+                return true;
+            }
+            log.warn("Datagram to {} dropped", endpoint.address);
+        } catch (IOException ex) {
+            log.error(ex.getMessage());
+        } finally {
+            this.releaseBuffer(buffer);
+        }
+        endpoint.errors.increment();
+        return false;
+    }
+
+    /**
+     * Takes a cleared direct buffer from the pool, or allocates a new one if
+     * the pool is empty. Payloads larger than the pooled buffers get a buffer
+     * of their own.
+     *
+     * @param size the required capacity
+     * @return the cleared direct buffer
+     */
+    protected ByteBuffer acquireBuffer(int size) {
+        if(size > this.bufferSize) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        return Optional.ofNullable(this.bufferPool.poll())
+                .map(ByteBuffer::clear)
+                .orElseGet(() -> ByteBuffer.allocateDirect(this.bufferSize));
+    }
+
+    /**
+     * Returns a buffer to the pool, as long as it is a pooled buffer and the
+     * pool is not full.
+     *
+     * @param buffer the buffer to be returned
+     */
+    protected void releaseBuffer(ByteBuffer buffer) {
+        if(buffer.capacity() == this.bufferSize && this.bufferPool.size() < this.poolSize) {
+            this.bufferPool.offer(buffer);
+        }
+    }
+
+    /**
+     * The Endpoint Class.
+     * <p/>
+     * Holds the resolved address of a GNURadio station, along with its send
+     * and error counters.
+     */
+    public static class Endpoint {
+
+        // Class Variables
+        private final InetSocketAddress address;
+        private final Counter sent;
+        private final Counter errors;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param address   The resolved address of the station
+         * @param sent      The counter of the datagrams sent
+         * @param errors    The counter of the datagrams failed
+         */
+        protected Endpoint(InetSocketAddress address, Counter sent, Counter errors) {
+            this.address = address;
+            this.sent = sent;
+            this.errors = errors;
+        }
+
+        /**
+         * Gets address.
+         *
+         * @return the address
+         */
+        public InetSocketAddress getAddress() {
+            return address;
+        }
+
+        /**
+         * Gets the number of datagrams sent.
+         *
+         * @return the number of datagrams sent
+         */
+        public long getSent() {
+            return (long) sent.count();
+        }
+
+        /**
+         * Gets the number of datagrams failed.
+         *
+         * @return the number of datagrams failed
+         */
+        public long getErrors() {
+            return (long) errors.count();
+        }
+
+    }
+
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Local Signer Component.
+ * <p/>
+ * This component provides an optional in-process alternative to the cKeeper
+ * service for generating the message signatures. When enabled, the private
+ * key of each entity is loaded once from the configured key directory, as a
+ * PKCS#8 PEM file named after the entity, and cached for the configured TTL.
+ * The signatures are then generated locally using JCA, saving a network
+ * round trip per message. Concurrent signatures for an entity whose key is
+ * not cached share a single load of the key file.
+ * <p/>
+ * Whenever the local signer is disabled, or cannot find a key for an
+ * entity, an empty result is returned, so that the callers can fall back
+ * to the cKeeper service.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class LocalSigner {
+
+    /**
+     * Whether the local signer is enabled
+     */
+    @Value("${gla.rad.vdes-ctrl.local-signer.enabled:false}")
+    Boolean enabled;
+
+    /**
+     * The directory to load the entity private keys from
+     */
+    @Value("${gla.rad.vdes-ctrl.local-signer.key-directory:}")
+    String keyDirectory;
+
+    /**
+     * The key to be used for the entities without their own key, if any
+     */
+    @Value("${gla.rad.vdes-ctrl.local-signer.default-key:}")
+    String defaultKey;
+
+    /**
+     * The key algorithm of the entity private keys
+     */
+    @Value("${gla.rad.vdes-ctrl.local-signer.key-algorithm:EC}")
+    String keyAlgorithm;
+
+    /**
+     * The time to keep the loaded keys in milliseconds
+     */
+    @Value("${gla.rad.vdes-ctrl.local-signer.key-ttl:3600000}")
+    Long keyTtl;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected final Map<String, CachedKey> keys = new ConcurrentHashMap<>();
+    protected final Map<String, CompletableFuture<CachedKey>> loading = new ConcurrentHashMap<>();
+    protected Timer signingTimer;
+    protected Counter fallbackCounter;
+
+    /**
+     * Once the signer is initialised, we need to make sure a key directory
+     * is configured if it is enabled, and register the signer metrics.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("Local Signer is booting up - {}", this.isEnabled() ? "enabled" : "disabled");
+
+        // Without a key directory the keys would be looked up in the working directory
+        if(this.isEnabled() && (Objects.isNull(this.keyDirectory) || this.keyDirectory.isBlank())) {
+            throw new IllegalArgumentException("The local signer is enabled without a key directory");
+        }
+
+        // Register the signer metrics
+        this.signingTimer = Timer.builder("local.signer.latency")
+                .description("The time taken to generate each signature locally")
+                .register(this.meterRegistry);
+        this.fallbackCounter = Counter.builder("local.signer.fallbacks")
+                .description("The number of signatures that could not be generated locally")
+                .register(this.meterRegistry);
+        Gauge.builder("local.signer.keys", this.keys, Map::size)
+                .description("The number of entity keys currently cached")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Returns whether the local signer is enabled.
+     *
+     * @return whether the local signer is enabled
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(this.enabled);
+    }
+
+    /**
+     * Generates the signature of the provided payload for the provided entity
+     * locally. If the signer is disabled, or the entity key is not available,
+     * or the signing fails, an empty result is returned.
+     *
+     * @param entityName the name of the entity to sign for
+     * @param algorithm the signature algorithm
+     * @param payload the payload to be signed
+     * @return the signature, if it could be generated locally
+     */
+    public Optional<byte[]> sign(String entityName, String algorithm, byte[] payload) {
+        // Sanity check
+        if(!this.isEnabled() || Objects.isNull(entityName) || Objects.isNull(payload)) {
+            return Optional.empty();
+        }
+
+        // Get the entity key and sign
+        final Optional<byte[]> signature = this.getKey(entityName)
+                .map(key -> {
+                    final long start = System.nanoTime();
+                    try {
+                        final Signature signer = Signature.getInstance(toJcaAlgorithm(algorithm));
+                        signer.initSign(key);
+                        signer.update(payload);
+                        return signer.sign();
+                    } catch (GeneralSecurityException ex) {
+                        log.error(ex.getMessage());
+                        return null;
+                    } finally {
+                        this.signingTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                });
+
+        // Count the signatures to be generated remotely
+        if(signature.isEmpty()) {
+            this.fallbackCounter.increment();
+        }
+        return signature;
+    }
+
+    /**
+     * Evicts all the cached entity keys, so that they get loaded again on
+     * the next signature.
+     */
+    public void evictKeys() {
+        this.keys.clear();
+    }
+
+    /**
+     * Returns the private key of the provided entity, loading it if it has
+     * not been cached or its TTL has expired. Missing keys are cached as
+     * well, so the key directory is not checked on every signature. The key
+     * file is read outside the cache, so that loading the key of an entity
+     * does not block the signatures of the rest, while any concurrent load
+     * of the same key is shared. If the load fails, no key is returned, so
+     * that the callers fall back to the cKeeper service.
+     *
+     * @param entityName the name of the entity
+     * @return the private key of the entity, if available
+     */
+    protected Optional<PrivateKey> getKey(String entityName) {
+        // Check if we already have a valid key for this entity
+        final long now = System.currentTimeMillis();
+        final CachedKey cached = this.keys.get(entityName);
+        if(Objects.nonNull(cached) && cached.expiresAt > now) {
+            return Optional.ofNullable(cached.key);
+        }
+
+        // Otherwise load the key, or wait for the load in flight
+        final CompletableFuture<CachedKey> load = new CompletableFuture<>();
+        final CompletableFuture<CachedKey> existing = this.loading.putIfAbsent(entityName, load);
+        if(Objects.nonNull(existing)) {
+            try {
+                return Optional.ofNullable(existing.join().key);
+            } catch (CompletionException ex) {
+                return Optional.empty();
+            }
+        }
+        try {
+            final CachedKey loaded = new CachedKey(this.loadKey(entityName).orElse(null), now + this.keyTtl);
+            this.keys.put(entityName, loaded);
+            load.complete(loaded);
+            return Optional.ofNullable(loaded.key);
+        } catch (RuntimeException ex) {
+            log.error("Failed to load the key of {}: {}", entityName, ex.getMessage());
+            load.completeExceptionally(ex);
+            return Optional.empty();
+        } finally {
+            this.loading.remove(entityName, load);
+        }
+    }
+
+    /**
+     * Loads the private key of the provided entity from the key directory,
+     * falling back to the default key if the entity has no key of its own.
+     *
+     * @param entityName the name of the entity
+     * @return the private key of the entity, if available
+     */
+    protected Optional<PrivateKey> loadKey(String entityName) {
+        return this.loadKeyFile(entityName)
+                .or(() -> Optional.ofNullable(this.defaultKey)
+                        .filter(key -> !key.isBlank())
+                        .flatMap(this::loadKeyFile));
+    }
+
+    /**
+     * Loads a PKCS#8 PEM private key file from the key directory.
+     *
+     * @param name the name of the key file, without the extension
+     * @return the private key, if available
+     */
+    protected Optional<PrivateKey> loadKeyFile(String name) {
+        // Entity names are URNs, so keep only the characters safe for file names
+        final Path path = Path.of(this.keyDirectory, name.replaceAll("[^A-Za-z0-9._:-]", "_") + ".pem");
+        if(!Files.isReadable(path)) {
+            return Optional.empty();
+        }
+
+        // Decode the PEM content
+        try {
+            final String pem = Files.readString(path, StandardCharsets.US_ASCII)
+                    .replaceAll("-----(BEGIN|END) ([A-Z ]*)PRIVATE KEY-----", "")
+                    .replaceAll("\\s", "");
+            return Optional.of(KeyFactory.getInstance(this.keyAlgorithm)
+                    .generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(pem))));
+        } catch (IOException | GeneralSecurityException | IllegalArgumentException ex) {
+            log.error("Failed to load private key {}: {}", path, ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Translates the signature algorithm names used with the cKeeper service
+     * to their standard JCA equivalents. The CVC-ECDSA signatures are the
+     * plain concatenation of the r and s values, i.e. the IEEE P1363 format.
+     *
+     * @param algorithm the signature algorithm
+     * @return the JCA signature algorithm
+     */
+    protected static String toJcaAlgorithm(String algorithm) {
+        return Optional.ofNullable(algorithm)
+                .map(alg -> alg.replace("withCVC-ECDSA", "withECDSAinP1363Format"))
+                .orElse(null);
+    }
+
+    /**
+     * The Cached Key Class.
+     * <p/>
+     * Holds a loaded private key, or the lack of one, until it expires.
+     */
+    protected static class CachedKey {
+
+        // Class Variables
+        private final PrivateKey key;
+        private final long expiresAt;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param key           The private key, if available
+         * @param expiresAt     The expiry time in milliseconds
+         */
+        protected CachedKey(PrivateKey key, long expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
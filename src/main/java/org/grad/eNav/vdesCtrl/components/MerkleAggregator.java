@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.utils.AISPayloadEncoder;
+import org.grad.eNav.vdesCtrl.utils.MerkleTree;
+import org.grad.vdes1000.formats.ais.messages.AISMessage21;
+import org.grad.vdes1000.utils.GrAisUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The Merkle Aggregator Component.
+ * <p/>
+ * Rather than signing every advertised message separately, the stations
+ * operating in the MERKLE signature mode record the messages they transmit
+ * within each advertising cycle in this component. At the end of the cycle
+ * the window is closed, and a Merkle tree is computed over the stamped
+ * messages, so that only its root needs to be signed and transmitted. This
+ * cuts the signature requests and the signature airtime from one per message
+ * to one per cycle.
+ * <p/>
+ * Since the number of leaves is encoded in 2 bytes in the digest lists, the
+ * windows are limited to the configured maximum size, and a window that
+ * fills up is closed early, before the end of the cycle.
+ * <p/>
+ * Note that a receiver can only authenticate an individual message if it
+ * also receives the leaf digests of its window, i.e. the digest list sent
+ * over VDE. Therefore, this mode is only used by the VDES1000 stations.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class MerkleAggregator {
+
+    /**
+     * The maximum number of leaves that can be encoded in a digest list.
+     */
+    public static final int MAX_WINDOW_SIZE = Short.MAX_VALUE;
+
+    /**
+     * The maximum number of messages recorded in each window
+     */
+    @Value("${gla.rad.vdes-ctrl.merkle-aggregator.max-window-size:1024}")
+    Integer maxWindowSize;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected final Map<Object, List<byte[]>> windows = new ConcurrentHashMap<>();
+    protected DistributionSummary windowSizeSummary;
+
+    /**
+     * Once the aggregator is initialised, we need to register its metrics so
+     * that they become available through the actuator.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("Merkle Aggregator is booting up...");
+
+        // Make sure the window leaves can always be encoded
+        if(this.maxWindowSize < 1 || this.maxWindowSize > MAX_WINDOW_SIZE) {
+            log.warn("Merkle window size {} is out of range, using {} instead", this.maxWindowSize, MAX_WINDOW_SIZE);
+            this.maxWindowSize = MAX_WINDOW_SIZE;
+        }
+
+        // Register the aggregator metrics
+        this.windowSizeSummary = DistributionSummary.builder("merkle.aggregator.window.size")
+                .description("The number of messages authenticated by each signed Merkle root")
+                .register(this.meterRegistry);
+        Gauge.builder("merkle.aggregator.pending", this.windows, windows -> windows.values().stream().mapToInt(List::size).sum())
+                .description("The number of advertised messages waiting for their window to be signed")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Records a transmitted message in the current window of the provided
+     * owner. The leaf of the message is its binary content, stamped with its
+     * transmission timestamp, in the same way as the individual signatures.
+     * If the window reaches the maximum size, it is closed straight away and
+     * returned, so that it can be signed without waiting for the cycle end.
+     *
+     * @param owner the owner of the transmissions, e.g. the advertiser
+     * @param message the transmitted message
+     * @param binaryMessage the binary payload of the transmitted message
+     * @return the window closed early, if it was filled up by the message
+     */
+    public Optional<MerkleWindow> add(Object owner, AISMessage21 message, String binaryMessage) {
+        // Sanity check
+        if(Objects.isNull(message) || Objects.isNull(binaryMessage)) {
+            return Optional.empty();
+        }
+
+        // Stamp the message and add it to the owner's window
+        try {
+            final byte[] leaf = MerkleTree.hashLeaf(GrAisUtils.getStampedAISMessage(AISPayloadEncoder.encodeBytes(binaryMessage), message.getUnixTxTimestamp()));
+            // Append atomically, so that no leaf can be lost in a closing window
+            final AtomicReference<List<byte[]>> full = new AtomicReference<>();
+            this.windows.compute(owner, (o, leaves) -> {
+                final List<byte[]> window = Objects.isNull(leaves) ? new ArrayList<>() : leaves;
+                window.add(leaf);
+                if(window.size() >= this.maxWindowSize) {
+                    full.set(window);
+                    return null;
+                }
+                return window;
+            });
+            return Optional.ofNullable(full.get())
+                    .map(this::toWindow);
+        } catch (IOException ex) {
+            log.error(ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Closes the current window of the provided owner and computes the Merkle
+     * root over all the messages recorded in it. A new window is started
+     * straight away for the following transmissions.
+     *
+     * @param owner the owner of the transmissions
+     * @return the closed window, if any messages were recorded in it
+     */
+    public Optional<MerkleWindow> close(Object owner) {
+        return Optional.ofNullable(this.windows.remove(owner))
+                .filter(leaves -> !leaves.isEmpty())
+                .map(this::toWindow);
+    }
+
+    /**
+     * Drops the current window of the provided owner.
+     *
+     * @param owner the owner of the transmissions
+     */
+    public void cancel(Object owner) {
+        this.windows.remove(owner);
+    }
+
+    /**
+     * Computes the Merkle window of the provided leaves, closed now.
+     *
+     * @param leaves the leaf hashes of the window
+     * @return the Merkle window
+     */
+    protected MerkleWindow toWindow(List<byte[]> leaves) {
+        final List<byte[]> window = List.copyOf(leaves);
+        this.windowSizeSummary.record(window.size());
+        return new MerkleWindow(Instant.now().getEpochSecond(), window, MerkleTree.root(window));
+    }
+
+    /**
+     * The Merkle Window Class.
+     * <p/>
+     * Holds the leaves of a closed window, in their transmission order, along
+     * with their Merkle root and the time the window was closed.
+     */
+    public static class MerkleWindow {
+
+        // Class Variables
+        private final long timestamp;
+        private final List<byte[]> leaves;
+        private final byte[] root;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param timestamp     The UNIX timestamp the window was closed at
+         * @param leaves        The leaf hashes of the window
+         * @param root          The Merkle root of the window
+         */
+        protected MerkleWindow(long timestamp, List<byte[]> leaves, byte[] root) {
+            this.timestamp = timestamp;
+            this.leaves = leaves;
+            this.root = root;
+        }
+
+        /**
+         * Gets the UNIX timestamp the window was closed at.
+         *
+         * @return the window timestamp
+         */
+        public long getTimestamp() {
+            return this.timestamp;
+        }
+
+        /**
+         * Gets the leaf hashes of the window.
+         *
+         * @return the leaf hashes
+         */
+        public List<byte[]> getLeaves() {
+            return this.leaves;
+        }
+
+        /**
+         * Gets the Merkle root of the window.
+         *
+         * @return the Merkle root
+         */
+        public byte[] getRoot() {
+            return this.root;
+        }
+
+        /**
+         * Returns the payload to be signed for the window, i.e. the Merkle
+         * root stamped with the window timestamp.
+         *
+         * @return the payload to be signed
+         * @throws IOException for any errors while stamping the root
+         */
+        public byte[] getSignaturePayload() throws IOException {
+            return GrAisUtils.getStampedAISMessage(this.root, this.timestamp);
+        }
+
+        /**
+         * Returns the inclusion proof of the leaf at the provided index.
+         *
+         * @param index the index of the leaf
+         * @return the inclusion proof
+         */
+        public List<byte[]> getProof(int index) {
+            return MerkleTree.proof(this.leaves, index);
+        }
+
+        /**
+         * Encodes the window signature along with the list of the leaf
+         * digests, so that the receivers can authenticate every message of
+         * the window without any further transmissions. The format is the
+         * signature length (1 byte), the signature, the window timestamp
+         * (4 bytes), the number of leaves (2 bytes, never more than the
+         * {@link #MAX_WINDOW_SIZE}) and the leaf digests.
+         *
+         * @param signature the signature of the window
+         * @return the encoded window signature with the digest list
+         */
+        public byte[] toDigestList(byte[] signature) {
+            final ByteBuffer buffer = ByteBuffer.allocate(1 + signature.length + 4 + 2 + this.leaves.size() * MerkleTree.HASH_SIZE);
+            buffer.put((byte) signature.length);
+            buffer.put(signature);
+            buffer.putInt((int) this.timestamp);
+            buffer.putShort((short) this.leaves.size());
+            this.leaves.forEach(buffer::put);
+            return buffer.array();
+        }
+
+        /**
+         * Splits the encoded window signature with the digest list into
+         * consecutive frames of at most the provided size, so that each one
+         * fits in a single VDE transmission. The receivers can concatenate
+         * the frames in order, since the number of leaves in the header
+         * gives the total length to expect. A non-positive frame size
+         * leaves the encoding in a single frame.
+         *
+         * @param signature the signature of the window
+         * @param frameSize the maximum size of each frame in bytes
+         * @return the frames of the encoded window signature
+         */
+        public List<byte[]> toDigestFrames(byte[] signature, int frameSize) {
+            final byte[] digestList = this.toDigestList(signature);
+            if (frameSize <= 0 || digestList.length <= frameSize) {
+                return List.of(digestList);
+            }
+            final List<byte[]> frames = new ArrayList<>();
+            for (int offset = 0; offset < digestList.length; offset += frameSize) {
+                frames.add(Arrays.copyOfRange(digestList, offset, Math.min(digestList.length, offset + frameSize)));
+            }
+            return frames;
+        }
+
+    }
+
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.models.dtos.AisMessageDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The NMEA Parser Component.
+ * <p/>
+ * This component parses the VDM/VDO sentences received from the stations
+ * into AIS messages. The sentences are scanned straight from their bytes,
+ * without any regular expressions or splitting, and the ones with invalid
+ * checksums are rejected.
+ * <p/>
+ * Multi-sentence messages are reassembled per source, i.e. per advertiser.
+ * The number of messages being reassembled is bounded, so whenever the limit
+ * is reached the oldest one is dropped, and any message not completed within
+ * the fragment timeout is dropped as well. Sentences claiming more fragments
+ * than an AIS message can span are rejected, so that forged sentences cannot
+ * make the parser reserve large buffers. The reassembled payloads are only
+ * decoded when their fields are accessed.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class NmeaParser {
+
+    /**
+     * The maximum number of sentences an AIS message can span.
+     */
+    public static final int MAX_FRAGMENTS = 9;
+
+    /**
+     * Whether the received sentences should be parsed
+     */
+    @Value("${gla.rad.vdes-ctrl.nmea-parser.enabled:true}")
+    Boolean enabled;
+
+    /**
+     * The maximum number of messages being reassembled
+     */
+    @Value("${gla.rad.vdes-ctrl.nmea-parser.max-pending:256}")
+    Integer maxPending;
+
+    /**
+     * The time to wait for the remaining fragments of a message in milliseconds
+     */
+    @Value("${gla.rad.vdes-ctrl.nmea-parser.fragment-timeout:2000}")
+    Long fragmentTimeout;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected final LinkedHashMap<FragmentKey, Fragments> pending = new LinkedHashMap<>();
+    protected Counter parsedCounter;
+    protected Counter invalidCounter;
+    protected Counter droppedCounter;
+
+    /**
+     * Once the parser is initialised, we need to register its metrics.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("NMEA Parser is booting up...");
+        this.parsedCounter = Counter.builder("nmea.parser.messages")
+                .description("The number of AIS messages parsed")
+                .register(this.meterRegistry);
+        this.invalidCounter = Counter.builder("nmea.parser.invalid")
+                .description("The number of sentences rejected as malformed or with invalid checksums")
+                .register(this.meterRegistry);
+        this.droppedCounter = Counter.builder("nmea.parser.dropped")
+                .description("The number of incomplete messages dropped")
+                .register(this.meterRegistry);
+        Gauge.builder("nmea.parser.pending", this, NmeaParser::getPending)
+                .description("The number of messages being reassembled")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Returns whether the received sentences should be parsed.
+     *
+     * @return whether the received sentences should be parsed
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(this.enabled);
+    }
+
+    /**
+     * Gets the number of messages being reassembled.
+     *
+     * @return the number of messages being reassembled
+     */
+    public int getPending() {
+        synchronized (this.pending) {
+            return this.pending.size();
+        }
+    }
+
+    /**
+     * Parses a received sentence of the provided source.
+     *
+     * @param source the source of the sentence, e.g. the advertiser
+     * @param sentence the received sentence
+     * @return the AIS message, if the sentence completed one
+     */
+    public Optional<AisMessageDto> parse(Object source, String sentence) {
+        return Optional.ofNullable(sentence)
+                .flatMap(s -> this.parse(source, s.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Parses a received raw sentence of the provided source.
+     *
+     * @param source the source of the sentence, e.g. the advertiser
+     * @param sentence the received raw sentence
+     * @return the AIS message, if the sentence completed one
+     */
+    public Optional<AisMessageDto> parse(Object source, byte[] sentence) {
+        return Optional.ofNullable(sentence)
+                .flatMap(s -> this.parse(source, ByteBuffer.wrap(s)));
+    }
+
+    /**
+     * Parses a received sentence of the provided source, between the
+     * position and the limit of the provided buffer. Only the VDM and VDO
+     * sentences are parsed, all the rest are ignored.
+     *
+     * @param source the source of the sentence, e.g. the advertiser
+     * @param buffer the buffer holding the received sentence
+     * @return the AIS message, if the sentence completed one
+     */
+    public Optional<AisMessageDto> parse(Object source, ByteBuffer buffer) {
+        // Sanity check
+        if(!this.isEnabled()) {
+            return Optional.empty();
+        }
+
+        // Locate the sentence, skipping any tag blocks
+        final int start = indexOf(buffer, buffer.position(), '!');
+        final int end = start < 0 ? -1 : indexOf(buffer, start, '*');
+        if(start < 0 || end < 0 || end - start < 7 || !isType(buffer, start + 3, "VDM", "VDO")) {
+            return Optional.empty();
+        }
+        if(!validChecksum(buffer, start, end)) {
+            this.invalidCounter.increment();
+            return Optional.empty();
+        }
+
+        // Locate the comma-separated fields
+        final int[] fields = new int[8];
+        int count = 0;
+        for(int i = start; i < end && count < fields.length; i++) {
+            if(buffer.get(i) == ',') {
+                fields[count++] = i;
+            }
+        }
+        if(count != 6) {
+            this.invalidCounter.increment();
+            return Optional.empty();
+        }
+
+        // Read the fragment information
+        final int total = parseInt(buffer, fields[0] + 1, fields[1]);
+        final int number = parseInt(buffer, fields[1] + 1, fields[2]);
+        final int sequence = parseInt(buffer, fields[2] + 1, fields[3]);
+        final char channel = fields[4] - fields[3] == 2 ? (char) buffer.get(fields[3] + 1) : 0;
+        final int fillBits = parseInt(buffer, fields[5] + 1, end);
+        if(total < 1 || total > MAX_FRAGMENTS || number < 1 || number > total || fillBits < 0 || fillBits > 5) {
+            this.invalidCounter.increment();
+            return Optional.empty();
+        }
+        final byte[] payload = new byte[fields[5] - fields[4] - 1];
+        buffer.get(fields[4] + 1, payload);
+        final String type = buffer.get(start + 5) == 'M' ? "VDM" : "VDO";
+
+        // Single sentence messages are complete straight away
+        if(total == 1) {
+            this.parsedCounter.increment();
+            return Optional.of(new AisMessageDto(type, channel, payload, fillBits));
+        }
+
+        // Otherwise reassemble the fragments
+        final Fragments fragments = this.reassemble(new FragmentKey(source, sequence, channel), total, number, payload, fillBits);
+        if(fragments == null) {
+            return Optional.empty();
+        }
+        this.parsedCounter.increment();
+        return Optional.of(new AisMessageDto(type, channel, fragments.getPayload(), fragments.fillBits));
+    }
+
+    /**
+     * Drops all the messages of the provided source being reassembled.
+     *
+     * @param source the source of the sentences
+     */
+    public void cancel(Object source) {
+        synchronized (this.pending) {
+            this.pending.keySet().removeIf(key -> key.source == source);
+        }
+    }
+
+    /**
+     * Adds a fragment to the message being reassembled, dropping any expired
+     * messages, or the oldest one if too many are pending. The fill bits of
+     * the message are the ones of its last fragment, whatever the order the
+     * fragments arrive in.
+     *
+     * @param key the key of the message
+     * @param total the total number of fragments
+     * @param number the number of the fragment, starting from 1
+     * @param payload the payload of the fragment
+     * @param fillBits the fill bits of the fragment
+     * @return the complete fragments, if this was the last missing fragment
+     */
+    protected Fragments reassemble(FragmentKey key, int total, int number, byte[] payload, int fillBits) {
+        final long now = System.currentTimeMillis();
+        synchronized (this.pending) {
+            // Drop the expired messages, which are always the oldest ones
+            final Iterator<Fragments> iterator = this.pending.values().iterator();
+            while(iterator.hasNext()) {
+                final Fragments fragments = iterator.next();
+                if(fragments.deadline > now) {
+                    break;
+                }
+                iterator.remove();
+                this.droppedCounter.increment();
+            }
+
+            // Restart the message if it doesn't match the new fragment
+            Fragments fragments = this.pending.get(key);
+            if(fragments == null || fragments.parts.length != total || fragments.parts[number - 1] != null) {
+                if(fragments != null) {
+                    this.pending.remove(key);
+                    this.droppedCounter.increment();
+                }
+                if(this.pending.size() >= this.maxPending) {
+                    this.pending.remove(this.pending.keySet().iterator().next());
+                    this.droppedCounter.increment();
+                }
+                fragments = new Fragments(total, now + this.fragmentTimeout);
+                this.pending.put(key, fragments);
+            }
+
+            // Add the fragment and check if the message is complete
+            fragments.parts[number - 1] = payload;
+            fragments.length += payload.length;
+            if(number == total) {
+                fragments.fillBits = fillBits;
+            }
+            if(++fragments.received < total) {
+                return null;
+            }
+            this.pending.remove(key);
+            return fragments;
+        }
+    }
+
+    /**
+     * Validates the checksum of a sentence, i.e. the XOR of all the bytes
+     * between the start and the "*" delimiter, against the two hexadecimal
+     * digits that follow it.
+     *
+     * @param buffer the buffer holding the sentence
+     * @param start the index of the sentence start delimiter
+     * @param end the index of the checksum delimiter
+     * @return whether the checksum is valid
+     */
+    protected static boolean validChecksum(ByteBuffer buffer, int start, int end) {
+        if(end + 2 >= buffer.limit()) {
+            return false;
+        }
+        int checksum = 0;
+        for(int i = start + 1; i < end; i++) {
+            checksum ^= buffer.get(i);
+        }
+        final int high = Character.digit(buffer.get(end + 1), 16);
+        final int low = Character.digit(buffer.get(end + 2), 16);
+        return high >= 0 && low >= 0 && checksum == (high << 4 | low);
+    }
+
+    /**
+     * Finds the first index of a character in the buffer, up to its limit.
+     *
+     * @param buffer the buffer to search in
+     * @param from the index to start from
+     * @param c the character to find
+     * @return the index of the character, or -1 if not found
+     */
+    protected static int indexOf(ByteBuffer buffer, int from, char c) {
+        for(int i = from; i < buffer.limit(); i++) {
+            if(buffer.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the 3 characters at the provided index match any of the
+     * provided sentence types.
+     *
+     * @param buffer the buffer holding the sentence
+     * @param index the index of the sentence type
+     * @param types the sentence types to match
+     * @return whether any of the sentence types matches
+     */
+    protected static boolean isType(ByteBuffer buffer, int index, String... types) {
+        for(String type : types) {
+            if(buffer.get(index) == type.charAt(0) && buffer.get(index + 1) == type.charAt(1) && buffer.get(index + 2) == type.charAt(2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a non-negative decimal number from the buffer. Empty fields are
+     * read as zeros.
+     *
+     * @param buffer the buffer holding the number
+     * @param from the index of the first digit
+     * @param to the index after the last digit
+     * @return the number, or -1 if not a valid number
+     */
+    protected static int parseInt(ByteBuffer buffer, int from, int to) {
+        int value = 0;
+        for(int i = from; i < to; i++) {
+            final int digit = buffer.get(i) - '0';
+            if(digit < 0 || digit > 9 || value > 100000) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * The Fragment Key Class.
+     * <p/>
+     * Identifies a multi-sentence message by its source, sequential message
+     * ID and channel.
+     */
+    protected static class FragmentKey {
+
+        // Class Variables
+        private final Object source;
+        private final int sequence;
+        private final char channel;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param source    The source of the sentences
+         * @param sequence  The sequential message ID
+         * @param channel   The radio channel
+         */
+        protected FragmentKey(Object source, int sequence, char channel) {
+            this.source = source;
+            this.sequence = sequence;
+            this.channel = channel;
+        }
+
+        /**
+         * Overrides the equality operator of the class.
+         *
+         * @param o the object to check the equality
+         * @return whether the two objects are equal
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FragmentKey)) return false;
+            FragmentKey that = (FragmentKey) o;
+            return source == that.source && sequence == that.sequence && channel == that.channel;
+        }
+
+        /**
+         * Overrides the hashcode generation of the object.
+         *
+         * @return the generated hashcode
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(source), sequence, channel);
+        }
+
+    }
+
+    /**
+     * The Fragments Class.
+     * <p/>
+     * Holds the fragments of a multi-sentence message received so far.
+     */
+    protected static class Fragments {
+
+        // Class Variables
+        private final byte[][] parts;
+        private final long deadline;
+        private int received;
+        private int length;
+        private int fillBits;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param total     The total number of fragments
+         * @param deadline  The time the message expires
+         */
+        protected Fragments(int total, long deadline) {
+            this.parts = new byte[total][];
+            this.deadline = deadline;
+        }
+
+        /**
+         * Joins the payloads of all the fragments received, in order.
+         *
+         * @return the joined payload
+         */
+        protected byte[] getPayload() {
+            final byte[] message = new byte[this.length];
+            int offset = 0;
+            for(byte[] part : this.parts) {
+                System.arraycopy(part, 0, message, offset, part.length);
+                offset += part.length;
+            }
+            return message;
+        }
+
+    }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.vdes1000.formats.ais.messages.AISMessage21;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Pre-Signer Component.
+ * <p/>
+ * The signatures of the AtoN messages only depend on the message content and
+ * the transmission timestamp, both of which are known in advance, since each
+ * AtoN is advertised in its own fixed interval. This component generates the
+ * signature of the next planned transmission of each AtoN in the background,
+ * through the signature pipeline, so that by the time the transmission is due
+ * the signature is already available and the cKeeper latency is kept off the
+ * critical path.
+ * <p/>
+ * A pre-computed signature is only used if the transmission happens within
+ * the configured tolerance of its planned time and the message content has
+ * not changed, in which case the message is stamped with the planned time.
+ * All other pre-computed signatures are discarded.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class PreSigner {
+
+    /**
+     * Whether the pre-signing is enabled
+     */
+    @Value("${gla.rad.vdes-ctrl.pre-signer.enabled:true}")
+    Boolean enabled;
+
+    /**
+     * The tolerance between the planned and the actual transmission time in
+     * milliseconds
+     */
+    @Value("${gla.rad.vdes-ctrl.pre-signer.tolerance:1000}")
+    Long tolerance;
+
+    /**
+     * The Signature Pipeline.
+     */
+    @Autowired
+    SignaturePipeline signaturePipeline;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected final Map<Object, Map<String, PreSignature>> entries = new ConcurrentHashMap<>();
+    protected final AtomicLong hits = new AtomicLong();
+    protected final AtomicLong misses = new AtomicLong();
+    protected final AtomicLong discarded = new AtomicLong();
+
+    /**
+     * Once the pre-signer is initialised, we need to register its metrics so
+     * that they become available through the actuator.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("Pre-Signer is booting up - {}", this.isEnabled() ? "enabled" : "disabled");
+
+        // Register the pre-signer metrics
+        FunctionCounter.builder("pre.signer.lookups", this.hits, AtomicLong::get)
+                .description("The number of pre-computed signature lookups")
+                .tag("result", "hit")
+                .register(this.meterRegistry);
+        FunctionCounter.builder("pre.signer.lookups", this.misses, AtomicLong::get)
+                .description("The number of pre-computed signature lookups")
+                .tag("result", "miss")
+                .register(this.meterRegistry);
+        FunctionCounter.builder("pre.signer.lookups", this.discarded, AtomicLong::get)
+                .description("The number of pre-computed signature lookups")
+                .tag("result", "discarded")
+                .register(this.meterRegistry);
+        Gauge.builder("pre.signer.hit.rate", this, PreSigner::getHitRate)
+                .description("The ratio of the transmissions that used a pre-computed signature")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Returns whether the pre-signing is enabled.
+     *
+     * @return whether the pre-signing is enabled
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(this.enabled);
+    }
+
+    /**
+     * Generates the signature of the provided message in the background. The
+     * message should already be stamped with its planned transmission time.
+     * Any previous pre-computed signature for the same key is replaced.
+     *
+     * @param owner the owner of the transmissions, e.g. the advertiser
+     * @param key the key of the transmission, e.g. the AtoN UID
+     * @param message the planned message
+     * @param signing the signing operation of the planned message
+     */
+    public void preSign(Object owner, String key, AISMessage21 message, Callable<byte[]> signing) {
+        // Sanity check
+        if(!this.isEnabled() || Objects.isNull(key) || Objects.isNull(message)) {
+            return;
+        }
+
+        // Generate the signature in the background
+        this.entries.computeIfAbsent(owner, o -> new ConcurrentHashMap<>())
+                .put(key, new PreSignature(
+                        toEpochMillis(message.getTimestamp()),
+                        message.getBinaryMessageString(),
+                        this.signaturePipeline.signAsync(signing)));
+    }
+
+    /**
+     * Takes the pre-computed signature for the provided message, if one is
+     * available for the current time. In that case the message is stamped
+     * with the planned transmission time the signature was generated for.
+     *
+     * @param owner the owner of the transmissions, e.g. the advertiser
+     * @param key the key of the transmission, e.g. the AtoN UID
+     * @param message the message to be transmitted
+     * @return the pre-computed signature, if available
+     */
+    public Optional<byte[]> take(Object owner, String key, AISMessage21 message) {
+        // Sanity check
+        if(!this.isEnabled() || Objects.isNull(key) || Objects.isNull(message)) {
+            return Optional.empty();
+        }
+
+        // Find the pre-computed signature, if any
+        final PreSignature preSignature = Optional.ofNullable(this.entries.get(owner))
+                .map(preSignatures -> preSignatures.remove(key))
+                .orElse(null);
+        if(Objects.isNull(preSignature)) {
+            this.misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        // Discard the signatures that missed their slot or are not ready yet
+        final byte[] signature = preSignature.getSignature();
+        if(Math.abs(System.currentTimeMillis() - preSignature.plannedTime) > this.tolerance || Objects.isNull(signature)) {
+            this.discarded.incrementAndGet();
+            return Optional.empty();
+        }
+
+        // Stamp the message with the planned time and make sure the content still matches
+        final LocalDateTime timestamp = message.getTimestamp();
+        message.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(preSignature.plannedTime), ZoneId.systemDefault()));
+        if(!preSignature.fingerprint.equals(message.getBinaryMessageString())) {
+            message.setTimestamp(timestamp);
+            this.discarded.incrementAndGet();
+            return Optional.empty();
+        }
+        this.hits.incrementAndGet();
+        return Optional.of(signature);
+    }
+
+    /**
+     * Retains only the pre-computed signatures of the provided keys for an
+     * owner, dropping the ones that are no longer applicable.
+     *
+     * @param owner the owner of the transmissions
+     * @param keys the keys to be retained
+     */
+    public void retain(Object owner, Collection<String> keys) {
+        Optional.ofNullable(this.entries.get(owner))
+                .ifPresent(preSignatures -> preSignatures.keySet().retainAll(keys));
+    }
+
+    /**
+     * Drops all the pre-computed signatures of the provided owner.
+     *
+     * @param owner the owner of the transmissions
+     */
+    public void cancel(Object owner) {
+        this.entries.remove(owner);
+    }
+
+    /**
+     * Returns the ratio of the lookups that found a usable pre-computed
+     * signature.
+     *
+     * @return the pre-signing hit rate
+     */
+    public double getHitRate() {
+        final long total = this.hits.get() + this.misses.get() + this.discarded.get();
+        return total == 0 ? 0.0 : (double) this.hits.get() / total;
+    }
+
+    /**
+     * Converts the local message timestamps to epoch milliseconds. The
+     * message timestamps are generated in the system default time-zone.
+     *
+     * @param timestamp the message timestamp
+     * @return the epoch milliseconds
+     */
+    protected static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * The Pre-Signature Class.
+     * <p/>
+     * Holds a signature generated in advance, along with the planned
+     * transmission time and the content it was generated for.
+     */
+    protected static class PreSignature {
+
+        // Class Variables
+        private final long plannedTime;
+        private final String fingerprint;
+        private final CompletableFuture<byte[]> signature;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param plannedTime   The planned transmission time in milliseconds
+         * @param fingerprint   The binary content of the planned message
+         * @param signature     The future of the signature
+         */
+        protected PreSignature(long plannedTime, String fingerprint, CompletableFuture<byte[]> signature) {
+            this.plannedTime = plannedTime;
+            this.fingerprint = fingerprint;
+            this.signature = signature;
+        }
+
+        /**
+         * Returns the signature, if it has been generated successfully.
+         *
+         * @return the signature, or null if not available
+         */
+        protected byte[] getSignature() {
+            return this.signature.getNow(null);
+        }
+
+    }
+
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.models.domain.Station;
+import org.grad.eNav.vdesCtrl.models.domain.StationType;
+import org.grad.eNav.vdesCtrl.models.dtos.AisMessageDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The Receive Ring Buffer Component.
+ * <p/>
+ * This component provides an alternative to the publish-subscribe channel
+ * for the traffic received from the stations. The received messages are
+ * placed into a pre-allocated ring of events, along with the source of each
+ * station, which is created once and shared by all its messages, instead of
+ * a new set of message headers each time.
+ * <p/>
+ * Each subscriber consumes the ring on a dedicated thread of its own, never
+ * shared with the advertising, processing all the events available in
+ * batches. The publishers never block, so whenever the slowest subscriber
+ * falls a full ring behind, the new messages are dropped and counted.
+ * <p/>
+ * Idle subscribers back off progressively, from the idle wait up to the
+ * maximum idle wait, so that they do not keep waking up while no traffic is
+ * received. The publishers wake up any waiting subscribers as soon as a new
+ * message is available, so backing off does not delay the messages.
+ * <p/>
+ * The ring is sized for a sustained rate of 50k messages per second, with
+ * bursts of up to the ring capacity, without any drops.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class ReceiveRingBuffer {
+
+    /**
+     * Whether the ring buffer replaces the publish-subscribe channel
+     */
+    @Value("${gla.rad.vdes-ctrl.receive-ring-buffer.enabled:false}")
+    Boolean enabled;
+
+    /**
+     * The number of events in the ring, rounded up to a power of two
+     */
+    @Value("${gla.rad.vdes-ctrl.receive-ring-buffer.capacity:8192}")
+    Integer capacity;
+
+    /**
+     * The maximum number of events a subscriber processes in one go
+     */
+    @Value("${gla.rad.vdes-ctrl.receive-ring-buffer.batch-size:256}")
+    Integer batchSize;
+
+    /**
+     * The time the idle subscribers wait before checking for events again
+     */
+    @Value("${gla.rad.vdes-ctrl.receive-ring-buffer.idle-wait-micros:50}")
+    Long idleWaitMicros;
+
+    /**
+     * The maximum time the idle subscribers back off to in milliseconds
+     */
+    @Value("${gla.rad.vdes-ctrl.receive-ring-buffer.max-idle-wait-millis:100}")
+    Long maxIdleWaitMillis;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected Event[] events;
+    protected AtomicLongArray published;
+    protected int mask;
+    protected final AtomicLong next = new AtomicLong();
+    protected final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    protected Counter publishedCounter;
+    protected Counter droppedCounter;
+
+    /**
+     * Once the ring buffer is initialised, we need to pre-allocate its events
+     * and register its metrics, including the metrics subscriber.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("Receive Ring Buffer is booting up - {}", this.isEnabled() ? "enabled" : "disabled");
+
+        // Pre-allocate the ring events
+        final int size = Integer.highestOneBit(Math.max(2, this.capacity) * 2 - 1);
+        this.events = new Event[size];
+        this.published = new AtomicLongArray(size);
+        for(int i = 0; i < size; i++) {
+            this.events[i] = new Event();
+            this.published.set(i, -1);
+        }
+        this.mask = size - 1;
+
+        // Register the ring metrics
+        this.publishedCounter = Counter.builder("receive.ring.published")
+                .description("The number of received messages placed in the ring")
+                .register(this.meterRegistry);
+        this.droppedCounter = Counter.builder("receive.ring.dropped")
+                .description("The number of received messages dropped because the ring was full")
+                .register(this.meterRegistry);
+        Gauge.builder("receive.ring.backlog", this, ReceiveRingBuffer::getBacklog)
+                .description("The number of events the slowest subscriber is behind")
+                .register(this.meterRegistry);
+
+        // And count the received messages per type in batches
+        if(this.isEnabled()) {
+            final Counter raw = this.typeCounter("raw");
+            final Counter sentences = this.typeCounter("sentence");
+            final Counter ais = this.typeCounter("ais");
+            final long[] counts = new long[3];
+            this.subscribe("metrics", (source, payload, endOfBatch) -> {
+                counts[payload instanceof byte[] ? 0 : payload instanceof AisMessageDto ? 2 : 1]++;
+                if(endOfBatch) {
+                    raw.increment(counts[0]);
+                    sentences.increment(counts[1]);
+                    ais.increment(counts[2]);
+                    counts[0] = counts[1] = counts[2] = 0;
+                }
+            });
+        }
+    }
+
+    /**
+     * When shutting down the application we need to make sure that all the
+     * subscriber threads have been stopped.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("Receive Ring Buffer is shutting down...");
+        this.subscribers.forEach(subscriber -> subscriber.thread.interrupt());
+        this.subscribers.clear();
+    }
+
+    /**
+     * Returns whether the ring buffer replaces the publish-subscribe channel.
+     *
+     * @return whether the ring buffer replaces the publish-subscribe channel
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(this.enabled);
+    }
+
+    /**
+     * Gets the number of events the slowest subscriber is behind.
+     *
+     * @return the number of events the slowest subscriber is behind
+     */
+    public long getBacklog() {
+        return this.next.get() - 1 - this.minSequence();
+    }
+
+    /**
+     * Creates the source of the messages received by a station, which will
+     * be shared by all its events.
+     *
+     * @param owner the owner of the station, e.g. the advertiser
+     * @param station the station
+     * @return the source of the station messages
+     */
+    public Source source(Object owner, Station station) {
+        return new Source(owner, station.getType(), station.getIpAddress(), station.getBroadcastPort(), station.getMmsi());
+    }
+
+    /**
+     * Subscribes a handler to the ring, which will be called on a dedicated
+     * thread for every message published from now on.
+     *
+     * @param name the name of the subscriber
+     * @param handler the handler of the events
+     */
+    public void subscribe(String name, EventHandler handler) {
+        final Subscriber subscriber = new Subscriber(handler, this.next.get() - 1);
+        subscriber.thread = new Thread(() -> this.consume(subscriber), "receive-ring-" + name);
+        subscriber.thread.setDaemon(true);
+        this.subscribers.add(subscriber);
+        subscriber.thread.start();
+    }
+
+    /**
+     * Publishes a received message in the ring. This never blocks, so if the
+     * ring is full the message is dropped instead.
+     *
+     * @param source the source of the message
+     * @param payload the received message
+     * @return whether the message was published
+     */
+    public boolean publish(Source source, Object payload) {
+        // Claim the next slot, as long as all subscribers are done with it
+        long sequence;
+        do {
+            sequence = this.next.get();
+            if(sequence - this.minSequence() > this.mask) {
+                this.droppedCounter.increment();
+                return false;
+            }
+        } while(!this.next.compareAndSet(sequence, sequence + 1));
+
+        // Populate the event and make it available
+        final Event event = this.events[(int) sequence & this.mask];
+        event.source = source;
+        event.payload = payload;
+        this.published.set((int) sequence & this.mask, sequence);
+        this.publishedCounter.increment();
+
+        // And wake up any subscribers waiting for it
+        for(Subscriber subscriber : this.subscribers) {
+            if(subscriber.waiting) {
+                LockSupport.unpark(subscriber.thread);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The subscriber thread loop, which processes all the events available
+     * in batches, and waits whenever the ring is empty, backing off for
+     * longer the longer it stays empty, until a publisher wakes it up.
+     *
+     * @param subscriber the subscriber
+     */
+    protected void consume(Subscriber subscriber) {
+        final long minIdleWait = TimeUnit.MICROSECONDS.toNanos(this.idleWaitMicros);
+        final long maxIdleWait = Math.max(minIdleWait, TimeUnit.MILLISECONDS.toNanos(this.maxIdleWaitMillis));
+        long idleWait = minIdleWait;
+        while(!Thread.currentThread().isInterrupted()) {
+            long sequence = subscriber.sequence.get();
+            final long last = sequence + this.batchSize;
+            while(sequence < last && this.isPublished(sequence + 1)) {
+                sequence++;
+                final Event event = this.events[(int) sequence & this.mask];
+                try {
+                    subscriber.handler.onEvent(event.source, event.payload, sequence == last || !this.isPublished(sequence + 1));
+                } catch (Exception ex) {
+                    log.error(ex.getMessage());
+                }
+            }
+            if(sequence == subscriber.sequence.get()) {
+                // Announce the wait before the last check, so that a message
+                // published in between always wakes the subscriber up
+                subscriber.waiting = true;
+                if(!this.isPublished(sequence + 1)) {
+                    LockSupport.parkNanos(idleWait);
+                }
+                subscriber.waiting = false;
+                idleWait = Math.min(idleWait * 2, maxIdleWait);
+            } else {
+                idleWait = minIdleWait;
+            }
+            subscriber.sequence.set(sequence);
+        }
+    }
+
+    /**
+     * Checks whether the event of the provided sequence has been published.
+     *
+     * @param sequence the sequence of the event
+     * @return whether the event has been published
+     */
+    protected boolean isPublished(long sequence) {
+        return this.published.get((int) sequence & this.mask) == sequence;
+    }
+
+    /**
+     * Finds the sequence of the slowest subscriber.
+     *
+     * @return the sequence of the slowest subscriber
+     */
+    protected long minSequence() {
+        long min = this.next.get() - 1;
+        for(Subscriber subscriber : this.subscribers) {
+            min = Math.min(min, subscriber.sequence.get());
+        }
+        return min;
+    }
+
+    /**
+     * Registers the counter of the received messages of a type.
+     *
+     * @param type the message type
+     * @return the counter of the received messages of the type
+     */
+    protected Counter typeCounter(String type) {
+        return Counter.builder("receive.ring.messages")
+                .description("The number of received messages processed")
+                .tag("type", type)
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * The Event Handler Interface.
+     * <p/>
+     * Handles the events of the ring. The payloads must not be kept after
+     * the call, as their slots get reused.
+     */
+    @FunctionalInterface
+    public interface EventHandler {
+
+        /**
+         * Handles a received message.
+         *
+         * @param source the source of the message
+         * @param payload the received message
+         * @param endOfBatch whether this is the last message of the batch
+         */
+        void onEvent(Source source, Object payload, boolean endOfBatch);
+
+    }
+
+    /**
+     * The Source Class.
+     * <p/>
+     * Holds the information of a station the messages are received from.
+     */
+    public static class Source {
+
+        // Class Variables
+        private final Object owner;
+        private final StationType type;
+        private final String address;
+        private final Integer port;
+        private final String mmsi;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param owner     The owner of the station
+         * @param type      The station type
+         * @param address   The station IP address
+         * @param port      The station broadcast port
+         * @param mmsi      The station MMSI
+         */
+        public Source(Object owner, StationType type, String address, Integer port, String mmsi) {
+            this.owner = owner;
+            this.type = type;
+            this.address = address;
+            this.port = port;
+            this.mmsi = mmsi;
+        }
+
+        /**
+         * Gets owner.
+         *
+         * @return the owner
+         */
+        public Object getOwner() {
+            return owner;
+        }
+
+        /**
+         * Gets type.
+         *
+         * @return the type
+         */
+        public StationType getType() {
+            return type;
+        }
+
+        /**
+         * Gets address.
+         *
+         * @return the address
+         */
+        public String getAddress() {
+            return address;
+        }
+
+        /**
+         * Gets port.
+         *
+         * @return the port
+         */
+        public Integer getPort() {
+            return port;
+        }
+
+        /**
+         * Gets mmsi.
+         *
+         * @return the mmsi
+         */
+        public String getMmsi() {
+            return mmsi;
+        }
+
+    }
+
+    /**
+     * The Event Class.
+     * <p/>
+     * A pre-allocated slot of the ring.
+     */
+    protected static class Event {
+
+        // Class Variables
+        private Source source;
+        private Object payload;
+
+    }
+
+    /**
+     * The Subscriber Class.
+     * <p/>
+     * Holds a subscriber handler along with the sequence of the last event
+     * it has processed, and whether it is waiting for new events.
+     */
+    protected static class Subscriber {
+
+        // Class Variables
+        private final EventHandler handler;
+        private final AtomicLong sequence;
+        private Thread thread;
+        private volatile boolean waiting;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param handler   The handler of the events
+         * @param sequence  The sequence of the last event processed
+         */
+        protected Subscriber(EventHandler handler, long sequence) {
+            this.handler = handler;
+            this.sequence = new AtomicLong(sequence);
+        }
+
+    }
+
+}
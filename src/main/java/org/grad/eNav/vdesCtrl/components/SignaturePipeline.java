@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * The Signature Pipeline Component.
+ * <p/>
+ * This component decouples the generation of the message signatures, which
+ * requires a round trip to the cKeeper service, from their transmission.
+ * The signature requests are sent concurrently by a dedicated pool of
+ * signers, which bounds the number of requests in flight, so the cycle time
+ * no longer grows linearly with the cKeeper latency.
+ * <p/>
+ * Even though the signatures may complete out of order, the transmissions of
+ * each owner are always performed in the order they were submitted, so the
+ * signatures still go out in sequence.
+ * <p/>
+ * The signature requests waiting for a signer are bounded as well. When the
+ * queue is full, e.g. while cKeeper is unavailable, the new requests are
+ * shed and counted, and their signatures are treated as failed.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class SignaturePipeline {
+
+    /**
+     * The maximum number of signature requests in flight
+     */
+    @Value("${gla.rad.vdes-ctrl.signature-pipeline.max-in-flight:8}")
+    Integer maxInFlight;
+
+    /**
+     * The maximum number of signature requests waiting for a signer
+     */
+    @Value("${gla.rad.vdes-ctrl.signature-pipeline.queue-capacity:256}")
+    Integer queueCapacity;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected ThreadPoolExecutor signers;
+    protected Timer latencyTimer;
+    protected Counter rejectedCounter;
+    protected final Map<Object, SigningOwner> owners = new ConcurrentHashMap<>();
+
+    /**
+     * Once the pipeline is initialised, we need to start the signers and
+     * register the pipeline metrics.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("Signature Pipeline is booting up...");
+
+        // Start the signers
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.signers = new ThreadPoolExecutor(this.maxInFlight, this.maxInFlight,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, this.queueCapacity)),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "signer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        // Register the pipeline metrics
+        this.latencyTimer = Timer.builder("signature.pipeline.latency")
+                .description("The time taken to generate each signature")
+                .register(this.meterRegistry);
+        this.rejectedCounter = Counter.builder("signature.pipeline.rejected")
+                .description("The number of signature requests shed because the queue was full")
+                .register(this.meterRegistry);
+        Gauge.builder("signature.pipeline.in.flight", this.signers, ThreadPoolExecutor::getActiveCount)
+                .description("The number of signature requests in flight")
+                .register(this.meterRegistry);
+        Gauge.builder("signature.pipeline.queued", this.signers, executor -> executor.getQueue().size())
+                .description("The number of signature requests waiting for a signer")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * When shutting down the application we need to make sure that the
+     * signers have been shut down.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("Signature Pipeline is shutting down...");
+        Optional.ofNullable(this.signers).ifPresent(ExecutorService::shutdownNow);
+    }
+
+    /**
+     * Submits a signing operation for the provided owner. The signing is
+     * performed by the signers as soon as one is available, while the
+     * transmission is performed once the signing has been completed and all
+     * the previous transmissions of the same owner have been performed.
+     * <p/>
+     * If the signing fails or is shed, the transmission will still be
+     * performed, but with a null signature.
+     *
+     * @param owner the owner of the transmissions, e.g. the advertiser
+     * @param signing the signing operation
+     * @param transmission the transmission of the signed result
+     * @param <T> the type of the signed result
+     * @return the future of the transmission
+     */
+    public <T> CompletableFuture<Void> submit(Object owner, Callable<T> signing, Consumer<T> transmission) {
+        return this.submit(owner, this.signAsync(signing), transmission);
+    }
+
+    /**
+     * Submits an already started, or completed, signing for the provided
+     * owner, e.g. a signature generated ahead of time. No signer is used for
+     * it, so it can never be shed, and only its transmission is chained
+     * after all the previous transmissions of the same owner.
+     *
+     * @param owner the owner of the transmissions, e.g. the advertiser
+     * @param signed the future of the signed result
+     * @param transmission the transmission of the signed result
+     * @param <T> the type of the signed result
+     * @return the future of the transmission
+     */
+    public <T> CompletableFuture<Void> submit(Object owner, CompletableFuture<T> signed, Consumer<T> transmission) {
+        final SigningOwner signingOwner = this.owners.computeIfAbsent(owner, o -> new SigningOwner());
+
+        // Chain the transmission after the previous one of the same owner
+        synchronized (signingOwner) {
+            signingOwner.tail = signingOwner.tail
+                    .thenCombine(signed, (previous, result) -> result)
+                    .thenAccept(result -> {
+                        if(!signingOwner.cancelled) {
+                            transmission.accept(result);
+                        }
+                    })
+                    .exceptionally(ex -> {
+                        log.error(ex.getMessage());
+                        return null;
+                    });
+            return signingOwner.tail;
+        }
+    }
+
+    /**
+     * Performs a signing operation on the signers, without any transmission
+     * attached to it, e.g. to generate a signature ahead of time. If the
+     * signing fails, or is shed because too many signature requests are
+     * already waiting, the future will be completed with a null result.
+     *
+     * @param signing the signing operation
+     * @param <T> the type of the signed result
+     * @return the future of the signed result
+     */
+    public <T> CompletableFuture<T> signAsync(Callable<T> signing) {
+        try {
+            return CompletableFuture.supplyAsync(() -> this.sign(signing), this.signers);
+        } catch (RejectedExecutionException ex) {
+            this.rejectedCounter.increment();
+            log.warn("Signature request rejected - too many signature requests pending");
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Cancels the pending transmissions of the provided owner. Any signatures
+     * already in flight will be completed but not transmitted.
+     *
+     * @param owner the owner of the transmissions
+     */
+    public void cancel(Object owner) {
+        Optional.ofNullable(this.owners.remove(owner))
+                .ifPresent(signingOwner -> signingOwner.cancelled = true);
+    }
+
+    /**
+     * Performs the signing operation, recording its latency. Any errors will
+     * be logged and a null result will be returned.
+     *
+     * @param signing the signing operation
+     * @param <T> the type of the signed result
+     * @return the signed result
+     */
+    protected <T> T sign(Callable<T> signing) {
+        final long start = System.nanoTime();
+        try {
+            return signing.call();
+        } catch (Exception ex) {
+            log.error(ex.getMessage());
+            return null;
+        } finally {
+            this.latencyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * The Signing Owner Class.
+     * <p/>
+     * Holds the tail of the transmissions chain of each owner, as well as
+     * whether its pending transmissions have been cancelled.
+     */
+    protected static class SigningOwner {
+
+        // Class Variables
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private volatile boolean cancelled;
+
+    }
+
+}
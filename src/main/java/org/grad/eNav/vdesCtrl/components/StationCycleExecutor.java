@@ -0,0 +1,491 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The Station Cycle Executor Component.
+ * <p/>
+ * This component runs the periodic advertising cycles of the stations, i.e.
+ * the retrieval of the AtoNs applicable to each station. Instead of starting
+ * all the stations at the same instant, each station gets its own phase
+ * offset, spread evenly across the cycle period, and the cycles are run by
+ * the pool of workers each station was registered with, i.e. the advertising
+ * bulkhead of its station type, so that the number of stations hitting the
+ * remote services at the same time never exceeds the size of the bulkhead.
+ * <p/>
+ * The delay between the time each station cycle was planned to start and
+ * the time it actually started is reported per station.
+ * <p/>
+ * Each station can only have a single cycle in flight. A cycle is only put
+ * in flight once its phase offset has elapsed, so that stations late in the
+ * period are not penalised for the time waiting on their phase. If a cycle
+ * becomes due while the previous one is still running, e.g. when the remote
+ * services slow down, this is counted as an overrun and the new cycle is
+ * either skipped or coalesced into a single follow-up cycle, based on the
+ * configured overlap policy.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class StationCycleExecutor {
+
+    /**
+     * The golden ratio conjugate, used to spread the phase offsets.
+     */
+    private static final double GOLDEN_RATIO_CONJUGATE = 0.6180339887498949;
+
+    /**
+     * The station cycle period in milliseconds
+     */
+    @Value("${gla.rad.vdes-ctrl.station-cycle-executor.period:60000}")
+    Long period;
+
+    /**
+     * The policy for the cycles overlapping with running ones
+     */
+    @Value("${gla.rad.vdes-ctrl.station-cycle-executor.overlap-policy:COALESCE}")
+    OverlapPolicy overlapPolicy;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected ScheduledExecutorService scheduler;
+    protected final Map<Object, StationCycle> cycles = new ConcurrentHashMap<>();
+    protected final AtomicLong sequence = new AtomicLong();
+    protected final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * Once the executor is initialised, we need to start the scheduler and
+     * register the executor metrics.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("Station Cycle Executor is booting up...");
+
+        // Start the scheduler
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "station-cycle-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Register the executor metrics
+        Gauge.builder("station.cycle.active", this.active, AtomicInteger::get)
+                .description("The number of station cycles currently running")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * When shutting down the application we need to make sure that the
+     * scheduler has been shut down.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("Station Cycle Executor is shutting down...");
+        Optional.ofNullable(this.scheduler).ifPresent(ScheduledExecutorService::shutdownNow);
+    }
+
+    /**
+     * Registers a station with the executor, allocating its phase offset
+     * within the cycle period, whose cycles will be run by the provided
+     * workers. Registering the same owner again keeps its existing phase
+     * offset.
+     *
+     * @param owner the owner of the station cycles, e.g. the advertiser
+     * @param name the name of the station, used to tag its metrics
+     * @param workers the workers to run the station cycles
+     */
+    public void register(Object owner, String name, Executor workers) {
+        this.cycles.computeIfAbsent(owner, o -> this.newStationCycle(name, workers));
+    }
+
+    /**
+     * Submits a cycle for the provided owner. The cycle will start after the
+     * phase offset of the owner, as soon as a worker is available. If the
+     * previous cycle of the owner is still in flight by then, the new one
+     * will be skipped or coalesced, based on the overlap policy. Cycles of
+     * owners not registered with the executor are ignored.
+     *
+     * @param owner the owner of the station cycle, e.g. the advertiser
+     * @param cycle the station cycle to be run
+     */
+    public void submit(Object owner, Runnable cycle) {
+        final StationCycle stationCycle = this.cycles.get(owner);
+        if(Objects.isNull(stationCycle)) {
+            log.warn("Station cycle submitted for an unregistered station - ignoring");
+            return;
+        }
+
+        // Schedule the cycle on the station's phase
+        final long planned = System.currentTimeMillis() + stationCycle.phaseOffset;
+        this.scheduler.schedule(() -> this.start(stationCycle, planned, cycle),
+                stationCycle.phaseOffset, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the pending cycles of the provided owner and removes it from
+     * the executor, along with the metrics of its station.
+     *
+     * @param owner the owner of the station cycles
+     */
+    public void cancel(Object owner) {
+        Optional.ofNullable(this.cycles.remove(owner))
+                .ifPresent(stationCycle -> {
+                    stationCycle.cancelled = true;
+                    this.meterRegistry.remove(stationCycle.startLag);
+                    this.meterRegistry.remove(stationCycle.overruns);
+                });
+    }
+
+    /**
+     * Returns the overlap policy for the cycles submitted while the previous
+     * ones are still in flight.
+     *
+     * @return the overlap policy
+     */
+    public OverlapPolicy getOverlapPolicy() {
+        return this.overlapPolicy;
+    }
+
+    /**
+     * Returns the information of all the registered station cycles.
+     *
+     * @return the information of the registered station cycles
+     */
+    public Collection<StationCycle> getStationCycles() {
+        return Collections.unmodifiableCollection(this.cycles.values());
+    }
+
+    /**
+     * Returns the phase offset allocated to the provided owner, if it has
+     * been registered.
+     *
+     * @param owner the owner of the station cycles
+     * @return the phase offset in milliseconds
+     */
+    public Optional<Long> getPhaseOffset(Object owner) {
+        return Optional.ofNullable(this.cycles.get(owner))
+                .map(stationCycle -> stationCycle.phaseOffset);
+    }
+
+    /**
+     * Starts a station cycle once its phase offset has elapsed. Only a single
+     * cycle is allowed in flight for each station, so if the previous one is
+     * still running, the new one is counted as an overrun and either skipped
+     * or coalesced, based on the overlap policy.
+     *
+     * @param stationCycle the station cycle information
+     * @param planned the planned start time in milliseconds
+     * @param cycle the station cycle to be run
+     */
+    protected void start(StationCycle stationCycle, long planned, Runnable cycle) {
+        if(stationCycle.cancelled) {
+            return;
+        }
+
+        // Only allow a single cycle in flight for each station
+        if(!stationCycle.inFlight.compareAndSet(false, true)) {
+            stationCycle.overruns.increment();
+            log.warn("Station cycle overrun for station {} - {} the new cycle", stationCycle.name,
+                    this.overlapPolicy == OverlapPolicy.COALESCE ? "coalescing" : "skipping");
+            if(this.overlapPolicy == OverlapPolicy.COALESCE) {
+                stationCycle.pending.set(cycle);
+                // Make sure the station was not released in the meantime
+                if(stationCycle.inFlight.compareAndSet(false, true)) {
+                    this.release(stationCycle);
+                }
+            }
+            return;
+        }
+
+        // Otherwise hand the cycle over to the workers
+        this.execute(new CycleTask(stationCycle, planned, cycle));
+    }
+
+    /**
+     * Runs a station cycle on a worker, recording how late it started. Once
+     * completed, any coalesced cycle of the same station is run straight
+     * away, otherwise the station is released for new cycles.
+     *
+     * @param stationCycle the station cycle information
+     * @param planned the planned start time in milliseconds
+     * @param cycle the station cycle to be run
+     */
+    protected void run(StationCycle stationCycle, long planned, Runnable cycle) {
+        if(stationCycle.cancelled) {
+            stationCycle.inFlight.set(false);
+            return;
+        }
+        final long started = System.currentTimeMillis();
+        stationCycle.startLag.record(Math.max(0, started - planned), TimeUnit.MILLISECONDS);
+        stationCycle.lastStarted = started;
+        this.active.incrementAndGet();
+        try {
+            cycle.run();
+        } catch (Exception ex) {
+            log.error(ex.getMessage());
+        } finally {
+            this.active.decrementAndGet();
+            stationCycle.lastDuration = System.currentTimeMillis() - started;
+            this.release(stationCycle);
+        }
+    }
+
+    /**
+     * Hands a station cycle over to the workers of its station. If the
+     * workers reject it, the station is released for new cycles.
+     *
+     * @param task the station cycle task
+     */
+    protected void execute(CycleTask task) {
+        try {
+            task.stationCycle.workers.execute(task);
+        } catch (RejectedExecutionException ex) {
+            log.warn("Station cycle rejected for station {}", task.stationCycle.name);
+            task.discarded();
+        }
+    }
+
+    /**
+     * Releases a station once its cycle has been completed. If a cycle was
+     * coalesced while the previous one was in flight, it is handed over to
+     * the workers instead, keeping the station in flight.
+     *
+     * @param stationCycle the station cycle information
+     */
+    protected void release(StationCycle stationCycle) {
+        while(true) {
+            final Runnable next = stationCycle.pending.getAndSet(null);
+            if(Objects.nonNull(next) && !stationCycle.cancelled) {
+                this.execute(new CycleTask(stationCycle, System.currentTimeMillis(), next));
+                return;
+            }
+            stationCycle.inFlight.set(false);
+
+            // Make sure no cycle was coalesced while releasing the station
+            if(Objects.isNull(stationCycle.pending.get()) || !stationCycle.inFlight.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Creates the information of a new station cycle, with its phase offset
+     * spread within the cycle period.
+     *
+     * @param name the name of the station
+     * @param workers the workers to run the station cycles
+     * @return the station cycle information
+     */
+    protected StationCycle newStationCycle(String name, Executor workers) {
+        final double spread = (this.sequence.getAndIncrement() * GOLDEN_RATIO_CONJUGATE) % 1.0;
+        return new StationCycle(name, (long) (spread * this.period), workers, Timer.builder("station.cycle.start.lag")
+                .description("The delay between the planned and the actual start of the station cycles")
+                .tag("station", name)
+                .register(this.meterRegistry), Counter.builder("station.cycle.overruns")
+                .description("The number of station cycles submitted while the previous ones were still in flight")
+                .tag("station", name)
+                .register(this.meterRegistry));
+    }
+
+    /**
+     * The Overlap Policy Enum.
+     * <p/>
+     * Defines what happens to the station cycles submitted while the previous
+     * cycle of the same station is still in flight.
+     */
+    public enum OverlapPolicy {
+        SKIP,
+        COALESCE
+    }
+
+    /**
+     * The Cycle Task Class.
+     * <p/>
+     * A station cycle handed over to the workers, which releases its station
+     * if it gets discarded without being run.
+     */
+    protected class CycleTask implements Runnable, ExecutorBulkheads.Discardable {
+
+        // Class Variables
+        private final StationCycle stationCycle;
+        private final long planned;
+        private final Runnable cycle;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param stationCycle  The station cycle information
+         * @param planned       The planned start time in milliseconds
+         * @param cycle         The station cycle to be run
+         */
+        protected CycleTask(StationCycle stationCycle, long planned, Runnable cycle) {
+            this.stationCycle = stationCycle;
+            this.planned = planned;
+            this.cycle = cycle;
+        }
+
+        /**
+         * Runs the station cycle.
+         */
+        @Override
+        public void run() {
+            StationCycleExecutor.this.run(this.stationCycle, this.planned, this.cycle);
+        }
+
+        /**
+         * Releases the station, dropping any coalesced cycles, since this one
+         * will never run.
+         */
+        @Override
+        public void discarded() {
+            this.stationCycle.pending.set(null);
+            this.stationCycle.inFlight.set(false);
+        }
+
+    }
+
+    /**
+     * The Station Cycle Class.
+     * <p/>
+     * Holds the phase offset and the metrics of each station, as well as
+     * whether a cycle is in flight or its pending cycles have been cancelled.
+     */
+    public static class StationCycle {
+
+        // Class Variables
+        private final String name;
+        private final long phaseOffset;
+        private final Executor workers;
+        private final Timer startLag;
+        private final Counter overruns;
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+        private final AtomicReference<Runnable> pending = new AtomicReference<>();
+        private volatile boolean cancelled;
+        private volatile long lastStarted;
+        private volatile long lastDuration;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param name          The name of the station
+         * @param phaseOffset   The phase offset in milliseconds
+         * @param workers       The workers to run the station cycles
+         * @param startLag      The start lag timer
+         * @param overruns      The overruns counter
+         */
+        protected StationCycle(String name, long phaseOffset, Executor workers, Timer startLag, Counter overruns) {
+            this.name = name;
+            this.phaseOffset = phaseOffset;
+            this.workers = workers;
+            this.startLag = startLag;
+            this.overruns = overruns;
+        }
+
+        /**
+         * Gets the name of the station.
+         *
+         * @return the name of the station
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the phase offset in milliseconds.
+         *
+         * @return the phase offset in milliseconds
+         */
+        public long getPhaseOffset() {
+            return phaseOffset;
+        }
+
+        /**
+         * Returns whether a cycle of the station is in flight.
+         *
+         * @return whether a cycle of the station is in flight
+         */
+        public boolean isInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * Returns whether a cycle of the station has been coalesced.
+         *
+         * @return whether a cycle of the station has been coalesced
+         */
+        public boolean isCoalesced() {
+            return Objects.nonNull(pending.get());
+        }
+
+        /**
+         * Gets the number of overruns of the station.
+         *
+         * @return the number of overruns of the station
+         */
+        public long getOverruns() {
+            return (long) overruns.count();
+        }
+
+        /**
+         * Gets the time the last cycle of the station started.
+         *
+         * @return the time the last cycle started in milliseconds
+         */
+        public long getLastStarted() {
+            return lastStarted;
+        }
+
+        /**
+         * Gets the duration of the last cycle of the station.
+         *
+         * @return the duration of the last cycle in milliseconds
+         */
+        public long getLastDuration() {
+            return lastDuration;
+        }
+
+    }
+
+}
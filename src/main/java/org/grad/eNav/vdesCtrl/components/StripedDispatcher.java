@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The Striped Dispatcher Component.
+ * <p/>
+ * This component dispatches the messages received from the stations to the
+ * publish-subscribe channel subscribers, while preserving their order. Each
+ * station key, i.e. its address and broadcast port, is always mapped to the
+ * same stripe, a bounded queue served by a single thread of its own, so the
+ * messages of a station are handled one after the other, in the order they
+ * were received. Different stations are spread over the stripes, so they
+ * are still handled in parallel across the available cores.
+ * <p/>
+ * The receive listeners never block, so whenever the queue of a stripe is
+ * full, the new messages are dropped and counted.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class StripedDispatcher {
+
+    /**
+     * Whether the received messages are dispatched in order per station
+     */
+    @Value("${gla.rad.vdes-ctrl.striped-dispatcher.enabled:true}")
+    Boolean enabled;
+
+    /**
+     * The number of stripes, or zero for one per available core
+     */
+    @Value("${gla.rad.vdes-ctrl.striped-dispatcher.stripes:0}")
+    Integer stripes;
+
+    /**
+     * The maximum number of messages waiting in each stripe
+     */
+    @Value("${gla.rad.vdes-ctrl.striped-dispatcher.queue-capacity:1000}")
+    Integer queueCapacity;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected Stripe[] stripeArray;
+    protected Counter dispatchedCounter;
+    protected Counter droppedCounter;
+
+    /**
+     * Once the dispatcher is initialised, we need to create its stripes and
+     * start their threads.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("Striped Dispatcher is booting up - {}", this.isEnabled() ? "enabled" : "disabled");
+
+        // Register the dispatching metrics
+        this.dispatchedCounter = Counter.builder("striped.dispatcher.dispatched")
+                .description("The number of received messages dispatched in order")
+                .register(this.meterRegistry);
+        this.droppedCounter = Counter.builder("striped.dispatcher.dropped")
+                .description("The number of received messages dropped because their stripe was full")
+                .register(this.meterRegistry);
+
+        // Nothing else to do if the dispatcher is not enabled
+        if(!this.isEnabled()) {
+            this.stripeArray = new Stripe[0];
+            return;
+        }
+
+        // Create the stripes along with their queue depth metrics
+        final int count = this.stripes > 0 ? this.stripes : Runtime.getRuntime().availableProcessors();
+        this.stripeArray = new Stripe[count];
+        for(int i = 0; i < count; i++) {
+            final Stripe stripe = new Stripe(new ArrayBlockingQueue<>(this.queueCapacity));
+            Gauge.builder("striped.dispatcher.queue.depth", stripe.queue, Collection::size)
+                    .description("The number of received messages waiting in the stripe")
+                    .tag("stripe", String.valueOf(i))
+                    .register(this.meterRegistry);
+            stripe.thread = new Thread(() -> this.run(stripe), "dispatch-" + i);
+            stripe.thread.setDaemon(true);
+            stripe.thread.start();
+            this.stripeArray[i] = stripe;
+        }
+    }
+
+    /**
+     * When shutting down the application we need to make sure that all the
+     * stripe threads have been stopped.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("Striped Dispatcher is shutting down...");
+        for(Stripe stripe : Optional.ofNullable(this.stripeArray).orElseGet(() -> new Stripe[0])) {
+            stripe.thread.interrupt();
+        }
+    }
+
+    /**
+     * Returns whether the received messages are dispatched in order per
+     * station.
+     *
+     * @return whether the received messages are dispatched in order
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(this.enabled);
+    }
+
+    /**
+     * Generates the dispatching key of a station, based on its address and
+     * broadcast port.
+     *
+     * @param address the station address
+     * @param port the station broadcast port
+     * @return the dispatching key of the station
+     */
+    public static String key(String address, Integer port) {
+        return address + ":" + port;
+    }
+
+    /**
+     * Dispatches a task on the stripe of the provided key, after all the
+     * tasks previously dispatched for the same key. This never blocks, so if
+     * the stripe is full the task is dropped instead.
+     *
+     * @param key the dispatching key, e.g. the station address and port
+     * @param task the task to be dispatched
+     * @return whether the task was dispatched
+     */
+    public boolean dispatch(String key, Runnable task) {
+        if(!this.stripeArray[this.stripeOf(key)].queue.offer(task)) {
+            this.droppedCounter.increment();
+            return false;
+        }
+        this.dispatchedCounter.increment();
+        return true;
+    }
+
+    /**
+     * Gets the number of tasks waiting in a stripe.
+     *
+     * @param stripe the index of the stripe
+     * @return the number of tasks waiting in the stripe
+     */
+    public int getQueueDepth(int stripe) {
+        return this.stripeArray[stripe].queue.size();
+    }
+
+    /**
+     * Finds the stripe the provided key is mapped to.
+     *
+     * @param key the dispatching key
+     * @return the index of the stripe
+     */
+    protected int stripeOf(String key) {
+        return Math.floorMod(key.hashCode(), this.stripeArray.length);
+    }
+
+    /**
+     * The stripe thread loop, which runs the tasks of the stripe in order.
+     *
+     * @param stripe the stripe
+     */
+    protected void run(Stripe stripe) {
+        while(!Thread.currentThread().isInterrupted()) {
+            try {
+                stripe.queue.take().run();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ex) {
+                log.error(ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The Stripe Class.
+     * <p/>
+     * Holds the queue of a stripe along with the thread that serves it.
+     */
+    protected static class Stripe {
+
+        // Class Variables
+        private final BlockingQueue<Runnable> queue;
+        private Thread thread;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param queue     The queue of the stripe tasks
+         */
+        protected Stripe(BlockingQueue<Runnable> queue) {
+            this.queue = queue;
+        }
+
+    }
+
+}
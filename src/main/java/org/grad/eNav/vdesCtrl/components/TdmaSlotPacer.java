@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The TDMA Slot Pacer Component.
+ * <p/>
+ * The GNURadio AIS transmitters just send whatever they receive straight
+ * away, so the transmissions need to be paced by us. This component lines
+ * up the transmissions with the AIS TDMA slot boundaries, i.e. 2250 slots
+ * of 26.67ms per UTC minute, and fires them from a single timer thread.
+ * <p/>
+ * Each transmission burst (e.g. a Message 21 followed by its signature
+ * message) gets consecutive free slots, while the bursts of the same owner
+ * are spaced by the requested interval. The calling threads are released as
+ * soon as the slots are reserved. The pacing error and the number of slots
+ * missed due to late firing are reported as metrics.
+ * <p/>
+ * An owner scheduling more bursts than fit in its interval, e.g. a station
+ * with many AtoNs, would otherwise keep booking slots further and further
+ * ahead. The bursts that would start more than the maximum lag ahead are
+ * therefore dropped and counted instead, since they would be stale by the
+ * time they were transmitted.
+ * <p/>
+ * Once an owner is cancelled, it is kept as a tombstone, so that any bursts
+ * scheduled afterwards, e.g. by late signature callbacks, are ignored.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class TdmaSlotPacer {
+
+    /**
+     * The number of AIS TDMA slots per minute.
+     */
+    public static final long SLOTS_PER_MINUTE = 2250;
+
+    /**
+     * The maximum time ahead a burst can be scheduled in milliseconds
+     */
+    @Value("${gla.rad.vdes-ctrl.tdma-slot-pacer.max-lag:30000}")
+    Long maxLag;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected ScheduledExecutorService timer;
+    protected final NavigableSet<Long> reservedSlots = new TreeSet<>();
+    protected final Map<Object, PacedOwner> owners = new ConcurrentHashMap<>();
+    protected final Set<Object> cancelledOwners = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    protected final AtomicInteger pending = new AtomicInteger();
+    protected Timer pacingError;
+    protected Counter skippedSlots;
+    protected Counter droppedBursts;
+
+    /**
+     * Once the pacer is initialised, we need to start the timer thread and
+     * register the pacing metrics.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("TDMA Slot Pacer is booting up...");
+
+        // Start the single timer thread
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "tdma-pacer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Register the pacer metrics
+        this.pacingError = Timer.builder("tdma.pacer.error")
+                .description("The delay of the paced transmissions from their slot boundaries")
+                .register(this.meterRegistry);
+        this.skippedSlots = Counter.builder("tdma.pacer.skipped.slots")
+                .description("The number of slots missed by late transmissions")
+                .register(this.meterRegistry);
+        this.droppedBursts = Counter.builder("tdma.pacer.dropped.bursts")
+                .description("The number of bursts dropped for starting more than the maximum lag ahead")
+                .register(this.meterRegistry);
+        Gauge.builder("tdma.pacer.pending", this.pending, AtomicInteger::get)
+                .description("The number of transmissions waiting for their slot")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * When shutting down the application we need to make sure that the
+     * timer thread has been shut down.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("TDMA Slot Pacer is shutting down...");
+        Optional.ofNullable(this.timer).ifPresent(ScheduledExecutorService::shutdownNow);
+    }
+
+    /**
+     * Schedules a burst of transmissions into consecutive free slots. The
+     * burst will start no earlier than the provided interval after the
+     * previous burst of the same owner, and never in the current slot. If
+     * that is more than the maximum lag ahead, or the owner has been
+     * cancelled, the burst is dropped.
+     *
+     * @param owner the owner of the transmissions, e.g. the advertiser
+     * @param intervalMillis the interval between the owner's bursts in milliseconds
+     * @param transmissions the transmissions to be paced, in order
+     * @return the slots reserved for the transmissions, empty if dropped
+     */
+    public List<Long> schedule(Object owner, long intervalMillis, List<Runnable> transmissions) {
+        // Sanity check
+        if(Objects.isNull(transmissions) || transmissions.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Cancelled owners should not be brought back to life
+        final PacedOwner pacedOwner = this.owners.computeIfAbsent(owner, o -> this.cancelledOwners.contains(o) ? null : new PacedOwner());
+        if(Objects.isNull(pacedOwner)) {
+            log.debug("TDMA slot pacer ignored a burst of a cancelled owner");
+            return Collections.emptyList();
+        }
+
+        // Reserve the slots
+        final List<Long> slots = new ArrayList<>(transmissions.size());
+        synchronized (this.reservedSlots) {
+            final long currentSlot = slotAt(System.currentTimeMillis());
+            this.reservedSlots.headSet(currentSlot, true).clear();
+            long slot = Math.max(currentSlot + 1, pacedOwner.lastSlot + slotsFor(intervalMillis));
+
+            // Do not let the owner book too far ahead
+            if(slot > currentSlot + slotsFor(this.maxLag)) {
+                this.droppedBursts.increment();
+                log.warn("TDMA slot pacer dropped a burst of {} transmissions - too far ahead", transmissions.size());
+                return Collections.emptyList();
+            }
+
+            // Otherwise reserve the next free slots
+            for(int i = 0; i < transmissions.size(); i++) {
+                while(this.reservedSlots.contains(slot)) {
+                    slot++;
+                }
+                this.reservedSlots.add(slot);
+                slots.add(slot);
+                slot++;
+            }
+            pacedOwner.lastSlot = slots.getFirst();
+        }
+
+        // And schedule the transmissions on the timer
+        final long now = System.currentTimeMillis();
+        for(int i = 0; i < transmissions.size(); i++) {
+            final long slot = slots.get(i);
+            final Runnable transmission = transmissions.get(i);
+            this.pending.incrementAndGet();
+            this.timer.schedule(() -> this.transmit(pacedOwner, slot, transmission),
+                    Math.max(0, slotStart(slot) - now), TimeUnit.MILLISECONDS);
+        }
+        return slots;
+    }
+
+    /**
+     * Cancels all the pending transmissions of the provided owner, as well
+     * as any transmissions scheduled by it afterwards.
+     *
+     * @param owner the owner of the transmissions
+     */
+    public void cancel(Object owner) {
+        this.owners.compute(owner, (o, pacedOwner) -> {
+            this.cancelledOwners.add(o);
+            Optional.ofNullable(pacedOwner).ifPresent(p -> p.cancelled = true);
+            return null;
+        });
+    }
+
+    /**
+     * Performs a paced transmission on the timer thread, while recording
+     * how far from its slot boundary it was fired.
+     *
+     * @param pacedOwner the owner of the transmission
+     * @param slot the slot reserved for the transmission
+     * @param transmission the transmission to be performed
+     */
+    protected void transmit(PacedOwner pacedOwner, long slot, Runnable transmission) {
+        this.pending.decrementAndGet();
+        if(pacedOwner.cancelled) {
+            return;
+        }
+
+        // Record the pacing error
+        final long error = Math.max(0, System.currentTimeMillis() - slotStart(slot));
+        this.pacingError.record(error, TimeUnit.MILLISECONDS);
+        if(error * SLOTS_PER_MINUTE >= 60000) {
+            this.skippedSlots.increment(error * SLOTS_PER_MINUTE / 60000);
+        }
+
+        // And perform the transmission
+        try {
+            transmission.run();
+        } catch (Exception ex) {
+            log.error(ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns the absolute TDMA slot number at the provided epoch time.
+     *
+     * @param epochMillis the epoch time in milliseconds
+     * @return the absolute slot number
+     */
+    public static long slotAt(long epochMillis) {
+        return epochMillis * SLOTS_PER_MINUTE / 60000;
+    }
+
+    /**
+     * Returns the epoch time in milliseconds at which the provided absolute
+     * slot starts, rounded up to the next millisecond.
+     *
+     * @param slot the absolute slot number
+     * @return the slot start epoch time in milliseconds
+     */
+    public static long slotStart(long slot) {
+        return (slot * 60000 + SLOTS_PER_MINUTE - 1) / SLOTS_PER_MINUTE;
+    }
+
+    /**
+     * Returns the number of slots covering the provided time interval.
+     *
+     * @param millis the time interval in milliseconds
+     * @return the number of slots covering the interval
+     */
+    public static long slotsFor(long millis) {
+        return (millis * SLOTS_PER_MINUTE + 59999) / 60000;
+    }
+
+    /**
+     * The Paced Owner Class.
+     * <p/>
+     * Keeps track of the last slot reserved by each owner, as well as
+     * whether its pending transmissions have been cancelled.
+     */
+    protected static class PacedOwner {
+
+        // Class Variables
+        private long lastSlot = Long.MIN_VALUE / 2;
+        private volatile boolean cancelled;
+
+    }
+
+}
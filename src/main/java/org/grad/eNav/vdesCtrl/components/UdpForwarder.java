@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.models.domain.Station;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The UDP Forwarder Component.
+ * <p/>
+ * This component forwards the messages received by the VDES-1000 stations
+ * to their forward targets, i.e. the forward IP address and port of each
+ * station, along with any additional targets listed in its forward targets.
+ * The target addresses are resolved once, when each station is registered,
+ * and the messages can be filtered by their sentence type (e.g. VDM).
+ * <p/>
+ * The receive listeners only place the messages in a bounded queue, so the
+ * forwarding can never slow them down. A dedicated I/O thread then sends
+ * them in batches. Whenever the queue is full, either the new message or
+ * the oldest queued one is dropped, based on the configured drop policy.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class UdpForwarder {
+
+    /**
+     * The policies for handling new messages when the queue is full.
+     */
+    public enum DropPolicy {
+        DROP_NEWEST,
+        DROP_OLDEST
+    }
+
+    /**
+     * The maximum number of messages waiting to be forwarded
+     */
+    @Value("${gla.rad.vdes-ctrl.udp-forwarder.queue-capacity:10000}")
+    Integer queueCapacity;
+
+    /**
+     * The maximum number of messages to forward in one go
+     */
+    @Value("${gla.rad.vdes-ctrl.udp-forwarder.batch-size:64}")
+    Integer batchSize;
+
+    /**
+     * The message to drop when the queue is full
+     */
+    @Value("${gla.rad.vdes-ctrl.udp-forwarder.drop-policy:DROP_OLDEST}")
+    DropPolicy dropPolicy;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    /**
+     * The Receive Ring Buffer.
+     */
+    @Autowired
+    ReceiveRingBuffer receiveRingBuffer;
+
+    // Component Variables
+    protected DatagramChannel channel;
+    protected BlockingQueue<ForwardRequest> queue;
+    protected Thread ioThread;
+    protected final Map<Object, Forwarding> forwardings = new ConcurrentHashMap<>();
+
+    /**
+     * Once the forwarder is initialised, we need to open the UDP channel and
+     * start the I/O thread.
+     *
+     * @throws IOException if the UDP channel cannot be opened
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        log.info("UDP Forwarder is booting up...");
+
+        // Open the UDP channel and the queue
+        this.channel = DatagramChannel.open();
+        this.queue = new ArrayBlockingQueue<>(this.queueCapacity);
+
+        // Register the queue metrics
+        Gauge.builder("udp.forwarder.queued", this.queue, Collection::size)
+                .description("The number of messages waiting to be forwarded")
+                .register(this.meterRegistry);
+
+        // And start the I/O thread
+        this.ioThread = new Thread(this::run, "udp-forwarder");
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+
+        // Pick up the received messages from the ring buffer, if enabled
+        if(this.receiveRingBuffer.isEnabled()) {
+            this.receiveRingBuffer.subscribe("forwarding", (source, payload, endOfBatch) -> {
+                if(payload instanceof byte[]) {
+                    this.forward(source.getOwner(), (byte[]) payload);
+                } else if(payload instanceof String) {
+                    this.forward(source.getOwner(), (String) payload);
+                }
+            });
+        }
+    }
+
+    /**
+     * When shutting down the application we need to make sure that the I/O
+     * thread has been stopped and the UDP channel has been closed.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("UDP Forwarder is shutting down...");
+        Optional.ofNullable(this.ioThread).ifPresent(Thread::interrupt);
+        Optional.ofNullable(this.channel).ifPresent(channel -> {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                log.error(ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Registers the forward targets of a station. The targets are resolved
+     * straight away, so this should be called whenever the station
+     * configuration is (re)loaded. Stations without any forward targets
+     * are not registered.
+     *
+     * @param owner the owner of the forwarding, e.g. the advertiser
+     * @param station the station to forward the messages of
+     */
+    public void register(Object owner, Station station) {
+        final List<InetSocketAddress> targets = parseTargets(station);
+        if(targets.isEmpty()) {
+            this.cancel(owner);
+            return;
+        }
+
+        // Register the forwarding along with its metrics
+        final Forwarding forwarding = new Forwarding(
+                targets,
+                parseMessageTypes(station.getFwdMessageTypes()),
+                Counter.builder("udp.forwarder.forwarded")
+                        .description("The number of datagrams forwarded")
+                        .tag("station", station.getName())
+                        .register(this.meterRegistry),
+                Counter.builder("udp.forwarder.dropped")
+                        .description("The number of messages dropped because the queue was full")
+                        .tag("station", station.getName())
+                        .register(this.meterRegistry),
+                Counter.builder("udp.forwarder.errors")
+                        .description("The number of datagrams that failed to be forwarded")
+                        .tag("station", station.getName())
+                        .register(this.meterRegistry));
+
+        // Remove the metrics of the previous forwarding if the station was renamed
+        Optional.ofNullable(this.forwardings.put(owner, forwarding))
+                .filter(previous -> previous.forwarded != forwarding.forwarded)
+                .ifPresent(this::removeMeters);
+    }
+
+    /**
+     * Queues a message to be forwarded to the targets of the provided owner,
+     * if it has any and the message type is accepted. This never blocks, so
+     * if the queue is full a message will be dropped instead.
+     *
+     * @param owner the owner of the forwarding
+     * @param message the message to be forwarded
+     */
+    public void forward(Object owner, String message) {
+        if(Objects.nonNull(message)) {
+            this.forward(owner, message.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Queues a raw message to be forwarded to the targets of the provided
+     * owner, if it has any and the message type is accepted. The message
+     * bytes are forwarded as they are, so they should not be modified
+     * afterwards.
+     *
+     * @param owner the owner of the forwarding
+     * @param message the raw message to be forwarded
+     */
+    public void forward(Object owner, byte[] message) {
+        // Sanity check
+        final Forwarding forwarding = this.forwardings.get(owner);
+        if(Objects.isNull(forwarding) || Objects.isNull(message)) {
+            return;
+        }
+
+        // Filter by the message type
+        if(!forwarding.messageTypes.isEmpty() && !forwarding.messageTypes.contains(sentenceType(message))) {
+            return;
+        }
+
+        // Queue the message, dropping one if the queue is full
+        final ForwardRequest request = new ForwardRequest(forwarding, message);
+        while(!this.queue.offer(request)) {
+            if(this.dropPolicy == DropPolicy.DROP_NEWEST) {
+                forwarding.dropped.increment();
+                return;
+            }
+            Optional.ofNullable(this.queue.poll())
+                    .ifPresent(dropped -> dropped.forwarding.dropped.increment());
+        }
+    }
+
+    /**
+     * Drops the forwarding of the provided owner, along with its metrics. Any
+     * messages already queued will still be forwarded.
+     *
+     * @param owner the owner of the forwarding
+     */
+    public void cancel(Object owner) {
+        Optional.ofNullable(this.forwardings.remove(owner))
+                .ifPresent(this::removeMeters);
+    }
+
+    /**
+     * Removes the station metrics of the provided forwarding from the meter
+     * registry.
+     *
+     * @param forwarding the forwarding to remove the metrics of
+     */
+    protected void removeMeters(Forwarding forwarding) {
+        this.meterRegistry.remove(forwarding.forwarded);
+        this.meterRegistry.remove(forwarding.dropped);
+        this.meterRegistry.remove(forwarding.errors);
+    }
+
+    /**
+     * The I/O thread loop, which waits for the queued messages and forwards
+     * them in batches.
+     */
+    protected void run() {
+        final List<ForwardRequest> batch = new ArrayList<>(this.batchSize);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(2048);
+        while(!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(this.queue.take());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            this.queue.drainTo(batch, this.batchSize - 1);
+            for(ForwardRequest request : batch) {
+                buffer = this.send(request, buffer);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Sends a queued message to all the targets of its forwarding, using the
+     * provided buffer, which is grown if the message does not fit in it.
+     *
+     * @param request the queued message
+     * @param buffer the buffer to copy the message into
+     * @return the buffer used, for the next messages
+     */
+    protected ByteBuffer send(ForwardRequest request, ByteBuffer buffer) {
+        // Copy the message once for all the targets
+        final byte[] message = request.message;
+        if(buffer.capacity() < message.length) {
+            buffer = ByteBuffer.allocateDirect(message.length);
+        }
+        buffer.clear().put(message).flip();
+
+        // And send it
+        for(InetSocketAddress target : request.forwarding.targets) {
+            try {
+                this.channel.send(buffer, target);
+                request.forwarding.forwarded.increment();
+            } catch (IOException ex) {
+                log.error(ex.getMessage());
+                request.forwarding.errors.increment();
+            }
+            buffer.rewind();
+        }
+        return buffer;
+    }
+
+    /**
+     * Collects and resolves the forward targets of a station, i.e. its
+     * forward IP address and port, along with the additional forward targets,
+     * listed as comma-separated "address:port" entries. Any invalid or
+     * unresolved targets are logged and skipped.
+     *
+     * @param station the station
+     * @return the resolved forward targets
+     */
+    protected static List<InetSocketAddress> parseTargets(Station station) {
+        final List<String> entries = new ArrayList<>();
+        if(Objects.nonNull(station.getFwdIpAddress()) && Objects.nonNull(station.getFwdPort())) {
+            entries.add(station.getFwdIpAddress() + ":" + station.getFwdPort());
+        }
+        Optional.ofNullable(station.getFwdTargets())
+                .map(targets -> targets.split(","))
+                .map(Arrays::asList)
+                .ifPresent(entries::addAll);
+
+        // Resolve the targets
+        final List<InetSocketAddress> targets = new ArrayList<>();
+        for(String entry : entries) {
+            final String target = entry.trim();
+            final int separator = target.lastIndexOf(':');
+            if(target.isEmpty()) {
+                continue;
+            }
+            try {
+                final InetSocketAddress address = new InetSocketAddress(target.substring(0, separator), Integer.parseInt(target.substring(separator + 1)));
+                if(address.isUnresolved()) {
+                    log.error("Could not resolve the forward target {}", target);
+                    continue;
+                }
+                targets.add(address);
+            } catch (IllegalArgumentException | StringIndexOutOfBoundsException ex) {
+                log.error("Invalid forward target {}", target);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Parses the comma-separated sentence types to be forwarded. An empty
+     * set means that all the messages will be forwarded.
+     *
+     * @param messageTypes the comma-separated sentence types
+     * @return the sentence types to be forwarded
+     */
+    protected static Set<String> parseMessageTypes(String messageTypes) {
+        return Optional.ofNullable(messageTypes)
+                .map(types -> Arrays.stream(types.split(","))
+                        .map(String::trim)
+                        .filter(type -> !type.isEmpty())
+                        .map(String::toUpperCase)
+                        .collect(Collectors.toSet()))
+                .orElse(Collections.emptySet());
+    }
+
+    /**
+     * Extracts the sentence type of an NMEA sentence, i.e. the 3 characters
+     * following the 2-character talker ID (e.g. VDM for !AIVDM).
+     *
+     * @param message the raw NMEA sentence
+     * @return the sentence type, or an empty string if not found
+     */
+    protected static String sentenceType(byte[] message) {
+        int start = -1;
+        for(int i = 0; i < message.length && start < 0; i++) {
+            if(message[i] == '!' || message[i] == '$') {
+                start = i;
+            }
+        }
+        if(start < 0 || message.length < start + 6) {
+            return "";
+        }
+        return new String(message, start + 3, 3, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * The Forwarding Class.
+     * <p/>
+     * Holds the resolved forward targets of a station, the sentence types to
+     * be forwarded, and the station metrics.
+     */
+    protected static class Forwarding {
+
+        // Class Variables
+        private final List<InetSocketAddress> targets;
+        private final Set<String> messageTypes;
+        private final Counter forwarded;
+        private final Counter dropped;
+        private final Counter errors;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param targets       The resolved forward targets
+         * @param messageTypes  The sentence types to be forwarded
+         * @param forwarded     The counter of the datagrams forwarded
+         * @param dropped       The counter of the messages dropped
+         * @param errors        The counter of the datagrams failed
+         */
+        protected Forwarding(List<InetSocketAddress> targets, Set<String> messageTypes, Counter forwarded, Counter dropped, Counter errors) {
+            this.targets = targets;
+            this.messageTypes = messageTypes;
+            this.forwarded = forwarded;
+            this.dropped = dropped;
+            this.errors = errors;
+        }
+
+    }
+
+    /**
+     * The Forward Request Class.
+     * <p/>
+     * Holds a queued message along with the forwarding it belongs to.
+     */
+    protected static class ForwardRequest {
+
+        // Class Variables
+        private final Forwarding forwarding;
+        private final byte[] message;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param forwarding    The forwarding of the message
+         * @param message       The message to be forwarded
+         */
+        protected ForwardRequest(Forwarding forwarding, byte[] message) {
+            this.forwarding = forwarding;
+            this.message = message;
+        }
+
+        /**
+         * Gets message.
+         *
+         * @return the message
+         */
+        public String getMessage() {
+            return new String(message, StandardCharsets.US_ASCII);
+        }
+
+    }
+
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * The VDE Packer Component.
+ * <p/>
+ * A VDE-TER transmission can carry far more data than a single AtoN report
+ * and its signature. When the VDE bulk mode is enabled, the VDE records of
+ * each station, i.e. the VDE signature messages which carry the AtoN reports
+ * along with their signatures, are not sent straight away. Instead, they are
+ * collected for a short flush delay and then packed into as few VDE-TER
+ * payloads as possible, with the higher priority records placed first.
+ * <p/>
+ * Each record is prefixed with its length (2 bytes), so that the receivers
+ * can split the payloads back into the individual records. Records that do
+ * not fit within a payload on their own are rejected, so that they can be
+ * sent separately instead.
+ * <p/>
+ * The number of records, payloads (frames) and bytes sent are reported per
+ * station, along with the rejected records, so that the channel capacity
+ * gained over the per-message transmission can be monitored.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class VdePacker {
+
+    /**
+     * The size of the record length prefix in bytes.
+     */
+    public static final int RECORD_HEADER_SIZE = 2;
+
+    /**
+     * Whether the VDE bulk mode is enabled
+     */
+    @Value("${gla.rad.vdes-ctrl.vde-packer.enabled:false}")
+    Boolean enabled;
+
+    /**
+     * The payload capacity of a single VDE-TER transmission in bytes
+     */
+    @Value("${gla.rad.vdes-ctrl.vde-packer.frame-size:512}")
+    Integer frameSize;
+
+    /**
+     * The time to collect the records for before packing them in milliseconds
+     */
+    @Value("${gla.rad.vdes-ctrl.vde-packer.flush-delay:1000}")
+    Long flushDelay;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected ScheduledExecutorService scheduler;
+    protected final Map<Object, PackingStation> stations = new ConcurrentHashMap<>();
+
+    /**
+     * Once the packer is initialised, we need to start the flushing
+     * scheduler.
+     */
+    @PostConstruct
+    public void init() {
+        log.info("VDE Packer is booting up - {}", this.isEnabled() ? "enabled" : "disabled");
+
+        // Start the flushing scheduler
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "vde-packer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * When shutting down the application we need to make sure that the
+     * flushing scheduler has been shut down.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("VDE Packer is shutting down...");
+        Optional.ofNullable(this.scheduler).ifPresent(ScheduledExecutorService::shutdownNow);
+    }
+
+    /**
+     * Returns whether the VDE bulk mode is enabled.
+     *
+     * @return whether the VDE bulk mode is enabled
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(this.enabled);
+    }
+
+    /**
+     * Returns the payload capacity of a single VDE-TER transmission.
+     *
+     * @return the payload capacity of a single VDE-TER transmission in bytes
+     */
+    public int getFrameSize() {
+        return this.frameSize;
+    }
+
+    /**
+     * Registers a station with the packer, along with the operation to send
+     * the packed VDE payloads through, and its metrics.
+     *
+     * @param owner the owner of the transmissions, e.g. the advertiser
+     * @param name the name of the station, used to tag the metrics
+     * @param sender the operation to send the VDE payloads through
+     */
+    public void register(Object owner, String name, Consumer<byte[]> sender) {
+        this.stations.put(owner, new PackingStation(sender,
+                Counter.builder("vde.packer.records")
+                        .description("The number of VDE records sent")
+                        .tag("station", name)
+                        .register(this.meterRegistry),
+                Counter.builder("vde.packer.frames")
+                        .description("The number of VDE-TER payloads sent")
+                        .tag("station", name)
+                        .register(this.meterRegistry),
+                Counter.builder("vde.packer.bytes")
+                        .description("The number of VDE-TER payload bytes sent")
+                        .tag("station", name)
+                        .baseUnit("bytes")
+                        .register(this.meterRegistry),
+                Counter.builder("vde.packer.rejected")
+                        .description("The number of VDE records rejected for not fitting in a payload")
+                        .tag("station", name)
+                        .register(this.meterRegistry)));
+    }
+
+    /**
+     * Adds a record to be sent by the provided station. The record will be
+     * packed along with the rest of the station records collected within
+     * the flush delay. Records that do not fit within a payload on their
+     * own are rejected, so that the caller can send them separately.
+     *
+     * @param owner the owner of the transmissions
+     * @param priority the priority of the record - lower values go first
+     * @param record the record to be sent
+     * @return whether the record was accepted for packing
+     */
+    public boolean add(Object owner, long priority, byte[] record) {
+        // Sanity check
+        final PackingStation station = this.stations.get(owner);
+        if(Objects.isNull(station) || Objects.isNull(record)) {
+            return false;
+        }
+
+        // Reject the records that would not fit within a payload
+        if(RECORD_HEADER_SIZE + record.length > this.frameSize) {
+            log.warn("VDE record of {} bytes exceeds the payload capacity - rejecting", record.length);
+            station.rejected.increment();
+            return false;
+        }
+
+        // Collect the record and schedule a flush if none is pending
+        synchronized (station) {
+            station.pending.add(new PackingRecord(priority, station.sequence++, record));
+            if(!station.flushScheduled) {
+                station.flushScheduled = true;
+                this.scheduler.schedule(() -> this.flush(owner), this.flushDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Packs and sends all the records collected for the provided station.
+     *
+     * @param owner the owner of the transmissions
+     */
+    public void flush(Object owner) {
+        Optional.ofNullable(this.stations.get(owner))
+                .ifPresent(this::flush);
+    }
+
+    /**
+     * Packs and sends all the records collected for the provided packing
+     * station.
+     *
+     * @param station the packing station
+     */
+    protected void flush(PackingStation station) {
+        // Take the collected records
+        final List<PackingRecord> records;
+        synchronized (station) {
+            records = station.pending;
+            station.pending = new ArrayList<>();
+            station.flushScheduled = false;
+        }
+
+        // Pack them and send them in order
+        for(byte[] frame : this.pack(records)) {
+            try {
+                station.sender.accept(frame);
+                station.frames.increment();
+                station.bytes.increment(frame.length);
+            } catch (Exception ex) {
+                log.error(ex.getMessage());
+            }
+        }
+        station.records.increment(records.size());
+    }
+
+    /**
+     * Unregisters the provided station, along with its metrics, after
+     * sending the records already collected for it.
+     *
+     * @param owner the owner of the transmissions
+     */
+    public void cancel(Object owner) {
+        Optional.ofNullable(this.stations.remove(owner))
+                .ifPresent(station -> {
+                    this.flush(station);
+                    this.meterRegistry.remove(station.records);
+                    this.meterRegistry.remove(station.frames);
+                    this.meterRegistry.remove(station.bytes);
+                    this.meterRegistry.remove(station.rejected);
+                });
+    }
+
+    /**
+     * Packs the provided records into as few VDE-TER payloads as possible.
+     * The records are considered in priority order, and each one is placed
+     * in the first payload with enough space left, so the higher priority
+     * records always end up in the earlier payloads. The records are
+     * expected to fit within a payload on their own.
+     *
+     * @param records the records to be packed
+     * @return the packed payloads, in transmission order
+     */
+    protected List<byte[]> pack(List<PackingRecord> records) {
+        final List<ByteBuffer> frames = new ArrayList<>();
+        records.stream()
+                .sorted(Comparator.comparingLong((PackingRecord record) -> record.priority)
+                        .thenComparingLong(record -> record.sequence))
+                .forEach(record -> {
+                    final int size = RECORD_HEADER_SIZE + record.data.length;
+                    final ByteBuffer frame = frames.stream()
+                            .filter(candidate -> candidate.remaining() >= size)
+                            .findFirst()
+                            .orElseGet(() -> {
+                                final ByteBuffer newFrame = ByteBuffer.allocate(this.frameSize);
+                                frames.add(newFrame);
+                                return newFrame;
+                            });
+                    frame.putShort((short) record.data.length);
+                    frame.put(record.data);
+                });
+        return frames.stream()
+                .map(frame -> {
+                    final byte[] payload = new byte[frame.position()];
+                    frame.flip().get(payload);
+                    return payload;
+                })
+                .toList();
+    }
+
+    /**
+     * The Packing Station Class.
+     * <p/>
+     * Holds the records collected for a station, along with the operation to
+     * send them through and the station metrics.
+     */
+    protected static class PackingStation {
+
+        // Class Variables
+        private final Consumer<byte[]> sender;
+        private final Counter records;
+        private final Counter frames;
+        private final Counter bytes;
+        private final Counter rejected;
+        private List<PackingRecord> pending = new ArrayList<>();
+        private boolean flushScheduled;
+        private long sequence;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param sender    The operation to send the payloads through
+         * @param records   The counter of the records sent
+         * @param frames    The counter of the payloads sent
+         * @param bytes     The counter of the payload bytes sent
+         * @param rejected  The counter of the records rejected
+         */
+        protected PackingStation(Consumer<byte[]> sender, Counter records, Counter frames, Counter bytes, Counter rejected) {
+            this.sender = sender;
+            this.records = records;
+            this.frames = frames;
+            this.bytes = bytes;
+            this.rejected = rejected;
+        }
+
+    }
+
+    /**
+     * The Packing Record Class.
+     * <p/>
+     * Holds a record to be packed, along with its priority and its arrival
+     * sequence, which keeps the records of the same priority in order.
+     */
+    protected static class PackingRecord {
+
+        // Class Variables
+        private final long priority;
+        private final long sequence;
+        private final byte[] data;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param priority  The priority of the record
+         * @param sequence  The arrival sequence of the record
+         * @param data      The record data
+         */
+        protected PackingRecord(long priority, long sequence, byte[] data) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.data = data;
+        }
+
+    }
+
+}
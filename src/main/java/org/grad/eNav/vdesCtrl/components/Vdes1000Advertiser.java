@@ -16,21 +16,20 @@
 
 package org.grad.eNav.vdesCtrl.components;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.nimbusds.jose.util.Base64;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.Hex;
 import org.grad.eNav.vdesCtrl.config.Vdes1000BaseStationConfigProperties;
 import org.grad.eNav.vdesCtrl.exceptions.ValidationException;
-import org.grad.eNav.vdesCtrl.feign.CKeeperClient;
 import org.grad.eNav.vdesCtrl.models.PubSubMsgHeaders;
 import org.grad.eNav.vdesCtrl.models.domain.McpEntityType;
 import org.grad.eNav.vdesCtrl.models.domain.SignatureMode;
 import org.grad.eNav.vdesCtrl.models.domain.Station;
+import org.grad.eNav.vdesCtrl.models.domain.StationSnapshot;
 import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
 import org.grad.eNav.vdesCtrl.services.StationService;
-import org.grad.eNav.vdesCtrl.utils.AISMessageUtils;
+import org.grad.eNav.vdesCtrl.utils.AISPayloadEncoder;
 import org.grad.vdes1000.formats.ais.messages.AISMessage21;
 import org.grad.vdes1000.formats.ais.messages.AISMessage6;
 import org.grad.vdes1000.formats.ais.messages.AISMessage8;
@@ -49,18 +48,22 @@ import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.integration.channel.PublishSubscribeChannel;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.net.*;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Collections;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * The VDES-1000 Advertiser Component.
@@ -95,10 +98,10 @@ public class Vdes1000Advertiser {
     PublishSubscribeChannel publishSubscribeChannel;
 
     /**
-     * The CKeeper Client
+     * The CKeeper Guard
      */
     @Autowired
-    CKeeperClient cKeeperClient;
+    CKeeperGuard cKeeperGuard;
 
     /**
      * The Station Service.
@@ -106,6 +109,96 @@ public class Vdes1000Advertiser {
     @Autowired
     StationService stationService;
 
+    /**
+     * The Blacklist Index.
+     */
+    @Autowired
+    BlacklistIndex blacklistIndex;
+
+    /**
+     * The AtoN Message Cache.
+     */
+    @Autowired
+    AtonMessageCache atonMessageCache;
+
+    /**
+     * The AtoN Timing Wheel.
+     */
+    @Autowired
+    AtonTimingWheel atonTimingWheel;
+
+    /**
+     * The Station Cycle Executor.
+     */
+    @Autowired
+    StationCycleExecutor stationCycleExecutor;
+
+    /**
+     * The Executor Bulkheads.
+     */
+    @Autowired
+    ExecutorBulkheads executorBulkheads;
+
+    /**
+     * The Signature Pipeline.
+     */
+    @Autowired
+    SignaturePipeline signaturePipeline;
+
+    /**
+     * The Local Signer.
+     */
+    @Autowired
+    LocalSigner localSigner;
+
+    /**
+     * The Pre-Signer.
+     */
+    @Autowired
+    PreSigner preSigner;
+
+    /**
+     * The Merkle Aggregator.
+     */
+    @Autowired
+    MerkleAggregator merkleAggregator;
+
+    /**
+     * The VDE Packer.
+     */
+    @Autowired
+    VdePacker vdePacker;
+
+    /**
+     * The UDP Forwarder.
+     */
+    @Autowired
+    UdpForwarder udpForwarder;
+
+    /**
+     * The VDES-1000 Receiver.
+     */
+    @Autowired
+    Vdes1000Receiver vdes1000Receiver;
+
+    /**
+     * The NMEA Parser.
+     */
+    @Autowired
+    NmeaParser nmeaParser;
+
+    /**
+     * The Receive Ring Buffer.
+     */
+    @Autowired
+    ReceiveRingBuffer receiveRingBuffer;
+
+    /**
+     * The Striped Dispatcher.
+     */
+    @Autowired
+    StripedDispatcher stripedDispatcher;
+
     /**
      * The Base Station Configuration Properties.
      */
@@ -113,9 +206,10 @@ public class Vdes1000Advertiser {
     Vdes1000BaseStationConfigProperties baseStationConfigProperties;
 
     // Component Variables
-    protected Station station;
+    protected volatile StationSnapshot station;
     protected VDES1000Conn vdes1000Conn;
-    protected DatagramSocket fwdSocket;
+    protected ReceiveRingBuffer.Source receiveSource;
+    protected String dispatchKey;
 
     /**
      * Once the advertiser is initialised it will have all the information
@@ -124,15 +218,26 @@ public class Vdes1000Advertiser {
      *
      * @param station the station to send the advertisements from
      */
-    public void init(Station station) throws SocketException, UnknownHostException, VDES1000ConnException {
-        this.station = station;
+    public void init(Station station) throws IOException, VDES1000ConnException {
+        this.station = StationSnapshot.of(station);
 
-        // Create the VDES-1000 Connection
+        // Create the VDES-1000 Connection first, so that nothing gets
+        // registered for stations that cannot be reached
         this.setVdes1000Conn(new VDES1000Conn(VDESBroadcastMethod.VDM,
-                String.format("%04d", this.station.getId()),
-                InetAddress.getByName(this.station.getIpAddress()),
-                this.station.getPort(),
-                this.station.getBroadcastPort()));
+                String.format("%04d", this.station.id()),
+                InetAddress.getByName(this.station.ipAddress()),
+                this.station.port(),
+                this.station.broadcastPort()));
+
+        // Allocate the station's phase within the advertising cycle, on the station type's bulkhead
+        this.stationCycleExecutor.register(this, this.station.name(), this.executorBulkheads.get(ExecutorBulkheads.VDES1000_ADVERTISING));
+
+        // Register the station for the VDE bulk transmissions
+        this.vdePacker.register(this, this.station.name(), this::sendVdePayload);
+
+        // Create the source of the received messages, shared by all of them
+        this.receiveSource = this.receiveRingBuffer.source(this, station);
+        this.dispatchKey = StripedDispatcher.key(this.station.ipAddress(), this.station.broadcastPort());
 
         // Add logging capability to the VDES-1000 connection
         this.getVdes1000Conn().setLogger(log);
@@ -152,14 +257,33 @@ public class Vdes1000Advertiser {
                     }
                 });
 
-        // Enable the connection monitoring
-        this.getVdes1000Conn().addVdesListener(this::handleMessage);
-        this.getVdes1000Conn().startMonitoring();
-
-        // If we also have a forward address, open a forward port
-        if(Objects.nonNull(this.station.getFwdIpAddress()) && Objects.nonNull(this.station.getFwdPort())) {
-            this.setFwdSocket(new DatagramSocket());
+        // Enable the connection monitoring, through the shared receiver if possible
+        if(this.vdes1000Receiver.isEnabled() && Objects.nonNull(this.station.broadcastPort())) {
+            this.vdes1000Receiver.register(this, this.station.broadcastPort(), this::handleRawMessage);
+        } else {
+            this.getVdes1000Conn().addVdesListener(this::handleMessage);
+            this.getVdes1000Conn().startMonitoring();
         }
+
+        // Register the forward targets of the station, if any
+        this.udpForwarder.register(this, station);
+    }
+
+    /**
+     * Updates the station of the running advertiser, for the changes that
+     * do not affect its VDES-1000 connection, e.g. the channel, the
+     * signature mode or the forward targets. A new station snapshot is
+     * published, which will be picked up from the next transmission onwards,
+     * without reconnecting to the station.
+     *
+     * @param station the updated station
+     */
+    public void update(Station station) {
+        log.info("VDES-1000 Advertiser updating station {}", station.getName());
+        this.station = StationSnapshot.of(station);
+
+        // Re-register the forward targets of the station, if any
+        this.udpForwarder.register(this, station);
     }
 
     /**
@@ -169,9 +293,20 @@ public class Vdes1000Advertiser {
     @PreDestroy
     public void destroy() {
         log.info("VDES-1000 Advertiser is shutting down...");
+        this.stationCycleExecutor.cancel(this);
+        this.atonTimingWheel.cancel(this);
+        this.signaturePipeline.cancel(this);
+        this.preSigner.cancel(this);
+        this.merkleAggregator.cancel(this);
+        this.vdePacker.cancel(this);
+        this.udpForwarder.cancel(this);
+        this.vdes1000Receiver.cancel(this);
+        this.nmeaParser.cancel(this);
         // Try to close the connections and don't worry about the interrupts
         try {
-            this.getVdes1000Conn().close();
+            if(Objects.nonNull(this.getVdes1000Conn())) {
+                this.getVdes1000Conn().close();
+            }
         } catch (InterruptedException ex) {
             log.error(ex.getMessage());
         }
@@ -179,95 +314,319 @@ public class Vdes1000Advertiser {
 
     /**
      * This is the actual advertising task that is periodically called by the
-     * service. A fixed delay scheduler is used to execute the tasks at a
-     * specific time. Since the VDES-1000 basic TSA-VDM and DDM operations are
-     * used we should control the periodic transmissions manually.
+     * service. Rather than transmitting all the AtoNs in one go, it refreshes
+     * the AtoNs applicable to the station in the AtoN timing wheel, so that
+     * each of them gets advertised separately, in its own interval.
+     * <p/>
+     * The task runs on the station cycle executor, at the station's own phase
+     * within the cycle, so it is not run asynchronously here. For the MERKLE
+     * signature mode, it also signs all the messages advertised within the
+     * previous cycle.
+     * <p/>
+     * The blacklisted AtoNs are registered as well, since the blacklist is
+     * checked on each transmission instead, so that any blacklist changes
+     * apply straight away.
      */
-    @Async("taskExecutor")
     public void advertiseAtons() {
-        // Get all the nodes applicable for the station and build the messages
-        List<AISMessage21> messages = Optional.of(this.station)
-                .map(Station::getId)
-                .map(id -> this.stationService.findMessagesForStation(id, false))
-                .orElse(Collections.emptyList())
+        // Sign the messages advertised within the previous cycle, if required
+        this.signMerkleWindow();
+
+        // Get all the nodes applicable for the station and register the messages
+        // to be advertised on the advertising bulkhead of the station type
+        final Executor bulkhead = this.executorBulkheads.get(ExecutorBulkheads.VDES1000_ADVERTISING);
+        final Set<String> atonUids = new HashSet<>();
+        this.stationService.findMessagesForStation(this.station, true)
                 .stream()
                 .filter(Objects::nonNull)
                 .filter(S125Node.class::isInstance)
                 .map(S125Node.class::cast)
-                .map(s125 -> {
-                    try {
-                        return AISMessageUtils.s125ToAisMessage21(s125);
-                    }
-                    catch (JsonProcessingException ex) {
-                        log.error(ex.getMessage());
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .filter(AISMessage21::getVaton) // Only transmit Virtual AtoNs
-                .toList();
+                .forEach(s125 -> Optional.ofNullable(this.getAisMessage21(s125))
+                        .filter(AISMessage21::getVaton) // Only transmit Virtual AtoNs
+                        .filter(message -> Objects.nonNull(message.getUid()))
+                        .ifPresent(message -> {
+                            atonUids.add(message.getUid());
+                            this.atonTimingWheel.register(this,
+                                    message.getUid(),
+                                    this.atonTimingWheel.getInterval(message.getAtonType()),
+                                    bulkhead,
+                                    () -> this.advertiseAton(s125));
+                        }));
+
+        // Stop advertising the AtoNs that are no longer applicable
+        this.atonTimingWheel.retain(this, atonUids);
+        this.preSigner.retain(this, atonUids);
+    }
+
+    /**
+     * This is the advertising task of a single AtoN, called by the AtoN timing
+     * wheel whenever the AtoN is due. Since the VDES-1000 basic TSA-VDM and
+     * DDM operations are used we should control the periodic transmissions
+     * manually.
+     * <p/>
+     * The AIS Message 21 of the AtoN is always sent straight away. If
+     * signature messages are enabled for the station, the signature is then
+     * generated through the signature pipeline, which keeps the order of the
+     * signature transmissions of the station while the signature requests are
+     * in flight. If the signature was already generated ahead of time by the
+     * pre-signer, it is used straight away. In both cases, the signature of
+     * the next planned transmission of the AtoN is then generated ahead of
+     * time. A failure to sign never holds back the AtoN itself.
+     *
+     * @param s125 the S-125 node of the AtoN to be advertised
+     */
+    public void advertiseAton(S125Node s125) {
+        // Skip the AtoNs currently blacklisted for this station
+        if(this.blacklistIndex.isBlacklisted(this.station.id(), s125.getIdCode())) {
+            return;
+        }
+
+        // Build the message to be advertised
+        final AISMessage21 message = this.getAisMessage21(s125);
+        if(Objects.isNull(message) || !message.getVaton()) {
+            return;
+        }
 
         // Get the signature mode for this station - NONE by default
-        final SignatureMode stationSignatureMode = Optional.ofNullable(station.getSignatureMode())
-                .orElse(SignatureMode.NONE);
+        final SignatureMode stationSignatureMode = this.station.signatureMode();
+
+        // Without signatures there is nothing more to do
+        if (stationSignatureMode == SignatureMode.NONE) {
+            this.sendAdvertisement(message);
+            return;
+        }
+
+        // In the MERKLE mode the message is signed along with the rest of the cycle
+        if (stationSignatureMode == SignatureMode.MERKLE) {
+            this.merkleAggregator.add(this, message, message.getBinaryMessageString())
+                    .ifPresent(this::signMerkleWindow);
+            this.sendAdvertisement(message);
+            return;
+        }
 
-        // Now create the VDES advertisements
+        // Pick up the signature generated ahead of time, if available - this
+        // also stamps the message with the time it was generated for
+        final byte[] preSignature = this.preSigner.take(this, message.getUid(), message).orElse(null);
+
+        // Send the message right away and its signature once available - a
+        // signature generated ahead of time does not need a signer
+        this.sendAdvertisement(message);
+        if (Objects.nonNull(preSignature)) {
+            this.signaturePipeline.submit(this,
+                    CompletableFuture.completedFuture(preSignature),
+                    signature -> this.sendSignature(message, stationSignatureMode, signature));
+        } else {
+            this.signaturePipeline.submit(this,
+                    () -> this.getSignature(message, stationSignatureMode),
+                    signature -> this.sendSignature(message, stationSignatureMode, signature));
+        }
+
+        // And sign the next planned transmission ahead of time
+        this.preSignNext(s125, stationSignatureMode);
+    }
+
+    /**
+     * Generates the signature of the next planned transmission of an AtoN
+     * ahead of time, based on the AtoN advertisement interval.
+     *
+     * @param s125 the S-125 node of the AtoN
+     * @param stationSignatureMode the signature mode of the station
+     */
+    protected void preSignNext(S125Node s125, SignatureMode stationSignatureMode) {
+        if (!this.preSigner.isEnabled()) {
+            return;
+        }
+        Optional.ofNullable(this.getAisMessage21(s125))
+                .ifPresent(next -> {
+                    next.setTimestamp(LocalDateTime.now().plus(this.atonTimingWheel.getInterval(next.getAtonType()), ChronoUnit.MILLIS));
+                    this.preSigner.preSign(this, next.getUid(), next, () -> this.getSignature(next, stationSignatureMode));
+                });
+    }
+
+    /**
+     * Generates the signature to be transmitted for the AIS Message 21,
+     * based on the signature mode of the station. For VDE the whole
+     * signature message is signed, rather than the stamped AIS message, so
+     * the binary content of the signed VDE message is returned.
+     *
+     * @param aisMessage21 the AIS message 21 to be transmitted
+     * @param stationSignatureMode the signature mode of the station
+     * @return the signature to be transmitted
+     */
+    private byte[] getSignature(AISMessage21 aisMessage21, SignatureMode stationSignatureMode) {
+        if (stationSignatureMode == SignatureMode.VDE) {
+            return Optional.ofNullable(this.getVDESignatureMessage(aisMessage21, this.station.channel().getAISChannel()))
+                    .filter(signatureMessage -> Objects.nonNull(signatureMessage.getSignature()))
+                    .map(SignatureMessage::getBinaryMessageBytes)
+                    .orElse(null);
+        }
+        return this.getSignature(aisMessage21);
+    }
+
+    /**
+     * Sends an AtoN advertisement, i.e. the AIS Message 21 of the AtoN,
+     * through the VDES-1000 connection.
+     *
+     * @param message the AIS Message 21 of the AtoN
+     */
+    protected void sendAdvertisement(AISMessage21 message) {
+        try {
+            log.info("Station {} sending an advertisement AtoN {}", station.name(), message.getUid());
+            this.getVdes1000Conn().sendMessage(message, this.station.channel());
+        } catch (VDES1000ConnException ex) {
+            log.error(ex.getMessage());
+        }
+    }
+
+    /**
+     * Sends the signature of an AtoN advertisement through the VDES-1000
+     * connection, if one is available. For the VDE signature mode, the
+     * signature is expected to be the binary content of the whole VDE
+     * signature message.
+     *
+     * @param message the AIS Message 21 of the AtoN
+     * @param stationSignatureMode the signature mode of the station
+     * @param signature the signature of the message, if available
+     */
+    protected void sendSignature(AISMessage21 message, SignatureMode stationSignatureMode, byte[] signature) {
+        // Sanity check
+        if (Objects.isNull(signature)) {
+            return;
+        }
+
+        // Now create the signature message
         try {
-            for (AISMessage21 message : messages) {
-                // First send the message right away and then check if to create a signature for it
-                log.info("Station {} sending an advertisement AtoN {}", station.getName(), message.getUid());
-                this.getVdes1000Conn().sendMessage(message, this.station.getChannel());
-
-                // If signature messages are enabled for this station, send one
-                if (stationSignatureMode != SignatureMode.NONE) {
-                    // Get the signature for the message sent
-                    final byte[] signature = this.getSignature(message);
-
-                    // If we have a signature and it's valid
-                    if (Objects.nonNull(signature)) {
-                        switch(stationSignatureMode) {
-                            case SignatureMode.AIS -> {
-                                // In AIS add the 2 least significant bytes of
-                                // the timestamp in the signature. These should
-                                // be added in the least significant part of
-                                // the signature in a bit endian manner.
-                                final byte[] signatureWithTimestamp = ByteBuffer.allocate(signature.length + 2)
-                                        .put(signature)
-                                        .putShort((short) (message.getUnixTxTimestamp() & 0xFFFFL))
-                                        .order(ByteOrder.BIG_ENDIAN)
-                                        .array();
-                                log.info(String.format("Additional timestamp bytes added to signature: %d, %d",
-                                        signatureWithTimestamp[signatureWithTimestamp.length-2] & 0xFFL,
-                                        signatureWithTimestamp[signatureWithTimestamp.length-1] & 0xFFL));
-                                // Now construct the message
-                                final var msg = Optional.ofNullable(this.signatureDestMmsi)
-                                        .map(destMmsi -> (AbstractMessage) new AISMessage6(message.getMmsi(), destMmsi, signatureWithTimestamp))
-                                        .orElseGet(() -> (AbstractMessage) new AISMessage8(message.getMmsi(), signatureWithTimestamp));
-                                // And send as a UDP packet
-                                this.getVdes1000Conn().sendMessageWithBBM(msg, this.station.getChannel());
-                            }
-                            case SignatureMode.ASM -> {
-                                    this.getVdes1000Conn().sendDataWithASM(signature, this.station.getChannel());
-                            }
-                            case SignatureMode.VDE -> {
-                                final SignatureMessage signatureMessage = this.getVDESignatureMessage(message, this.station.getChannel().getAISChannel());
-                                assert signatureMessage != null;
-                                this.getVdes1000Conn().sendDataWithVDE(signatureMessage.getBinaryMessageBytes());
-                            }
-                            default -> throw new ValidationException("Unrecognised signature transmission mode.");
-                        }
-
-                        // Also log the signature transmission
-                        log.debug(String.format("Message signature sent: %s", new String(StringBinUtils.convertBytes(signature, true))));
-                        log.debug(String.format("Message signature timestamp: %d", message.getUnixTxTimestamp()));
+            switch(stationSignatureMode) {
+                case SignatureMode.AIS -> {
+                    // In AIS add the 2 least significant bytes of
+                    // the timestamp in the signature. These should
+                    // be added in the least significant part of
+                    // the signature in a bit endian manner.
+                    final byte[] signatureWithTimestamp = AISPayloadEncoder.appendTimestamp(signature, message.getUnixTxTimestamp());
+                    log.info("Additional timestamp bytes added to signature: {}, {}",
+                            signatureWithTimestamp[signatureWithTimestamp.length-2] & 0xFFL,
+                            signatureWithTimestamp[signatureWithTimestamp.length-1] & 0xFFL);
+                    // Now construct the message
+                    final var msg = Optional.ofNullable(this.signatureDestMmsi)
+                            .map(destMmsi -> (AbstractMessage) new AISMessage6(message.getMmsi(), destMmsi, signatureWithTimestamp))
+                            .orElseGet(() -> (AbstractMessage) new AISMessage8(message.getMmsi(), signatureWithTimestamp));
+                    // And send as a UDP packet
+                    this.getVdes1000Conn().sendMessageWithBBM(msg, this.station.channel());
+                }
+                case SignatureMode.ASM -> {
+                        this.getVdes1000Conn().sendDataWithASM(signature, this.station.channel());
+                }
+                case SignatureMode.VDE -> {
+                    // In the VDE bulk mode, pack the signature messages
+                    // of the station together, prioritising the AtoNs
+                    // advertised more frequently - the ones that do not
+                    // fit in a payload are sent on their own
+                    if (!this.vdePacker.isEnabled()
+                            || !this.vdePacker.add(this, this.atonTimingWheel.getInterval(message.getAtonType()), signature)) {
+                        this.getVdes1000Conn().sendDataWithVDE(signature);
                     }
                 }
+                default -> throw new ValidationException("Unrecognised signature transmission mode.");
+            }
+
+            // Also log the signature transmission
+            if (log.isDebugEnabled()) {
+                log.debug("Message signature sent: {}", StringBinUtils.convertBytesToBinary(signature, true));
+                log.debug("Message signature timestamp: {}", message.getUnixTxTimestamp());
             }
         } catch (ValidationException | VDES1000ConnException ex) {
             log.error(ex.getMessage());
         }
     }
 
+    /**
+     * Closes the current Merkle window of the station, i.e. all the messages
+     * advertised since the previous cycle, and transmits a single signature
+     * for its root. The signature is generated through the signature
+     * pipeline, so it goes out after any pending advertisements.
+     */
+    protected void signMerkleWindow() {
+        this.merkleAggregator.close(this)
+                .ifPresent(this::signMerkleWindow);
+    }
+
+    /**
+     * Transmits a single signature for the root of the provided Merkle
+     * window, e.g. a window that was closed early because it filled up.
+     *
+     * @param window the Merkle window
+     */
+    protected void signMerkleWindow(MerkleAggregator.MerkleWindow window) {
+        this.signaturePipeline.submit(this,
+                () -> this.getWindowSignature(window),
+                signature -> this.sendWindowSignature(window, signature));
+    }
+
+    /**
+     * Sends the signature of a Merkle window over VDE, along with the list of
+     * the digests of all the messages in the window, so that the receivers
+     * can authenticate each one of them. Since a full window does not fit in
+     * a single VDE-TER transmission, the digest list is split into frames of
+     * the VDE packer frame size, sent one after the other.
+     *
+     * @param window the Merkle window
+     * @param signature the signature of the window root, if available
+     */
+    protected void sendWindowSignature(MerkleAggregator.MerkleWindow window, byte[] signature) {
+        // Sanity check
+        if (Objects.isNull(signature)) {
+            return;
+        }
+
+        // Send the signature along with the digest list
+        try {
+            log.info("Station {} sending the signature of {} advertised messages", station.name(), window.getLeaves().size());
+            for (byte[] frame : window.toDigestFrames(signature, this.vdePacker.getFrameSize())) {
+                this.getVdes1000Conn().sendDataWithVDE(frame);
+            }
+        } catch (VDES1000ConnException ex) {
+            log.error(ex.getMessage());
+        }
+    }
+
+    /**
+     * This function will generate a signature byte-array for the Merkle root
+     * of a window, combined with the window UNIX timestamp. Since the window
+     * covers all the AtoNs of the station, the signature is generated on
+     * behalf of the station itself.
+     *
+     * @param window the Merkle window
+     * @return the signature of the window root
+     */
+    private byte[] getWindowSignature(MerkleAggregator.MerkleWindow window) {
+        try {
+            final byte[] payload = window.getSignaturePayload();
+            return this.localSigner.sign(this.station.name(), this.signatureAlgorithm, payload)
+                    .orElseGet(() -> this.cKeeperGuard.generateEntitySignature(
+                            this.station.name(),
+                            this.station.mmsi(),
+                            this.signatureAlgorithm,
+                            McpEntityType.DEVICE.getValue(),
+                            payload));
+        } catch (IOException ex) {
+            log.error(ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Sends a packed VDE payload through the VDES-1000 connection. Any errors
+     * will be logged.
+     *
+     * @param payload the VDE payload to be sent
+     */
+    protected void sendVdePayload(byte[] payload) {
+        try {
+            this.getVdes1000Conn().sendDataWithVDE(payload);
+        } catch (VDES1000ConnException ex) {
+            log.error(ex.getMessage());
+        }
+    }
+
     /**
      * This function will generate a signature byte-array for the AIS Message 21
      * combined with the transmission UNIX timestamp. The output will then get
@@ -283,24 +642,30 @@ public class Vdes1000Advertiser {
         }
 
         // Construct the NMEA sentence of message 21 to be signed
-        log.debug(String.format("Generating signature for Message 21 NMEA Sentence: %s", new String(aisMessage21.getBinaryMessage(true))));
+        final String binaryMessage = aisMessage21.getBinaryMessageString();
+        if(log.isDebugEnabled()) {
+            log.debug("Generating signature for Message 21 NMEA Sentence: {}", AISPayloadEncoder.toString(AISPayloadEncoder.encodeNmea(
+                    binaryMessage, this.station.channel().getAISChannel(), 0)));
+        }
 
         // Construct the signature message for the VDES station
-        final AbstractMessage abstractMessage;
         final byte[] signature;
         try {
             // Combine the AIS message and the timestamp into a hash
-            log.debug(String.format("Stamping AIS message with timestamp %d", aisMessage21.getUnixTxTimestamp()));
-            byte[] stampedAisMessage = GrAisUtils.getStampedAISMessage(aisMessage21.getBinaryMessage(false), aisMessage21.getUnixTxTimestamp());
-
-            // Get the signature
-            signature = this.cKeeperClient.generateEntitySignature(
-                    aisMessage21.getUid(),
-                    Optional.of(aisMessage21).map(AISMessage21::getMmsi).map(String::valueOf).orElse("0"),
-                    this.signatureAlgorithm,
-                    McpEntityType.DEVICE.getValue(),
-                    stampedAisMessage);
-            log.debug(String.format("Signature sentence generated: %s", Hex.encodeHexString(signature)));
+            log.debug("Stamping AIS message with timestamp {}", aisMessage21.getUnixTxTimestamp());
+            byte[] stampedAisMessage = GrAisUtils.getStampedAISMessage(AISPayloadEncoder.encodeBytes(binaryMessage), aisMessage21.getUnixTxTimestamp());
+
+            // Get the signature - locally if possible, otherwise from cKeeper
+            signature = this.localSigner.sign(aisMessage21.getUid(), this.signatureAlgorithm, stampedAisMessage)
+                    .orElseGet(() -> this.cKeeperGuard.generateEntitySignature(
+                            aisMessage21.getUid(),
+                            Optional.of(aisMessage21).map(AISMessage21::getMmsi).map(String::valueOf).orElse("0"),
+                            this.signatureAlgorithm,
+                            McpEntityType.DEVICE.getValue(),
+                            stampedAisMessage));
+            if(log.isDebugEnabled()) {
+                log.debug("Signature sentence generated: {}", Hex.encodeHexString(signature));
+            }
         } catch (IOException ex) {
             log.error(ex.getMessage());
             return null;
@@ -326,25 +691,49 @@ public class Vdes1000Advertiser {
         final SignatureMessage signatureMessage = new SignatureMessage(aisMessage21);
         signatureMessage.setChannelId(channel);
 
-        log.debug("Generating signature for AIS binary string: {}", signatureMessage.getAisMessage().getBinaryMessageString());
-        log.debug("Generating signature for message: {} with size {}", Base64.encode(signatureMessage.toAuthString()), signatureMessage.toAuthString().length);
+        if(log.isDebugEnabled()) {
+            log.debug("Generating signature for AIS binary string: {}", signatureMessage.getAisMessage().getBinaryMessageString());
+            log.debug("Generating signature for message: {} with size {}", Base64.encode(signatureMessage.toAuthString()), signatureMessage.toAuthString().length);
+        }
 
-        // And add the signature
+        // And add the signature - locally if possible, otherwise from cKeeper
+        final byte[] authString = signatureMessage.toAuthString();
         signatureMessage.setSignature(
-                this.cKeeperClient.generateEntitySignature(
-                        aisMessage21.getUid(),
-                        Optional.of(aisMessage21).map(AISMessage21::getMmsi).map(String::valueOf).orElse("0"),
-                        this.signatureAlgorithm,
-                        McpEntityType.DEVICE.getValue(),
-                        signatureMessage.toAuthString()
-                )
+                this.localSigner.sign(aisMessage21.getUid(), this.signatureAlgorithm, authString)
+                        .orElseGet(() -> this.cKeeperGuard.generateEntitySignature(
+                                aisMessage21.getUid(),
+                                Optional.of(aisMessage21).map(AISMessage21::getMmsi).map(String::valueOf).orElse("0"),
+                                this.signatureAlgorithm,
+                                McpEntityType.DEVICE.getValue(),
+                                authString
+                        ))
         );
 
-        log.debug("Signature sentence generated: {}", new String(signatureMessage.getSignature()));
+        if(log.isDebugEnabled()) {
+            log.debug("Signature sentence generated: {}", new String(signatureMessage.getSignature()));
+        }
 
         return signatureMessage;
     }
 
+    /**
+     * Builds the AIS Message 21 for the provided S-125 node, through the AtoN
+     * message cache. Any parsing errors will be logged and a null message
+     * will be returned.
+     *
+     * @param s125 the S-125 node of the AtoN
+     * @return the AIS Message 21 of the AtoN
+     */
+    private AISMessage21 getAisMessage21(S125Node s125) {
+        try {
+            return this.atonMessageCache.getAisMessage21(s125);
+        }
+        catch (XMLStreamException ex) {
+            log.error(ex.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Handles the received messages.
      * <p/>
@@ -355,66 +744,82 @@ public class Vdes1000Advertiser {
      */
     public void handleMessage(String message) {
         // Send the packet to our pub-sub messaging bus
-        this.publishSubscribeChannel.send(MessageBuilder.withPayload(message)
-                .setHeader(MessageHeaders.CONTENT_TYPE, this.station.getType())
-                .setHeader(PubSubMsgHeaders.ADDRESS.getHeader(), this.station.getIpAddress())
-                .setHeader(PubSubMsgHeaders.PORT.getHeader(), this.station.getBroadcastPort())
-                .setHeader(PubSubMsgHeaders.MMSI.getHeader(), this.station.getMmsi())
-                .build());
-
-        // If we also have a forward address, send it there too
-        if(Objects.nonNull(this.getFwdSocket())) {
-            try {
-                this.getFwdSocket().send(new DatagramPacket(
-                        message.getBytes(),
-                        message.length(),
-                        Optional.of(this.station)
-                                .map(Station::getFwdIpAddress)
-                                .map(ip -> { try { return InetAddress.getByName(ip); } catch (UnknownHostException ex) { return null; } })
-                                .orElse(null),
-                        Optional.of(this.station)
-                                .map(Station::getFwdPort)
-                                .orElse(-1)
-                ));
-            } catch (IOException ex) {
-                this.log.error(ex.getMessage());
-            }
+        this.publishMessage(message);
+
+        // Along with the AIS message, if the sentence completed one
+        this.nmeaParser.parse(this, message).ifPresent(this::publishMessage);
+
+        // If we also have forward targets, queue it for them too, unless the
+        // ring buffer subscribers take care of it
+        if(!this.receiveRingBuffer.isEnabled()) {
+            this.udpForwarder.forward(this, message);
         }
     }
 
     /**
-     * Gets the VDES-1000 connection.
+     * Handles the raw messages received through the shared VDES-1000
+     * receiver.
+     * <p/>
+     * These are the same NMEA sentences, but kept as bytes, so they are only
+     * decoded by the subscribers that actually need them.
      *
-     * @return the VDES-1000 connection
+     * @param message   The raw message to be handled.
      */
-    protected VDES1000Conn getVdes1000Conn() {
-        return vdes1000Conn;
+    public void handleRawMessage(byte[] message) {
+        // Send the packet to our pub-sub messaging bus
+        this.publishMessage(message);
+
+        // Along with the AIS message, if the sentence completed one
+        this.nmeaParser.parse(this, message).ifPresent(this::publishMessage);
+
+        // If we also have forward targets, queue it for them too, unless the
+        // ring buffer subscribers take care of it
+        if(!this.receiveRingBuffer.isEnabled()) {
+            this.udpForwarder.forward(this, message);
+        }
     }
 
     /**
-     * Sets the VDES-1000 connection.
+     * Publishes a received message on the pub-sub messaging bus, along with
+     * the station information headers, or in the receive ring buffer if that
+     * is enabled. When the striped dispatcher is enabled, the messages are
+     * sent on the stripe of the station, so they are delivered in order.
      *
-     * @param vdes1000Conn the VDES-1000 connection
+     * @param payload   The payload of the received message
      */
-    protected void setVdes1000Conn(VDES1000Conn vdes1000Conn) {
-        this.vdes1000Conn = vdes1000Conn;
+    protected void publishMessage(Object payload) {
+        if(this.receiveRingBuffer.isEnabled()) {
+            this.receiveRingBuffer.publish(this.receiveSource, payload);
+            return;
+        }
+        final Message<Object> message = MessageBuilder.withPayload(payload)
+                .setHeader(MessageHeaders.CONTENT_TYPE, this.station.type())
+                .setHeader(PubSubMsgHeaders.ADDRESS.getHeader(), this.station.ipAddress())
+                .setHeader(PubSubMsgHeaders.PORT.getHeader(), this.station.broadcastPort())
+                .setHeader(PubSubMsgHeaders.MMSI.getHeader(), this.station.mmsi())
+                .build();
+        if(this.stripedDispatcher.isEnabled()) {
+            this.stripedDispatcher.dispatch(this.dispatchKey, () -> this.publishSubscribeChannel.send(message));
+            return;
+        }
+        this.publishSubscribeChannel.send(message);
     }
 
     /**
-     * Gets the forward port socket.
+     * Gets the VDES-1000 connection.
      *
-     * @return the forward port socket
+     * @return the VDES-1000 connection
      */
-    protected DatagramSocket getFwdSocket() {
-        return fwdSocket;
+    protected VDES1000Conn getVdes1000Conn() {
+        return vdes1000Conn;
     }
 
     /**
-     * Sets the forward port socket.
+     * Sets the VDES-1000 connection.
      *
-     * @param fwdSocket the forward port socket
+     * @param vdes1000Conn the VDES-1000 connection
      */
-    protected void setFwdSocket(DatagramSocket fwdSocket) {
-        this.fwdSocket = fwdSocket;
+    protected void setVdes1000Conn(VDES1000Conn vdes1000Conn) {
+        this.vdes1000Conn = vdes1000Conn;
     }
 }
@@ -0,0 +1,469 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * The VDES-1000 Receiver Component.
+ * <p/>
+ * Rather than each VDES-1000 connection monitoring its broadcast port on a
+ * thread of its own, this component serves the broadcast ports of all the
+ * VDES-1000 stations from a small, fixed number of selector threads. Each
+ * station port is bound to a non-blocking datagram channel, which is assigned
+ * to the selector with the fewest channels.
+ * <p/>
+ * The received datagrams are split into their individual sentences, which
+ * are handed over to the station handlers as raw bytes, without decoding
+ * them into strings.
+ * <p/>
+ * When the virtual threads are enabled, the receiver is always used, but the
+ * selector threads are not started. Instead, each station port is bound to a
+ * blocking datagram channel, which is read by a virtual thread of its own.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Slf4j
+public class Vdes1000Receiver {
+
+    /**
+     * The maximum size of a UDP datagram payload.
+     */
+    public static final int MAX_DATAGRAM_SIZE = 65507;
+
+    /**
+     * The initial delay in milliseconds before reading a port again after a
+     * receive error, doubled on every consecutive error.
+     */
+    public static final long RECEIVE_RETRY_DELAY = 100;
+
+    /**
+     * The maximum delay in milliseconds before reading a port again after a
+     * receive error.
+     */
+    public static final long MAX_RECEIVE_RETRY_DELAY = 5000;
+
+    /**
+     * Whether the shared receiver is enabled
+     */
+    @Value("${gla.rad.vdes-ctrl.vdes-1000-receiver.enabled:false}")
+    Boolean enabled;
+
+    /**
+     * The number of selector threads
+     */
+    @Value("${gla.rad.vdes-ctrl.vdes-1000-receiver.threads:1}")
+    Integer threads;
+
+    /**
+     * Whether the ports are read by virtual threads
+     */
+    @Value("${spring.threads.virtual.enabled:false}")
+    Boolean virtualThreads;
+
+    /**
+     * The Meter Registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Component Variables
+    protected final List<SelectorLoop> loops = new ArrayList<>();
+    protected final Map<Object, Registration> registrations = new ConcurrentHashMap<>();
+    protected Counter receivedCounter;
+
+    /**
+     * Once the receiver is initialised, we need to start the selector
+     * threads and register the receiver metrics.
+     *
+     * @throws IOException if the selectors cannot be opened
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        log.info("VDES-1000 Receiver is booting up - {}", this.isEnabled() ? (this.isVirtualThreads() ? "virtual threads" : "enabled") : "disabled");
+
+        // Register the receiver metrics
+        this.receivedCounter = Counter.builder("vdes1000.receiver.datagrams")
+                .description("The number of datagrams received from the VDES-1000 stations")
+                .register(this.meterRegistry);
+        Gauge.builder("vdes1000.receiver.channels", this.registrations, Map::size)
+                .description("The number of VDES-1000 broadcast ports being monitored")
+                .register(this.meterRegistry);
+
+        // Only start the selector threads if required
+        if(!this.isEnabled() || this.isVirtualThreads()) {
+            return;
+        }
+        for(int i = 0; i < Math.max(1, this.threads); i++) {
+            final SelectorLoop loop = new SelectorLoop(Selector.open());
+            final Thread thread = new Thread(loop, "vdes1000-receiver-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            this.loops.add(loop);
+        }
+    }
+
+    /**
+     * When shutting down the application we need to make sure that all the
+     * station channels and the selectors have been closed.
+     */
+    @PreDestroy
+    public void destroy() {
+        log.info("VDES-1000 Receiver is shutting down...");
+        new ArrayList<>(this.registrations.keySet()).forEach(this::cancel);
+        this.loops.forEach(SelectorLoop::close);
+        this.loops.clear();
+    }
+
+    /**
+     * Returns whether the shared receiver is enabled.
+     *
+     * @return whether the shared receiver is enabled
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(this.enabled) || this.isVirtualThreads();
+    }
+
+    /**
+     * Returns whether the ports are read by virtual threads.
+     *
+     * @return whether the ports are read by virtual threads
+     */
+    public boolean isVirtualThreads() {
+        return Boolean.TRUE.equals(this.virtualThreads);
+    }
+
+    /**
+     * Starts monitoring the provided broadcast port on behalf of the provided
+     * owner. Every sentence received on the port will be handed over to the
+     * provided handler, on the selector thread, so the handler should not
+     * block. In virtual thread mode, the handler is called on the virtual
+     * thread reading the port instead.
+     *
+     * @param owner the owner of the port, e.g. the advertiser
+     * @param port the UDP broadcast port to monitor
+     * @param handler the handler of the received sentences
+     * @throws IOException if the port cannot be bound
+     */
+    public void register(Object owner, int port, Consumer<byte[]> handler) throws IOException {
+        // Replace any previous registration of the owner
+        this.cancel(owner);
+
+        // In virtual thread mode, read the port on a thread of its own
+        if(this.isVirtualThreads()) {
+            final DatagramChannel channel = DatagramChannel.open();
+            try {
+                channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                channel.bind(new InetSocketAddress(port));
+            } catch (IOException ex) {
+                channel.close();
+                throw ex;
+            }
+            final Registration registration = new Registration(channel, handler, null);
+            this.registrations.put(owner, registration);
+            Thread.ofVirtual()
+                    .name("vdes1000-receiver-" + port)
+                    .start(() -> this.receive(registration));
+            return;
+        }
+
+        // Pick the least loaded selector
+        final SelectorLoop loop = this.loops.stream()
+                .min(Comparator.comparingInt(SelectorLoop::getChannels))
+                .orElseThrow(() -> new IOException("VDES-1000 receiver is not running"));
+
+        // Bind the port on a non-blocking channel and hand it over
+        final DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(new InetSocketAddress(port));
+            channel.configureBlocking(false);
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+        final Registration registration = new Registration(channel, handler, loop);
+        this.registrations.put(owner, registration);
+        loop.register(registration);
+    }
+
+    /**
+     * Stops monitoring the broadcast port of the provided owner, if any.
+     *
+     * @param owner the owner of the port
+     */
+    public void cancel(Object owner) {
+        Optional.ofNullable(this.registrations.remove(owner))
+                .ifPresent(registration -> {
+                    if(registration.loop != null) {
+                        registration.loop.deregister(registration);
+                    } else {
+                        close(registration.channel);
+                    }
+                });
+    }
+
+    /**
+     * Reads the datagrams of a blocking channel until it is closed, handing
+     * their sentences over to the channel handler. This is meant to be run
+     * on a virtual thread, which is simply unmounted while blocked. The
+     * buffer fits the largest datagram, so that no sentences are truncated,
+     * and any consecutive receive errors are retried with an increasing
+     * delay, so that a failing port does not keep a carrier thread busy.
+     *
+     * @param registration the registration of the channel
+     */
+    protected void receive(Registration registration) {
+        final ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+        long retryDelay = RECEIVE_RETRY_DELAY;
+        while(registration.channel.isOpen()) {
+            try {
+                buffer.clear();
+                registration.channel.receive(buffer);
+                this.receivedCounter.increment();
+                dispatch(buffer.flip(), registration.handler);
+                retryDelay = RECEIVE_RETRY_DELAY;
+            } catch (ClosedChannelException ex) {
+                break;
+            } catch (IOException ex) {
+                log.error(ex.getMessage());
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                retryDelay = Math.min(MAX_RECEIVE_RETRY_DELAY, retryDelay * 2);
+            }
+        }
+    }
+
+    /**
+     * Closes the provided channel, logging any errors.
+     *
+     * @param channel the channel to be closed
+     */
+    protected static void close(DatagramChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            log.error(ex.getMessage());
+        }
+    }
+
+    /**
+     * Splits a received datagram into its individual sentences, dropping the
+     * line terminators, and hands each one to the provided handler.
+     *
+     * @param buffer the received datagram, ready to be read
+     * @param handler the handler of the sentences
+     */
+    protected static void dispatch(ByteBuffer buffer, Consumer<byte[]> handler) {
+        int start = buffer.position();
+        final int limit = buffer.limit();
+        for(int i = start; i <= limit; i++) {
+            if(i == limit || buffer.get(i) == '\n' || buffer.get(i) == '\r') {
+                if(i > start) {
+                    final byte[] sentence = new byte[i - start];
+                    buffer.get(start, sentence);
+                    try {
+                        handler.accept(sentence);
+                    } catch (Exception ex) {
+                        log.error(ex.getMessage());
+                    }
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * The Registration Class.
+     * <p/>
+     * Holds the channel of a monitored broadcast port, along with the handler
+     * of its sentences and the selector loop serving it, if any.
+     */
+    protected static class Registration {
+
+        // Class Variables
+        private final DatagramChannel channel;
+        private final Consumer<byte[]> handler;
+        private final SelectorLoop loop;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param channel   The channel of the broadcast port
+         * @param handler   The handler of the received sentences
+         * @param loop      The selector loop serving the channel, if any
+         */
+        protected Registration(DatagramChannel channel, Consumer<byte[]> handler, SelectorLoop loop) {
+            this.channel = channel;
+            this.handler = handler;
+            this.loop = loop;
+        }
+
+    }
+
+    /**
+     * The Selector Loop Class.
+     * <p/>
+     * Runs a selector over a number of station channels. The channels are
+     * registered and deregistered on the selector thread itself, so the
+     * selector is never blocked by other threads.
+     */
+    protected class SelectorLoop implements Runnable {
+
+        // Class Variables
+        private final Selector selector;
+        private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+        private final AtomicInteger channels = new AtomicInteger();
+
+        /**
+         * The Selector Constructor.
+         *
+         * @param selector  The selector of the loop
+         */
+        protected SelectorLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        /**
+         * Gets the number of channels served.
+         *
+         * @return the number of channels served
+         */
+        protected int getChannels() {
+            return channels.get();
+        }
+
+        /**
+         * Registers a channel with the selector.
+         *
+         * @param registration the registration of the channel
+         */
+        protected void register(Registration registration) {
+            this.channels.incrementAndGet();
+            this.pending.add(() -> {
+                try {
+                    registration.channel.register(this.selector, SelectionKey.OP_READ, registration);
+                } catch (IOException ex) {
+                    log.error(ex.getMessage());
+                }
+            });
+            this.selector.wakeup();
+        }
+
+        /**
+         * Deregisters a channel from the selector and closes it.
+         *
+         * @param registration the registration of the channel
+         */
+        protected void deregister(Registration registration) {
+            this.channels.decrementAndGet();
+            this.pending.add(() -> Vdes1000Receiver.close(registration.channel));
+            this.selector.wakeup();
+        }
+
+        /**
+         * Closes the selector, which also stops the loop.
+         */
+        protected void close() {
+            try {
+                this.selector.close();
+            } catch (IOException ex) {
+                log.error(ex.getMessage());
+            }
+        }
+
+        /**
+         * The selector loop, which waits for the channels to become readable
+         * and dispatches all their available datagrams.
+         */
+        @Override
+        public void run() {
+            while(this.selector.isOpen()) {
+                try {
+                    this.selector.select();
+                    Runnable operation;
+                    while((operation = this.pending.poll()) != null) {
+                        operation.run();
+                    }
+                    final Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                    while(keys.hasNext()) {
+                        final SelectionKey key = keys.next();
+                        keys.remove();
+                        if(key.isValid() && key.isReadable()) {
+                            this.read((Registration) key.attachment());
+                        }
+                    }
+                } catch (ClosedSelectorException ex) {
+                    break;
+                } catch (IOException ex) {
+                    log.error(ex.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Reads all the datagrams available on a channel.
+         *
+         * @param registration the registration of the channel
+         */
+        private void read(Registration registration) {
+            try {
+                while(true) {
+                    this.buffer.clear();
+                    if(registration.channel.receive(this.buffer) == null) {
+                        return;
+                    }
+                    receivedCounter.increment();
+                    dispatch(this.buffer.flip(), registration.handler);
+                }
+            } catch (IOException ex) {
+                log.error(ex.getMessage());
+            }
+        }
+
+    }
+
+}
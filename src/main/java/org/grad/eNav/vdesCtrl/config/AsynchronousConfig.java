@@ -16,6 +16,7 @@
 
 package org.grad.eNav.vdesCtrl.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.TaskExecutor;
@@ -37,17 +38,20 @@ import java.util.concurrent.Executor;
 public class AsynchronousConfig {
 
     /**
-     * The default task executor for all asynchronous operations.
+     * The default task executor for all asynchronous operations. When the
+     * virtual threads are enabled, the pool threads are virtual as well.
      *
+     * @param virtualThreads whether to use virtual threads
      * @return The default task executor for all asynchronous operations
      */
     @Bean("taskExecutor")
-    public Executor taskExecutor() {
+    public Executor taskExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
         ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
         taskExecutor.setCorePoolSize(2);
         taskExecutor.setMaxPoolSize(10);
         taskExecutor.setQueueCapacity(500);
         taskExecutor.setThreadNamePrefix("worker-");
+        taskExecutor.setVirtualThreads(virtualThreads);
         taskExecutor.initialize();
         return taskExecutor;
     }
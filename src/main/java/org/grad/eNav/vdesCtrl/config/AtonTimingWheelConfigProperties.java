@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.config;
+
+import org.grad.vdes1000.formats.generic.AtonType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The AtoN Timing Wheel Configuration Properties Class.
+ *
+ * This class contains the configuration parameters that being picked up from
+ * the configuration properties and used to determine how often each AtoN
+ * should be advertised, based on its type. For example, new danger wrecks
+ * can be advertised every 10 seconds, while routine marks only every few
+ * minutes.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@ConfigurationProperties(prefix = "gla.rad.vdes-ctrl.aton-timing-wheel")
+public class AtonTimingWheelConfigProperties {
+
+    // Class Variables
+    private Long tick = 100L;
+    private Integer wheelSize = 512;
+    private Long defaultInterval = 60000L;
+    private Map<AtonType, Long> intervals = new EnumMap<>(AtonType.class);
+
+    /**
+     * Gets the wheel tick in milliseconds.
+     *
+     * @return the wheel tick in milliseconds
+     */
+    public Long getTick() {
+        return tick;
+    }
+
+    /**
+     * Sets the wheel tick in milliseconds.
+     *
+     * @param tick the wheel tick in milliseconds
+     */
+    public void setTick(Long tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Gets the number of buckets in each wheel level.
+     *
+     * @return the number of buckets in each wheel level
+     */
+    public Integer getWheelSize() {
+        return wheelSize;
+    }
+
+    /**
+     * Sets the number of buckets in each wheel level.
+     *
+     * @param wheelSize the number of buckets in each wheel level
+     */
+    public void setWheelSize(Integer wheelSize) {
+        this.wheelSize = wheelSize;
+    }
+
+    /**
+     * Gets the default advertisement interval in milliseconds.
+     *
+     * @return the default advertisement interval in milliseconds
+     */
+    public Long getDefaultInterval() {
+        return defaultInterval;
+    }
+
+    /**
+     * Sets the default advertisement interval in milliseconds.
+     *
+     * @param defaultInterval the default advertisement interval in milliseconds
+     */
+    public void setDefaultInterval(Long defaultInterval) {
+        this.defaultInterval = defaultInterval;
+    }
+
+    /**
+     * Gets the advertisement intervals per AtoN type in milliseconds.
+     *
+     * @return the advertisement intervals per AtoN type in milliseconds
+     */
+    public Map<AtonType, Long> getIntervals() {
+        return intervals;
+    }
+
+    /**
+     * Sets the advertisement intervals per AtoN type in milliseconds.
+     *
+     * @param intervals the advertisement intervals per AtoN type in milliseconds
+     */
+    public void setIntervals(Map<AtonType, Long> intervals) {
+        this.intervals = intervals;
+    }
+
+    /**
+     * Returns the advertisement interval for the provided AtoN type. If no
+     * specific interval has been configured for it, the default interval is
+     * used.
+     *
+     * @param atonType the AtoN type
+     * @return the advertisement interval in milliseconds
+     */
+    public long getInterval(AtonType atonType) {
+        return Optional.ofNullable(atonType)
+                .map(this.intervals::get)
+                .orElse(this.defaultInterval);
+    }
+
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.config;
+
+import org.grad.eNav.vdesCtrl.components.ExecutorBulkheads;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Bulkhead Configuration Properties Class.
+ *
+ * This class contains the configuration parameters that being picked up from
+ * the configuration properties and used to size each of the executor
+ * bulkheads, i.e. the separate thread pools for the VDES-1000 advertising,
+ * the GNURadio advertising, the dispatching of the received messages, the
+ * cKeeper calls and the rest of the remote I/O calls, along with the policy
+ * for the tasks each of them rejects.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@ConfigurationProperties(prefix = "gla.rad.vdes-ctrl.bulkheads")
+public class BulkheadConfigProperties {
+
+    // Class Variables
+    private ExecutorProperties vdes1000Advertising = new ExecutorProperties(2, 2, 500, ExecutorBulkheads.RejectionPolicy.DISCARD_OLDEST);
+    private ExecutorProperties gnuradioAdvertising = new ExecutorProperties(2, 2, 500, ExecutorBulkheads.RejectionPolicy.DISCARD_OLDEST);
+    private ExecutorProperties receiveDispatch = new ExecutorProperties(2, 10, 500, ExecutorBulkheads.RejectionPolicy.CALLER_RUNS);
+    private ExecutorProperties remoteIo = new ExecutorProperties(8, 8, 16, ExecutorBulkheads.RejectionPolicy.ABORT);
+    private ExecutorProperties ckeeperIo = new ExecutorProperties(8, 8, 16, ExecutorBulkheads.RejectionPolicy.ABORT);
+
+    /**
+     * Gets the VDES-1000 advertising executor properties.
+     *
+     * @return the VDES-1000 advertising executor properties
+     */
+    public ExecutorProperties getVdes1000Advertising() {
+        return vdes1000Advertising;
+    }
+
+    /**
+     * Sets the VDES-1000 advertising executor properties.
+     *
+     * @param vdes1000Advertising the VDES-1000 advertising executor properties
+     */
+    public void setVdes1000Advertising(ExecutorProperties vdes1000Advertising) {
+        this.vdes1000Advertising = vdes1000Advertising;
+    }
+
+    /**
+     * Gets the GNURadio advertising executor properties.
+     *
+     * @return the GNURadio advertising executor properties
+     */
+    public ExecutorProperties getGnuradioAdvertising() {
+        return gnuradioAdvertising;
+    }
+
+    /**
+     * Sets the GNURadio advertising executor properties.
+     *
+     * @param gnuradioAdvertising the GNURadio advertising executor properties
+     */
+    public void setGnuradioAdvertising(ExecutorProperties gnuradioAdvertising) {
+        this.gnuradioAdvertising = gnuradioAdvertising;
+    }
+
+    /**
+     * Gets the received message dispatching executor properties.
+     *
+     * @return the received message dispatching executor properties
+     */
+    public ExecutorProperties getReceiveDispatch() {
+        return receiveDispatch;
+    }
+
+    /**
+     * Sets the received message dispatching executor properties.
+     *
+     * @param receiveDispatch the received message dispatching executor properties
+     */
+    public void setReceiveDispatch(ExecutorProperties receiveDispatch) {
+        this.receiveDispatch = receiveDispatch;
+    }
+
+    /**
+     * Gets the remote I/O executor properties.
+     *
+     * @return the remote I/O executor properties
+     */
+    public ExecutorProperties getRemoteIo() {
+        return remoteIo;
+    }
+
+    /**
+     * Sets the remote I/O executor properties.
+     *
+     * @param remoteIo the remote I/O executor properties
+     */
+    public void setRemoteIo(ExecutorProperties remoteIo) {
+        this.remoteIo = remoteIo;
+    }
+
+    /**
+     * Gets the cKeeper I/O executor properties.
+     *
+     * @return the cKeeper I/O executor properties
+     */
+    public ExecutorProperties getCkeeperIo() {
+        return ckeeperIo;
+    }
+
+    /**
+     * Sets the cKeeper I/O executor properties.
+     *
+     * @param ckeeperIo the cKeeper I/O executor properties
+     */
+    public void setCkeeperIo(ExecutorProperties ckeeperIo) {
+        this.ckeeperIo = ckeeperIo;
+    }
+
+    /**
+     * Returns the properties of all the executor bulkheads, mapped by their
+     * names.
+     *
+     * @return the properties of all the executor bulkheads
+     */
+    public Map<String, ExecutorProperties> getExecutors() {
+        final Map<String, ExecutorProperties> executors = new LinkedHashMap<>();
+        executors.put(ExecutorBulkheads.VDES1000_ADVERTISING, this.vdes1000Advertising);
+        executors.put(ExecutorBulkheads.GNURADIO_ADVERTISING, this.gnuradioAdvertising);
+        executors.put(ExecutorBulkheads.RECEIVE_DISPATCH, this.receiveDispatch);
+        executors.put(ExecutorBulkheads.REMOTE_IO, this.remoteIo);
+        executors.put(ExecutorBulkheads.CKEEPER_IO, this.ckeeperIo);
+        return executors;
+    }
+
+    /**
+     * The Executor Properties Class.
+     * <p/>
+     * Holds the sizing and the rejection policy of an executor bulkhead.
+     */
+    public static class ExecutorProperties {
+
+        // Class Variables
+        private Integer coreSize;
+        private Integer maxSize;
+        private Integer queueCapacity;
+        private ExecutorBulkheads.RejectionPolicy rejectionPolicy;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param coreSize          The number of threads kept in the pool
+         * @param maxSize           The maximum number of threads in the pool
+         * @param queueCapacity     The maximum number of tasks waiting
+         * @param rejectionPolicy   The policy for the rejected tasks
+         */
+        public ExecutorProperties(Integer coreSize, Integer maxSize, Integer queueCapacity, ExecutorBulkheads.RejectionPolicy rejectionPolicy) {
+            this.coreSize = coreSize;
+            this.maxSize = maxSize;
+            this.queueCapacity = queueCapacity;
+            this.rejectionPolicy = rejectionPolicy;
+        }
+
+        /**
+         * Gets the number of threads kept in the pool.
+         *
+         * @return the number of threads kept in the pool
+         */
+        public Integer getCoreSize() {
+            return coreSize;
+        }
+
+        /**
+         * Sets the number of threads kept in the pool.
+         *
+         * @param coreSize the number of threads kept in the pool
+         */
+        public void setCoreSize(Integer coreSize) {
+            this.coreSize = coreSize;
+        }
+
+        /**
+         * Gets the maximum number of threads in the pool.
+         *
+         * @return the maximum number of threads in the pool
+         */
+        public Integer getMaxSize() {
+            return maxSize;
+        }
+
+        /**
+         * Sets the maximum number of threads in the pool.
+         *
+         * @param maxSize the maximum number of threads in the pool
+         */
+        public void setMaxSize(Integer maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Gets the maximum number of tasks waiting for a thread.
+         *
+         * @return the maximum number of tasks waiting for a thread
+         */
+        public Integer getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        /**
+         * Sets the maximum number of tasks waiting for a thread.
+         *
+         * @param queueCapacity the maximum number of tasks waiting for a thread
+         */
+        public void setQueueCapacity(Integer queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        /**
+         * Gets the policy for the tasks rejected by the executor.
+         *
+         * @return the policy for the rejected tasks
+         */
+        public ExecutorBulkheads.RejectionPolicy getRejectionPolicy() {
+            return rejectionPolicy;
+        }
+
+        /**
+         * Sets the policy for the tasks rejected by the executor.
+         *
+         * @param rejectionPolicy the policy for the rejected tasks
+         */
+        public void setRejectionPolicy(ExecutorBulkheads.RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+        }
+
+    }
+
+}
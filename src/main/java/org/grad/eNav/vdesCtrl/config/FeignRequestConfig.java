@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.config;
+
+import feign.Request;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The FeignRequestConfig Class.
+ * <p>
+ * This configuration provides the request options of the Feign clients. It
+ * is kept apart from the OAuth2 authorization configuration, so that the
+ * timeouts are applied whether keycloak is enabled or not.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Configuration
+public class FeignRequestConfig {
+
+    /**
+     * The Feign request options bean provider. This sets explicit connect and
+     * read timeouts on the Feign calls, so that an unresponsive service cannot
+     * hold the calling threads indefinitely.
+     *
+     * @param connectTimeout the connect timeout in milliseconds
+     * @param readTimeout the read timeout in milliseconds
+     * @return the Feign request options
+     */
+    @Bean
+    Request.Options feignRequestOptions(@Value("${gla.rad.vdes-ctrl.feign.connect-timeout:2000}") Long connectTimeout,
+                                        @Value("${gla.rad.vdes-ctrl.feign.read-timeout:5000}") Long readTimeout) {
+        return new Request.Options(connectTimeout, TimeUnit.MILLISECONDS, readTimeout, TimeUnit.MILLISECONDS, true);
+    }
+
+}
@@ -16,15 +16,15 @@
 
 package org.grad.eNav.vdesCtrl.config;
 
+import org.grad.eNav.vdesCtrl.components.ExecutorBulkheads;
 import org.grad.eNav.vdesCtrl.components.PubSubErrorHandler;
+import org.grad.eNav.vdesCtrl.components.StripedDispatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.integration.channel.PublishSubscribeChannel;
 import org.springframework.integration.config.EnableIntegration;
 
-import java.util.concurrent.Executor;
-
 /**
  * The PubSubChannelConfig Class
  *
@@ -39,20 +39,39 @@ import java.util.concurrent.Executor;
 public class PubSubChannelConfig {
 
     /**
-     * The Asynchronous Task Executor.
+     * The Executor Bulkheads.
+     */
+    @Autowired
+    ExecutorBulkheads executorBulkheads;
+
+    /**
+     * The Striped Dispatcher.
      */
     @Autowired
-    Executor taskExecutor;
+    StripedDispatcher stripedDispatcher;
 
     /**
      * Defining a publish subscribe Spring Integration channel to exchange
      * the incoming AtoN and other data between the application components.
+     * <p/>
+     * If the striped dispatcher is enabled, the received messages are already
+     * handed over to the channel on the stripe of their station, so the
+     * channel delivers them synchronously to preserve their order, and the
+     * receive dispatch bulkhead is not used at all. A failing subscriber is
+     * then only logged, so the rest still get the message. Otherwise, they
+     * are delivered on the receive dispatch bulkhead, so that a burst of
+     * received traffic cannot delay the station transmissions.
      *
      * @return The publish subscribe message channel
      */
     @Bean
     public PublishSubscribeChannel publishSubscribeChannel() {
-        PublishSubscribeChannel pubsubChannel = new PublishSubscribeChannel(this.taskExecutor);
+        if(this.stripedDispatcher.isEnabled()) {
+            PublishSubscribeChannel pubsubChannel = new PublishSubscribeChannel();
+            pubsubChannel.setIgnoreFailures(true);
+            return pubsubChannel;
+        }
+        PublishSubscribeChannel pubsubChannel = new PublishSubscribeChannel(this.executorBulkheads.get(ExecutorBulkheads.RECEIVE_DISPATCH));
         pubsubChannel.setErrorHandler(new PubSubErrorHandler());
         return pubsubChannel;
     }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.endpoints;
+
+import org.grad.eNav.vdesCtrl.components.ExecutorBulkheads;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The Bulkheads Actuator Endpoint.
+ * <p/>
+ * Exposes the state of the executor bulkheads through the actuator, i.e.
+ * for each bulkhead its pool sizes, the active threads, the queued and
+ * rejected tasks and its rejection policy. The pool sizes and the rejection
+ * policy of each bulkhead can also be changed while running.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Endpoint(id = "bulkheads")
+public class BulkheadEndpoint {
+
+    /**
+     * The Executor Bulkheads.
+     */
+    @Autowired
+    ExecutorBulkheads executorBulkheads;
+
+    /**
+     * Returns the current state of all the executor bulkheads.
+     *
+     * @return the current state of all the executor bulkheads
+     */
+    @ReadOperation
+    public Map<String, Object> bulkheads() {
+        final Map<String, Object> response = new LinkedHashMap<>();
+        this.executorBulkheads.getBulkheads()
+                .stream()
+                .sorted(Comparator.comparing(ExecutorBulkheads.Bulkhead::getName))
+                .forEach(bulkhead -> response.put(bulkhead.getName(), this.describe(bulkhead)));
+        return response;
+    }
+
+    /**
+     * Returns the current state of the executor bulkhead with the provided
+     * name.
+     *
+     * @param name the name of the bulkhead
+     * @return the current state of the bulkhead
+     */
+    @ReadOperation
+    public Map<String, Object> bulkhead(@Selector String name) {
+        return this.describe(this.executorBulkheads.get(name));
+    }
+
+    /**
+     * Resizes the executor bulkhead with the provided name, and/or changes
+     * its rejection policy. Any parameters not provided are left unchanged.
+     *
+     * @param name the name of the bulkhead
+     * @param coreSize the number of threads kept in the pool
+     * @param maxSize the maximum number of threads in the pool
+     * @param rejectionPolicy the policy for the rejected tasks
+     * @return the new state of the bulkhead
+     */
+    @WriteOperation
+    public Map<String, Object> resize(@Selector String name,
+                                      @Nullable Integer coreSize,
+                                      @Nullable Integer maxSize,
+                                      @Nullable ExecutorBulkheads.RejectionPolicy rejectionPolicy) {
+        final ExecutorBulkheads.Bulkhead bulkhead = this.executorBulkheads.get(name);
+        if(coreSize != null || maxSize != null) {
+            final int core = Optional.ofNullable(coreSize).orElse(bulkhead.getCorePoolSize());
+            bulkhead.resize(core, Optional.ofNullable(maxSize).orElse(Math.max(core, bulkhead.getMaximumPoolSize())));
+        }
+        Optional.ofNullable(rejectionPolicy).ifPresent(bulkhead::setRejectionPolicy);
+        return this.describe(bulkhead);
+    }
+
+    /**
+     * Describes the current state of a bulkhead.
+     *
+     * @param bulkhead the bulkhead
+     * @return the current state of the bulkhead
+     */
+    protected Map<String, Object> describe(ExecutorBulkheads.Bulkhead bulkhead) {
+        final Map<String, Object> state = new LinkedHashMap<>();
+        state.put("coreSize", bulkhead.getCorePoolSize());
+        state.put("maxSize", bulkhead.getMaximumPoolSize());
+        state.put("poolSize", bulkhead.getPoolSize());
+        state.put("active", bulkhead.getActiveCount());
+        state.put("queued", bulkhead.getQueue().size());
+        state.put("queueRemaining", bulkhead.getQueue().remainingCapacity());
+        state.put("rejected", bulkhead.getRejected());
+        state.put("rejectionPolicy", bulkhead.getRejectionPolicy());
+        return state;
+    }
+
+}
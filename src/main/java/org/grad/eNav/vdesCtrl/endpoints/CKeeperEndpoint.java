@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.endpoints;
+
+import org.grad.eNav.vdesCtrl.components.CKeeperGuard;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The CKeeper Actuator Endpoint.
+ * <p/>
+ * Exposes the state of the guard around the cKeeper calls through the
+ * actuator, i.e. the circuit breaker state, the consecutive failures, the
+ * calls rejected or timed out and the current bulkhead usage.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Endpoint(id = "ckeeper")
+public class CKeeperEndpoint {
+
+    /**
+     * The CKeeper Guard.
+     */
+    @Autowired
+    CKeeperGuard cKeeperGuard;
+
+    /**
+     * Returns the current state of the cKeeper guard.
+     *
+     * @return the current state of the cKeeper guard
+     */
+    @ReadOperation
+    public Map<String, Object> cKeeper() {
+        final Map<String, Object> rejected = new LinkedHashMap<>();
+        rejected.put("open", this.cKeeperGuard.getRejectedOpen());
+        rejected.put("bulkhead", this.cKeeperGuard.getRejectedFull());
+
+        // Build the response
+        final Map<String, Object> response = new LinkedHashMap<>();
+        response.put("state", this.cKeeperGuard.getState());
+        response.put("consecutiveFailures", this.cKeeperGuard.getConsecutiveFailures());
+        response.put("rejected", rejected);
+        response.put("timeouts", this.cKeeperGuard.getTimeouts());
+        response.put("inFlight", this.cKeeperGuard.getInFlight());
+        response.put("queued", this.cKeeperGuard.getQueued());
+        return response;
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.endpoints;
+
+import org.grad.eNav.vdesCtrl.components.StationCycleExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Station Cycles Actuator Endpoint.
+ * <p/>
+ * Exposes the state of the station advertising cycles through the actuator,
+ * i.e. the overlap policy in use and, for each station, its phase within the
+ * cycle, whether a cycle is currently in flight and how many times the
+ * station has overrun its cycle.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Component
+@Endpoint(id = "stationcycles")
+public class StationCycleEndpoint {
+
+    /**
+     * The Station Cycle Executor.
+     */
+    @Autowired
+    StationCycleExecutor stationCycleExecutor;
+
+    /**
+     * Returns the current state of the station advertising cycles.
+     *
+     * @return the current state of the station advertising cycles
+     */
+    @ReadOperation
+    public Map<String, Object> stationCycles() {
+        final List<Map<String, Object>> stations = this.stationCycleExecutor.getStationCycles()
+                .stream()
+                .sorted(Comparator.comparingLong(StationCycleExecutor.StationCycle::getPhaseOffset))
+                .map(stationCycle -> {
+                    final Map<String, Object> station = new LinkedHashMap<>();
+                    station.put("name", stationCycle.getName());
+                    station.put("phaseOffset", stationCycle.getPhaseOffset());
+                    station.put("inFlight", stationCycle.isInFlight());
+                    station.put("coalesced", stationCycle.isCoalesced());
+                    station.put("overruns", stationCycle.getOverruns());
+                    station.put("lastStarted", stationCycle.getLastStarted());
+                    station.put("lastDuration", stationCycle.getLastDuration());
+                    return station;
+                })
+                .toList();
+
+        // Build the response
+        final Map<String, Object> response = new LinkedHashMap<>();
+        response.put("overlapPolicy", this.stationCycleExecutor.getOverlapPolicy());
+        response.put("stations", stations);
+        return response;
+    }
+
+}
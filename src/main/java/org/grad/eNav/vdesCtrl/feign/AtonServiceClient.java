@@ -17,6 +17,7 @@
 package org.grad.eNav.vdesCtrl.feign;
 
 import org.grad.eNav.vdesCtrl.config.FeignClientConfig;
+import org.grad.eNav.vdesCtrl.config.FeignRequestConfig;
 import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.stereotype.Component;
@@ -32,7 +33,7 @@ import java.util.List;
  * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
  */
 @Component
-@FeignClient(name = "aton-service", configuration = FeignClientConfig.class)
+@FeignClient(name = "aton-service", configuration = {FeignRequestConfig.class, FeignClientConfig.class})
 public interface AtonServiceClient {
 
     @RequestMapping(method = RequestMethod.GET, value = "/api/atons/list")
@@ -17,6 +17,7 @@
 package org.grad.eNav.vdesCtrl.feign;
 
 import org.grad.eNav.vdesCtrl.config.FeignClientConfig;
+import org.grad.eNav.vdesCtrl.config.FeignRequestConfig;
 import org.grad.eNav.vdesCtrl.models.domain.McpEntityType;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.MediaType;
@@ -29,7 +30,7 @@ import org.springframework.web.bind.annotation.*;
  * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
  */
 @Component
-@FeignClient(name = "ckeeper", configuration = FeignClientConfig.class)
+@FeignClient(name = "ckeeper", configuration = {FeignRequestConfig.class, FeignClientConfig.class})
 public interface CKeeperClient {
 
     @RequestMapping(method = RequestMethod.POST, value = "/api/signature/entity/generate/{entityName}", consumes = MediaType.TEXT_PLAIN_VALUE, produces = MediaType.TEXT_PLAIN_VALUE)
@@ -25,6 +25,10 @@ import java.util.Arrays;
  * The enumeration that describes the supported mode in which the advertised
  * messages can provide an associated signature message. This is usually
  * provided through the cKeeper microservice.
+ * <p/>
+ * In the MERKLE mode the messages are not signed individually. Instead, a
+ * single signature is transmitted per advertising cycle, over the Merkle
+ * root of all the messages sent by the station within that cycle.
  *
  * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
  */
@@ -32,7 +36,8 @@ public enum SignatureMode {
     NONE("NONE"),
     AIS("AIS"),
     ASM("ASM"),
-    VDE("VDE");
+    VDE("VDE"),
+    MERKLE("MERKLE");
 
     // Enum Variables
     private final String value;
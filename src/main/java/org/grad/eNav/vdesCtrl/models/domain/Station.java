@@ -71,6 +71,12 @@ public class Station implements Serializable {
     @Column(name = "fwdPort")
     private Integer fwdPort;
 
+    @Column(name = "fwdTargets")
+    private String fwdTargets;
+
+    @Column(name = "fwdMessageTypes")
+    private String fwdMessageTypes;
+
     @NotNull
     @Column(name = "mmsi", nullable = false)
     private String mmsi;
@@ -95,6 +101,8 @@ public class Station implements Serializable {
     private Geometry geometry;
 
     @ElementCollection
+    @CollectionTable(name = "station_blacklisted_uids", joinColumns = @JoinColumn(name = "station_id"))
+    @Column(name = "blacklisted_uids")
     private Set<String> blacklistedUids;
 
     /**
@@ -230,6 +238,42 @@ public class Station implements Serializable {
         this.fwdPort = fwdPort;
     }
 
+    /**
+     * Gets fwd targets.
+     *
+     * @return the fwd targets
+     */
+    public String getFwdTargets() {
+        return fwdTargets;
+    }
+
+    /**
+     * Sets fwd targets.
+     *
+     * @param fwdTargets the fwd targets
+     */
+    public void setFwdTargets(String fwdTargets) {
+        this.fwdTargets = fwdTargets;
+    }
+
+    /**
+     * Gets fwd message types.
+     *
+     * @return the fwd message types
+     */
+    public String getFwdMessageTypes() {
+        return fwdMessageTypes;
+    }
+
+    /**
+     * Sets fwd message types.
+     *
+     * @param fwdMessageTypes the fwd message types
+     */
+    public void setFwdMessageTypes(String fwdMessageTypes) {
+        this.fwdMessageTypes = fwdMessageTypes;
+    }
+
     /**
      * Gets type.
      *
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.models.domain;
+
+import org.grad.vdes1000.formats.generic.AISChannelPref;
+import org.locationtech.jts.geom.Geometry;
+
+import java.math.BigInteger;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The Station Snapshot Record.
+ * <p/>
+ * An immutable copy of the station fields used by the advertisers on every
+ * cycle, taken whenever the station is loaded or changed. Unlike the JPA
+ * station entity, the snapshot can be shared freely between the advertising
+ * worker threads, and reading it never hits the database. Since the JTS
+ * geometries are mutable, the geometry is copied both into and out of the
+ * snapshot, so it cannot be altered through the entity or the callers.
+ * <p/>
+ * The station blacklist is not part of the snapshot, since it changes
+ * independently of the rest of the station, and is already held as an
+ * immutable set per station by the blacklist index.
+ *
+ * @param id            The ID of the station
+ * @param name          The name of the station
+ * @param type          The type of the station
+ * @param ipAddress     The IP address of the station
+ * @param port          The port of the station
+ * @param broadcastPort The broadcast port of the station
+ * @param mmsi          The MMSI of the station
+ * @param channel       The AIS channel of the station
+ * @param signatureMode The signature mode of the station
+ * @param geometry      The geometry of the station coverage
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+public record StationSnapshot(BigInteger id,
+                              String name,
+                              StationType type,
+                              String ipAddress,
+                              Integer port,
+                              Integer broadcastPort,
+                              String mmsi,
+                              AISChannelPref channel,
+                              SignatureMode signatureMode,
+                              Geometry geometry) {
+
+    /**
+     * Takes a snapshot of the provided station. Stations without a signature
+     * mode default to NONE.
+     *
+     * @param station the station
+     * @return the snapshot of the station
+     */
+    public static StationSnapshot of(Station station) {
+        return new StationSnapshot(
+                station.getId(),
+                station.getName(),
+                station.getType(),
+                station.getIpAddress(),
+                station.getPort(),
+                station.getBroadcastPort(),
+                station.getMmsi(),
+                station.getChannel(),
+                Optional.ofNullable(station.getSignatureMode()).orElse(SignatureMode.NONE),
+                Optional.ofNullable(station.getGeometry()).map(Geometry::copy).orElse(null));
+    }
+
+    /**
+     * Returns a copy of the geometry of the station coverage, so that the
+     * snapshot cannot be altered through it.
+     *
+     * @return a copy of the geometry of the station coverage
+     */
+    @Override
+    public Geometry geometry() {
+        return Optional.ofNullable(this.geometry).map(Geometry::copy).orElse(null);
+    }
+
+    /**
+     * Returns whether the snapshot has a geometry to look up the AtoNs for.
+     *
+     * @return whether the snapshot has a non-empty geometry
+     */
+    public boolean hasGeometry() {
+        return Objects.nonNull(this.geometry) && !this.geometry.isEmpty();
+    }
+
+}
@@ -0,0 +1,551 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.models.dtos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * The AIS Message DTO class.
+ * <p>
+ * This class holds an AIS message received through VDM/VDO sentences, once
+ * all its fragments have been reassembled. The 6-bit armoured payload is kept
+ * as it is, and each field is only decoded when accessed, straight from the
+ * payload characters, so the messages nobody looks into cost nothing more
+ * than their payload.
+ * <p>
+ * The message types handled by the controller, i.e. the position reports
+ * (1, 2 and 3), the AtoN reports (21) and the binary messages (6 and 8),
+ * can also be accessed through typed views, which decode their fields from
+ * the payload on access in the same way.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+public class AisMessageDto {
+
+    // Class Variables
+    private final String sentenceType;
+    private final char channel;
+    private final byte[] payload;
+    private final int fillBits;
+
+    /**
+     * The Fully Populated Constructor.
+     *
+     * @param sentenceType  The sentence type, i.e. VDM or VDO
+     * @param channel       The radio channel, or 0 if not known
+     * @param payload       The 6-bit armoured payload
+     * @param fillBits      The number of fill bits at the end of the payload
+     */
+    public AisMessageDto(String sentenceType, char channel, byte[] payload, int fillBits) {
+        this.sentenceType = sentenceType;
+        this.channel = channel;
+        this.payload = payload;
+        this.fillBits = fillBits;
+    }
+
+    /**
+     * Gets sentence type.
+     *
+     * @return the sentence type
+     */
+    public String getSentenceType() {
+        return sentenceType;
+    }
+
+    /**
+     * Gets channel.
+     *
+     * @return the channel
+     */
+    public char getChannel() {
+        return channel;
+    }
+
+    /**
+     * Returns whether the message was transmitted by the station itself,
+     * i.e. was reported in a VDO sentence.
+     *
+     * @return whether the message was transmitted by the station itself
+     */
+    public boolean isOwn() {
+        return "VDO".equals(sentenceType);
+    }
+
+    /**
+     * Gets the 6-bit armoured payload.
+     *
+     * @return the 6-bit armoured payload
+     */
+    public String getPayload() {
+        return new String(payload, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Gets the number of payload bits.
+     *
+     * @return the number of payload bits
+     */
+    public int getBitLength() {
+        return Math.max(0, payload.length * 6 - fillBits);
+    }
+
+    /**
+     * Gets the AIS message type.
+     *
+     * @return the AIS message type
+     */
+    public int getMessageType() {
+        return (int) this.getUnsigned(0, 6);
+    }
+
+    /**
+     * Gets the repeat indicator.
+     *
+     * @return the repeat indicator
+     */
+    public int getRepeatIndicator() {
+        return (int) this.getUnsigned(6, 2);
+    }
+
+    /**
+     * Gets the source MMSI.
+     *
+     * @return the source MMSI
+     */
+    public long getMmsi() {
+        return this.getUnsigned(8, 30);
+    }
+
+    /**
+     * Returns a position report view of the message, if it is of type 1, 2
+     * or 3.
+     *
+     * @return the position report view of the message
+     */
+    public Optional<PositionReport> asPositionReport() {
+        final int type = this.getMessageType();
+        return type >= 1 && type <= 3 ? Optional.of(new PositionReport(this)) : Optional.empty();
+    }
+
+    /**
+     * Returns an AtoN report view of the message, if it is of type 21.
+     *
+     * @return the AtoN report view of the message
+     */
+    public Optional<AtonReport> asAtonReport() {
+        return this.getMessageType() == 21 ? Optional.of(new AtonReport(this)) : Optional.empty();
+    }
+
+    /**
+     * Returns a binary message view of the message, if it is of type 6, i.e.
+     * addressed, or 8, i.e. broadcast.
+     *
+     * @return the binary message view of the message
+     */
+    public Optional<BinaryMessage> asBinaryMessage() {
+        final int type = this.getMessageType();
+        return type == 6 || type == 8 ? Optional.of(new BinaryMessage(this)) : Optional.empty();
+    }
+
+    /**
+     * Reads an unsigned integer field of the message. Any bits beyond the
+     * end of the message are read as zeros.
+     *
+     * @param offset the bit offset of the field
+     * @param length the bit length of the field, up to 63
+     * @return the unsigned value of the field
+     */
+    public long getUnsigned(int offset, int length) {
+        final int bitLength = this.getBitLength();
+        long value = 0;
+        for(int i = offset; i < offset + length; i++) {
+            value = (value << 1) | (i < bitLength ? this.getBit(i) : 0);
+        }
+        return value;
+    }
+
+    /**
+     * Reads a signed, two's complement, integer field of the message.
+     *
+     * @param offset the bit offset of the field
+     * @param length the bit length of the field, up to 63
+     * @return the signed value of the field
+     */
+    public long getSigned(int offset, int length) {
+        final long value = this.getUnsigned(offset, length);
+        return (value << (64 - length)) >> (64 - length);
+    }
+
+    /**
+     * Reads a 6-bit ASCII text field of the message, dropping the trailing
+     * "@" padding and spaces.
+     *
+     * @param offset the bit offset of the field
+     * @param length the bit length of the field
+     * @return the text of the field
+     */
+    public String getText(int offset, int length) {
+        final StringBuilder text = new StringBuilder(length / 6);
+        for(int i = offset; i + 6 <= offset + length; i += 6) {
+            final int c = (int) this.getUnsigned(i, 6);
+            text.append((char) (c < 32 ? c + 64 : c));
+        }
+        int end = text.length();
+        while(end > 0 && (text.charAt(end - 1) == '@' || text.charAt(end - 1) == ' ')) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    /**
+     * Reads a binary field of the message, starting from the provided offset
+     * up to the end of the message, as whole bytes. Any trailing bits that
+     * do not make up a full byte are dropped.
+     *
+     * @param offset the bit offset of the field
+     * @return the bytes of the field
+     */
+    public byte[] getBinary(int offset) {
+        final byte[] binary = new byte[Math.max(0, this.getBitLength() - offset) / 8];
+        for(int i = 0; i < binary.length; i++) {
+            binary[i] = (byte) this.getUnsigned(offset + i * 8, 8);
+        }
+        return binary;
+    }
+
+    /**
+     * Decodes a single bit of the message from the 6-bit armoured payload.
+     *
+     * @param index the index of the bit
+     * @return the value of the bit
+     */
+    protected int getBit(int index) {
+        int value = payload[index / 6] - 48;
+        if(value > 40) {
+            value -= 8;
+        }
+        return (value >> (5 - index % 6)) & 1;
+    }
+
+    /**
+     * Reads a longitude or latitude field of the message, encoded in
+     * 1/10000 minutes.
+     *
+     * @param offset the bit offset of the field
+     * @param length the bit length of the field
+     * @return the coordinate in degrees
+     */
+    protected double getCoordinate(int offset, int length) {
+        return this.getSigned(offset, length) / 600000.0;
+    }
+
+    /**
+     * The Position Report Class.
+     * <p>
+     * A view of the AIS position reports, i.e. of message types 1, 2 and 3.
+     */
+    public static class PositionReport {
+
+        // Class Variables
+        private final AisMessageDto message;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param message   The AIS message
+         */
+        protected PositionReport(AisMessageDto message) {
+            this.message = message;
+        }
+
+        /**
+         * Gets the navigation status.
+         *
+         * @return the navigation status
+         */
+        public int getNavigationStatus() {
+            return (int) this.message.getUnsigned(38, 4);
+        }
+
+        /**
+         * Gets the raw rate of turn indicator.
+         *
+         * @return the raw rate of turn indicator
+         */
+        public int getRateOfTurn() {
+            return (int) this.message.getSigned(42, 8);
+        }
+
+        /**
+         * Gets the speed over ground in knots.
+         *
+         * @return the speed over ground in knots
+         */
+        public double getSpeedOverGround() {
+            return this.message.getUnsigned(50, 10) / 10.0;
+        }
+
+        /**
+         * Gets whether the position is accurate, i.e. within 10 meters.
+         *
+         * @return whether the position is accurate
+         */
+        public boolean getPositionAccuracy() {
+            return this.message.getUnsigned(60, 1) == 1;
+        }
+
+        /**
+         * Gets the longitude in degrees.
+         *
+         * @return the longitude in degrees
+         */
+        public double getLongitude() {
+            return this.message.getCoordinate(61, 28);
+        }
+
+        /**
+         * Gets the latitude in degrees.
+         *
+         * @return the latitude in degrees
+         */
+        public double getLatitude() {
+            return this.message.getCoordinate(89, 27);
+        }
+
+        /**
+         * Gets the course over ground in degrees.
+         *
+         * @return the course over ground in degrees
+         */
+        public double getCourseOverGround() {
+            return this.message.getUnsigned(116, 12) / 10.0;
+        }
+
+        /**
+         * Gets the true heading in degrees.
+         *
+         * @return the true heading in degrees
+         */
+        public int getTrueHeading() {
+            return (int) this.message.getUnsigned(128, 9);
+        }
+
+        /**
+         * Gets the UTC second of the report.
+         *
+         * @return the UTC second of the report
+         */
+        public int getTimestamp() {
+            return (int) this.message.getUnsigned(137, 6);
+        }
+
+    }
+
+    /**
+     * The AtoN Report Class.
+     * <p>
+     * A view of the AIS AtoN reports, i.e. of message type 21.
+     */
+    public static class AtonReport {
+
+        // Class Variables
+        private final AisMessageDto message;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param message   The AIS message
+         */
+        protected AtonReport(AisMessageDto message) {
+            this.message = message;
+        }
+
+        /**
+         * Gets the AtoN type.
+         *
+         * @return the AtoN type
+         */
+        public int getAtonType() {
+            return (int) this.message.getUnsigned(38, 5);
+        }
+
+        /**
+         * Gets the AtoN name, including the name extension if any.
+         *
+         * @return the AtoN name
+         */
+        public String getName() {
+            final int extension = Math.max(0, this.message.getBitLength() - 272);
+            return this.message.getText(43, 120) + this.message.getText(272, extension - extension % 6);
+        }
+
+        /**
+         * Gets whether the position is accurate, i.e. within 10 meters.
+         *
+         * @return whether the position is accurate
+         */
+        public boolean getPositionAccuracy() {
+            return this.message.getUnsigned(163, 1) == 1;
+        }
+
+        /**
+         * Gets the longitude in degrees.
+         *
+         * @return the longitude in degrees
+         */
+        public double getLongitude() {
+            return this.message.getCoordinate(164, 28);
+        }
+
+        /**
+         * Gets the latitude in degrees.
+         *
+         * @return the latitude in degrees
+         */
+        public double getLatitude() {
+            return this.message.getCoordinate(192, 27);
+        }
+
+        /**
+         * Gets the length of the AtoN in meters, i.e. the dimensions to the
+         * bow and to the stern.
+         *
+         * @return the length of the AtoN in meters
+         */
+        public int getLength() {
+            return (int) (this.message.getUnsigned(219, 9) + this.message.getUnsigned(228, 9));
+        }
+
+        /**
+         * Gets the width of the AtoN in meters, i.e. the dimensions to port
+         * and to starboard.
+         *
+         * @return the width of the AtoN in meters
+         */
+        public int getWidth() {
+            return (int) (this.message.getUnsigned(237, 6) + this.message.getUnsigned(243, 6));
+        }
+
+        /**
+         * Gets the UTC second of the report.
+         *
+         * @return the UTC second of the report
+         */
+        public int getTimestamp() {
+            return (int) this.message.getUnsigned(253, 6);
+        }
+
+        /**
+         * Gets whether the AtoN is off its position.
+         *
+         * @return whether the AtoN is off its position
+         */
+        public boolean getOffPosition() {
+            return this.message.getUnsigned(259, 1) == 1;
+        }
+
+        /**
+         * Gets whether RAIM is in use.
+         *
+         * @return whether RAIM is in use
+         */
+        public boolean getRaim() {
+            return this.message.getUnsigned(268, 1) == 1;
+        }
+
+        /**
+         * Gets whether the AtoN is virtual.
+         *
+         * @return whether the AtoN is virtual
+         */
+        public boolean getVirtual() {
+            return this.message.getUnsigned(269, 1) == 1;
+        }
+
+    }
+
+    /**
+     * The Binary Message Class.
+     * <p>
+     * A view of the AIS binary messages, i.e. of the addressed (6) and the
+     * broadcast (8) message types.
+     */
+    public static class BinaryMessage {
+
+        // Class Variables
+        private final AisMessageDto message;
+        private final int offset;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param message   The AIS message
+         */
+        protected BinaryMessage(AisMessageDto message) {
+            this.message = message;
+            this.offset = message.getMessageType() == 6 ? 32 : 0;
+        }
+
+        /**
+         * Returns whether the message is addressed, i.e. of type 6.
+         *
+         * @return whether the message is addressed
+         */
+        public boolean isAddressed() {
+            return this.offset > 0;
+        }
+
+        /**
+         * Gets the destination MMSI of the addressed messages.
+         *
+         * @return the destination MMSI, or null for the broadcast messages
+         */
+        public Long getDestinationMmsi() {
+            return this.isAddressed() ? this.message.getUnsigned(40, 30) : null;
+        }
+
+        /**
+         * Gets the designated area code (DAC) of the application.
+         *
+         * @return the designated area code
+         */
+        public int getDac() {
+            return (int) this.message.getUnsigned(40 + this.offset, 10);
+        }
+
+        /**
+         * Gets the function identifier (FI) of the application.
+         *
+         * @return the function identifier
+         */
+        public int getFid() {
+            return (int) this.message.getUnsigned(50 + this.offset, 6);
+        }
+
+        /**
+         * Gets the application data.
+         *
+         * @return the application data
+         */
+        public byte[] getData() {
+            return this.message.getBinary(56 + this.offset);
+        }
+
+    }
+
+}
@@ -26,7 +26,8 @@ import java.util.Set;
  * <p>
  * This class is used to transfer information for the station's allocated
  * messages, which is based on the S125Node class, with additional blacklisting
- * information
+ * information. Messages served from the last known AtoN service response,
+ * because the AtoN service could not be reached, are marked as stale.
  *
  * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
  */
@@ -34,6 +35,7 @@ public class AtonMessageDto extends S125Node {
 
     //Class Variables
     private boolean blacklisted;
+    private boolean stale;
 
     /**
      * Empty Constructor
@@ -43,11 +45,21 @@ public class AtonMessageDto extends S125Node {
     }
 
     /**
-     * The Fully Populated Constructor.
+     * The Blacklisting Constructor.
      * @param s125Node the S125 node to populate the DTO from
      * @param blacklisted whether the entry has been blacklisted
      */
     public AtonMessageDto(S125Node s125Node, boolean blacklisted) {
+        this(s125Node, blacklisted, false);
+    }
+
+    /**
+     * The Fully Populated Constructor.
+     * @param s125Node the S125 node to populate the DTO from
+     * @param blacklisted whether the entry has been blacklisted
+     * @param stale whether the entry was served stale
+     */
+    public AtonMessageDto(S125Node s125Node, boolean blacklisted, boolean stale) {
         super(s125Node.getIdCode(), s125Node.getGeometry(), s125Node.getContent());
         this.setDateEnd(s125Node.getDateEnd());
         this.setDateStart(s125Node.getDateStart());
@@ -61,6 +73,7 @@ public class AtonMessageDto extends S125Node {
         this.setAtonType(s125Node.getAtonType());
         this.setMmsiCode(s125Node.getMmsiCode());
         this.setBlacklisted(blacklisted);
+        this.setStale(stale);
     }
 
     /**
@@ -81,4 +94,22 @@ public class AtonMessageDto extends S125Node {
         this.blacklisted = blacklisted;
     }
 
+    /**
+     * Is stale boolean.
+     *
+     * @return the boolean
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Sets stale.
+     *
+     * @param stale the stale
+     */
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
+
 }
@@ -19,6 +19,7 @@ package org.grad.eNav.vdesCtrl.repos;
 import org.grad.eNav.vdesCtrl.models.domain.Station;
 import org.grad.eNav.vdesCtrl.models.domain.StationType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -46,4 +47,25 @@ public interface StationRepo extends JpaRepository<Station, BigInteger> {
      */
     List<Station> findByType(StationType stationType);
 
+    /**
+     * Delete all the blacklist entries of a specific station, without
+     * touching the rest of the station.
+     *
+     * @param stationId the ID of the station
+     */
+    @Modifying
+    @Query(value = "DELETE FROM station_blacklisted_uids WHERE station_id = :stationId", nativeQuery = true)
+    void deleteBlacklist(@Param("stationId") BigInteger stationId);
+
+    /**
+     * Insert a blacklist entry for a specific station, without touching the
+     * rest of the station.
+     *
+     * @param stationId the ID of the station
+     * @param atonIdCode the blacklisted AtoN number
+     */
+    @Modifying
+    @Query(value = "INSERT INTO station_blacklisted_uids (station_id, blacklisted_uids) VALUES (:stationId, :atonIdCode)", nativeQuery = true)
+    void insertBlacklistEntry(@Param("stationId") BigInteger stationId, @Param("atonIdCode") String atonIdCode);
+
 }
@@ -19,6 +19,8 @@ package org.grad.eNav.vdesCtrl.services;
 import lombok.extern.slf4j.Slf4j;
 import org.grad.eNav.vdesCtrl.models.domain.StationType;
 import org.grad.eNav.vdesCtrl.components.GrAisAdvertiser;
+import org.grad.eNav.vdesCtrl.components.StationCycleExecutor;
+import org.grad.eNav.vdesCtrl.utils.AdvertiserRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -26,11 +28,8 @@ import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
-import java.net.SocketException;
 import java.util.Collections;
-import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * The GNURadio AIS Service Class
@@ -60,9 +59,15 @@ public class GrAisService {
     @Autowired
     StationService stationService;
 
+    /**
+     * The Station Cycle Executor.
+     */
+    @Autowired
+    StationCycleExecutor stationCycleExecutor;
+
     // Service Variables
-    protected List<GrAisAdvertiser> grAisAdvertisers;
-    protected boolean reloading;
+    protected final AdvertiserRegistry<GrAisAdvertiser> grAisAdvertisers = new AdvertiserRegistry<>("GNURadio");
+    protected volatile boolean reloading;
 
     /**
      * The service post-construct operations where the handler auto-registers
@@ -72,23 +77,10 @@ public class GrAisService {
     @PostConstruct
     public void init() {
         log.info("GrAis Service is booting up...");
+        this.reloading = false;
 
         // Initialise the GNURadio AIS Advertisers, one per each station
-        this.grAisAdvertisers = Optional.of(StationType.GNU_RADIO)
-                .map(this.stationService::findAllByType)
-                .orElseGet(Collections::emptyList)
-                .stream()
-                .map(station -> {
-                    GrAisAdvertiser grAisAdvertiser = this.applicationContext.getBean(GrAisAdvertiser.class);
-                    try {
-                        grAisAdvertiser.init(station);
-                    } catch (SocketException ex) {
-                        log.error(ex.getMessage());
-                        return null;
-                    }
-                    return grAisAdvertiser;
-                })
-                .collect(Collectors.toList());
+        this.reload();
     }
 
     /**
@@ -97,44 +89,45 @@ public class GrAisService {
      */
     @PreDestroy
     public void destroy() {
-        Optional.ofNullable(this.grAisAdvertisers)
-                .orElse(Collections.emptyList())
-                .forEach(GrAisAdvertiser::destroy);
+        // Stop the advertisements before closing the advertisers
+        this.reloading = true;
+        this.grAisAdvertisers.clear(GrAisAdvertiser::destroy);
     }
 
     /**
      * Whenever we get changes in the stations' configuration, we will need
-     * to reload the GNURadio advertisers for each station, so basically we need
-     * to call the init function again.
+     * to reconcile the GNURadio advertisers with the stored stations. Only
+     * the advertisers of the stations that have actually changed are
+     * created, replaced, updated or closed.
      */
     public void reload() {
-        // Same as destroy - but set a flag to be safe
-        this.reloading = true;
-        this.destroy();
-        this.reloading = false;
-
-        // And re-initialise the service
-        this.init();
+        this.grAisAdvertisers.reconcile(Optional.of(StationType.GNU_RADIO)
+                        .map(this.stationService::findAllByType)
+                        .orElseGet(Collections::emptyList),
+                station -> this.applicationContext.getBean(GrAisAdvertiser.class),
+                GrAisAdvertiser::init,
+                GrAisAdvertiser::update,
+                GrAisAdvertiser::destroy);
     }
 
     /**
      * This is a scheduled task performed by the service. The fixed delay
-     * scheduler is used to execute the tasks at a specific time. The
-     * advertisement tasks run on asynchronous separate threads so there isn't
-     * really a reason to make sure the previous run has been completed before
-     * proceeding. Also, since the GNURadio transmission are quite primitive we
-     * should control the periodic transmissions manually.
+     * scheduler is used to periodically refresh the AtoNs applicable to each
+     * station. The advertisers register them with the AtoN timing wheel, which
+     * then takes care of the actual transmissions, each in its own interval.
+     * The refresh tasks are handed over to the station cycle executor, which
+     * starts each station at its own phase within the cycle and limits how
+     * many of them can hit the remote services at the same time.
      */
-    @Scheduled(fixedDelay = 60000, initialDelay = 1000)
+    @Scheduled(fixedDelayString = "${gla.rad.vdes-ctrl.station-cycle-executor.period:60000}", initialDelay = 1000)
     public void advertiseAtons() {
         // Protection against advertisements while reloading
         if(reloading) {
             return;
         }
         // Otherwise, let the advertisers do their job
-        Optional.ofNullable(this.grAisAdvertisers)
-                .orElse(Collections.emptyList())
-                .forEach(GrAisAdvertiser::advertiseAtons);
+        this.grAisAdvertisers.getAdvertisers()
+                .forEach(advertiser -> this.stationCycleExecutor.submit(advertiser, advertiser::advertiseAtons));
     }
 
 }
@@ -17,7 +17,9 @@
 package org.grad.eNav.vdesCtrl.services;
 
 import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.components.ReceiveRingBuffer;
 import org.grad.eNav.vdesCtrl.models.PubSubMsgHeaders;
+import org.grad.eNav.vdesCtrl.models.dtos.AisMessageDto;
 import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -32,6 +34,7 @@ import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 /**
@@ -66,6 +69,12 @@ public class S125WebSocketService implements MessageHandler {
     @Autowired
     SimpMessagingTemplate webSocket;
 
+    /**
+     * The Receive Ring Buffer.
+     */
+    @Autowired
+    ReceiveRingBuffer receiveRingBuffer;
+
     /**
      * The service post-construct operations where the handler auto-registers
      * it-self to the aton publication channel. Once successful, it will then
@@ -75,6 +84,12 @@ public class S125WebSocketService implements MessageHandler {
     public void init() {
         log.info("AtoN Message Web Socket Service is booting up...");
         this.publishSubscribeChannel.subscribe(this);
+
+        // Also pick up the received messages from the ring buffer, if enabled
+        if(this.receiveRingBuffer.isEnabled()) {
+            this.receiveRingBuffer.subscribe("websocket", (source, payload, endOfBatch) ->
+                    this.handlePayload(payload, source.getAddress(), source.getPort()));
+        }
     }
 
     /**
@@ -104,10 +119,24 @@ public class S125WebSocketService implements MessageHandler {
         String address = Objects.toString(message.getHeaders().get(PubSubMsgHeaders.ADDRESS.getHeader()));
         Integer port = (Integer) (message.getHeaders().get(PubSubMsgHeaders.PORT.getHeader()));
 
+        // And handle the payload
+        this.handlePayload(message.getPayload(), address, port);
+    }
+
+    /**
+     * Handles the payload of the incoming messages, received either through
+     * the publish-subscribe channel or the receive ring buffer, and pushes it
+     * down the matching web-socket topic.
+     *
+     * @param payload   The payload to be handled
+     * @param address   The address of the source station
+     * @param port      The port of the source station
+     */
+    protected void handlePayload(Object payload, String address, Integer port) {
         // Handle only messages that seem valid
-        if(message.getPayload() instanceof S125Node) {
+        if(payload instanceof S125Node) {
             // Get the payload of the incoming message
-            S125Node s125Node = (S125Node) message.getPayload();
+            S125Node s125Node = (S125Node) payload;
 
             // A simple debug message;
             log.debug(String.format("Received AtoN Message with AtoN ID: %s.", s125Node.getIdCode()));
@@ -115,16 +144,36 @@ public class S125WebSocketService implements MessageHandler {
             // Now push the aton node down the web-socket stream
             this.publishMessage(this.webSocket, String.format("/%s/%s/%s:%d", prefix, "s125", address, port), s125Node);
         }
-        else if(message.getPayload() instanceof String) {
-            // Get the header and payload of the incoming message
-            String payload = (String) message.getPayload();
+        else if(payload instanceof String) {
+            // Get the payload of the incoming message
+            String message = (String) payload;
 
             // A simple debug message;
-            log.debug(String.format("Received a simple pub/sub message: %s.", payload));
+            log.debug(String.format("Received a simple pub/sub message: %s.", message));
 
             // Now push the message down the web-socket stream
-            this.publishMessage(this.webSocket, String.format("/%s/%s/%s:%d", prefix, "messages", address, port), payload);
+            this.publishMessage(this.webSocket, String.format("/%s/%s/%s:%d", prefix, "messages", address, port), message);
+
+        }
+        else if(payload instanceof byte[]) {
+            // Raw messages are only decoded at this point, for the web-socket
+            String message = new String((byte[]) payload, StandardCharsets.US_ASCII);
+
+            // A simple debug message;
+            log.debug(String.format("Received a raw pub/sub message: %s.", message));
+
+            // Now push the message down the web-socket stream
+            this.publishMessage(this.webSocket, String.format("/%s/%s/%s:%d", prefix, "messages", address, port), message);
+        }
+        else if(payload instanceof AisMessageDto) {
+            // Get the payload of the incoming message
+            AisMessageDto aisMessage = (AisMessageDto) payload;
+
+            // A simple debug message;
+            log.debug(String.format("Received AIS message of type %d from MMSI %d.", aisMessage.getMessageType(), aisMessage.getMmsi()));
 
+            // Now push the decoded message down the web-socket stream
+            this.publishMessage(this.webSocket, String.format("/%s/%s/%s:%d", prefix, "ais", address, port), aisMessage);
         }
         else {
             log.warn("Radar message handler received a message with erroneous format.");
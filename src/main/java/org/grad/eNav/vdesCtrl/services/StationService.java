@@ -24,18 +24,19 @@ import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.grad.eNav.vdesCtrl.components.AtonLookupCache;
+import org.grad.eNav.vdesCtrl.components.BlacklistIndex;
 import org.grad.eNav.vdesCtrl.exceptions.DataNotFoundException;
 import org.grad.eNav.vdesCtrl.exceptions.ValidationException;
-import org.grad.eNav.vdesCtrl.feign.AtonServiceClient;
 import org.grad.eNav.vdesCtrl.models.domain.SignatureMode;
 import org.grad.eNav.vdesCtrl.models.domain.Station;
+import org.grad.eNav.vdesCtrl.models.domain.StationSnapshot;
 import org.grad.eNav.vdesCtrl.models.domain.StationType;
 import org.grad.eNav.vdesCtrl.models.dtos.AtonMessageDto;
 import org.grad.eNav.vdesCtrl.models.dtos.datatables.DtPage;
 import org.grad.eNav.vdesCtrl.models.dtos.datatables.DtPagingRequest;
 import org.grad.eNav.vdesCtrl.repos.StationRepo;
 import org.grad.eNav.vdesCtrl.utils.GeometryJSONConverter;
-import org.locationtech.jts.geom.Geometry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
@@ -43,6 +44,7 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.persistence.EntityManager;
@@ -51,8 +53,6 @@ import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static java.util.function.Predicate.not;
-
 /**
  * The Station Service Class
  *
@@ -72,10 +72,10 @@ public class StationService {
     EntityManager entityManager;
 
     /**
-     * The AtoN Service Client
+     * The AtoN Lookup Cache
      */
     @Autowired
-    AtonServiceClient atonServiceClient;
+    AtonLookupCache atonLookupCache;
 
     /**
      * The GNURadio AIS Service.
@@ -97,6 +97,13 @@ public class StationService {
     @Autowired
     StationRepo stationRepo;
 
+    /**
+     * The Blacklist Index.
+     */
+    @Autowired
+    @Lazy
+    BlacklistIndex blacklistIndex;
+
     // Service Variables
     private final String[] searchFields = new String[] {
             "name",
@@ -162,16 +169,19 @@ public class StationService {
     public Station save(Station station) {
         log.debug("Request to save Station : {}", station);
 
-        // Validate the signature mode - no VDE is GNURadio
+        // Validate the signature mode - no VDE or MERKLE in GNURadio
         if(station.getType() == StationType.GNU_RADIO && station.getSignatureMode() == SignatureMode.VDE) {
             throw new ValidationException("VDE is not a valid mode for GNURadio-based stations.");
         }
+        if(station.getType() == StationType.GNU_RADIO && station.getSignatureMode() == SignatureMode.MERKLE) {
+            throw new ValidationException("MERKLE is not a valid mode for GNURadio-based stations.");
+        }
 
         // Copy the existing blacklist IDs if available
         Optional.of(station)
                 .map(Station::getId)
-                .map(this.stationRepo::getReferenceById)
-                .map(Station::getBlacklistedUids)
+                .map(this.blacklistIndex::get)
+                .map(HashSet::new)
                 .ifPresent(station::setBlacklistedUids);
 
         // Save the updated station
@@ -197,8 +207,9 @@ public class StationService {
             throw new DataNotFoundException(String.format("No station found for the provided ID: %d", id));
         }
 
-        // Now delete the station
+        // Now delete the station along with its blacklist
         this.stationRepo.deleteById(id);
+        this.blacklistIndex.evict(id);
 
         // And ask the geomesa datastore services to reload
         this.grAisService.reload();
@@ -230,17 +241,41 @@ public class StationService {
         log.debug("Request to get all messages for Station: {}", stationId);
         // First access the station information
         final Station station = this.findOne(stationId);
-        // Now query for the non-blacklisted AtoN messages
-        return Optional.of(station)
-                .map(Station::getGeometry)
-                .filter(Objects::nonNull)
-                .filter(not(Geometry::isEmpty))
+        // Now query for the AtoN messages
+        return this.findMessagesForStation(StationSnapshot.of(station), includeBlacklisted);
+    }
+
+    /**
+     * Get all the allocated messages for the station of the provided
+     * snapshot. Since the snapshot already holds the station geometry, and
+     * the blacklist is checked through the in-memory blacklist index, no
+     * database access and no transaction are required, which allows the
+     * advertisers to call this on every cycle.
+     * <p/>
+     * The AtoN messages are looked up through the AtoN lookup cache, so the
+     * AtoN service is only queried once per geometry within the cache TTL.
+     * If the AtoN service fails, the last known messages are returned,
+     * marked as stale.
+     *
+     * @param station the snapshot of the station to retrieve the messages for
+     * @param includeBlacklisted whether the blacklisted messages should be included
+     * @return the list of messages
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<AtonMessageDto> findMessagesForStation(StationSnapshot station, boolean includeBlacklisted) {
+        log.debug("Request to get all messages for Station snapshot: {}", station.id());
+        // Look up the AtoN messages within the station geometry
+        final AtonLookupCache.Lookup lookup = Optional.of(station)
+                .filter(StationSnapshot::hasGeometry)
+                .map(StationSnapshot::geometry)
                 .map(GeometryJSONConverter::convertFromGeometry)
                 .map(JsonNode::toString)
-                .map(this.atonServiceClient::getMessagesForGeometry)
-                .orElseGet(Collections::emptyList)
+                .map(this.atonLookupCache::get)
+                .orElseGet(() -> new AtonLookupCache.Lookup(Collections.emptyList(), false));
+        // And mark the blacklisted and stale ones
+        return lookup.getAtons()
                 .stream()
-                .map(s125 -> new AtonMessageDto(s125, station.getBlacklistedUids().contains(s125.getIdCode())))
+                .map(s125 -> new AtonMessageDto(s125, this.blacklistIndex.isBlacklisted(station.id(), s125.getIdCode()), lookup.isStale()))
                 .filter(msg -> includeBlacklisted || !msg.isBlacklisted())
                 .collect(Collectors.toList());
     }
@@ -273,38 +308,77 @@ public class StationService {
                 .orElseGet(DtPage::new);
     }
 
+    /**
+     * Get the blacklisted AtoN Numbers of all the stations, mapped by the
+     * station IDs.
+     *
+     * @return the blacklisted AtoN Numbers of all the stations
+     */
+    @Transactional(readOnly = true)
+    public Map<BigInteger, Set<String>> findAllBlacklists() {
+        log.debug("Request to get the blacklists of all Stations");
+        return this.stationRepo.findAll()
+                .stream()
+                .collect(Collectors.toMap(Station::getId, station -> Optional.ofNullable(station.getBlacklistedUids())
+                        .<Set<String>>map(HashSet::new)
+                        .orElseGet(HashSet::new)));
+    }
+
     /**
      * Add the provided AtoN Number UID into the specified station's blacklist.
+     * The blacklist index is updated straight away, so the change applies
+     * from the next transmission onwards, while the blacklist is persisted
+     * asynchronously.
      *
      * @param id the ID of the station to add the blacklist entry
      * @param atonIdCode the AtoN Number of the entry to be added into the blacklist
      */
     public void addBlacklistAtonNumber(BigInteger id, String atonIdCode) {
-        // First get the specified stations
-        Station station = this.findOne(id);
-
-        // Add the specified UID
-        station.getBlacklistedUids().add(atonIdCode);
+        // Make sure the station exists
+        if(!this.stationRepo.existsById(id)) {
+            throw new DataNotFoundException(String.format("No station found for the provided ID: %d", id));
+        }
 
-        // And save the list
-        this.save(station);
+        // And add the specified UID
+        this.blacklistIndex.add(id, atonIdCode);
     }
 
     /**
-     * Removes a specific AtoN Number from the given station's blacklist.
+     * Removes a specific AtoN Number from the given station's blacklist. The
+     * blacklist index is updated straight away, so the change applies from
+     * the next transmission onwards, while the blacklist is persisted
+     * asynchronously.
      *
      * @param id the ID of the station to remove the blacklist entry
      * @param atonIdCode the AtoN Number of the entry be removed from the blacklist
      */
     public void removeBlacklisAtonNumber(BigInteger id, String atonIdCode) {
-        // First get the specified stations
-        Station station = this.findOne(id);
+        // Make sure the station exists
+        if(!this.stationRepo.existsById(id)) {
+            throw new DataNotFoundException(String.format("No station found for the provided ID: %d", id));
+        }
 
-        // Remove the specified UID
-        station.getBlacklistedUids().remove(atonIdCode);
+        // And remove the specified UID
+        this.blacklistIndex.remove(id, atonIdCode);
+    }
 
-        // And save the list
-        this.save(station);
+    /**
+     * Persists the provided blacklist of the specified station, without
+     * reloading any of the advertisers. Only the blacklist entries of the
+     * station are replaced, so any concurrent changes to the rest of the
+     * station are never overwritten. If the station no longer exists,
+     * nothing is persisted.
+     *
+     * @param id the ID of the station
+     * @param atonIdCodes the blacklisted AtoN Numbers of the station
+     */
+    public void saveBlacklist(BigInteger id, Set<String> atonIdCodes) {
+        log.debug("Request to save the blacklist of Station : {}", id);
+        if(!this.stationRepo.existsById(id)) {
+            return;
+        }
+        this.stationRepo.deleteBlacklist(id);
+        atonIdCodes.forEach(atonIdCode -> this.stationRepo.insertBlacklistEntry(id, atonIdCode));
     }
 
     /**
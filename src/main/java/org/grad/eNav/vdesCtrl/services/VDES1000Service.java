@@ -18,9 +18,10 @@ package org.grad.eNav.vdesCtrl.services;
 
 import lombok.extern.slf4j.Slf4j;
 import org.grad.eNav.vdesCtrl.components.Vdes1000Advertiser;
+import org.grad.eNav.vdesCtrl.components.StationCycleExecutor;
 import org.grad.eNav.vdesCtrl.models.domain.Station;
 import org.grad.eNav.vdesCtrl.models.domain.StationType;
-import org.grad.vdes1000.exceptions.VDES1000ConnException;
+import org.grad.eNav.vdesCtrl.utils.AdvertiserRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -28,12 +29,9 @@ import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
-import java.net.SocketException;
-import java.net.UnknownHostException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * The VDES-1000 Service Class
@@ -60,9 +58,15 @@ public class VDES1000Service {
     @Autowired
     StationService stationService;
 
+    /**
+     * The Station Cycle Executor.
+     */
+    @Autowired
+    StationCycleExecutor stationCycleExecutor;
+
     // Service Variables
-    protected List<Vdes1000Advertiser> vdes1000Advertisers;
-    protected boolean reloading;
+    protected final AdvertiserRegistry<Vdes1000Advertiser> vdes1000Advertisers = new AdvertiserRegistry<>("VDES-1000");
+    protected volatile boolean reloading;
 
     /**
      * The service post-construct operations where the handler auto-registers
@@ -72,25 +76,10 @@ public class VDES1000Service {
     @PostConstruct
     public void init() {
         log.info("VDES-1000 Service is booting up...");
-
-        // Get all the stations to be monitored
-        final List<Station> stations = Optional.of(StationType.VDES_1000)
-                .map(this.stationService::findAllByType)
-                .orElseGet(Collections::emptyList);
+        this.reloading = false;
 
         // Initialise the VDES-1000 Advertisers, one per each station
-        this.vdes1000Advertisers = stations.stream()
-                .map(station -> {
-                    Vdes1000Advertiser vdes1000Advertiser = this.applicationContext.getBean(Vdes1000Advertiser.class);
-                    try {
-                        vdes1000Advertiser.init(station);
-                    } catch (SocketException | UnknownHostException | VDES1000ConnException ex) {
-                        log.error(ex.getMessage());
-                        return null;
-                    }
-                    return vdes1000Advertiser;
-                })
-                .collect(Collectors.toList());
+        this.reload();
     }
 
     /**
@@ -99,44 +88,50 @@ public class VDES1000Service {
      */
     @PreDestroy
     public void destroy() {
-        Optional.ofNullable(this.vdes1000Advertisers)
-                .orElse(Collections.emptyList())
-                .forEach(Vdes1000Advertiser::destroy);
+        // Stop the advertisements before closing the advertisers
+        this.reloading = true;
+        this.vdes1000Advertisers.clear(Vdes1000Advertiser::destroy);
     }
 
     /**
      * Whenever we get changes in the stations' configuration, we will need
-     * to reload the VDES-1000 listeners and advertisers for each station,
-     * so basically we need to call the init function again.
+     * to reconcile the VDES-1000 advertisers with the stored stations. Only
+     * the advertisers of the stations that have actually changed are
+     * created, replaced, updated or closed, so the links of all the other
+     * stations are not interrupted.
      */
     public void reload() {
-        // Same as destroy - but set a flag to be safe
-        this.reloading = true;
-        this.destroy();
-        this.reloading = false;
+        // Get all the stations to be monitored
+        final List<Station> stations = Optional.of(StationType.VDES_1000)
+                .map(this.stationService::findAllByType)
+                .orElseGet(Collections::emptyList);
 
-        // And re-initialise the service
-        this.init();
+        // And reconcile their advertisers
+        this.vdes1000Advertisers.reconcile(stations,
+                station -> this.applicationContext.getBean(Vdes1000Advertiser.class),
+                Vdes1000Advertiser::init,
+                Vdes1000Advertiser::update,
+                Vdes1000Advertiser::destroy);
     }
 
     /**
      * This is a scheduled task performed by the service. The fixed delay
-     * scheduler is used to execute the tasks at a specific time. The
-     * advertisement tasks run on asynchronous separate threads so there isn't
-     * really a reason to make sure the previous run has been completed before
-     * proceeding. Also, since the VDES-1000 basic operation is used, we should
-     * control the periodic transmissions manually.
+     * scheduler is used to periodically refresh the AtoNs applicable to each
+     * station. The advertisers register them with the AtoN timing wheel, which
+     * then takes care of the actual transmissions, each in its own interval.
+     * The refresh tasks are handed over to the station cycle executor, which
+     * starts each station at its own phase within the cycle and limits how
+     * many of them can hit the remote services at the same time.
      */
-    @Scheduled(fixedDelay = 60000, initialDelay = 1000)
+    @Scheduled(fixedDelayString = "${gla.rad.vdes-ctrl.station-cycle-executor.period:60000}", initialDelay = 1000)
     public void advertiseAtons() {
         // Protection against advertisements while reloading
         if(reloading) {
             return;
         }
         // Otherwise, let the advertisers do their job
-        Optional.ofNullable(this.vdes1000Advertisers)
-                .orElse(Collections.emptyList())
-                .forEach(Vdes1000Advertiser::advertiseAtons);
+        this.vdes1000Advertisers.getAdvertisers()
+                .forEach(advertiser -> this.stationCycleExecutor.submit(advertiser, advertiser::advertiseAtons));
     }
 
 }
@@ -16,11 +16,8 @@
 
 package org.grad.eNav.vdesCtrl.utils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
-import jakarta.xml.bind.JAXBException;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.grad.eNav.vdesCtrl.models.dtos.FeatureNameDto;
 import org.grad.eNav.vdesCtrl.models.dtos.S100AbstractNode;
 import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
@@ -28,6 +25,11 @@ import org.grad.vdes1000.formats.ais.messages.AISMessage21;
 import org.grad.vdes1000.formats.generic.AtonType;
 import org.locationtech.jts.geom.*;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
 import java.math.BigInteger;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -43,47 +45,40 @@ import java.util.*;
 @Slf4j
 public class AISMessageUtils {
 
+    /**
+     * The StAX input factory used to read the S-125 datasets. The factory
+     * is thread-safe once configured, and external entities are disabled.
+     */
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newFactory();
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
     /**
      * Constructors from an S125Node object.
      *
      * @param s125Node the S125Node object
-     * @throws JAXBException when the S125Node XML content cannot be parsed
+     * @throws XMLStreamException when the S125Node XML content cannot be parsed
      */
-    public static AISMessage21 s125ToAisMessage21(S125Node s125Node) throws JsonProcessingException {
+    public static AISMessage21 s125ToAisMessage21(S125Node s125Node) throws XMLStreamException {
         // Default at first
         final AISMessage21 aisMessage21 = new AISMessage21();
 
         // ===================================================================//
         // The JAXB parsing functionality here might cause issues if we       //
         // decide to build this application natively. Therefore, we can opt   //
-        // for a much simpler solution where we process the S-100 data using  //
-        // JSON and try to pick the minimal fields we are interested in.      //
+        // for a much simpler solution where we stream through the S-100 data //
+        // using StAX and only pick the minimal fields we are interested in.  //
         // ===================================================================//
-        final JsonNode datasetNode = new XmlMapper().readTree(s125Node.getContent());
-        final Iterator<Map.Entry<String, JsonNode>> datasetMembers = datasetNode.get("members").fields();
+        final S125AtonFeature atonFeature = AISMessageUtils.readS125AtonFeature(s125Node.getContent());
         // ===================================================================//
 
-        String atonNodeType;
-        JsonNode atonNode;
-        AtonType atonType;
-        do {
-            Map.Entry<String, JsonNode> atonNodeEntry = datasetMembers.next();
-            atonNodeType = atonNodeEntry.getKey();
-            atonNode = atonNodeEntry.getValue();
-            atonType = AISMessageUtils.s125TypeToAtonType(atonNodeType, atonNode);
-        } while(datasetMembers.hasNext() && atonType == AtonType.DEFAULT);
-
         // Extract the AtoN Information
         Optional.of(s125Node)
                 .map(S125Node::getIdCode)
                 .ifPresent(aisMessage21::setUid);
-        Optional.of(s125Node)
-                .map(S125Node::getFeatureNames)
-                .orElse(Collections.emptySet())
-                .stream()
-                .filter(FeatureNameDto::getDisplayName)
-                .map(FeatureNameDto::getName)
-                .findFirst()
+        AISMessageUtils.getDisplayName(s125Node)
                 .ifPresent(aisMessage21::setName);
         Optional.of(s125Node)
                 .map(S100AbstractNode::getGeometry)
@@ -103,34 +98,123 @@ public class AISMessageUtils {
                 .map(S125Node::getMmsiCode)
                 .map(BigInteger::intValueExact)
                 .ifPresent(aisMessage21::setMmsi);
-        aisMessage21.setLength((int) Math.round(Optional.ofNullable(atonNode.get("length")).map(JsonNode::asDouble).orElse(0.0)));
-        aisMessage21.setWidth((int) Math.round(Optional.ofNullable(atonNode.get("width")).map(JsonNode::asDouble).orElse(0.0)));
+        aisMessage21.setLength((int) Math.round(NumberUtils.toDouble(atonFeature.getLength())));
+        aisMessage21.setWidth((int) Math.round(NumberUtils.toDouble(atonFeature.getWidth())));
         aisMessage21.setRaim(false);
-        aisMessage21.setAtonType(AISMessageUtils.s125TypeToAtonType(atonNodeType, atonNode));
-        aisMessage21.setVaton(atonNodeType.equals("VirtualAISAidToNavigation"));
+        aisMessage21.setAtonType(AISMessageUtils.s125TypeToAtonType(atonFeature));
+        aisMessage21.setVaton(atonFeature.getType().equals("VirtualAISAidToNavigation"));
         aisMessage21.setTimestamp(LocalDateTime.now());
 
         //Return the populated AIS message
         return aisMessage21;
     }
 
+    /**
+     * Returns the name of the provided S-125 node to be displayed, i.e. the
+     * first of its feature names marked for display, if any.
+     *
+     * @param s125Node the S125Node object
+     * @return the display name of the S125Node object, if any
+     */
+    public static Optional<String> getDisplayName(S125Node s125Node) {
+        return Optional.ofNullable(s125Node)
+                .map(S125Node::getFeatureNames)
+                .orElse(Collections.emptySet())
+                .stream()
+                .filter(FeatureNameDto::getDisplayName)
+                .map(FeatureNameDto::getName)
+                .findFirst();
+    }
+
+    /**
+     * Streams through the provided S-125 dataset content and extracts the
+     * AtoN feature to be used for the AIS Message 21. Only the direct
+     * children of the dataset members are considered as features, and the
+     * reading stops at the first one that resolves to a non-default AtoN
+     * type. If no such feature exists, the last feature read is returned.
+     *
+     * @param content the S-125 dataset content
+     * @return the AtoN feature to be used for the AIS Message 21
+     * @throws XMLStreamException when the S-125 content cannot be parsed
+     */
+    protected static S125AtonFeature readS125AtonFeature(String content) throws XMLStreamException {
+        // Sanity check
+        if(Objects.isNull(content)) {
+            throw new XMLStreamException("No S-125 dataset content provided");
+        }
+
+        final XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(new StringReader(content));
+        try {
+            S125AtonFeature atonFeature = null;
+            S125AtonFeature currentFeature = null;
+            int depth = 0;
+            int membersDepth = -1;
+            while(reader.hasNext()) {
+                switch(reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        depth++;
+                        final String name = reader.getLocalName();
+                        if(membersDepth < 0) {
+                            // The members are a direct child of the dataset
+                            if(depth == 2 && name.equals("members")) {
+                                membersDepth = depth;
+                            }
+                        } else if(depth == membersDepth + 1) {
+                            currentFeature = new S125AtonFeature(name);
+                        } else if(depth == membersDepth + 2 && Objects.nonNull(currentFeature)) {
+                            switch(name) {
+                                case "length" -> { currentFeature.setLength(reader.getElementText().trim()); depth--; }
+                                case "width" -> { currentFeature.setWidth(reader.getElementText().trim()); depth--; }
+                                case "categoryOfLateralMark" -> { currentFeature.setCategoryOfLateralMark(reader.getElementText().trim()); depth--; }
+                                case "categoryOfCardinalMark" -> { currentFeature.setCategoryOfCardinalMark(reader.getElementText().trim()); depth--; }
+                                case "virtualAISAidToNavigationType" -> { currentFeature.setVirtualAISAidToNavigationType(reader.getElementText().trim()); depth--; }
+                                case "colour" -> currentFeature.setColours(currentFeature.getColours() + 1);
+                                default -> {}
+                            }
+                        }
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        if(membersDepth > 0 && depth == membersDepth + 1 && Objects.nonNull(currentFeature)) {
+                            // Stop at the first feature with a valid AtoN type
+                            atonFeature = currentFeature;
+                            currentFeature = null;
+                            if(AISMessageUtils.s125TypeToAtonType(atonFeature) != AtonType.DEFAULT) {
+                                return atonFeature;
+                            }
+                        } else if(depth == membersDepth) {
+                            // No need to read anything after the members
+                            return Optional.ofNullable(atonFeature)
+                                    .orElseThrow(() -> new XMLStreamException("No AtoN features found in the S-125 dataset"));
+                        }
+                        depth--;
+                    }
+                    default -> {}
+                }
+            }
+            return Optional.ofNullable(atonFeature)
+                    .orElseThrow(() -> new XMLStreamException("No AtoN features found in the S-125 dataset"));
+        } finally {
+            reader.close();
+        }
+    }
+
     /**
      * A helper function that determines the type of the AtoN based on the
      * class of the S-125 feature type.
      *
-     * @param atonNodeType the S-125 AtoN Node Type
-     * @param atonNode the S-125 AtoN node object in JSON format
+     * @param atonFeature the S-125 AtoN feature
      * @return the determined AtoN type for AIS
      */
-    protected static AtonType s125TypeToAtonType(String atonNodeType, JsonNode atonNode) {
+    protected static AtonType s125TypeToAtonType(S125AtonFeature atonFeature) {
         // Try to figure our the type of the feature and determine the AtoN
         // type accordingly
+        final String atonNodeType = atonFeature.getType();
         if(Objects.equals(atonNodeType, "BeaconSafeWater")) {
             return AtonType.BEACON_SAFE_WATER;
         } else if(Objects.equals(atonNodeType, "BeaconIsolatedDanger")) {
             return AtonType.BEACON_ISOLATED_DANGER;
         } else if(Objects.equals(atonNodeType, "BeaconLateral")) {
-            return switch (atonNode.get("categoryOfLateralMark").asText()) {
+            return switch (Objects.toString(atonFeature.getCategoryOfLateralMark(), "")) {
                     case "port-hand lateral mark" -> AtonType.PORT_HAND_MARK;
                     case "starboard-hand lateral mark" -> AtonType.STARBOARD_HAND_MARK;
                     case "preferred channel to starboard lateral mark" -> AtonType.PREFERRED_PORT;
@@ -138,7 +222,7 @@ public class AISMessageUtils {
                     default -> AtonType.DEFAULT;
             };
         } else if(Objects.equals(atonNodeType, "BeaconCardinal")) {
-            return switch (atonNode.get("categoryOfCardinalMark").asText()) {
+            return switch (Objects.toString(atonFeature.getCategoryOfCardinalMark(), "")) {
                 case "north cardinal mark" -> AtonType.CARDINAL_NORTH;
                 case "east cardinal mark" -> AtonType.CARDINAL_EAST;
                 case "south cardinal mark" -> AtonType.CARDINAL_SOUTH;
@@ -152,7 +236,7 @@ public class AISMessageUtils {
         } else if(Objects.equals(atonNodeType, "BuoyIsolatedDanger")) {
             return AtonType.ISOLATED_DANGER;
         } else if(Objects.equals(atonNodeType, "BuoyLateral")) {
-            return switch (atonNode.get("categoryOfLateralMark").asText()) {
+            return switch (Objects.toString(atonFeature.getCategoryOfLateralMark(), "")) {
                 case "port-hand lateral mark" -> AtonType.PORT_HAND_MARK;
                 case "starboard-hand lateral mark" -> AtonType.STARBOARD_HAND_MARK;
                 case "preferred channel to starboard lateral mark" -> AtonType.PREFERRED_PORT;
@@ -160,7 +244,7 @@ public class AISMessageUtils {
                 default -> AtonType.DEFAULT;
             };
         } else if(Objects.equals(atonNodeType, "BuoyCardinal")) {
-            return switch (atonNode.get("categoryOfCardinalMark").asText()) {
+            return switch (Objects.toString(atonFeature.getCategoryOfCardinalMark(), "")) {
                 case "north cardinal mark" -> AtonType.CARDINAL_NORTH;
                 case "east cardinal mark" -> AtonType.CARDINAL_EAST;
                 case "south cardinal mark" -> AtonType.CARDINAL_SOUTH;
@@ -172,13 +256,13 @@ public class AISMessageUtils {
         } else if(Objects.equals(atonNodeType, "BuoyInstallation")) {
             return AtonType.SPECIAL_MARK;
         } else if(Objects.equals(atonNodeType, "Lighthouse")) {
-            return atonNode.get("colour").size() <= 1 ? AtonType.LIGHT_WITHOUT_SECTORS : AtonType.LIGHT_WITH_SECTORS;
+            return atonFeature.getColours() <= 1 ? AtonType.LIGHT_WITHOUT_SECTORS : AtonType.LIGHT_WITH_SECTORS;
         } else if(Objects.equals(atonNodeType, "OffshorePlatform")) {
             return AtonType.FIXED_STRUCTURE_OFFSHORE;
         } else if(Objects.equals(atonNodeType, "LightFloat")) {
             return AtonType.LIGHT_VESSEL;
         } else if(Objects.equals(atonNodeType, "VirtualAISAidToNavigation")) {
-            return switch (atonNode.get("virtualAISAidToNavigationType").asText()) {
+            return switch (Objects.toString(atonFeature.getVirtualAISAidToNavigationType(), "")) {
                 case "New Danger Marking" -> AtonType.WRECK;
                 case "North Cardinal" -> AtonType.CARDINAL_NORTH;
                 case "East Cardinal" -> AtonType.CARDINAL_EAST;
@@ -199,4 +283,149 @@ public class AISMessageUtils {
         return  AtonType.DEFAULT;
     }
 
+    /**
+     * The S-125 AtoN Feature Class.
+     * <p/>
+     * A minimal representation of an S-125 AtoN feature, holding only the
+     * fields required to populate an AIS Message 21.
+     */
+    protected static class S125AtonFeature {
+
+        // Class Variables
+        private final String type;
+        private String length;
+        private String width;
+        private String categoryOfLateralMark;
+        private String categoryOfCardinalMark;
+        private String virtualAISAidToNavigationType;
+        private int colours;
+
+        /**
+         * The Feature Type Constructor.
+         *
+         * @param type the S-125 feature type
+         */
+        protected S125AtonFeature(String type) {
+            this.type = type;
+        }
+
+        /**
+         * Gets type.
+         *
+         * @return the type
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Gets length.
+         *
+         * @return the length
+         */
+        public String getLength() {
+            return length;
+        }
+
+        /**
+         * Sets length.
+         *
+         * @param length the length
+         */
+        public void setLength(String length) {
+            this.length = length;
+        }
+
+        /**
+         * Gets width.
+         *
+         * @return the width
+         */
+        public String getWidth() {
+            return width;
+        }
+
+        /**
+         * Sets width.
+         *
+         * @param width the width
+         */
+        public void setWidth(String width) {
+            this.width = width;
+        }
+
+        /**
+         * Gets category of lateral mark.
+         *
+         * @return the category of lateral mark
+         */
+        public String getCategoryOfLateralMark() {
+            return categoryOfLateralMark;
+        }
+
+        /**
+         * Sets category of lateral mark.
+         *
+         * @param categoryOfLateralMark the category of lateral mark
+         */
+        public void setCategoryOfLateralMark(String categoryOfLateralMark) {
+            this.categoryOfLateralMark = categoryOfLateralMark;
+        }
+
+        /**
+         * Gets category of cardinal mark.
+         *
+         * @return the category of cardinal mark
+         */
+        public String getCategoryOfCardinalMark() {
+            return categoryOfCardinalMark;
+        }
+
+        /**
+         * Sets category of cardinal mark.
+         *
+         * @param categoryOfCardinalMark the category of cardinal mark
+         */
+        public void setCategoryOfCardinalMark(String categoryOfCardinalMark) {
+            this.categoryOfCardinalMark = categoryOfCardinalMark;
+        }
+
+        /**
+         * Gets virtual AIS aid to navigation type.
+         *
+         * @return the virtual AIS aid to navigation type
+         */
+        public String getVirtualAISAidToNavigationType() {
+            return virtualAISAidToNavigationType;
+        }
+
+        /**
+         * Sets virtual AIS aid to navigation type.
+         *
+         * @param virtualAISAidToNavigationType the virtual AIS aid to navigation type
+         */
+        public void setVirtualAISAidToNavigationType(String virtualAISAidToNavigationType) {
+            this.virtualAISAidToNavigationType = virtualAISAidToNavigationType;
+        }
+
+        /**
+         * Gets the number of colours.
+         *
+         * @return the number of colours
+         */
+        public int getColours() {
+            return colours;
+        }
+
+        /**
+         * Sets the number of colours.
+         *
+         * @param colours the number of colours
+         */
+        public void setColours(int colours) {
+            this.colours = colours;
+        }
+
+    }
+
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.utils;
+
+import org.grad.vdes1000.formats.generic.AISChannel;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * The AIS Payload Encoder Class.
+ * <p/>
+ * A static utility class that encodes the binary payload of the AIS messages
+ * (e.g. Message 21, 6 and 8) into their transmission formats, without any
+ * intermediate strings or byte arrays. The output is written into a buffer
+ * that is reused by each thread, so the result of each call is only valid
+ * until the next encoding on the same thread, and should be consumed (i.e.
+ * sent or logged) right away.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+public class AISPayloadEncoder {
+
+    /**
+     * The maximum number of armoured payload characters per NMEA sentence,
+     * so that the sentence fits within the 82 character NMEA limit.
+     */
+    public static final int MAX_SENTENCE_PAYLOAD = 60;
+
+    /**
+     * The initial capacity of the per-thread buffers. This is enough for a
+     * Message 21 along with its signature messages, so it will rarely grow.
+     */
+    private static final int INITIAL_CAPACITY = 2048;
+
+    /**
+     * The per-thread encoding buffers.
+     */
+    private static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_CAPACITY));
+
+    /**
+     * Encodes the provided AIS binary payload into the format expected by
+     * the GNURadio AIS transmitters, i.e. the payload bits as ASCII '0' and
+     * '1' characters, terminated by a new line.
+     *
+     * @param binaryMessage the AIS binary payload as a bit string
+     * @return the thread buffer holding the encoded payload, ready to be read
+     */
+    public static ByteBuffer encodeBinary(CharSequence binaryMessage) {
+        final ByteBuffer buffer = AISPayloadEncoder.getBuffer(binaryMessage.length() + 1);
+        for(int i = 0; i < binaryMessage.length(); i++) {
+            buffer.put((byte) binaryMessage.charAt(i));
+        }
+        buffer.put((byte) '\n');
+        return buffer.flip();
+    }
+
+    /**
+     * Encodes the provided AIS binary payload into NMEA !AIVDM sentences,
+     * using the 6-bit ASCII armouring. Payloads that do not fit within a
+     * single sentence are split into multiple fragments, each one terminated
+     * with its checksum and a CR/LF.
+     *
+     * @param binaryMessage the AIS binary payload as a bit string
+     * @param channel the AIS channel to be reported, if any
+     * @param sequenceId the sequential message ID for multi-sentence messages
+     * @return the thread buffer holding the encoded sentences, ready to be read
+     */
+    public static ByteBuffer encodeNmea(CharSequence binaryMessage, AISChannel channel, int sequenceId) {
+        final int payloadLength = (binaryMessage.length() + 5) / 6;
+        final int fillBits = payloadLength * 6 - binaryMessage.length();
+        final int fragments = Math.max(1, (payloadLength + MAX_SENTENCE_PAYLOAD - 1) / MAX_SENTENCE_PAYLOAD);
+        final String channelName = Objects.isNull(channel) ? "" : channel.name();
+
+        // Each sentence needs at most 82 characters along with the CR/LF
+        final ByteBuffer buffer = AISPayloadEncoder.getBuffer(fragments * 84);
+        for(int fragment = 1; fragment <= fragments; fragment++) {
+            final int start = buffer.position();
+            buffer.put((byte) '!');
+            AISPayloadEncoder.putAscii(buffer, "AIVDM,");
+            AISPayloadEncoder.putDigits(buffer, fragments);
+            buffer.put((byte) ',');
+            AISPayloadEncoder.putDigits(buffer, fragment);
+            buffer.put((byte) ',');
+            if(fragments > 1) {
+                AISPayloadEncoder.putDigits(buffer, sequenceId % 10);
+            }
+            buffer.put((byte) ',');
+            AISPayloadEncoder.putAscii(buffer, channelName);
+            buffer.put((byte) ',');
+
+            // Armour the payload characters of this fragment
+            final int last = Math.min(fragment * MAX_SENTENCE_PAYLOAD, payloadLength);
+            for(int c = (fragment - 1) * MAX_SENTENCE_PAYLOAD; c < last; c++) {
+                int value = 0;
+                for(int b = c * 6; b < c * 6 + 6; b++) {
+                    value = (value << 1) | (b < binaryMessage.length() && binaryMessage.charAt(b) == '1' ? 1 : 0);
+                }
+                buffer.put((byte) (value < 40 ? value + 48 : value + 56));
+            }
+
+            // Only the last fragment can have fill bits
+            buffer.put((byte) ',');
+            AISPayloadEncoder.putDigits(buffer, fragment == fragments ? fillBits : 0);
+
+            // Calculate the checksum over everything between '!' and '*'
+            int checksum = 0;
+            for(int i = start + 1; i < buffer.position(); i++) {
+                checksum ^= buffer.get(i);
+            }
+            buffer.put((byte) '*');
+            buffer.put((byte) Character.toUpperCase(Character.forDigit((checksum >> 4) & 0xF, 16)));
+            buffer.put((byte) Character.toUpperCase(Character.forDigit(checksum & 0xF, 16)));
+            buffer.put((byte) '\r');
+            buffer.put((byte) '\n');
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Packs the provided AIS binary payload into bytes, most significant bit
+     * first, with the last byte padded with zeros on the right, i.e. the
+     * same bytes the AIS messages return without any padding in front. This
+     * allows the payloads already encoded as bit strings to be signed without
+     * encoding the messages again. Unlike the other encodings, the result is
+     * a new array, so it can be kept.
+     *
+     * @param binaryMessage the AIS binary payload as a bit string
+     * @return the packed payload bytes
+     */
+    public static byte[] encodeBytes(CharSequence binaryMessage) {
+        final byte[] bytes = new byte[(binaryMessage.length() + 7) / 8];
+        for(int i = 0; i < binaryMessage.length(); i++) {
+            if(binaryMessage.charAt(i) == '1') {
+                bytes[i / 8] |= (byte) (0x80 >>> (i % 8));
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Appends the two least significant bytes of the provided UNIX timestamp
+     * to the signature, in a big endian manner, as required by the AIS
+     * signature messages.
+     *
+     * @param signature the signature to append the timestamp to
+     * @param timestamp the UNIX timestamp of the signed transmission
+     * @return the signature with the timestamp bytes appended
+     */
+    public static byte[] appendTimestamp(byte[] signature, long timestamp) {
+        final byte[] signatureWithTimestamp = new byte[signature.length + 2];
+        System.arraycopy(signature, 0, signatureWithTimestamp, 0, signature.length);
+        signatureWithTimestamp[signature.length] = (byte) ((timestamp >> 8) & 0xFFL);
+        signatureWithTimestamp[signature.length + 1] = (byte) (timestamp & 0xFFL);
+        return signatureWithTimestamp;
+    }
+
+    /**
+     * A helper function to translate the encoded content of a buffer into
+     * a string, e.g. for logging. This does not affect the position of the
+     * provided buffer.
+     *
+     * @param buffer the buffer holding the encoded content
+     * @return the encoded content as a string
+     */
+    public static String toString(ByteBuffer buffer) {
+        return StandardCharsets.US_ASCII.decode(buffer.duplicate()).toString().trim();
+    }
+
+    /**
+     * Retrieves the buffer of the current thread, cleared and with at least
+     * the requested capacity. If the existing buffer is too small, a larger
+     * one replaces it.
+     *
+     * @param capacity the minimum capacity required
+     * @return the cleared thread buffer
+     */
+    protected static ByteBuffer getBuffer(int capacity) {
+        ByteBuffer buffer = buffers.get();
+        if(buffer.capacity() < capacity) {
+            buffer = ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+            buffers.set(buffer);
+        }
+        return buffer.clear();
+    }
+
+    /**
+     * Writes the provided ASCII string into the buffer.
+     *
+     * @param buffer the buffer to write into
+     * @param value the ASCII string to be written
+     */
+    private static void putAscii(ByteBuffer buffer, String value) {
+        for(int i = 0; i < value.length(); i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    /**
+     * Writes the decimal digits of the provided non-negative number into
+     * the buffer.
+     *
+     * @param buffer the buffer to write into
+     * @param value the non-negative number to be written
+     */
+    private static void putDigits(ByteBuffer buffer, int value) {
+        if(value >= 10) {
+            AISPayloadEncoder.putDigits(buffer, value / 10);
+        }
+        buffer.put((byte) ('0' + value % 10));
+    }
+
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.models.domain.Station;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * The Advertiser Registry Class.
+ * <p/>
+ * Holds the live advertisers of a station type, mapped by their station IDs,
+ * and reconciles them against the stored stations whenever these change.
+ * Rather than tearing down and rebuilding all the advertisers, only the ones
+ * whose stations have actually changed are touched:
+ * <ul>
+ *     <li>New stations get a new advertiser.</li>
+ *     <li>Stations whose link has changed, i.e. their type, name, address,
+ *     ports or MMSI, get their advertiser closed and replaced.</li>
+ *     <li>Stations whose settings have changed, i.e. their channel,
+ *     signature mode, geometry or forwarding, get their running advertiser
+ *     updated in place.</li>
+ *     <li>Deleted stations get their advertiser closed.</li>
+ * </ul>
+ * Each registry entry is swapped in a single step, so the advertising cycles
+ * only ever see complete advertisers, and the links of all the unchanged
+ * stations are never interrupted.
+ *
+ * @param <A> the type of the advertisers
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+@Slf4j
+public class AdvertiserRegistry<A> {
+
+    // Class Variables
+    private final String type;
+    private final Map<BigInteger, Registration<A>> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * The Type Constructor.
+     *
+     * @param type      The type of the advertisers, used for logging
+     */
+    public AdvertiserRegistry(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Reconciles the live advertisers against the provided stored stations,
+     * only creating, replacing, updating or closing the advertisers of the
+     * stations that have changed. Advertisers that fail to be initialised
+     * are closed straight away, releasing whatever they had registered, and
+     * skipped, so they will be retried on the next reconciliation.
+     *
+     * @param stations the stored stations
+     * @param factory the factory of the new advertisers
+     * @param initialiser the initialiser of the new advertisers
+     * @param updater the updater of the running advertisers
+     * @param closer the closer of the removed advertisers
+     * @return the outcome of the reconciliation
+     */
+    public synchronized Reconciliation reconcile(Collection<Station> stations,
+                                                 AdvertiserFactory<A> factory,
+                                                 AdvertiserInitialiser<A> initialiser,
+                                                 BiConsumer<A, Station> updater,
+                                                 Consumer<A> closer) {
+        final long start = System.nanoTime();
+        final Reconciliation reconciliation = new Reconciliation();
+        final Map<BigInteger, Station> stored = stations.stream()
+                .filter(station -> Objects.nonNull(station.getId()))
+                .collect(Collectors.toMap(Station::getId, station -> station, (first, second) -> second, LinkedHashMap::new));
+
+        // Close the advertisers of the deleted stations
+        for(BigInteger id : new ArrayList<>(this.registrations.keySet())) {
+            if(!stored.containsKey(id)) {
+                Optional.ofNullable(this.registrations.remove(id))
+                        .ifPresent(registration -> close(registration, closer));
+                reconciliation.closed++;
+            }
+        }
+
+        // And reconcile the rest of them
+        for(Station station : stored.values()) {
+            final Registration<A> current = this.registrations.get(station.getId());
+            final List<Object> link = linkOf(station);
+            final List<Object> settings = settingsOf(station);
+            if(current == null) {
+                if(this.create(station, link, settings, factory, initialiser, closer)) {
+                    reconciliation.created++;
+                }
+            } else if(!current.link.equals(link)) {
+                this.registrations.remove(station.getId());
+                close(current, closer);
+                this.create(station, link, settings, factory, initialiser, closer);
+                reconciliation.replaced++;
+            } else if(!current.settings.equals(settings)) {
+                try {
+                    updater.accept(current.advertiser, station);
+                    this.registrations.put(station.getId(), new Registration<>(current.advertiser, link, settings));
+                } catch (Exception ex) {
+                    log.error(ex.getMessage());
+                }
+                reconciliation.updated++;
+            } else {
+                reconciliation.unchanged++;
+            }
+        }
+
+        // Log the outcome
+        reconciliation.duration = (System.nanoTime() - start) / 1_000_000;
+        log.info("{} advertisers reconciled in {} ms - {}", this.type, reconciliation.duration, reconciliation);
+        return reconciliation;
+    }
+
+    /**
+     * Closes all the live advertisers and clears the registry.
+     *
+     * @param closer the closer of the advertisers
+     */
+    public synchronized void clear(Consumer<A> closer) {
+        new ArrayList<>(this.registrations.keySet()).forEach(id ->
+                Optional.ofNullable(this.registrations.remove(id))
+                        .ifPresent(registration -> close(registration, closer)));
+    }
+
+    /**
+     * Returns the live advertiser of the station with the provided ID, if
+     * any.
+     *
+     * @param stationId the ID of the station
+     * @return the live advertiser of the station
+     */
+    public Optional<A> get(BigInteger stationId) {
+        return Optional.ofNullable(this.registrations.get(stationId))
+                .map(registration -> registration.advertiser);
+    }
+
+    /**
+     * Returns all the live advertisers.
+     *
+     * @return all the live advertisers
+     */
+    public List<A> getAdvertisers() {
+        return this.registrations.values()
+                .stream()
+                .map(registration -> registration.advertiser)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the number of live advertisers.
+     *
+     * @return the number of live advertisers
+     */
+    public int size() {
+        return this.registrations.size();
+    }
+
+    /**
+     * Creates, initialises and registers a new advertiser for the provided
+     * station. If the initialisation fails, the half-initialised advertiser
+     * is closed.
+     *
+     * @param station the station
+     * @param link the link fields of the station
+     * @param settings the settings fields of the station
+     * @param factory the factory of the new advertisers
+     * @param initialiser the initialiser of the new advertisers
+     * @param closer the closer of the failed advertisers
+     * @return whether the advertiser was created
+     */
+    private boolean create(Station station,
+                           List<Object> link,
+                           List<Object> settings,
+                           AdvertiserFactory<A> factory,
+                           AdvertiserInitialiser<A> initialiser,
+                           Consumer<A> closer) {
+        final A advertiser;
+        try {
+            advertiser = factory.create(station);
+        } catch (Exception ex) {
+            log.error(ex.getMessage());
+            return false;
+        }
+        try {
+            initialiser.init(advertiser, station);
+            this.registrations.put(station.getId(), new Registration<>(advertiser, link, settings));
+            return true;
+        } catch (Exception ex) {
+            log.error(ex.getMessage());
+            close(advertiser, closer);
+            return false;
+        }
+    }
+
+    /**
+     * Closes the advertiser of the provided registration, logging any errors.
+     *
+     * @param registration the registration
+     * @param closer the closer of the advertisers
+     */
+    private static <A> void close(Registration<A> registration, Consumer<A> closer) {
+        close(registration.advertiser, closer);
+    }
+
+    /**
+     * Closes the provided advertiser, logging any errors.
+     *
+     * @param advertiser the advertiser
+     * @param closer the closer of the advertisers
+     */
+    private static <A> void close(A advertiser, Consumer<A> closer) {
+        try {
+            closer.accept(advertiser);
+        } catch (Exception ex) {
+            log.error(ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns the fields of a station that its advertiser link is built
+     * from, so a change in any of them requires a new advertiser.
+     *
+     * @param station the station
+     * @return the link fields of the station
+     */
+    protected static List<Object> linkOf(Station station) {
+        return Arrays.asList(
+                station.getType(),
+                station.getName(),
+                station.getIpAddress(),
+                station.getPort(),
+                station.getBroadcastPort(),
+                station.getMmsi());
+    }
+
+    /**
+     * Returns the fields of a station that can be updated on its running
+     * advertiser.
+     *
+     * @param station the station
+     * @return the settings fields of the station
+     */
+    protected static List<Object> settingsOf(Station station) {
+        return Arrays.asList(
+                station.getChannel(),
+                station.getSignatureMode(),
+                station.getGeometry(),
+                station.getFwdIpAddress(),
+                station.getFwdPort(),
+                station.getFwdTargets(),
+                station.getFwdMessageTypes());
+    }
+
+    /**
+     * The Advertiser Factory Interface.
+     * <p/>
+     * Creates the advertiser of a station, before it gets initialised.
+     *
+     * @param <A> the type of the advertisers
+     */
+    @FunctionalInterface
+    public interface AdvertiserFactory<A> {
+
+        /**
+         * Creates the advertiser of the provided station.
+         *
+         * @param station the station
+         * @return the new advertiser
+         * @throws Exception if the advertiser cannot be created
+         */
+        A create(Station station) throws Exception;
+
+    }
+
+    /**
+     * The Advertiser Initialiser Interface.
+     * <p/>
+     * Initialises a newly created advertiser for its station.
+     *
+     * @param <A> the type of the advertisers
+     */
+    @FunctionalInterface
+    public interface AdvertiserInitialiser<A> {
+
+        /**
+         * Initialises the advertiser for the provided station.
+         *
+         * @param advertiser the advertiser
+         * @param station the station
+         * @throws Exception if the advertiser cannot be initialised
+         */
+        void init(A advertiser, Station station) throws Exception;
+
+    }
+
+    /**
+     * The Registration Class.
+     * <p/>
+     * Holds a live advertiser, along with the station fields it was last
+     * reconciled with.
+     */
+    private static class Registration<A> {
+
+        // Class Variables
+        private final A advertiser;
+        private final List<Object> link;
+        private final List<Object> settings;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param advertiser    The live advertiser
+         * @param link          The link fields of its station
+         * @param settings      The settings fields of its station
+         */
+        private Registration(A advertiser, List<Object> link, List<Object> settings) {
+            this.advertiser = advertiser;
+            this.link = link;
+            this.settings = settings;
+        }
+
+    }
+
+    /**
+     * The Reconciliation Class.
+     * <p/>
+     * Holds the outcome of a reconciliation, i.e. the number of advertisers
+     * created, replaced, updated, closed and left unchanged, and how long it
+     * took.
+     */
+    public static class Reconciliation {
+
+        // Class Variables
+        private int created;
+        private int replaced;
+        private int updated;
+        private int closed;
+        private int unchanged;
+        private long duration;
+
+        /**
+         * Gets the number of advertisers created.
+         *
+         * @return the number of advertisers created
+         */
+        public int getCreated() {
+            return created;
+        }
+
+        /**
+         * Gets the number of advertisers replaced.
+         *
+         * @return the number of advertisers replaced
+         */
+        public int getReplaced() {
+            return replaced;
+        }
+
+        /**
+         * Gets the number of advertisers updated.
+         *
+         * @return the number of advertisers updated
+         */
+        public int getUpdated() {
+            return updated;
+        }
+
+        /**
+         * Gets the number of advertisers closed.
+         *
+         * @return the number of advertisers closed
+         */
+        public int getClosed() {
+            return closed;
+        }
+
+        /**
+         * Gets the number of advertisers left unchanged.
+         *
+         * @return the number of advertisers left unchanged
+         */
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        /**
+         * Gets the duration of the reconciliation in milliseconds.
+         *
+         * @return the duration of the reconciliation in milliseconds
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * Returns a summary of the reconciliation.
+         *
+         * @return a summary of the reconciliation
+         */
+        @Override
+        public String toString() {
+            return String.format("created: %d, replaced: %d, updated: %d, closed: %d, unchanged: %d",
+                    created, replaced, updated, closed, unchanged);
+        }
+
+    }
+
+}
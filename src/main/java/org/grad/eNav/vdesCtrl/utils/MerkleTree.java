@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The Merkle Tree Class.
+ * <p/>
+ * A static utility class that computes SHA-256 Merkle trees over the
+ * messages advertised by a station, so that a single signature of the tree
+ * root can authenticate all of them. The leaves and the internal nodes are
+ * hashed with different prefixes (0x00 and 0x01 respectively), in the same
+ * way as RFC 6962, so that a leaf can never be passed off as a node. Any
+ * node left without a sibling is promoted to the next level unchanged.
+ * <p/>
+ * The inclusion proof of a leaf is the list of its sibling hashes, from the
+ * bottom of the tree to the top, which is enough to recompute the root
+ * given the leaf and its index.
+ *
+ * @author Nikolaos Vastardis (email: Nikolaos.Vastardis@gla-rad.org)
+ */
+public class MerkleTree {
+
+    /**
+     * The size of the tree hashes in bytes.
+     */
+    public static final int HASH_SIZE = 32;
+
+    /**
+     * The prefix of the leaf hashes.
+     */
+    private static final byte LEAF_PREFIX = 0x00;
+
+    /**
+     * The prefix of the internal node hashes.
+     */
+    private static final byte NODE_PREFIX = 0x01;
+
+    /**
+     * Computes the hash of a leaf of the tree.
+     *
+     * @param data the leaf data, e.g. the stamped AIS message
+     * @return the leaf hash
+     */
+    public static byte[] hashLeaf(byte[] data) {
+        final MessageDigest digest = MerkleTree.getDigest();
+        digest.update(LEAF_PREFIX);
+        digest.update(data);
+        return digest.digest();
+    }
+
+    /**
+     * Computes the root of the tree over the provided leaf hashes.
+     *
+     * @param leaves the leaf hashes
+     * @return the root hash, or null if there are no leaves
+     */
+    public static byte[] root(List<byte[]> leaves) {
+        // Sanity check
+        if(Objects.isNull(leaves) || leaves.isEmpty()) {
+            return null;
+        }
+
+        // Combine the levels until only the root is left
+        List<byte[]> level = leaves;
+        while(level.size() > 1) {
+            level = MerkleTree.nextLevel(level);
+        }
+        return level.getFirst();
+    }
+
+    /**
+     * Computes the inclusion proof of the leaf at the provided index, i.e.
+     * its sibling hashes from the bottom of the tree to the top. The levels
+     * where the leaf path has no sibling do not contribute to the proof.
+     *
+     * @param leaves the leaf hashes
+     * @param index the index of the leaf
+     * @return the inclusion proof of the leaf
+     */
+    public static List<byte[]> proof(List<byte[]> leaves, int index) {
+        // Sanity check
+        if(Objects.isNull(leaves) || index < 0 || index >= leaves.size()) {
+            throw new IndexOutOfBoundsException("No leaf found at index " + index);
+        }
+
+        // Collect the siblings all the way up to the root
+        final List<byte[]> proof = new ArrayList<>();
+        List<byte[]> level = leaves;
+        int position = index;
+        while(level.size() > 1) {
+            final int sibling = position ^ 1;
+            if(sibling < level.size()) {
+                proof.add(level.get(sibling));
+            }
+            level = MerkleTree.nextLevel(level);
+            position /= 2;
+        }
+        return proof;
+    }
+
+    /**
+     * Verifies that the provided leaf is included in the tree with the
+     * provided root, using its inclusion proof.
+     *
+     * @param leaf the leaf hash
+     * @param index the index of the leaf
+     * @param size the number of leaves in the tree
+     * @param proof the inclusion proof of the leaf
+     * @param root the root hash
+     * @return whether the leaf is included in the tree
+     */
+    public static boolean verify(byte[] leaf, int index, int size, List<byte[]> proof, byte[] root) {
+        // Sanity check
+        if(Objects.isNull(leaf) || Objects.isNull(proof) || Objects.isNull(root) || index < 0 || index >= size) {
+            return false;
+        }
+
+        // Walk up the tree, following the same path as the proof generation
+        byte[] hash = leaf;
+        int position = index;
+        int levelSize = size;
+        int next = 0;
+        while(levelSize > 1) {
+            final int sibling = position ^ 1;
+            if(sibling < levelSize) {
+                if(next >= proof.size()) {
+                    return false;
+                }
+                final byte[] siblingHash = proof.get(next++);
+                hash = (position % 2 == 0) ? MerkleTree.hashNode(hash, siblingHash) : MerkleTree.hashNode(siblingHash, hash);
+            }
+            position /= 2;
+            levelSize = (levelSize + 1) / 2;
+        }
+        return next == proof.size() && Arrays.equals(hash, root);
+    }
+
+    /**
+     * Computes the next level of the tree, combining the hashes in pairs.
+     *
+     * @param level the current level of the tree
+     * @return the next level of the tree
+     */
+    private static List<byte[]> nextLevel(List<byte[]> level) {
+        final List<byte[]> next = new ArrayList<>((level.size() + 1) / 2);
+        for(int i = 0; i < level.size(); i += 2) {
+            next.add(i + 1 < level.size() ? MerkleTree.hashNode(level.get(i), level.get(i + 1)) : level.get(i));
+        }
+        return next;
+    }
+
+    /**
+     * Computes the hash of an internal node of the tree.
+     *
+     * @param left the hash of the left child
+     * @param right the hash of the right child
+     * @return the node hash
+     */
+    private static byte[] hashNode(byte[] left, byte[] right) {
+        final MessageDigest digest = MerkleTree.getDigest();
+        digest.update(NODE_PREFIX);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    /**
+     * Returns a new SHA-256 message digest. This is always available in the
+     * Java platform.
+     *
+     * @return the SHA-256 message digest
+     */
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
@@ -56,9 +56,9 @@ var stationsColumnDefs = [{
       data: "signatureMode",
       title: "Signature Mode",
       type: "select",
-      options: ["NONE","AIS", "VDE"],
-      hoverMsg: "Enable message signatures using the preferred mode (AIS/VDE)",
-      placeholder: "Enable message signatures using the preferred mode (AIS/VDE)",
+      options: ["NONE","AIS", "VDE", "MERKLE"],
+      hoverMsg: "Enable message signatures using the preferred mode (AIS/VDE/MERKLE) - VDE/MERKLE only for VDES_1000 stations",
+      placeholder: "Enable message signatures using the preferred mode (AIS/VDE/MERKLE) - VDE/MERKLE only for VDES_1000 stations",
       required: true
 }, {
     data: "port",
@@ -81,6 +81,18 @@ var stationsColumnDefs = [{
     title: "Forward Port",
     hoverMsg: "Forward port for the station messages",
     placeholder: "Forward port for the station messages"
+}, {
+    data: "fwdTargets",
+    title: "Forward Targets",
+    visible: false,
+    hoverMsg: "Additional forward targets for the station messages (comma-separated IP:port)",
+    placeholder: "Additional forward targets for the station messages (comma-separated IP:port)"
+}, {
+    data: "fwdMessageTypes",
+    title: "Forward Message Types",
+    visible: false,
+    hoverMsg: "Sentence types to forward, e.g. VDM,VDO (all if empty)",
+    placeholder: "Sentence types to forward, e.g. VDM,VDO (all if empty)"
 }, {
     data: "mmsi",
     title: "MMSI",
@@ -188,6 +200,11 @@ $(() => {
             }
         }],
         onAddRow: (datatable, rowdata, success, error) => {
+            var invalidMode = validateSignatureMode(rowdata);
+            if(invalidMode) {
+                error({"responseText" : invalidMode});
+                return;
+            }
             $.ajax({
                 type: 'POST',
                 url: './api/stations',
@@ -205,6 +222,8 @@ $(() => {
                     broadcastPort: rowdata["broadcastPort"],
                     fwdIpAddress: rowdata["fwdIpAddress"],
                     fwdPort: rowdata["fwdPort"],
+                    fwdTargets: rowdata["fwdTargets"],
+                    fwdMessageTypes: rowdata["fwdMessageTypes"],
                     mmsi: rowdata["mmsi"],
                     geometry: null
                 }),
@@ -215,6 +234,11 @@ $(() => {
             });
         },
         onEditRow: (datatable, rowdata, success, error) => {
+            var invalidMode = validateSignatureMode(rowdata);
+            if(invalidMode) {
+                error({"responseText" : invalidMode});
+                return;
+            }
             // The geometry is not read correctly so we need to access it in-direclty
             var idx = stationsTable.cell('.selected', 0).index();
             var data = stationsTable.rows(idx.row).data();
@@ -236,6 +260,8 @@ $(() => {
                     broadcastPort: rowdata["broadcastPort"],
                     fwdIpAddress: rowdata["fwdIpAddress"],
                     fwdPort: rowdata["fwdPort"],
+                    fwdTargets: rowdata["fwdTargets"],
+                    fwdMessageTypes: rowdata["fwdMessageTypes"],
                     mmsi: rowdata["mmsi"],
                     geometry: geometry
                 }),
@@ -323,6 +349,21 @@ $(() => {
     });
 });
 
+/**
+ * This function validates the signature mode of the provided station row.
+ * The VDE and MERKLE modes are only available for the VDES_1000 stations,
+ * since the GNU_RADIO stations can only transmit AIS signatures.
+ *
+ * @param {Object}        rowdata       The station row data
+ * @return {String} the validation error message, if the mode is invalid
+ */
+function validateSignatureMode(rowdata) {
+    if(rowdata["type"] == "GNU_RADIO" && ["VDE", "MERKLE"].includes(rowdata["signatureMode"])) {
+        return `${rowdata["signatureMode"]} is not a valid mode for GNURadio-based stations.`;
+    }
+    return null;
+}
+
 /**
  * This function will load the station geometry onto the drawnItems variable
  * so that it is shown in the station maps layers.
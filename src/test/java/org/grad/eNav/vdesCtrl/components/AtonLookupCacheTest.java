@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.eNav.vdesCtrl.feign.AtonServiceClient;
+import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AtonLookupCacheTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    AtonLookupCache atonLookupCache;
+
+    /**
+     * The AtoN Service Client mock.
+     */
+    @Mock
+    AtonServiceClient atonServiceClient;
+
+    /**
+     * The Executor Bulkheads mock.
+     */
+    @Mock
+    ExecutorBulkheads executorBulkheads;
+
+    // Test Variables
+    private static final String GEOMETRY = "{\"type\":\"Point\",\"coordinates\":[1.002,52.001]}";
+    private List<S125Node> atons;
+    private List<S125Node> updatedAtons;
+    private ExecutorBulkheads.Bulkhead bulkhead;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.atons = List.of(new S125Node("test_aton", null, "content"));
+        this.updatedAtons = List.of(new S125Node("test_aton", null, "content"), new S125Node("new_aton", null, "content"));
+
+        // Initialise the cache
+        this.atonLookupCache.ttl = 10000L;
+        this.atonLookupCache.refreshAhead = 0.5;
+        this.atonLookupCache.expiry = 60000L;
+        this.atonLookupCache.maxStale = 30000L;
+        this.atonLookupCache.meterRegistry = new SimpleMeterRegistry();
+        this.bulkhead = new ExecutorBulkheads.Bulkhead(ExecutorBulkheads.REMOTE_IO, 1, 1, 1,
+                ExecutorBulkheads.RejectionPolicy.ABORT, this.atonLookupCache.meterRegistry.counter("bulkhead.rejected"));
+        doReturn(this.bulkhead).when(this.executorBulkheads).get(ExecutorBulkheads.REMOTE_IO);
+        this.atonLookupCache.init();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.bulkhead.shutdownNow();
+    }
+
+    /**
+     * Test that the AtoNs of a geometry are looked up from the AtoN service
+     * once, and then served from the cache while fresh.
+     */
+    @Test
+    void testGet() {
+        doReturn(this.atons).when(this.atonServiceClient).getMessagesForGeometry(GEOMETRY);
+
+        // Perform the component calls
+        final AtonLookupCache.Lookup first = this.atonLookupCache.get(GEOMETRY);
+        final AtonLookupCache.Lookup second = this.atonLookupCache.get(GEOMETRY);
+
+        // Make sure the AtoN service was only queried once
+        assertEquals(this.atons, first.getAtons());
+        assertEquals(this.atons, second.getAtons());
+        assertFalse(second.isStale());
+        assertEquals(1, this.atonLookupCache.getHits());
+        assertEquals(1, this.atonLookupCache.getMisses());
+        assertEquals(0.5, this.atonLookupCache.getHitRatio());
+        assertEquals(1, this.atonLookupCache.refreshSuccessTimer.count());
+        verify(this.atonServiceClient, times(1)).getMessagesForGeometry(GEOMETRY);
+    }
+
+    /**
+     * Test that the entries due to be refreshed are served straight away,
+     * and refreshed in the background.
+     */
+    @Test
+    void testRefreshAhead() throws InterruptedException {
+        final CountDownLatch refreshed = new CountDownLatch(1);
+        doAnswer(inv -> {
+            refreshed.countDown();
+            return this.updatedAtons;
+        }).when(this.atonServiceClient).getMessagesForGeometry(GEOMETRY);
+
+        // Cache an entry which is still fresh, but due to be refreshed
+        this.atonLookupCache.entries.put(GEOMETRY, new AtonLookupCache.CachedLookup(this.atons, System.currentTimeMillis() - 6000, false));
+
+        // Perform the component call
+        final AtonLookupCache.Lookup lookup = this.atonLookupCache.get(GEOMETRY);
+
+        // Make sure the current entry was served and refreshed in the background
+        assertEquals(this.atons, lookup.getAtons());
+        assertEquals(1, this.atonLookupCache.getHits());
+        assertTrue(refreshed.await(2, TimeUnit.SECONDS));
+        while(!this.atonLookupCache.inFlight.isEmpty()) {
+            Thread.sleep(10);
+        }
+        assertEquals(this.updatedAtons, this.atonLookupCache.get(GEOMETRY).getAtons());
+    }
+
+    /**
+     * Test that the concurrent lookups of the same geometry share a single
+     * request to the AtoN service.
+     */
+    @Test
+    void testSingleFlight() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await();
+            return this.atons;
+        }).when(this.atonServiceClient).getMessagesForGeometry(GEOMETRY);
+
+        // Perform the component calls concurrently
+        final ExecutorService executor = Executors.newFixedThreadPool(5);
+        final List<Future<AtonLookupCache.Lookup>> lookups = new ArrayList<>();
+        for(int i = 0; i < 5; i++) {
+            lookups.add(executor.submit(() -> this.atonLookupCache.get(GEOMETRY)));
+        }
+
+        // Wait for all of them to miss the cache, and release the request
+        while(this.atonLookupCache.getMisses() < 5) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        // Make sure they all got the same AtoNs out of a single request
+        for(Future<AtonLookupCache.Lookup> lookup : lookups) {
+            assertEquals(this.atons, lookup.get(2, TimeUnit.SECONDS).getAtons());
+        }
+        verify(this.atonServiceClient, times(1)).getMessagesForGeometry(GEOMETRY);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that a failed refresh-ahead keeps the current entry fresh until
+     * its TTL runs out.
+     */
+    @Test
+    void testRefreshAheadFailure() throws InterruptedException {
+        doThrow(new RuntimeException("unavailable")).when(this.atonServiceClient).getMessagesForGeometry(GEOMETRY);
+
+        // Cache an entry which is still fresh, but due to be refreshed
+        final long refreshedAt = System.currentTimeMillis() - 6000;
+        this.atonLookupCache.entries.put(GEOMETRY, new AtonLookupCache.CachedLookup(this.atons, refreshedAt, false));
+
+        // Perform the component call and wait for the refresh to fail
+        assertFalse(this.atonLookupCache.get(GEOMETRY).isStale());
+        while(!this.atonLookupCache.inFlight.isEmpty()) {
+            Thread.sleep(10);
+        }
+
+        // Make sure the entry was kept fresh
+        assertEquals(1, this.atonLookupCache.refreshFailureTimer.count());
+        assertFalse(this.atonLookupCache.entries.get(GEOMETRY).isStale());
+        assertEquals(refreshedAt, this.atonLookupCache.entries.get(GEOMETRY).getRefreshedAt());
+        assertFalse(this.atonLookupCache.get(GEOMETRY).isStale());
+        assertEquals(0, this.atonLookupCache.getStaleServes());
+    }
+
+    /**
+     * Test that once the TTL of an entry has run out, it is still served
+     * straight away, marked as stale, and refreshed in the background.
+     */
+    @Test
+    void testStaleWhileRevalidate() throws InterruptedException {
+        final CountDownLatch refreshed = new CountDownLatch(1);
+        doAnswer(inv -> {
+            refreshed.countDown();
+            return this.updatedAtons;
+        }).when(this.atonServiceClient).getMessagesForGeometry(GEOMETRY);
+
+        // Cache an entry which has expired
+        this.atonLookupCache.entries.put(GEOMETRY, new AtonLookupCache.CachedLookup(this.atons, System.currentTimeMillis() - 20000, false));
+
+        // Perform the component call
+        final AtonLookupCache.Lookup lookup = this.atonLookupCache.get(GEOMETRY);
+
+        // Make sure the expired entry was served as stale and refreshed in the background
+        assertEquals(this.atons, lookup.getAtons());
+        assertTrue(lookup.isStale());
+        assertEquals(1, this.atonLookupCache.getHits());
+        assertEquals(1, this.atonLookupCache.getStaleServes());
+        assertTrue(refreshed.await(2, TimeUnit.SECONDS));
+        while(!this.atonLookupCache.inFlight.isEmpty()) {
+            Thread.sleep(10);
+        }
+        final AtonLookupCache.Lookup updated = this.atonLookupCache.get(GEOMETRY);
+        assertEquals(this.updatedAtons, updated.getAtons());
+        assertFalse(updated.isStale());
+    }
+
+    /**
+     * Test that when the AtoN service fails, the last known AtoNs are kept
+     * marked as stale, keeping their original refresh time, and that the
+     * next lookup retries the AtoN service until it is no longer stale.
+     */
+    @Test
+    void testStaleIfError() throws InterruptedException {
+        doThrow(new RuntimeException("unavailable"))
+                .doReturn(this.updatedAtons)
+                .when(this.atonServiceClient).getMessagesForGeometry(GEOMETRY);
+
+        // Cache an entry which has expired
+        final long refreshedAt = System.currentTimeMillis() - 20000;
+        this.atonLookupCache.entries.put(GEOMETRY, new AtonLookupCache.CachedLookup(this.atons, refreshedAt, false));
+
+        // Perform the component call and wait for the refresh to fail
+        final AtonLookupCache.Lookup lookup = this.atonLookupCache.get(GEOMETRY);
+        while(!this.atonLookupCache.inFlight.isEmpty()) {
+            Thread.sleep(10);
+        }
+
+        // Make sure the last known AtoNs were served and kept as stale
+        assertEquals(this.atons, lookup.getAtons());
+        assertTrue(lookup.isStale());
+        assertTrue(this.atonLookupCache.entries.get(GEOMETRY).isStale());
+        assertEquals(refreshedAt, this.atonLookupCache.entries.get(GEOMETRY).getRefreshedAt());
+        assertEquals(1, this.atonLookupCache.refreshFailureTimer.count());
+
+        // Make sure the next lookup retries, and the one after is no longer stale
+        assertTrue(this.atonLookupCache.get(GEOMETRY).isStale());
+        while(!this.atonLookupCache.inFlight.isEmpty()) {
+            Thread.sleep(10);
+        }
+        final AtonLookupCache.Lookup refreshed = this.atonLookupCache.get(GEOMETRY);
+        assertEquals(this.updatedAtons, refreshed.getAtons());
+        assertFalse(refreshed.isStale());
+        assertEquals(2, this.atonLookupCache.getStaleServes());
+        verify(this.atonServiceClient, times(2)).getMessagesForGeometry(GEOMETRY);
+    }
+
+    /**
+     * Test that when the AtoN service fails and the last known AtoNs are
+     * older than the maximum staleness, the failure is propagated.
+     */
+    @Test
+    void testStaleIfErrorMaxStale() {
+        doThrow(new RuntimeException("unavailable")).when(this.atonServiceClient).getMessagesForGeometry(GEOMETRY);
+
+        // Cache an entry which has been stale for too long
+        this.atonLookupCache.entries.put(GEOMETRY, new AtonLookupCache.CachedLookup(this.atons, System.currentTimeMillis() - 40000, true));
+
+        // Perform the component call
+        final RuntimeException ex = assertThrows(RuntimeException.class, () -> this.atonLookupCache.get(GEOMETRY));
+
+        // Make sure the failure was propagated
+        assertEquals("unavailable", ex.getMessage());
+        assertEquals(0, this.atonLookupCache.getStaleServes());
+        assertTrue(this.atonLookupCache.inFlight.isEmpty());
+    }
+
+    /**
+     * Test that when the AtoN service fails and there are no known AtoNs for
+     * the geometry, the failure is propagated.
+     */
+    @Test
+    void testErrorWithoutEntry() {
+        doThrow(new RuntimeException("unavailable")).when(this.atonServiceClient).getMessagesForGeometry(GEOMETRY);
+
+        // Perform the component call
+        final RuntimeException ex = assertThrows(RuntimeException.class, () -> this.atonLookupCache.get(GEOMETRY));
+
+        // Make sure the failure was propagated and nothing was cached
+        assertEquals("unavailable", ex.getMessage());
+        assertTrue(this.atonLookupCache.entries.isEmpty());
+        assertTrue(this.atonLookupCache.inFlight.isEmpty());
+    }
+
+    /**
+     * Test that the entries not requested within the expiry period get
+     * evicted.
+     */
+    @Test
+    void testEvictExpired() {
+        final AtonLookupCache.CachedLookup unused = new AtonLookupCache.CachedLookup(this.atons, System.currentTimeMillis() - 120000, false);
+        this.atonLookupCache.entries.put(GEOMETRY, unused);
+        this.atonLookupCache.entries.put("other", new AtonLookupCache.CachedLookup(this.atons, System.currentTimeMillis(), false));
+
+        // Perform the component call
+        this.atonLookupCache.evictExpired();
+
+        // Make sure only the unused entry was evicted
+        assertFalse(this.atonLookupCache.entries.containsKey(GEOMETRY));
+        assertTrue(this.atonLookupCache.entries.containsKey("other"));
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.eNav.vdesCtrl.models.dtos.FeatureNameDto;
+import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
+import org.grad.vdes1000.formats.ais.messages.AISMessage21;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class AtonMessageCacheTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    AtonMessageCache atonMessageCache;
+
+    // Test Variables
+    private S125Node s125Node;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        // Create a temp geometry factory to get a test geometries
+        GeometryFactory factory = new GeometryFactory(new PrecisionModel(), 4326);
+
+        // Read a valid S125 content to generate the S125Node message for.
+        InputStream in = new ClassPathResource("s125-msg.xml").getInputStream();
+        String xml = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+
+        // Now create the S125 node object
+        this.s125Node = new S125Node("test_aton", factory.createPoint(new Coordinate(53.61, 1.594)), xml);
+        this.s125Node.setMmsiCode(BigInteger.valueOf(123456789));
+
+        // Set the cache expiry
+        this.atonMessageCache.expiry = 300000L;
+    }
+
+    /**
+     * Test that the AtoN message cache registers its metrics on
+     * initialisation.
+     */
+    @Test
+    void testInit() {
+        this.atonMessageCache.meterRegistry = new SimpleMeterRegistry();
+
+        // Perform the component call
+        this.atonMessageCache.init();
+
+        // Make sure the metrics are available
+        assertNotNull(this.atonMessageCache.meterRegistry.find("aton.message.cache.size").gauge());
+        assertNotNull(this.atonMessageCache.meterRegistry.find("aton.message.cache.gets").tag("result", "hit").functionCounter());
+        assertNotNull(this.atonMessageCache.meterRegistry.find("aton.message.cache.gets").tag("result", "miss").functionCounter());
+        assertNotNull(this.atonMessageCache.meterRegistry.find("aton.message.cache.evictions").functionCounter());
+    }
+
+    /**
+     * Test that the first lookup of an AtoN will parse the S-125 content and
+     * cache the prepared message.
+     */
+    @Test
+    void testGetAisMessage21Miss() throws XMLStreamException {
+        // Perform the component call
+        final AISMessage21 aisMessage21 = this.atonMessageCache.getAisMessage21(this.s125Node);
+
+        // Make sure the message was populated and cached
+        assertNotNull(aisMessage21);
+        assertEquals("test_aton", aisMessage21.getUid());
+        assertEquals(123456789, aisMessage21.getMmsi());
+        assertEquals(53.61, aisMessage21.getLatitude());
+        assertEquals(1.594, aisMessage21.getLongitude());
+        assertEquals(0, this.atonMessageCache.getHits());
+        assertEquals(1, this.atonMessageCache.getMisses());
+        assertEquals(1, this.atonMessageCache.entries.size());
+    }
+
+    /**
+     * Test that subsequent lookups of the same AtoN content will be served
+     * from the cache, as new message instances.
+     */
+    @Test
+    void testGetAisMessage21Hit() throws XMLStreamException {
+        // Perform the component calls
+        final AISMessage21 first = this.atonMessageCache.getAisMessage21(this.s125Node);
+        final AISMessage21 second = this.atonMessageCache.getAisMessage21(this.s125Node);
+
+        // Make sure the second message was served from the cache
+        assertNotSame(first, second);
+        assertEquals(first.getUid(), second.getUid());
+        assertEquals(first.getName(), second.getName());
+        assertEquals(first.getMmsi(), second.getMmsi());
+        assertEquals(first.getAtonType(), second.getAtonType());
+        assertEquals(first.getVaton(), second.getVaton());
+        assertEquals(1, this.atonMessageCache.getHits());
+        assertEquals(1, this.atonMessageCache.getMisses());
+        assertEquals(1, this.atonMessageCache.entries.size());
+    }
+
+    /**
+     * Test that if the content of a cached AtoN changes, the cached entry
+     * will be replaced.
+     */
+    @Test
+    void testGetAisMessage21ContentChanged() throws XMLStreamException {
+        // Perform the component calls
+        this.atonMessageCache.getAisMessage21(this.s125Node);
+        this.s125Node.setContent(this.s125Node.getContent().replace("Special Purpose", "Isolated Danger"));
+        this.atonMessageCache.getAisMessage21(this.s125Node);
+
+        // Make sure the entry was replaced
+        assertEquals(0, this.atonMessageCache.getHits());
+        assertEquals(2, this.atonMessageCache.getMisses());
+        assertEquals(1, this.atonMessageCache.entries.size());
+    }
+
+    /**
+     * Test that a cached AtoN looked up again with the same content, but in
+     * a different S-125 node instance, e.g. after the AtoN service lookup
+     * was refreshed, will still be served from the cache.
+     */
+    @Test
+    void testGetAisMessage21SameContentNewNode() throws XMLStreamException {
+        final S125Node refreshed = new S125Node(this.s125Node.getIdCode(), this.s125Node.getGeometry().copy(), new String(this.s125Node.getContent()));
+        refreshed.setMmsiCode(this.s125Node.getMmsiCode());
+
+        // Perform the component calls
+        this.atonMessageCache.getAisMessage21(this.s125Node);
+        this.atonMessageCache.getAisMessage21(refreshed);
+
+        // Make sure the second lookup was a hit
+        assertEquals(1, this.atonMessageCache.getHits());
+        assertEquals(1, this.atonMessageCache.getMisses());
+    }
+
+    /**
+     * Test that if any other S-125 node field the AIS Message 21 is
+     * populated from changes, i.e. the geometry, the MMSI code or the
+     * display name, the cached entry will be replaced.
+     */
+    @Test
+    void testGetAisMessage21FieldsChanged() throws XMLStreamException {
+        this.atonMessageCache.getAisMessage21(this.s125Node);
+
+        // Change the geometry
+        this.s125Node.getGeometry().getCoordinates()[0].setX(53.62);
+        this.s125Node.getGeometry().geometryChanged();
+        assertEquals(53.62, this.atonMessageCache.getAisMessage21(this.s125Node).getLatitude());
+
+        // Change the MMSI code
+        this.s125Node.setMmsiCode(BigInteger.valueOf(987654321));
+        assertEquals(987654321, this.atonMessageCache.getAisMessage21(this.s125Node).getMmsi());
+
+        // Change the display name
+        final FeatureNameDto featureName = new FeatureNameDto();
+        featureName.setName("New Name");
+        featureName.setDisplayName(true);
+        this.s125Node.setFeatureNames(Set.of(featureName));
+        assertEquals("New Name", this.atonMessageCache.getAisMessage21(this.s125Node).getName());
+
+        // Make sure every change replaced the entry
+        assertEquals(0, this.atonMessageCache.getHits());
+        assertEquals(4, this.atonMessageCache.getMisses());
+        assertEquals(1, this.atonMessageCache.entries.size());
+    }
+
+    /**
+     * Test that AtoN messages that fail to be parsed will not be cached.
+     */
+    @Test
+    void testGetAisMessage21Fails() {
+        this.s125Node.setContent("Erroneous Content");
+
+        // Perform the component call
+        assertThrows(XMLStreamException.class, () -> this.atonMessageCache.getAisMessage21(this.s125Node));
+
+        // Make sure nothing was cached
+        assertTrue(this.atonMessageCache.entries.isEmpty());
+    }
+
+    /**
+     * Test that the AtoN messages cached will not be evicted while they are
+     * still being requested.
+     */
+    @Test
+    void testEvictExpiredNotExpired() throws XMLStreamException {
+        this.atonMessageCache.getAisMessage21(this.s125Node);
+
+        // Perform the component call
+        this.atonMessageCache.evictExpired();
+
+        // Make sure the entry is still there
+        assertEquals(1, this.atonMessageCache.entries.size());
+        assertEquals(0, this.atonMessageCache.getEvictions());
+    }
+
+    /**
+     * Test that the AtoN messages that are no longer requested will be
+     * evicted from the cache.
+     */
+    @Test
+    void testEvictExpired() throws XMLStreamException, InterruptedException {
+        this.atonMessageCache.expiry = 0L;
+        this.atonMessageCache.getAisMessage21(this.s125Node);
+        Thread.sleep(10);
+
+        // Perform the component call
+        this.atonMessageCache.evictExpired();
+
+        // Make sure the entry was evicted
+        assertTrue(this.atonMessageCache.entries.isEmpty());
+        assertEquals(1, this.atonMessageCache.getEvictions());
+    }
+
+}
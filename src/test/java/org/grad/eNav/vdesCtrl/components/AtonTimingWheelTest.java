@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.eNav.vdesCtrl.config.AtonTimingWheelConfigProperties;
+import org.grad.vdes1000.formats.generic.AtonType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class AtonTimingWheelTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    AtonTimingWheel atonTimingWheel;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        // Use a small wheel to make sure the higher levels get used
+        final AtonTimingWheelConfigProperties configProperties = new AtonTimingWheelConfigProperties();
+        configProperties.setTick(5L);
+        configProperties.setWheelSize(8);
+        configProperties.setDefaultInterval(60000L);
+        configProperties.getIntervals().put(AtonType.WRECK, 10000L);
+
+        // Initialise the timing wheel
+        this.atonTimingWheel.atonTimingWheelConfigProperties = configProperties;
+                this.atonTimingWheel.meterRegistry = new SimpleMeterRegistry();
+        this.atonTimingWheel.init();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.atonTimingWheel.destroy();
+    }
+
+    /**
+     * Test that the timing wheel registers its metrics on initialisation.
+     */
+    @Test
+    void testInit() {
+        assertNotNull(this.atonTimingWheel.meterRegistry.find("aton.timing.wheel.lag").timer());
+        assertNotNull(this.atonTimingWheel.meterRegistry.find("aton.timing.wheel.rejected").counter());
+        assertNotNull(this.atonTimingWheel.meterRegistry.find("aton.timing.wheel.entries").gauge());
+    }
+
+    /**
+     * Test that the advertisement intervals are picked up by AtoN type, and
+     * that the default interval is used for all the rest.
+     */
+    @Test
+    void testGetInterval() {
+        assertEquals(10000L, this.atonTimingWheel.getInterval(AtonType.WRECK));
+        assertEquals(60000L, this.atonTimingWheel.getInterval(AtonType.SPECIAL_MARK));
+        assertEquals(60000L, this.atonTimingWheel.getInterval(null));
+    }
+
+    /**
+     * Test that the start offsets of the new entries are spread evenly
+     * across their interval.
+     */
+    @Test
+    void testRegisterSpreadsOffsets() {
+        final long interval = 60000;
+        final long before = System.currentTimeMillis();
+
+        // Perform the component calls
+        for(int i = 0; i < 10; i++) {
+            this.atonTimingWheel.register(this, "aton_" + i, interval, Runnable::run, () -> {});
+        }
+
+        // Sort the start offsets
+        final List<Long> offsets = new ArrayList<>();
+        this.atonTimingWheel.entries.get(this).values().forEach(entry -> offsets.add(entry.getDeadline() - before));
+        Collections.sort(offsets);
+
+        // Make sure there are no large gaps between the offsets
+        assertEquals(10, offsets.size());
+        assertTrue(offsets.getFirst() >= 0);
+        assertTrue(offsets.getLast() < interval + 100);
+        for(int i = 1; i < offsets.size(); i++) {
+            assertTrue(offsets.get(i) - offsets.get(i-1) <= interval / 5);
+        }
+        assertTrue(interval - offsets.getLast() + offsets.getFirst() <= interval / 5);
+    }
+
+    /**
+     * Test that the entries get fired periodically, in their own interval,
+     * and that the scheduler lag gets recorded.
+     */
+    @Test
+    void testAdvance() throws InterruptedException {
+        final CountDownLatch fast = new CountDownLatch(5);
+        final AtomicInteger slow = new AtomicInteger();
+
+        // Perform the component calls
+        this.atonTimingWheel.register(this, "fast", 40, Runnable::run, fast::countDown);
+        this.atonTimingWheel.register(this, "slow", 60000, Runnable::run, slow::incrementAndGet);
+
+        // Make sure the fast entry was fired repeatedly but the slow one at most once
+        assertTrue(fast.await(2, TimeUnit.SECONDS));
+        assertTrue(slow.get() <= 1);
+        assertTrue(this.atonTimingWheel.meterRegistry.find("aton.timing.wheel.lag").timer().count() >= 5);
+        assertEquals(2, this.atonTimingWheel.size());
+    }
+
+    /**
+     * Test that the entries are fired on the executor they were registered
+     * with, e.g. the advertising bulkhead of their station type.
+     */
+    @Test
+    void testAdvanceOnOwnExecutor() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final AtomicInteger first = new AtomicInteger();
+        final AtomicInteger second = new AtomicInteger();
+        this.atonTimingWheel.register(this, "aton_1", 40, task -> { first.incrementAndGet(); task.run(); }, latch::countDown);
+        this.atonTimingWheel.register(new Object(), "aton_2", 40, task -> { second.incrementAndGet(); task.run(); }, latch::countDown);
+
+        // Make sure each entry was fired on its own executor
+        assertTrue(latch.await(3, TimeUnit.SECONDS));
+        assertTrue(first.get() > 0);
+        assertTrue(second.get() > 0);
+    }
+
+    /**
+     * Test that the advertisements rejected by their executor are counted.
+     */
+    @Test
+    void testAdvanceRejected() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        this.atonTimingWheel.register(this, "aton", 40, task -> {
+            latch.countDown();
+            throw new RejectedExecutionException();
+        }, () -> {});
+
+        // Make sure the rejection was counted
+        assertTrue(latch.await(3, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertTrue(this.atonTimingWheel.meterRegistry.find("aton.timing.wheel.rejected").counter().count() > 0);
+    }
+
+    /**
+     * Test that the entries with deadlines beyond the first level of the
+     * wheel are cascaded down and still fired.
+     */
+    @Test
+    void testAdvanceCascades() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(2);
+
+        // Perform the component call - this spans more than one level
+        this.atonTimingWheel.register(this, "aton", 500, Runnable::run, latch::countDown);
+
+        // Make sure the entry was fired
+        assertTrue(latch.await(3, TimeUnit.SECONDS));
+        assertTrue(this.atonTimingWheel.levels.size() > 1);
+    }
+
+    /**
+     * Test that registering an existing entry with the same interval only
+     * replaces its task, without rescheduling it.
+     */
+    @Test
+    void testRegisterExisting() {
+        this.atonTimingWheel.register(this, "aton", 60000, Runnable::run, () -> {});
+        final AtonTimingWheel.WheelEntry entry = this.atonTimingWheel.entries.get(this).get("aton");
+
+        // Perform the component calls
+        this.atonTimingWheel.register(this, "aton", 60000, Runnable::run, () -> {});
+        assertSame(entry, this.atonTimingWheel.entries.get(this).get("aton"));
+
+        // Now change the interval
+        this.atonTimingWheel.register(this, "aton", 10000, Runnable::run, () -> {});
+        assertNotSame(entry, this.atonTimingWheel.entries.get(this).get("aton"));
+        assertEquals(1, this.atonTimingWheel.size());
+    }
+
+    /**
+     * Test that only the entries requested will be retained for an owner.
+     */
+    @Test
+    void testRetain() {
+        final Object otherOwner = new Object();
+        this.atonTimingWheel.register(this, "aton_1", 60000, Runnable::run, () -> {});
+        this.atonTimingWheel.register(this, "aton_2", 60000, Runnable::run, () -> {});
+        this.atonTimingWheel.register(otherOwner, "aton_1", 60000, Runnable::run, () -> {});
+
+        // Perform the component call
+        this.atonTimingWheel.retain(this, Collections.singleton("aton_2"));
+
+        // Make sure only the requested entries were retained
+        assertFalse(this.atonTimingWheel.entries.get(this).containsKey("aton_1"));
+        assertTrue(this.atonTimingWheel.entries.get(this).containsKey("aton_2"));
+        assertTrue(this.atonTimingWheel.entries.get(otherOwner).containsKey("aton_1"));
+        assertEquals(2, this.atonTimingWheel.size());
+    }
+
+    /**
+     * Test that the cancelled entries will not be fired.
+     */
+    @Test
+    void testCancel() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        this.atonTimingWheel.register(new Object(), "other", 60000, Runnable::run, () -> {});
+        this.atonTimingWheel.register(this, "aton", 200, Runnable::run, latch::countDown);
+
+        // Perform the component call
+        this.atonTimingWheel.cancel(this);
+
+        // Make sure the entry was never fired
+        assertFalse(latch.await(400, TimeUnit.MILLISECONDS));
+        assertEquals(1, this.atonTimingWheel.size());
+    }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.eNav.vdesCtrl.services.StationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BlacklistIndexTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    BlacklistIndex blacklistIndex;
+
+    /**
+     * The Station Service mock.
+     */
+    @Mock
+    StationService stationService;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        doReturn(Map.of(BigInteger.ONE, Set.of("blacklisted"))).when(this.stationService).findAllBlacklists();
+
+        // Initialise the index
+        this.blacklistIndex.retryDelay = 50L;
+        this.blacklistIndex.maxRetryDelay = 200L;
+        this.blacklistIndex.maxAttempts = 5;
+        this.blacklistIndex.meterRegistry = new SimpleMeterRegistry();
+        this.blacklistIndex.init();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.blacklistIndex.destroy();
+    }
+
+    /**
+     * Test that the stored blacklists are loaded on start-up, and can be
+     * checked without any further access to the station service.
+     */
+    @Test
+    void testInit() {
+        assertTrue(this.blacklistIndex.isBlacklisted(BigInteger.ONE, "blacklisted"));
+        assertFalse(this.blacklistIndex.isBlacklisted(BigInteger.ONE, "other"));
+        assertFalse(this.blacklistIndex.isBlacklisted(BigInteger.TWO, "blacklisted"));
+        assertFalse(this.blacklistIndex.isBlacklisted(null, "blacklisted"));
+        assertFalse(this.blacklistIndex.isBlacklisted(BigInteger.ONE, null));
+        verify(this.stationService, times(1)).findAllBlacklists();
+    }
+
+    /**
+     * Test that the blacklist changes apply straight away, and are then
+     * persisted asynchronously.
+     */
+    @Test
+    void testAddAndRemove() throws InterruptedException {
+        final CountDownLatch persisted = new CountDownLatch(2);
+        doAnswer(inv -> {
+            persisted.countDown();
+            return null;
+        }).when(this.stationService).saveBlacklist(any(), any());
+
+        // Perform the component calls
+        this.blacklistIndex.add(BigInteger.TWO, "new");
+        this.blacklistIndex.remove(BigInteger.ONE, "blacklisted");
+
+        // Make sure the changes applied straight away
+        assertTrue(this.blacklistIndex.isBlacklisted(BigInteger.TWO, "new"));
+        assertFalse(this.blacklistIndex.isBlacklisted(BigInteger.ONE, "blacklisted"));
+        assertThrows(UnsupportedOperationException.class, () -> this.blacklistIndex.get(BigInteger.TWO).add("other"));
+
+        // And that they were persisted
+        assertTrue(persisted.await(2, TimeUnit.SECONDS));
+        verify(this.stationService, times(1)).saveBlacklist(BigInteger.TWO, Set.of("new"));
+        verify(this.stationService, times(1)).saveBlacklist(BigInteger.ONE, Collections.emptySet());
+    }
+
+    /**
+     * Test that the changes made to a station while its blacklist waits to
+     * be persisted are coalesced, and the latest blacklist is persisted.
+     */
+    @Test
+    void testPersistCoalesced() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch persisted = new CountDownLatch(2);
+        doAnswer(inv -> {
+            blocked.countDown();
+            release.await();
+            persisted.countDown();
+            return null;
+        }).when(this.stationService).saveBlacklist(any(), any());
+
+        // Keep the persisting thread busy, and change the blacklist meanwhile
+        this.blacklistIndex.add(BigInteger.ONE, "first");
+        assertTrue(blocked.await(2, TimeUnit.SECONDS));
+        this.blacklistIndex.add(BigInteger.TWO, "second");
+        this.blacklistIndex.add(BigInteger.TWO, "third");
+        assertEquals(1.0, this.blacklistIndex.meterRegistry.find("blacklist.index.pending").gauge().value());
+
+        // Make sure the latest blacklist was persisted once
+        release.countDown();
+        assertTrue(persisted.await(2, TimeUnit.SECONDS));
+        verify(this.stationService, times(1)).saveBlacklist(BigInteger.TWO, Set.of("second", "third"));
+    }
+
+    /**
+     * Test that the blacklists failing to be persisted are queued again,
+     * until they are written successfully.
+     */
+    @Test
+    void testPersistRetried() throws InterruptedException {
+        final CountDownLatch persisted = new CountDownLatch(1);
+        final AtomicInteger attempts = new AtomicInteger();
+        doAnswer(inv -> {
+            if(attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("Database unavailable");
+            }
+            persisted.countDown();
+            return null;
+        }).when(this.stationService).saveBlacklist(any(), any());
+
+        // Perform the component call
+        this.blacklistIndex.add(BigInteger.TWO, "new");
+
+        // Make sure the blacklist was written after the failed attempts
+        assertTrue(persisted.await(2, TimeUnit.SECONDS));
+        while(this.blacklistIndex.meterRegistry.find("blacklist.index.persisted").counter().count() < 1) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, attempts.get());
+        assertEquals(2.0, this.blacklistIndex.meterRegistry.find("blacklist.index.failed").counter().count());
+        assertEquals(1.0, this.blacklistIndex.meterRegistry.find("blacklist.index.persisted").counter().count());
+        verify(this.stationService, times(3)).saveBlacklist(BigInteger.TWO, Set.of("new"));
+    }
+
+    /**
+     * Test that the blacklists failing to be persisted are given up after
+     * the maximum number of attempts.
+     */
+    @Test
+    void testPersistAbandoned() throws InterruptedException {
+        doThrow(new IllegalStateException("Constraint violation")).when(this.stationService).saveBlacklist(any(), any());
+
+        // Perform the component call
+        this.blacklistIndex.add(BigInteger.TWO, "new");
+
+        // Make sure the blacklist was given up after the maximum attempts
+        final long deadline = System.currentTimeMillis() + 2000;
+        while(this.blacklistIndex.queued.get() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, this.blacklistIndex.queued.get());
+        assertEquals(5.0, this.blacklistIndex.meterRegistry.find("blacklist.index.failed").counter().count());
+        assertEquals(1.0, this.blacklistIndex.meterRegistry.find("blacklist.index.abandoned").counter().count());
+        verify(this.stationService, times(5)).saveBlacklist(BigInteger.TWO, Set.of("new"));
+    }
+
+    /**
+     * Test that the blacklists failing to be persisted are no longer retried
+     * once their station is deleted.
+     */
+    @Test
+    void testPersistEvicted() throws InterruptedException {
+        final CountDownLatch failed = new CountDownLatch(1);
+        doAnswer(inv -> {
+            failed.countDown();
+            throw new IllegalStateException("Database unavailable");
+        }).when(this.stationService).saveBlacklist(any(), any());
+
+        // Perform the component calls, deleting the station after the failure
+        this.blacklistIndex.add(BigInteger.TWO, "new");
+        assertTrue(failed.await(2, TimeUnit.SECONDS));
+        this.blacklistIndex.evict(BigInteger.TWO);
+
+        // Make sure the retry was given up
+        final long deadline = System.currentTimeMillis() + 2000;
+        while(this.blacklistIndex.queued.get() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, this.blacklistIndex.queued.get());
+        assertEquals(1.0, this.blacklistIndex.meterRegistry.find("blacklist.index.abandoned").counter().count());
+        verify(this.stationService, times(1)).saveBlacklist(any(), any());
+    }
+
+    /**
+     * Test that the blacklist of a deleted station is evicted.
+     */
+    @Test
+    void testEvict() {
+        this.blacklistIndex.evict(BigInteger.ONE);
+
+        // Make sure the blacklist was removed
+        assertTrue(this.blacklistIndex.get(BigInteger.ONE).isEmpty());
+    }
+
+}
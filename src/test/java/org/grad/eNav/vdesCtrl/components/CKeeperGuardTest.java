@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.eNav.vdesCtrl.feign.CKeeperClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CKeeperGuardTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    CKeeperGuard cKeeperGuard;
+
+    /**
+     * The CKeeper Client mock.
+     */
+    @Mock
+    CKeeperClient cKeeperClient;
+
+    /**
+     * The Executor Bulkheads mock.
+     */
+    @Mock
+    ExecutorBulkheads executorBulkheads;
+
+    // Test Variables
+    private byte[] signature;
+    private ExecutorBulkheads.Bulkhead bulkhead;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.signature = new byte[]{1, 2, 3};
+
+        // Initialise the guard
+        this.cKeeperGuard.timeout = 200L;
+        this.cKeeperGuard.failureThreshold = 2;
+        this.cKeeperGuard.openDuration = 60000L;
+        this.cKeeperGuard.meterRegistry = new SimpleMeterRegistry();
+        this.bulkhead = new ExecutorBulkheads.Bulkhead(ExecutorBulkheads.CKEEPER_IO, 1, 1, 1,
+                ExecutorBulkheads.RejectionPolicy.ABORT, this.cKeeperGuard.meterRegistry.counter("bulkhead.rejected"));
+        doReturn(this.bulkhead).when(this.executorBulkheads).get(ExecutorBulkheads.CKEEPER_IO);
+        this.cKeeperGuard.init();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.cKeeperGuard.destroy();
+        this.bulkhead.shutdownNow();
+    }
+
+    /**
+     * Test that the successful calls go through to the cKeeper client and
+     * keep the circuit closed.
+     */
+    @Test
+    void testGenerateEntitySignature() {
+        doReturn(this.signature).when(this.cKeeperClient).generateEntitySignature(any(), any(), any(), any(), any());
+
+        // Perform the component call
+        final byte[] result = this.cKeeperGuard.generateEntitySignature("entity", "0", "algorithm", "device", new byte[]{0});
+
+        // Make sure the signature was returned
+        assertArrayEquals(this.signature, result);
+        assertEquals(CKeeperGuard.CircuitState.CLOSED, this.cKeeperGuard.getState());
+        assertEquals(0, this.cKeeperGuard.getConsecutiveFailures());
+    }
+
+    /**
+     * Test that the circuit opens after the consecutive failures threshold,
+     * and that the following calls are rejected without reaching cKeeper.
+     */
+    @Test
+    void testCircuitOpens() {
+        doThrow(new RuntimeException("unavailable")).when(this.cKeeperClient).generateEntitySignature(any(), any(), any(), any(), any());
+
+        // Perform the component calls
+        for(int i = 0; i < 2; i++) {
+            assertThrows(CKeeperGuard.CKeeperUnavailableException.class, () ->
+                    this.cKeeperGuard.generateEntitySignature("entity", "0", "algorithm", "device", new byte[]{0}));
+        }
+        assertEquals(CKeeperGuard.CircuitState.OPEN, this.cKeeperGuard.getState());
+        assertThrows(CKeeperGuard.CKeeperUnavailableException.class, () ->
+                this.cKeeperGuard.generateEntitySignature("entity", "0", "algorithm", "device", new byte[]{0}));
+
+        // Make sure the last call was rejected straight away
+        verify(this.cKeeperClient, times(2)).generateEntitySignature(any(), any(), any(), any(), any());
+        assertEquals(1, this.cKeeperGuard.getRejectedOpen());
+    }
+
+    /**
+     * Test that once the open duration has elapsed, a successful trial call
+     * closes the circuit again.
+     */
+    @Test
+    void testCircuitHalfOpen() {
+        this.cKeeperGuard.openDuration = 0L;
+        doThrow(new RuntimeException("unavailable"))
+                .doThrow(new RuntimeException("unavailable"))
+                .doReturn(this.signature)
+                .when(this.cKeeperClient).generateEntitySignature(any(), any(), any(), any(), any());
+
+        // Open the circuit
+        for(int i = 0; i < 2; i++) {
+            assertThrows(CKeeperGuard.CKeeperUnavailableException.class, () ->
+                    this.cKeeperGuard.generateEntitySignature("entity", "0", "algorithm", "device", new byte[]{0}));
+        }
+        assertEquals(CKeeperGuard.CircuitState.HALF_OPEN, this.cKeeperGuard.getState());
+
+        // Perform the trial call
+        final byte[] result = this.cKeeperGuard.generateEntitySignature("entity", "0", "algorithm", "device", new byte[]{0});
+
+        // Make sure the circuit was closed again
+        assertArrayEquals(this.signature, result);
+        assertEquals(CKeeperGuard.CircuitState.CLOSED, this.cKeeperGuard.getState());
+    }
+
+    /**
+     * Test that the slow calls are abandoned after the timeout and counted
+     * as failures.
+     */
+    @Test
+    void testTimeout() {
+        doAnswer(inv -> {
+            Thread.sleep(5000);
+            return this.signature;
+        }).when(this.cKeeperClient).generateEntitySignature(any(), any(), any(), any(), any());
+
+        // Perform the component call
+        final long start = System.currentTimeMillis();
+        assertThrows(CKeeperGuard.CKeeperUnavailableException.class, () ->
+                this.cKeeperGuard.generateEntitySignature("entity", "0", "algorithm", "device", new byte[]{0}));
+
+        // Make sure the call did not wait for cKeeper
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertEquals(1, this.cKeeperGuard.getTimeouts());
+        assertEquals(1, this.cKeeperGuard.getConsecutiveFailures());
+    }
+
+    /**
+     * Test that the calls exceeding the bulkhead capacity are rejected.
+     */
+    @Test
+    void testBulkheadFull() throws InterruptedException {
+        this.cKeeperGuard.timeout = 5000L;
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await();
+            return this.signature;
+        }).when(this.cKeeperClient).generateEntitySignature(any(), any(), any(), any(), any());
+
+        // Occupy the bulkhead thread and its queue
+        final ExecutorService callers = Executors.newFixedThreadPool(2);
+        for(int i = 0; i < 2; i++) {
+            callers.submit(() -> this.cKeeperGuard.generateEntitySignature("entity", "0", "algorithm", "device", new byte[]{0}));
+        }
+        while(this.cKeeperGuard.getInFlight() + this.cKeeperGuard.getQueued() < 2) {
+            Thread.sleep(10);
+        }
+
+        // Make sure the next call is rejected
+        assertThrows(CKeeperGuard.CKeeperUnavailableException.class, () ->
+                this.cKeeperGuard.generateEntitySignature("entity", "0", "algorithm", "device", new byte[]{0}));
+        assertEquals(1, this.cKeeperGuard.getRejectedFull());
+        assertEquals(CKeeperGuard.CircuitState.CLOSED, this.cKeeperGuard.getState());
+
+        // And release the calls
+        release.countDown();
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+}
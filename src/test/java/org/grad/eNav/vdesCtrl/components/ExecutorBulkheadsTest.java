@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.eNav.vdesCtrl.config.BulkheadConfigProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExecutorBulkheadsTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    ExecutorBulkheads executorBulkheads;
+
+    // Test Variables
+    private CountDownLatch release;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.release = new CountDownLatch(1);
+
+        // Initialise the bulkheads with a single thread and queue slot each
+        this.executorBulkheads.bulkheadConfigProperties = new BulkheadConfigProperties();
+        this.executorBulkheads.bulkheadConfigProperties.getExecutors().values().forEach(properties -> {
+            properties.setCoreSize(1);
+            properties.setMaxSize(1);
+            properties.setQueueCapacity(1);
+        });
+        this.executorBulkheads.meterRegistry = new SimpleMeterRegistry();
+        this.executorBulkheads.init();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.release.countDown();
+        this.executorBulkheads.destroy();
+    }
+
+    /**
+     * Test that all the bulkheads are created along with their metrics, and
+     * that unknown bulkheads are not accepted.
+     */
+    @Test
+    void testInit() {
+        assertEquals(5, this.executorBulkheads.getBulkheads().size());
+        for(String name : new String[]{ExecutorBulkheads.VDES1000_ADVERTISING, ExecutorBulkheads.GNURADIO_ADVERTISING, ExecutorBulkheads.RECEIVE_DISPATCH, ExecutorBulkheads.REMOTE_IO, ExecutorBulkheads.CKEEPER_IO}) {
+            assertEquals(name, this.executorBulkheads.get(name).getName());
+            assertNotNull(this.executorBulkheads.meterRegistry.find("bulkhead.active").tag("name", name).gauge());
+            assertNotNull(this.executorBulkheads.meterRegistry.find("bulkhead.queued").tag("name", name).gauge());
+            assertNotNull(this.executorBulkheads.meterRegistry.find("bulkhead.rejected").tag("name", name).counter());
+        }
+        assertEquals(ExecutorBulkheads.RejectionPolicy.CALLER_RUNS, this.executorBulkheads.get(ExecutorBulkheads.RECEIVE_DISPATCH).getRejectionPolicy());
+        assertEquals(ExecutorBulkheads.RejectionPolicy.ABORT, this.executorBulkheads.get(ExecutorBulkheads.REMOTE_IO).getRejectionPolicy());
+        assertEquals(ExecutorBulkheads.RejectionPolicy.ABORT, this.executorBulkheads.get(ExecutorBulkheads.CKEEPER_IO).getRejectionPolicy());
+        assertThrows(IllegalArgumentException.class, () -> this.executorBulkheads.get("unknown"));
+    }
+
+    /**
+     * Test that the bulkheads can be resized while running, but only to
+     * valid sizes.
+     */
+    @Test
+    void testResize() {
+        final ExecutorBulkheads.Bulkhead bulkhead = this.executorBulkheads.get(ExecutorBulkheads.RECEIVE_DISPATCH);
+
+        // Grow and then shrink the bulkhead
+        bulkhead.resize(4, 8);
+        assertEquals(4, bulkhead.getCorePoolSize());
+        assertEquals(8, bulkhead.getMaximumPoolSize());
+        bulkhead.resize(2, 2);
+        assertEquals(2, bulkhead.getCorePoolSize());
+        assertEquals(2, bulkhead.getMaximumPoolSize());
+        assertEquals(2.0, this.executorBulkheads.meterRegistry.find("bulkhead.pool.size").tag("name", ExecutorBulkheads.RECEIVE_DISPATCH).gauge().value());
+
+        // Make sure invalid sizes are rejected
+        assertThrows(IllegalArgumentException.class, () -> bulkhead.resize(0, 2));
+        assertThrows(IllegalArgumentException.class, () -> bulkhead.resize(3, 2));
+    }
+
+    /**
+     * Test that the abort policy rejects the tasks of a full bulkhead, and
+     * notifies the discardable ones.
+     */
+    @Test
+    void testRejectAbort() throws InterruptedException {
+        final ExecutorBulkheads.Bulkhead bulkhead = this.saturate(ExecutorBulkheads.REMOTE_IO);
+        final AtomicBoolean discarded = new AtomicBoolean();
+
+        // Make sure the next task is rejected
+        assertThrows(RejectedExecutionException.class, () -> bulkhead.execute(new TestTask(discarded)));
+        assertTrue(discarded.get());
+        assertEquals(1, bulkhead.getRejected());
+        assertEquals(1.0, this.executorBulkheads.meterRegistry.find("bulkhead.rejected").tag("name", ExecutorBulkheads.REMOTE_IO).counter().count());
+    }
+
+    /**
+     * Test that the caller-runs policy runs the tasks of a full bulkhead on
+     * the calling thread.
+     */
+    @Test
+    void testRejectCallerRuns() throws InterruptedException {
+        final ExecutorBulkheads.Bulkhead bulkhead = this.saturate(ExecutorBulkheads.RECEIVE_DISPATCH);
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+
+        // Perform the component call
+        bulkhead.execute(() -> thread.set(Thread.currentThread()));
+
+        // Make sure the task was run by the caller
+        assertSame(Thread.currentThread(), thread.get());
+        assertEquals(1, bulkhead.getRejected());
+    }
+
+    /**
+     * Test that the discard-oldest policy drops the oldest queued task of a
+     * full bulkhead in favour of the new one, notifying it if discardable.
+     */
+    @Test
+    void testRejectDiscardOldest() throws InterruptedException {
+        final ExecutorBulkheads.Bulkhead bulkhead = this.executorBulkheads.get(ExecutorBulkheads.VDES1000_ADVERTISING);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicBoolean discarded = new AtomicBoolean();
+
+        // Occupy the bulkhead thread and queue a discardable task
+        bulkhead.execute(() -> this.block(started));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        bulkhead.execute(new TestTask(discarded));
+
+        // Perform the component call
+        bulkhead.execute(done::countDown);
+
+        // Make sure the oldest task was discarded and the new one was run
+        assertTrue(discarded.get());
+        this.release.countDown();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(1, bulkhead.getRejected());
+    }
+
+    /**
+     * Test that in virtual thread mode, the tasks are run on virtual threads
+     * but only as many at a time as the permits of the bulkhead, while the
+     * rest of them wait in the queue.
+     */
+    @Test
+    void testVirtualThreads() throws InterruptedException {
+        final ExecutorBulkheads.Bulkhead bulkhead = new ExecutorBulkheads.Bulkhead(ExecutorBulkheads.REMOTE_IO, 2, 2, 10,
+                ExecutorBulkheads.RejectionPolicy.ABORT, new SimpleMeterRegistry().counter("rejected"), true);
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch done = new CountDownLatch(5);
+        final AtomicBoolean platform = new AtomicBoolean();
+
+        // Submit more tasks than the available permits
+        for(int i = 0; i < 5; i++) {
+            bulkhead.execute(() -> {
+                platform.compareAndSet(false, !Thread.currentThread().isVirtual());
+                this.block(started);
+                done.countDown();
+            });
+        }
+
+        // Make sure only the permitted tasks are running
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        assertTrue(bulkhead.isVirtual());
+        assertEquals(2, bulkhead.getActiveCount());
+        assertEquals(3, bulkhead.getQueue().size());
+
+        // Grow the bulkhead and release the tasks
+        bulkhead.resize(3, 3);
+        this.release.countDown();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertFalse(platform.get());
+        assertEquals(0, bulkhead.getRejected());
+        bulkhead.shutdownNow();
+    }
+
+    /**
+     * Occupies the thread and the queue slot of a bulkhead.
+     *
+     * @param name the name of the bulkhead
+     * @return the saturated bulkhead
+     */
+    private ExecutorBulkheads.Bulkhead saturate(String name) throws InterruptedException {
+        final ExecutorBulkheads.Bulkhead bulkhead = this.executorBulkheads.get(name);
+        final CountDownLatch started = new CountDownLatch(1);
+        bulkhead.execute(() -> this.block(started));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        bulkhead.execute(() -> {});
+        return bulkhead;
+    }
+
+    /**
+     * Blocks the current thread until the test is over.
+     *
+     * @param started the latch to count down once blocked
+     */
+    private void block(CountDownLatch started) {
+        started.countDown();
+        try {
+            this.release.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A discardable task for testing.
+     */
+    private static class TestTask implements Runnable, ExecutorBulkheads.Discardable {
+
+        // Class Variables
+        private final AtomicBoolean discarded;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param discarded     Whether the task has been discarded
+         */
+        TestTask(AtomicBoolean discarded) {
+            this.discarded = discarded;
+        }
+
+        @Override
+        public void run() {
+            fail("Discarded task should not run");
+        }
+
+        @Override
+        public void discarded() {
+            this.discarded.set(true);
+        }
+
+    }
+
+}
@@ -16,10 +16,10 @@
 
 package org.grad.eNav.vdesCtrl.components;
 
-import org.grad.eNav.vdesCtrl.feign.CKeeperClient;
 import org.grad.eNav.vdesCtrl.models.domain.McpEntityType;
 import org.grad.eNav.vdesCtrl.models.domain.SignatureMode;
 import org.grad.eNav.vdesCtrl.models.domain.Station;
+import org.grad.eNav.vdesCtrl.models.domain.StationSnapshot;
 import org.grad.eNav.vdesCtrl.models.domain.StationType;
 import org.grad.eNav.vdesCtrl.models.dtos.AtonMessageDto;
 import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
@@ -27,6 +27,7 @@ import org.grad.eNav.vdesCtrl.services.StationService;
 import org.grad.eNav.vdesCtrl.utils.AISMessageUtils;
 import org.grad.vdes1000.formats.ais.messages.AISMessage21;
 import org.grad.vdes1000.formats.generic.AISChannelPref;
+import org.grad.vdes1000.utils.GrAisUtils;
 import org.grad.vdes1000.utils.StringBinUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -39,20 +40,24 @@ import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.io.ClassPathResource;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.SocketException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -68,10 +73,10 @@ class GrAisAdvertiserTest {
     GrAisAdvertiser grAisAdvertiser;
 
     /**
-     * The CKeeper Client mock.
+     * The CKeeper Guard mock.
      */
     @Mock
-    CKeeperClient cKeeperClient;
+    CKeeperGuard cKeeperGuard;
 
     /**
      * The Station Service mock.
@@ -79,11 +84,78 @@ class GrAisAdvertiserTest {
     @Mock
     StationService stationService;
 
+    /**
+     * The Blacklist Index mock.
+     */
+    @Mock
+    BlacklistIndex blacklistIndex;
+
+    /**
+     * The AtoN Message Cache spy.
+     */
+    @Spy
+    AtonMessageCache atonMessageCache;
+
+    /**
+     * The AtoN Timing Wheel mock.
+     */
+    @Mock
+    AtonTimingWheel atonTimingWheel;
+
+    /**
+     * The Station Cycle Executor mock.
+     */
+    @Mock
+    StationCycleExecutor stationCycleExecutor;
+
+    /**
+     * The Executor Bulkheads mock.
+     */
+    @Mock
+    ExecutorBulkheads executorBulkheads;
+
+    /**
+     * The Advertising Bulkhead mock.
+     */
+    @Mock
+    ExecutorBulkheads.Bulkhead bulkhead;
+
+    /**
+     * The Signature Pipeline mock.
+     */
+    @Mock
+    SignaturePipeline signaturePipeline;
+
+    /**
+     * The Local Signer mock.
+     */
+    @Mock
+    LocalSigner localSigner;
+
+    /**
+     * The Pre-Signer mock.
+     */
+    @Mock
+    PreSigner preSigner;
+
+    /**
+     * The TDMA Slot Pacer mock.
+     */
+    @Mock
+    TdmaSlotPacer tdmaSlotPacer;
+
+    /**
+     * The GNURadio Transport mock.
+     */
+    @Mock
+    GrAisTransport grAisTransport;
+
     // Test Variables
     private Station station;
     private AtonMessageDto atonMessageDto;
     private byte[] signature;
-    private DatagramSocket gnuRadioSocket;
+    private GrAisTransport.Endpoint gnuRadioEndpoint;
+    private List<String> datagrams;
 
     /**
      * Common setup for all the tests.
@@ -119,36 +191,98 @@ class GrAisAdvertiserTest {
         // Mock a signature
         this.signature = MessageDigest.getInstance("SHA-256").digest(("That's the signature?").getBytes());
 
-        // Also mock a UDP socket that does nothing, to be used in the tests
-        this.gnuRadioSocket = mock(DatagramSocket.class);
+        // Also mock a station endpoint, to be used in the tests
+        this.gnuRadioEndpoint = mock(GrAisTransport.Endpoint.class);
+
+        // And record the datagrams sent through the transport - the payload
+        // buffers are reused, so their content needs to be copied
+        this.datagrams = new ArrayList<>();
+        lenient().doAnswer(inv -> {
+            this.datagrams.add(StandardCharsets.US_ASCII.decode(inv.<ByteBuffer>getArgument(1).duplicate()).toString());
+            return true;
+        }).when(this.grAisTransport).send(any(), any());
+
+        // And let the TDMA slot pacer perform the transmissions right away
+        lenient().doAnswer(inv -> {
+            inv.<List<Runnable>>getArgument(2).forEach(Runnable::run);
+            return Collections.emptyList();
+        }).when(this.tdmaSlotPacer).schedule(any(), anyLong(), anyList());
+        // And let the AtoN timing wheel perform the advertisements right away
+        lenient().doAnswer(inv -> {
+            inv.<Runnable>getArgument(4).run();
+            return null;
+        }).when(this.atonTimingWheel).register(any(), any(), anyLong(), any(), any());
+        // And let the signature pipeline sign and transmit right away
+        lenient().doAnswer(inv -> {
+            inv.<Consumer<Object>>getArgument(2).accept(inv.<Callable<Object>>getArgument(1).call());
+            return CompletableFuture.completedFuture(null);
+        }).when(this.signaturePipeline).submit(any(), any(Callable.class), any());
+        lenient().doAnswer(inv -> {
+            inv.<Consumer<Object>>getArgument(2).accept(inv.<CompletableFuture<Object>>getArgument(1).join());
+            return CompletableFuture.completedFuture(null);
+        }).when(this.signaturePipeline).submit(any(), any(CompletableFuture.class), any());
     }
 
     /**
      * Test that the GNURadio AIS advertiser can initialise correctly.
      */
     @Test
-    void testInit() throws SocketException {
+    void testInit() {
+        doReturn(this.bulkhead).when(this.executorBulkheads).get(ExecutorBulkheads.GNURADIO_ADVERTISING);
+
+        doReturn(this.gnuRadioEndpoint).when(this.grAisTransport).resolve(this.station.getIpAddress(), this.station.getPort());
+
         // Perform the component call
         this.grAisAdvertiser.init(this.station);
 
-        assertEquals(this.station, this.grAisAdvertiser.station);
-        assertNotNull(this.grAisAdvertiser.gnuRadioSocket);
+        assertEquals(StationSnapshot.of(this.station), this.grAisAdvertiser.station);
+        verify(this.stationCycleExecutor, times(1)).register(this.grAisAdvertiser, this.station.getName(), this.bulkhead);
+        assertEquals(this.gnuRadioEndpoint, this.grAisAdvertiser.gnuRadioEndpoint);
+    }
+
+    /**
+     * Test that the GNURadio AIS advertiser works on an immutable snapshot of
+     * its station, which is only replaced when the station is updated.
+     */
+    @Test
+    void testUpdate() {
+        this.grAisAdvertiser.station = StationSnapshot.of(this.station);
+        final StationSnapshot initial = this.grAisAdvertiser.station;
+
+        // Changing the station entity should not affect the snapshot
+        this.station.setSignatureMode(SignatureMode.AIS);
+        this.station.setGeometry(new GeometryFactory(new PrecisionModel(), 4326).createPoint(new Coordinate(53.001, 2.002)));
+        assertSame(initial, this.grAisAdvertiser.station);
+        assertEquals(SignatureMode.NONE, this.grAisAdvertiser.station.signatureMode());
+
+        // Perform the component call
+        this.grAisAdvertiser.update(this.station);
+
+        // Make sure a new snapshot was published
+        assertNotSame(initial, this.grAisAdvertiser.station);
+        assertEquals(SignatureMode.AIS, this.grAisAdvertiser.station.signatureMode());
+        assertEquals(this.station.getGeometry(), this.grAisAdvertiser.station.geometry());
+
+        // And that the snapshot geometry cannot be altered through its copies
+        this.grAisAdvertiser.station.geometry().getCoordinates()[0].setX(0.0);
+        assertEquals(this.station.getGeometry(), this.grAisAdvertiser.station.geometry());
     }
 
     /**
      * Test that the GNURadio AIS advertiser can be destroyed gracefully and
-     * will close its UDP connection to the GNURadio device.
+     * will cancel all its pending transmissions.
      */
     @Test
     void testDestroy() {
-        // Initialise the advertiser
-        this.grAisAdvertiser.gnuRadioSocket = this.gnuRadioSocket;
-
         // Perform the service class
         this.grAisAdvertiser.destroy();
 
-        // Assert that the UDP socket was closed
-        verify(this.gnuRadioSocket, times(1)).close();
+        // Assert that the pending transmissions were cancelled
+        verify(this.stationCycleExecutor, times(1)).cancel(this.grAisAdvertiser);
+        verify(this.atonTimingWheel, times(1)).cancel(this.grAisAdvertiser);
+        verify(this.signaturePipeline, times(1)).cancel(this.grAisAdvertiser);
+        verify(this.preSigner, times(1)).cancel(this.grAisAdvertiser);
+        verify(this.tdmaSlotPacer, times(1)).cancel(this.grAisAdvertiser);
     }
 
     /**
@@ -158,39 +292,53 @@ class GrAisAdvertiserTest {
      */
     @Test
     void testAdvertiseAtons() throws IOException {
-        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(this.station.getId()), eq(Boolean.FALSE));
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
 
         // Initialise the advertiser and perform the component call
-        this.grAisAdvertiser.station = this.station;
-        this.grAisAdvertiser.gnuRadioSocket = this.gnuRadioSocket;
+        this.grAisAdvertiser.station = StationSnapshot.of(this.station);
+        this.grAisAdvertiser.gnuRadioEndpoint = this.gnuRadioEndpoint;
         this.grAisAdvertiser.aisInterval = 1000L;
         this.grAisAdvertiser.signatureAlgorithm = "algorithm";
         this.grAisAdvertiser.signatureDestMmmsi = 123456789;
+        doReturn(this.bulkhead).when(this.executorBulkheads).get(ExecutorBulkheads.GNURADIO_ADVERTISING);
         this.grAisAdvertiser.advertiseAtons();
 
-        // Make sure the UDP packet was sent to the GRURadio station
-        verify(this.gnuRadioSocket, times(1)).send(any());
+        // Make sure the AtoN was registered with the timing wheel, on the advertising bulkhead
+        verify(this.atonTimingWheel, times(1)).register(eq(this.grAisAdvertiser), eq("test_aton"), anyLong(), eq(this.bulkhead), any());
+        verify(this.atonTimingWheel, times(1)).retain(this.grAisAdvertiser, Collections.singleton("test_aton"));
+        verify(this.preSigner, times(1)).retain(this.grAisAdvertiser, Collections.singleton("test_aton"));
+
+        // Make sure the UDP packet was paced and sent to the GRURadio station
+        verify(this.signaturePipeline, never()).submit(any(), any(Callable.class), any());
+        verify(this.tdmaSlotPacer, times(1)).schedule(eq(this.grAisAdvertiser), eq(1000L), argThat(transmissions -> transmissions.size() == 1));
+        verify(this.grAisTransport, times(1)).send(eq(this.gnuRadioEndpoint), any());
     }
 
     /**
      * Test that the  GNURadio AIS advertiser can actually read the station
      * messages from the message service but will not advertise the ones that
-     * have been blacklisted.
+     * have been blacklisted. These are still registered with the timing
+     * wheel, so that they are advertised again as soon as they are removed
+     * from the blacklist.
      */
     @Test
     void testAdvertiseAtonsBlacklisted() throws IOException {
-        doReturn(Collections.emptyList()).when(this.stationService).findMessagesForStation(eq(this.station.getId()), eq(Boolean.FALSE));
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(true).when(this.blacklistIndex).isBlacklisted(this.station.getId(), "test_aton");
 
         // Initialise the advertiser and perform the component call
-        this.grAisAdvertiser.station = this.station;
-        this.grAisAdvertiser.gnuRadioSocket = this.gnuRadioSocket;
+        this.grAisAdvertiser.station = StationSnapshot.of(this.station);
+        this.grAisAdvertiser.gnuRadioEndpoint = this.gnuRadioEndpoint;
         this.grAisAdvertiser.aisInterval = 1000L;
         this.grAisAdvertiser.signatureAlgorithm = "algorithm";
         this.grAisAdvertiser.signatureDestMmmsi = 123456789;
         this.grAisAdvertiser.advertiseAtons();
 
-        // Make sure the UDP packet was sent to the GRURadio station
-        verify(this.gnuRadioSocket, never()).send(any());
+        // Make sure the AtoN is still registered with the timing wheel
+        verify(this.atonTimingWheel, times(1)).register(eq(this.grAisAdvertiser), eq("test_aton"), anyLong(), any(), any());
+
+        // Make sure the UDP packet was NOT sent to the GRURadio station
+        verify(this.grAisTransport, never()).send(eq(this.gnuRadioEndpoint), any());
     }
 
     /**
@@ -201,16 +349,16 @@ class GrAisAdvertiserTest {
      *
      */
     @Test
-    void testAdvertiseAtonsWithSignatureAIS() throws IOException {
+    void testAdvertiseAtonsWithSignatureAIS() throws IOException, XMLStreamException {
         // Enable AIS signatures for this station
         this.station.setSignatureMode(SignatureMode.AIS);
 
-        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(this.station.getId()), eq(Boolean.FALSE));
-        doReturn(this.signature).when(this.cKeeperClient).generateEntitySignature(any(String.class), any(String.class), any(String.class), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(this.signature).when(this.cKeeperGuard).generateEntitySignature(any(String.class), any(String.class), any(String.class), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
 
         // Initialise the advertiser and perform the component call
-        this.grAisAdvertiser.station = this.station;
-        this.grAisAdvertiser.gnuRadioSocket = this.gnuRadioSocket;
+        this.grAisAdvertiser.station = StationSnapshot.of(this.station);
+        this.grAisAdvertiser.gnuRadioEndpoint = this.gnuRadioEndpoint;
         this.grAisAdvertiser.aisInterval = 1000L;
         this.grAisAdvertiser.signatureAlgorithm = "algorithm";
         this.grAisAdvertiser.signatureDestMmmsi = 123456789;
@@ -219,27 +367,143 @@ class GrAisAdvertiserTest {
         final AISMessage21 testMsg = AISMessageUtils.s125ToAisMessage21(this.atonMessageDto);
         testMsg.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochSecond(65535), ZoneOffset.UTC));
 
-        // Now mock the construction of Message 21, to return the test message
-        try (MockedStatic<AISMessageUtils> utilities = Mockito.mockStatic(AISMessageUtils.class)) {
-            utilities.when(() -> AISMessageUtils.s125ToAisMessage21(any())).thenReturn(testMsg);
-            this.grAisAdvertiser.advertiseAtons();
-        }
+        // Now mock the AtoN message cache, to return the test message
+        doReturn(testMsg).when(this.atonMessageCache).getAisMessage21(any());
+        this.grAisAdvertiser.advertiseAtons();
+
+        // Make sure the message and its signature were paced one after the other
+        verify(this.signaturePipeline, times(1)).submit(eq(this.grAisAdvertiser), any(Callable.class), any());
+        verify(this.tdmaSlotPacer, times(2)).schedule(eq(this.grAisAdvertiser), eq(1000L), argThat(transmissions -> transmissions.size() == 1));
+
+        // Make sure the signed bytes, derived from the binary payload, match the stamped message
+        verify(this.cKeeperGuard, times(1)).generateEntitySignature(any(String.class), any(String.class), any(String.class), eq(McpEntityType.DEVICE.getValue()),
+                eq(GrAisUtils.getStampedAISMessage(testMsg.getBinaryMessage(false), testMsg.getUnixTxTimestamp())));
 
         // Make sure the UDP packet was sent to the GRURadio station
-        ArgumentCaptor<DatagramPacket> datagramArgument = ArgumentCaptor.forClass(DatagramPacket.class);
-        verify(this.gnuRadioSocket, times(2)).send(datagramArgument.capture());
+        verify(this.grAisTransport, times(2)).send(eq(this.gnuRadioEndpoint), any());
 
         // Test the send packets
-        List<DatagramPacket> datagramPackets = datagramArgument.getAllValues();
-        assertNotNull(datagramPackets);
-        assertEquals(2, datagramPackets.size());
+        assertEquals(2, this.datagrams.size());
         // Test the Message 21 packet
-        assertNotNull(datagramPackets.getFirst());
+        assertNotNull(this.datagrams.getFirst());
         // Test the signature packet
-        assertNotNull(datagramPackets.getLast());
-        assertNotNull(datagramPackets.getLast().getData());
-        assertTrue(new String(datagramPackets.getLast().getData()).contains(StringBinUtils.convertBytesToBinary(this.signature, false)));
-        assertTrue(new String(datagramPackets.getLast().getData()).endsWith("1111111111111111\n"));
+        final String signatureData = this.datagrams.getLast();
+        assertTrue(signatureData.contains(StringBinUtils.convertBytesToBinary(this.signature, false)));
+        assertTrue(signatureData.endsWith("1111111111111111\n"));
+    }
+
+    /**
+     * Test that the GNURadio AIS advertiser will schedule the AIS Message 21
+     * of the AtoN straight away, even if its signature is never generated.
+     */
+    @Test
+    void testAdvertiseAtonsWithSignatureFailure() throws IOException {
+        // Enable AIS signatures for this station
+        this.station.setSignatureMode(SignatureMode.AIS);
+
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(new CompletableFuture<>()).when(this.signaturePipeline).submit(any(), any(Callable.class), any());
+
+        // Initialise the advertiser and perform the component call
+        this.grAisAdvertiser.station = StationSnapshot.of(this.station);
+        this.grAisAdvertiser.gnuRadioEndpoint = this.gnuRadioEndpoint;
+        this.grAisAdvertiser.aisInterval = 1000L;
+        this.grAisAdvertiser.signatureAlgorithm = "algorithm";
+        this.grAisAdvertiser.advertiseAtons();
+
+        // Make sure the message was still sent
+        verify(this.signaturePipeline, times(1)).submit(eq(this.grAisAdvertiser), any(Callable.class), any());
+        verify(this.tdmaSlotPacer, times(1)).schedule(eq(this.grAisAdvertiser), eq(1000L), argThat(transmissions -> transmissions.size() == 1));
+        verify(this.grAisTransport, times(1)).send(eq(this.gnuRadioEndpoint), any());
+    }
+
+    /**
+     * Test that the GNURadio AIS advertiser will use the local signer when
+     * it can provide the signature, without contacting cKeeper.
+     */
+    @Test
+    void testAdvertiseAtonsWithLocalSignature() throws IOException, XMLStreamException {
+        // Enable AIS signatures for this station
+        this.station.setSignatureMode(SignatureMode.AIS);
+
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(Optional.of(this.signature)).when(this.localSigner).sign(eq("test_aton"), eq("algorithm"), any(byte[].class));
+
+        // Initialise the advertiser and perform the component call
+        this.grAisAdvertiser.station = StationSnapshot.of(this.station);
+        this.grAisAdvertiser.gnuRadioEndpoint = this.gnuRadioEndpoint;
+        this.grAisAdvertiser.aisInterval = 1000L;
+        this.grAisAdvertiser.signatureAlgorithm = "algorithm";
+        this.grAisAdvertiser.advertiseAtons();
+
+        // Make sure the signature was generated locally and sent
+        verify(this.cKeeperGuard, never()).generateEntitySignature(any(), any(), any(), any(), any());
+        verify(this.grAisTransport, times(2)).send(eq(this.gnuRadioEndpoint), any());
+        final String signatureData = this.datagrams.getLast();
+        assertTrue(signatureData.contains(StringBinUtils.convertBytesToBinary(this.signature, false)));
+    }
+
+    /**
+     * Test that the GNURadio AIS advertiser will use the signature generated
+     * ahead of time when available, without contacting cKeeper, and will
+     * generate the signature of the next planned transmission in advance.
+     */
+    @Test
+    void testAdvertiseAtonsWithPreSignature() throws IOException {
+        // Enable AIS signatures for this station
+        this.station.setSignatureMode(SignatureMode.AIS);
+
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(Optional.of(this.signature)).when(this.preSigner).take(eq(this.grAisAdvertiser), eq("test_aton"), any());
+        doReturn(true).when(this.preSigner).isEnabled();
+        doReturn(60000L).when(this.atonTimingWheel).getInterval(any());
+
+        // Initialise the advertiser and perform the component call
+        this.grAisAdvertiser.station = StationSnapshot.of(this.station);
+        this.grAisAdvertiser.gnuRadioEndpoint = this.gnuRadioEndpoint;
+        this.grAisAdvertiser.aisInterval = 1000L;
+        this.grAisAdvertiser.signatureAlgorithm = "algorithm";
+        this.grAisAdvertiser.advertiseAtons();
+
+        // Make sure the pre-computed signature was sent, without taking a signer
+        verify(this.signaturePipeline, never()).submit(any(), any(Callable.class), any());
+        verify(this.signaturePipeline, times(1)).submit(eq(this.grAisAdvertiser), any(CompletableFuture.class), any());
+        verify(this.cKeeperGuard, never()).generateEntitySignature(any(), any(), any(), any(), any());
+        verify(this.grAisTransport, times(2)).send(eq(this.gnuRadioEndpoint), any());
+        final String signatureData = this.datagrams.getLast();
+        assertTrue(signatureData.contains(StringBinUtils.convertBytesToBinary(this.signature, false)));
+
+        // And that the next transmission was signed ahead of time
+        ArgumentCaptor<AISMessage21> nextArgument = ArgumentCaptor.forClass(AISMessage21.class);
+        verify(this.preSigner, times(1)).preSign(eq(this.grAisAdvertiser), eq("test_aton"), nextArgument.capture(), any());
+        assertTrue(nextArgument.getValue().getTimestamp().isAfter(LocalDateTime.now().plusSeconds(50)));
+    }
+
+    /**
+     * Test that in the MERKLE signature mode the GNURadio AIS advertiser will
+     * fall back to the individual AIS signatures, since the leaf digests of
+     * a Merkle window cannot be transmitted over AIS.
+     */
+    @Test
+    void testAdvertiseAtonsWithSignatureMerkle() throws IOException {
+        // Enable Merkle signatures for this station
+        this.station.setSignatureMode(SignatureMode.MERKLE);
+
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(this.signature).when(this.cKeeperGuard).generateEntitySignature(any(String.class), any(String.class), any(String.class), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
+
+        // Initialise the advertiser and perform the component call
+        this.grAisAdvertiser.station = StationSnapshot.of(this.station);
+        this.grAisAdvertiser.gnuRadioEndpoint = this.gnuRadioEndpoint;
+        this.grAisAdvertiser.aisInterval = 1000L;
+        this.grAisAdvertiser.signatureAlgorithm = "algorithm";
+        this.grAisAdvertiser.advertiseAtons();
+
+        // Make sure the message was sent along with its own AIS signature
+        verify(this.signaturePipeline, times(1)).submit(eq(this.grAisAdvertiser), any(Callable.class), any());
+        verify(this.grAisTransport, times(2)).send(eq(this.gnuRadioEndpoint), any());
+        final String signatureData = this.datagrams.getLast();
+        assertTrue(signatureData.contains(StringBinUtils.convertBytesToBinary(this.signature, false)));
     }
 
     /**
@@ -254,19 +518,19 @@ class GrAisAdvertiserTest {
         // Enable VDE signature for this station
         this.station.setSignatureMode(SignatureMode.VDE);
 
-        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(this.station.getId()), eq(Boolean.FALSE));
-        doReturn(this.signature).when(this.cKeeperClient).generateEntitySignature(any(String.class), any(String.class), any(String.class), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(this.signature).when(this.cKeeperGuard).generateEntitySignature(any(String.class), any(String.class), any(String.class), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
 
         // Initialise the advertiser and perform the component call
-        this.grAisAdvertiser.station = this.station;
-        this.grAisAdvertiser.gnuRadioSocket = this.gnuRadioSocket;
+        this.grAisAdvertiser.station = StationSnapshot.of(this.station);
+        this.grAisAdvertiser.gnuRadioEndpoint = this.gnuRadioEndpoint;
         this.grAisAdvertiser.aisInterval = 1000L;
         this.grAisAdvertiser.signatureAlgorithm = "algorithm";
         this.grAisAdvertiser.signatureDestMmmsi = 123456789;
         this.grAisAdvertiser.advertiseAtons();
 
         // Make sure the UDP packet was sent to the GRURadio station
-        verify(this.gnuRadioSocket, times(1)).send(any());
+        verify(this.grAisTransport, times(1)).send(eq(this.gnuRadioEndpoint), any());
     }
 
     /**
@@ -279,11 +543,11 @@ class GrAisAdvertiserTest {
         this.station.setSignatureMode(SignatureMode.AIS);
 
         this.atonMessageDto.setContent(null);
-        doReturn(Collections.singletonList(null)).when(this.stationService).findMessagesForStation(eq(this.station.getId()), eq(Boolean.FALSE));
+        doReturn(Collections.singletonList(null)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
 
         // Initialise the advertiser and perform the component call
-        this.grAisAdvertiser.station = this.station;
-        this.grAisAdvertiser.gnuRadioSocket = this.gnuRadioSocket;
+        this.grAisAdvertiser.station = StationSnapshot.of(this.station);
+        this.grAisAdvertiser.gnuRadioEndpoint = this.gnuRadioEndpoint;
         this.grAisAdvertiser.aisInterval = 1000L;
         this.grAisAdvertiser.signatureAlgorithm = "algorithm";
         this.grAisAdvertiser.signatureDestMmmsi = 123456789;
@@ -292,7 +556,7 @@ class GrAisAdvertiserTest {
         this.grAisAdvertiser.advertiseAtons();
 
         // Make sure no UDP packet was sent to the GRURadio station
-        verify(this.gnuRadioSocket, never()).send(any());
+        verify(this.grAisTransport, never()).send(eq(this.gnuRadioEndpoint), any());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class GrAisTransportTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    GrAisTransport grAisTransport;
+
+    // Test Variables
+    private DatagramSocket receiver;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        this.receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        this.receiver.setSoTimeout(2000);
+
+        // Initialise the transport
+        this.grAisTransport.bufferSize = 64;
+        this.grAisTransport.poolSize = 2;
+        this.grAisTransport.meterRegistry = new SimpleMeterRegistry();
+        this.grAisTransport.init();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.grAisTransport.destroy();
+        this.receiver.close();
+    }
+
+    /**
+     * Test that the endpoints get resolved once, along with their metrics.
+     */
+    @Test
+    void testResolve() {
+        // Perform the component call
+        final GrAisTransport.Endpoint endpoint = this.grAisTransport.resolve("127.0.0.1", 8002);
+
+        // Make sure the endpoint was resolved
+        assertNotNull(endpoint);
+        assertFalse(endpoint.getAddress().isUnresolved());
+        assertEquals(8002, endpoint.getAddress().getPort());
+        assertNotNull(this.grAisTransport.meterRegistry.find("gr.ais.transport.sent").tag("endpoint", "127.0.0.1:8002").counter());
+        assertNotNull(this.grAisTransport.meterRegistry.find("gr.ais.transport.errors").tag("endpoint", "127.0.0.1:8002").counter());
+    }
+
+    /**
+     * Test that the payloads are sent as datagrams to the resolved endpoint,
+     * and that the pooled buffers are reused.
+     */
+    @Test
+    void testSend() throws IOException {
+        final GrAisTransport.Endpoint endpoint = this.grAisTransport.resolve("127.0.0.1", this.receiver.getLocalPort());
+
+        // Perform the component calls
+        assertTrue(this.grAisTransport.send(endpoint, ByteBuffer.wrap("first\n".getBytes(StandardCharsets.US_ASCII))));
+        assertTrue(this.grAisTransport.send(endpoint, ByteBuffer.wrap("second\n".getBytes(StandardCharsets.US_ASCII))));
+
+        // Make sure the datagrams were received in order
+        assertEquals("first\n", this.receive());
+        assertEquals("second\n", this.receive());
+        assertEquals(2, endpoint.getSent());
+        assertEquals(0, endpoint.getErrors());
+        assertEquals(1, this.grAisTransport.bufferPool.size());
+    }
+
+    /**
+     * Test that the payloads larger than the pooled buffers are still sent,
+     * without their buffers being pooled.
+     */
+    @Test
+    void testSendLargePayload() throws IOException {
+        final GrAisTransport.Endpoint endpoint = this.grAisTransport.resolve("127.0.0.1", this.receiver.getLocalPort());
+        final String payload = "1".repeat(200);
+
+        // Perform the component call
+        assertTrue(this.grAisTransport.send(endpoint, ByteBuffer.wrap(payload.getBytes(StandardCharsets.US_ASCII))));
+
+        // Make sure the datagram was received
+        assertEquals(payload, this.receive());
+        assertTrue(this.grAisTransport.bufferPool.isEmpty());
+    }
+
+    /**
+     * Test that the datagrams to unresolved endpoints are counted as errors.
+     */
+    @Test
+    void testSendUnresolved() {
+        final GrAisTransport.Endpoint endpoint = this.grAisTransport.resolve("unknown.host.invalid", 8002);
+
+        // Perform the component call
+        assertFalse(this.grAisTransport.send(endpoint, ByteBuffer.wrap("message\n".getBytes(StandardCharsets.US_ASCII))));
+
+        // Make sure the error was counted
+        assertTrue(endpoint.getAddress().isUnresolved());
+        assertEquals(0, endpoint.getSent());
+        assertEquals(1, endpoint.getErrors());
+    }
+
+    /**
+     * Helper function to receive a datagram from the test receiver.
+     *
+     * @return the datagram content
+     */
+    private String receive() throws IOException {
+        final DatagramPacket packet = new DatagramPacket(new byte[512], 512);
+        this.receiver.receive(packet);
+        return new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.US_ASCII);
+    }
+
+}
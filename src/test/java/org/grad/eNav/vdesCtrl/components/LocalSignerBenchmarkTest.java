@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.models.domain.McpEntityType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The Local Signer Benchmark.
+ * <p/>
+ * Compares the number of signatures per second generated by the local
+ * signer against the ones generated remotely, through a local stand-in for
+ * the cKeeper service with a fixed latency per request. Both are run with
+ * as many concurrent signers as the signature pipeline uses by default, and
+ * each run is preceded by a warm-up, so that the figures reflect the
+ * compiled code.
+ * <p/>
+ * This is only run on demand, i.e. with "mvn test -Dbenchmark=true
+ * -Dtest=LocalSignerBenchmarkTest".
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LocalSignerBenchmarkTest {
+
+    /**
+     * The number of concurrent signers.
+     */
+    static final int SIGNERS = 8;
+
+    /**
+     * The number of local signatures per run.
+     */
+    static final int LOCAL_SIGNATURES = 20_000;
+
+    /**
+     * The number of remote signatures per run.
+     */
+    static final int REMOTE_SIGNATURES = 2_000;
+
+    /**
+     * The simulated cKeeper latency per request in milliseconds.
+     */
+    static final long LATENCY = 10;
+
+    // Test Variables
+    @TempDir
+    Path keyDirectory;
+    private LocalSigner localSigner;
+    private SignaturePipelineTest.LatentCKeeperClient cKeeperClient;
+    private byte[] payload;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        // Install the test key for the benchmarked entity
+        try (InputStream in = ClassLoader.getSystemClassLoader().getResourceAsStream("CorkHoleTest-PrivateKeyPair.pem")) {
+            Files.write(this.keyDirectory.resolve("0.pem"), in.readAllBytes());
+        }
+        this.payload = "payload".getBytes(StandardCharsets.UTF_8);
+
+        // Initialise the local signer and the cKeeper stand-in
+        this.localSigner = new LocalSigner();
+        this.localSigner.enabled = true;
+        this.localSigner.keyDirectory = this.keyDirectory.toString();
+        this.localSigner.defaultKey = "";
+        this.localSigner.keyAlgorithm = "EC";
+        this.localSigner.keyTtl = 3600000L;
+        this.localSigner.meterRegistry = new SimpleMeterRegistry();
+        this.localSigner.init();
+        this.cKeeperClient = new SignaturePipelineTest.LatentCKeeperClient(i -> LATENCY);
+    }
+
+    /**
+     * Benchmark the local signatures against the remote ones, making sure
+     * that every signature is generated by each.
+     */
+    @Test
+    void benchmarkLocalVersusRemote() throws Exception {
+        final Supplier<byte[]> local = () -> this.localSigner.sign("0", "SHA256withCVC-ECDSA", this.payload).orElse(null);
+        final Supplier<byte[]> remote = () -> this.cKeeperClient.generateEntitySignature("0", "0", "SHA256withCVC-ECDSA",
+                McpEntityType.DEVICE.getValue(), this.payload);
+
+        this.run(local, LOCAL_SIGNATURES / 10);
+        final double localRate = this.run(local, LOCAL_SIGNATURES);
+        this.run(remote, REMOTE_SIGNATURES / 10);
+        final double remoteRate = this.run(remote, REMOTE_SIGNATURES);
+
+        log.info("Signature benchmark with {} signers and {} ms cKeeper latency:", SIGNERS, LATENCY);
+        log.info("  Local signer:  {} signatures/s", String.format("%.0f", localRate));
+        log.info("  Remote signer: {} signatures/s", String.format("%.0f", remoteRate));
+
+        // The local signatures should not be bound by the round trips
+        assertTrue(localRate > remoteRate);
+    }
+
+    /**
+     * Generates the provided number of signatures on the concurrent signers.
+     *
+     * @param signing the signing operation
+     * @param count the number of signatures
+     * @return the signatures generated per second
+     */
+    private double run(Supplier<byte[]> signing, int count) throws Exception {
+        final ExecutorService signers = Executors.newFixedThreadPool(SIGNERS);
+        final List<Future<byte[]>> signatures = new ArrayList<>(count);
+        final long start = System.nanoTime();
+        for(int i = 0; i < count; i++) {
+            signatures.add(signers.submit(signing::get));
+        }
+        for(Future<byte[]> signature : signatures) {
+            assertNotNull(signature.get(30, TimeUnit.SECONDS));
+        }
+        final long elapsed = System.nanoTime() - start;
+        signers.shutdownNow();
+        return count / (elapsed / 1e9);
+    }
+
+}
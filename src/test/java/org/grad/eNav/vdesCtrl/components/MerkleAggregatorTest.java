@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.eNav.vdesCtrl.utils.MerkleTree;
+import org.grad.vdes1000.formats.ais.messages.AISMessage21;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class MerkleAggregatorTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    MerkleAggregator merkleAggregator;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.merkleAggregator.maxWindowSize = 1024;
+        this.merkleAggregator.meterRegistry = new SimpleMeterRegistry();
+        this.merkleAggregator.init();
+    }
+
+    /**
+     * Test that the aggregator registers its metrics on initialisation.
+     */
+    @Test
+    void testInit() {
+        assertNotNull(this.merkleAggregator.meterRegistry.find("merkle.aggregator.window.size").summary());
+        assertNotNull(this.merkleAggregator.meterRegistry.find("merkle.aggregator.pending").gauge());
+    }
+
+    /**
+     * Test that closing a window computes the Merkle root over all the
+     * messages recorded in it, and that every message can be proven to be
+     * included in it.
+     */
+    @Test
+    void testClose() {
+        for(int i = 0; i < 5; i++) {
+            this.add(this, "aton" + i);
+        }
+        assertEquals(5.0, this.merkleAggregator.meterRegistry.find("merkle.aggregator.pending").gauge().value());
+
+        // Perform the component call
+        final Optional<MerkleAggregator.MerkleWindow> window = this.merkleAggregator.close(this);
+
+        // Make sure the window covers all the messages
+        assertTrue(window.isPresent());
+        assertEquals(5, window.get().getLeaves().size());
+        assertArrayEquals(MerkleTree.root(window.get().getLeaves()), window.get().getRoot());
+        for(int i = 0; i < 5; i++) {
+            assertTrue(MerkleTree.verify(window.get().getLeaves().get(i), i, 5, window.get().getProof(i), window.get().getRoot()));
+        }
+        assertEquals(1, this.merkleAggregator.meterRegistry.find("merkle.aggregator.window.size").summary().count());
+        assertEquals(0.0, this.merkleAggregator.meterRegistry.find("merkle.aggregator.pending").gauge().value());
+
+        // And that a new window was started
+        assertTrue(this.merkleAggregator.close(this).isEmpty());
+    }
+
+    /**
+     * Test that a window reaching the maximum size is closed early, and a
+     * new window is started for the following messages.
+     */
+    @Test
+    void testAddMaxWindowSize() {
+        this.merkleAggregator.maxWindowSize = 3;
+
+        // Perform the component calls
+        assertTrue(this.add(this, "aton1").isEmpty());
+        assertTrue(this.add(this, "aton2").isEmpty());
+        final Optional<MerkleAggregator.MerkleWindow> window = this.add(this, "aton3");
+        assertTrue(this.add(this, "aton4").isEmpty());
+
+        // Make sure the full window was closed and the next one started
+        assertTrue(window.isPresent());
+        assertEquals(3, window.get().getLeaves().size());
+        assertArrayEquals(MerkleTree.root(window.get().getLeaves()), window.get().getRoot());
+        assertEquals(1, this.merkleAggregator.close(this).map(next -> next.getLeaves().size()).orElse(0));
+        assertEquals(2, this.merkleAggregator.meterRegistry.find("merkle.aggregator.window.size").summary().count());
+    }
+
+    /**
+     * Test that a maximum window size which cannot be encoded in the digest
+     * lists is limited on initialisation.
+     */
+    @Test
+    void testInitMaxWindowSizeOutOfRange() {
+        this.merkleAggregator.maxWindowSize = 100000;
+
+        // Perform the component call
+        this.merkleAggregator.init();
+
+        // Make sure the window size was limited
+        assertEquals(MerkleAggregator.MAX_WINDOW_SIZE, this.merkleAggregator.maxWindowSize);
+    }
+
+    /**
+     * Test that the windows of the different owners are independent.
+     */
+    @Test
+    void testCloseDifferentOwners() {
+        final Object other = new Object();
+        this.add(this, "aton1");
+        this.add(other, "aton2");
+        this.add(other, "aton3");
+
+        // Perform the component calls
+        assertEquals(1, this.merkleAggregator.close(this).map(window -> window.getLeaves().size()).orElse(0));
+        assertEquals(2, this.merkleAggregator.close(other).map(window -> window.getLeaves().size()).orElse(0));
+    }
+
+    /**
+     * Test that cancelling an owner drops its current window.
+     */
+    @Test
+    void testCancel() {
+        this.add(this, "aton");
+
+        // Perform the component call
+        this.merkleAggregator.cancel(this);
+
+        // Make sure the window was dropped
+        assertTrue(this.merkleAggregator.close(this).isEmpty());
+    }
+
+    /**
+     * Test that the window signature is encoded along with the digest list.
+     */
+    @Test
+    void testToDigestList() {
+        this.add(this, "aton1");
+        this.add(this, "aton2");
+        final MerkleAggregator.MerkleWindow window = this.merkleAggregator.close(this).orElseThrow();
+        final byte[] signature = new byte[]{1, 2, 3, 4};
+
+        // Perform the component call
+        final ByteBuffer buffer = ByteBuffer.wrap(window.toDigestList(signature));
+
+        // Make sure the encoding is correct
+        assertEquals(1 + 4 + 4 + 2 + 2 * MerkleTree.HASH_SIZE, buffer.remaining());
+        assertEquals(4, buffer.get());
+        final byte[] encodedSignature = new byte[4];
+        buffer.get(encodedSignature);
+        assertArrayEquals(signature, encodedSignature);
+        assertEquals((int) window.getTimestamp(), buffer.getInt());
+        assertEquals(2, buffer.getShort());
+        final byte[] firstLeaf = new byte[MerkleTree.HASH_SIZE];
+        buffer.get(firstLeaf);
+        assertArrayEquals(window.getLeaves().getFirst(), firstLeaf);
+    }
+
+    /**
+     * Test that the encoded window signature is split into frames of at most
+     * the provided size, which add up to the full digest list.
+     */
+    @Test
+    void testToDigestFrames() {
+        this.add(this, "aton1");
+        this.add(this, "aton2");
+        final MerkleAggregator.MerkleWindow window = this.merkleAggregator.close(this).orElseThrow();
+        final byte[] signature = new byte[]{1, 2, 3, 4};
+        final byte[] digestList = window.toDigestList(signature);
+
+        // Perform the component call
+        final List<byte[]> frames = window.toDigestFrames(signature, 32);
+
+        // Make sure the frames add up to the digest list
+        assertEquals(3, frames.size());
+        assertTrue(frames.stream().allMatch(frame -> frame.length <= 32));
+        final ByteBuffer buffer = ByteBuffer.allocate(digestList.length);
+        frames.forEach(buffer::put);
+        assertArrayEquals(digestList, buffer.array());
+
+        // And that a large enough frame holds the whole digest list
+        assertEquals(1, window.toDigestFrames(signature, 512).size());
+    }
+
+    /**
+     * Helper function to create a test AIS message 21 for an AtoN.
+     *
+     * @param uid the AtoN UID
+     * @return the AIS message 21
+     */
+    private AISMessage21 newMessage(String uid) {
+        final AISMessage21 message = new AISMessage21();
+        message.setUid(uid);
+        return message;
+    }
+
+    /**
+     * Helper function to add a test AIS message 21 with the provided UID into
+     * the window of the provided owner, along with its binary payload.
+     *
+     * @param owner the owner of the transmission
+     * @param uid the message UID
+     * @return the window closed early, if it was filled up by the message
+     */
+    private Optional<MerkleAggregator.MerkleWindow> add(Object owner, String uid) {
+        final AISMessage21 message = this.newMessage(uid);
+        return this.merkleAggregator.add(owner, message, message.getBinaryMessageString());
+    }
+
+}
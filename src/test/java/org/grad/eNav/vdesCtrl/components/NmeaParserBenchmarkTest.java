@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The NMEA Parser Benchmark.
+ * <p/>
+ * Measures the number of sentences the parser can handle per second on a
+ * single core, for both single and multi-sentence messages. Each run is
+ * preceded by a warm-up, so that the figures reflect the compiled code.
+ * <p/>
+ * This is only run on demand, i.e. with "mvn test -Dbenchmark=true
+ * -Dtest=NmeaParserBenchmarkTest".
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class NmeaParserBenchmarkTest {
+
+    /**
+     * The number of sentences per run.
+     */
+    static final int SENTENCES = 2_000_000;
+
+    // Test Variables
+    private NmeaParser nmeaParser;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.nmeaParser = new NmeaParser();
+        this.nmeaParser.enabled = true;
+        this.nmeaParser.maxPending = 256;
+        this.nmeaParser.fragmentTimeout = 2000L;
+        this.nmeaParser.meterRegistry = new SimpleMeterRegistry();
+        this.nmeaParser.init();
+    }
+
+    /**
+     * Benchmark the parsing of single sentence messages, including the
+     * decoding of their header fields.
+     */
+    @Test
+    void benchmarkSingleSentence() {
+        final byte[] sentence = NmeaParserTest.SINGLE.getBytes(StandardCharsets.US_ASCII);
+        this.run(sentence, SENTENCES / 10);
+        final double rate = this.run(sentence, SENTENCES);
+        log.info("Single sentence messages: {} sentences/s", String.format("%.0f", rate));
+    }
+
+    /**
+     * Benchmark the parsing and reassembly of two-sentence messages.
+     */
+    @Test
+    void benchmarkMultiSentence() {
+        final byte[] first = NmeaParserTest.FIRST.getBytes(StandardCharsets.US_ASCII);
+        final byte[] second = NmeaParserTest.SECOND.getBytes(StandardCharsets.US_ASCII);
+        this.run(first, second, SENTENCES / 10);
+        final double rate = this.run(first, second, SENTENCES);
+        log.info("Two-sentence messages: {} sentences/s", String.format("%.0f", rate));
+    }
+
+    /**
+     * Parses the provided sentence repeatedly.
+     *
+     * @param sentence the sentence to parse
+     * @param count the number of times to parse it
+     * @return the sentences parsed per second
+     */
+    private double run(byte[] sentence, int count) {
+        long mmsi = 0;
+        final long start = System.nanoTime();
+        for(int i = 0; i < count; i++) {
+            mmsi += this.nmeaParser.parse(this, sentence).orElseThrow().getMmsi();
+        }
+        final long elapsed = System.nanoTime() - start;
+        assertEquals(477553000L * count, mmsi);
+        return count / (elapsed / 1e9);
+    }
+
+    /**
+     * Parses the provided pair of sentences repeatedly.
+     *
+     * @param first the first sentence of the message
+     * @param second the second sentence of the message
+     * @param count the number of sentences to parse
+     * @return the sentences parsed per second
+     */
+    private double run(byte[] first, byte[] second, int count) {
+        long mmsi = 0;
+        final long start = System.nanoTime();
+        for(int i = 0; i < count / 2; i++) {
+            this.nmeaParser.parse(this, first);
+            mmsi += this.nmeaParser.parse(this, second).orElseThrow().getMmsi();
+        }
+        final long elapsed = System.nanoTime() - start;
+        assertEquals(351759000L * (count / 2), mmsi);
+        return count / (elapsed / 1e9);
+    }
+
+}
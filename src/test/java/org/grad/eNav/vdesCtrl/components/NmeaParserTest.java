@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.eNav.vdesCtrl.models.dtos.AisMessageDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class NmeaParserTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    NmeaParser nmeaParser;
+
+    // Test Variables
+    static final String SINGLE = "!AIVDM,1,1,,B,177KQJ5000G?tO`K>RA1wUbN0TKH,0*5C";
+    static final String FIRST = "!AIVDM,2,1,1,A,55?MbV02;H;s<HtKR20EHE:0@T4@Dn2222222216L961O5Gf0NSQEp6ClRp8,0*1C";
+    static final String SECOND = "!AIVDM,2,2,1,A,88888888880,2*25";
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.nmeaParser.enabled = true;
+        this.nmeaParser.maxPending = 2;
+        this.nmeaParser.fragmentTimeout = 2000L;
+        this.nmeaParser.meterRegistry = new SimpleMeterRegistry();
+        this.nmeaParser.init();
+    }
+
+    /**
+     * Test that single sentence messages are parsed and decoded straight
+     * away.
+     */
+    @Test
+    void testParseSingle() {
+        // Perform the component call
+        final Optional<AisMessageDto> result = this.nmeaParser.parse(this, SINGLE);
+
+        // Make sure the message was decoded correctly
+        assertTrue(result.isPresent());
+        assertEquals("VDM", result.get().getSentenceType());
+        assertEquals('B', result.get().getChannel());
+        assertFalse(result.get().isOwn());
+        assertEquals(168, result.get().getBitLength());
+        assertEquals(1, result.get().getMessageType());
+        assertEquals(0, result.get().getRepeatIndicator());
+        assertEquals(477553000L, result.get().getMmsi());
+        assertEquals(1.0, this.nmeaParser.meterRegistry.find("nmea.parser.messages").counter().count());
+    }
+
+    /**
+     * Test that the position reports can be accessed through their typed
+     * view, and not through the views of the other types.
+     */
+    @Test
+    void testParsePositionReport() {
+        // Perform the component call
+        final AisMessageDto message = this.nmeaParser.parse(this, SINGLE).orElseThrow();
+
+        // Make sure the position report was decoded correctly
+        final AisMessageDto.PositionReport report = message.asPositionReport().orElseThrow();
+        assertEquals(5, report.getNavigationStatus());
+        assertEquals(0.0, report.getSpeedOverGround());
+        assertEquals(-122.345833, report.getLongitude(), 0.000001);
+        assertEquals(47.582833, report.getLatitude(), 0.000001);
+        assertEquals(51.0, report.getCourseOverGround());
+        assertEquals(181, report.getTrueHeading());
+        assertEquals(15, report.getTimestamp());
+        assertTrue(message.asAtonReport().isEmpty());
+        assertTrue(message.asBinaryMessage().isEmpty());
+    }
+
+    /**
+     * Test that the AtoN reports can be accessed through their typed view.
+     */
+    @Test
+    void testParseAtonReport() {
+        // Perform the component call
+        final AisMessageDto message = this.nmeaParser.parse(this, withChecksum("!AIVDM,1,1,,A,E>jHC60b2ab@0b7W00000000000@3aOh?E`>050H@;g010,4")).orElseThrow();
+
+        // Make sure the AtoN report was decoded correctly
+        final AisMessageDto.AtonReport report = message.asAtonReport().orElseThrow();
+        assertEquals(992351000L, message.getMmsi());
+        assertEquals(1, report.getAtonType());
+        assertEquals("TEST ATON", report.getName());
+        assertEquals(1.594, report.getLongitude(), 0.000001);
+        assertEquals(53.61, report.getLatitude(), 0.000001);
+        assertEquals(8, report.getLength());
+        assertEquals(3, report.getWidth());
+        assertEquals(30, report.getTimestamp());
+        assertTrue(report.getVirtual());
+        assertTrue(message.asPositionReport().isEmpty());
+    }
+
+    /**
+     * Test that the addressed and broadcast binary messages can be accessed
+     * through their typed view.
+     */
+    @Test
+    void testParseBinaryMessage() {
+        // Perform the component calls
+        final AisMessageDto.BinaryMessage broadcast = this.nmeaParser.parse(this, withChecksum("!AIVDM,1,1,,A,8>jHC60rjP420h@,2"))
+                .flatMap(AisMessageDto::asBinaryMessage)
+                .orElseThrow();
+        final AisMessageDto.BinaryMessage addressed = this.nmeaParser.parse(this, withChecksum("!AIVDM,1,1,,A,6>jHC64MKkAD>dbck@,4"))
+                .flatMap(AisMessageDto::asBinaryMessage)
+                .orElseThrow();
+
+        // Make sure the broadcast message was decoded correctly
+        assertFalse(broadcast.isAddressed());
+        assertNull(broadcast.getDestinationMmsi());
+        assertEquals(235, broadcast.getDac());
+        assertEquals(10, broadcast.getFid());
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, broadcast.getData());
+
+        // And so was the addressed one
+        assertTrue(addressed.isAddressed());
+        assertEquals(123456789L, addressed.getDestinationMmsi());
+        assertEquals(235, addressed.getDac());
+        assertEquals(10, addressed.getFid());
+        assertArrayEquals(new byte[]{(byte) 0xAB, (byte) 0xCD}, addressed.getData());
+    }
+
+    /**
+     * Test that multi-sentence messages are reassembled, even when the
+     * sentences are preceded by tag blocks.
+     */
+    @Test
+    void testParseMultiSentence() {
+        // Perform the component calls
+        assertTrue(this.nmeaParser.parse(this, FIRST).isEmpty());
+        assertEquals(1, this.nmeaParser.getPending());
+        final Optional<AisMessageDto> result = this.nmeaParser.parse(this, "\\s:station*00\\" + SECOND);
+
+        // Make sure the message was reassembled and decoded correctly
+        assertTrue(result.isPresent());
+        assertEquals(0, this.nmeaParser.getPending());
+        assertEquals(424, result.get().getBitLength());
+        assertEquals(5, result.get().getMessageType());
+        assertEquals(351759000L, result.get().getMmsi());
+        assertEquals("3FOF8", result.get().getText(70, 42));
+        assertEquals("EVER DIADEM", result.get().getText(112, 120));
+    }
+
+    /**
+     * Test that multi-sentence messages received out of order are
+     * reassembled with the fill bits of their last fragment.
+     */
+    @Test
+    void testParseMultiSentenceOutOfOrder() {
+        // Perform the component calls
+        assertTrue(this.nmeaParser.parse(this, SECOND).isEmpty());
+        final Optional<AisMessageDto> result = this.nmeaParser.parse(this, FIRST);
+
+        // Make sure the message was reassembled with the right bit length
+        assertTrue(result.isPresent());
+        assertEquals(424, result.get().getBitLength());
+        assertEquals("EVER DIADEM", result.get().getText(112, 120));
+    }
+
+    /**
+     * Test that the sentences claiming more fragments than an AIS message
+     * can span are rejected, without being held for reassembly.
+     */
+    @Test
+    void testParseTooManyFragments() {
+        // Perform the component calls
+        assertTrue(this.nmeaParser.parse(this, withChecksum("!AIVDM,999999,1,1,A,88888888880,2")).isEmpty());
+        assertTrue(this.nmeaParser.parse(this, withChecksum("!AIVDM,10,10,1,A,88888888880,2")).isEmpty());
+
+        // Make sure both were rejected
+        assertEquals(0, this.nmeaParser.getPending());
+        assertEquals(2.0, this.nmeaParser.meterRegistry.find("nmea.parser.invalid").counter().count());
+    }
+
+    /**
+     * Test that the fragments of different sources are not mixed up.
+     */
+    @Test
+    void testParseMultiSentenceSources() {
+        // Perform the component calls
+        assertTrue(this.nmeaParser.parse(this, FIRST).isEmpty());
+        assertTrue(this.nmeaParser.parse(new Object(), SECOND).isEmpty());
+
+        // Make sure both messages are still pending
+        assertEquals(2, this.nmeaParser.getPending());
+    }
+
+    /**
+     * Test that the number of messages being reassembled is bounded, and
+     * that the oldest ones get dropped.
+     */
+    @Test
+    void testParseBounded() {
+        // Perform the component calls
+        this.nmeaParser.parse(new Object(), FIRST);
+        this.nmeaParser.parse(new Object(), FIRST);
+        this.nmeaParser.parse(new Object(), FIRST);
+
+        // Make sure the oldest message was dropped
+        assertEquals(2, this.nmeaParser.getPending());
+        assertEquals(1.0, this.nmeaParser.meterRegistry.find("nmea.parser.dropped").counter().count());
+    }
+
+    /**
+     * Test that the messages not completed within the fragment timeout get
+     * dropped.
+     */
+    @Test
+    void testParseExpired() {
+        this.nmeaParser.fragmentTimeout = -1L;
+
+        // Perform the component calls
+        assertTrue(this.nmeaParser.parse(this, FIRST).isEmpty());
+        assertTrue(this.nmeaParser.parse(this, SECOND).isEmpty());
+
+        // Make sure the expired message was dropped
+        assertEquals(1.0, this.nmeaParser.meterRegistry.find("nmea.parser.dropped").counter().count());
+    }
+
+    /**
+     * Test that the sentences with invalid checksums or fields are rejected,
+     * while other sentence types are just ignored.
+     */
+    @Test
+    void testParseInvalid() {
+        // Perform the component calls
+        assertTrue(this.nmeaParser.parse(this, SINGLE.replace("*5C", "*5D")).isEmpty());
+        assertTrue(this.nmeaParser.parse(this, SINGLE.replace("*5C", "")).isEmpty());
+        assertTrue(this.nmeaParser.parse(this, "!AIVDM,1,1,,B,177KQJ5000G?tO`K>RA1wUbN0TKH*52").isEmpty());
+        assertTrue(this.nmeaParser.parse(this, "$AIABK,,A,8,5,3*17").isEmpty());
+        assertTrue(this.nmeaParser.parse(this, (String) null).isEmpty());
+
+        // Make sure only the invalid VDM sentences were counted
+        assertEquals(2.0, this.nmeaParser.meterRegistry.find("nmea.parser.invalid").counter().count());
+    }
+
+    /**
+     * Test that nothing is parsed while the parser is disabled.
+     */
+    @Test
+    void testParseDisabled() {
+        this.nmeaParser.enabled = false;
+
+        // Make sure nothing was parsed
+        assertTrue(this.nmeaParser.parse(this, SINGLE).isEmpty());
+    }
+
+    /**
+     * Test that the messages of a cancelled source being reassembled get
+     * dropped.
+     */
+    @Test
+    void testCancel() {
+        this.nmeaParser.parse(this, FIRST);
+
+        // Perform the component call
+        this.nmeaParser.cancel(this);
+
+        // Make sure the message was dropped
+        assertEquals(0, this.nmeaParser.getPending());
+        assertTrue(this.nmeaParser.parse(this, SECOND).isEmpty());
+    }
+
+    /**
+     * Helper function to append the checksum to a test sentence.
+     *
+     * @param sentence the sentence without its checksum
+     * @return the sentence with its checksum
+     */
+    static String withChecksum(String sentence) {
+        int checksum = 0;
+        for(int i = 1; i < sentence.length(); i++) {
+            checksum ^= sentence.charAt(i);
+        }
+        return String.format("%s*%02X", sentence, checksum);
+    }
+
+}
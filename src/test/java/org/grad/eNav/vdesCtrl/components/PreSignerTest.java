@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.vdes1000.formats.ais.messages.AISMessage21;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PreSignerTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    PreSigner preSigner;
+
+    /**
+     * The Signature Pipeline mock.
+     */
+    @Mock
+    SignaturePipeline signaturePipeline;
+
+    // Test Variables
+    private AISMessage21 planned;
+    private byte[] signature;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        // Plan a message for now, truncated to a second like the AIS timestamps
+        this.planned = this.newMessage(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+        this.signature = new byte[]{1, 2, 3};
+
+        // Let the signature pipeline sign right away
+        lenient().doAnswer(inv -> CompletableFuture.completedFuture(inv.<Callable<Object>>getArgument(0).call()))
+                .when(this.signaturePipeline).signAsync(any());
+
+        // Initialise the pre-signer
+        this.preSigner.enabled = true;
+        this.preSigner.tolerance = 5000L;
+        this.preSigner.meterRegistry = new SimpleMeterRegistry();
+        this.preSigner.init();
+    }
+
+    /**
+     * Test that the pre-signer registers its metrics on initialisation.
+     */
+    @Test
+    void testInit() {
+        assertNotNull(this.preSigner.meterRegistry.find("pre.signer.lookups").tag("result", "hit").functionCounter());
+        assertNotNull(this.preSigner.meterRegistry.find("pre.signer.lookups").tag("result", "miss").functionCounter());
+        assertNotNull(this.preSigner.meterRegistry.find("pre.signer.lookups").tag("result", "discarded").functionCounter());
+        assertNotNull(this.preSigner.meterRegistry.find("pre.signer.hit.rate").gauge());
+    }
+
+    /**
+     * Test that a pre-computed signature is used when the message is
+     * transmitted on time, and the message gets stamped with the planned
+     * time.
+     */
+    @Test
+    void testTakeHit() {
+        this.preSigner.preSign(this, "aton", this.planned, () -> this.signature);
+
+        // Perform the component call with a message stamped slightly later
+        final AISMessage21 message = this.newMessage(this.planned.getTimestamp().plusSeconds(1));
+        final Optional<byte[]> result = this.preSigner.take(this, "aton", message);
+
+        // Make sure the pre-computed signature was used
+        assertTrue(result.isPresent());
+        assertArrayEquals(this.signature, result.get());
+        assertEquals(this.planned.getTimestamp(), message.getTimestamp());
+        assertEquals(1.0, this.preSigner.getHitRate());
+        assertEquals(1.0, this.preSigner.meterRegistry.find("pre.signer.lookups").tag("result", "hit").functionCounter().count());
+    }
+
+    /**
+     * Test that a pre-computed signature can only be used once.
+     */
+    @Test
+    void testTakeMiss() {
+        this.preSigner.preSign(this, "aton", this.planned, () -> this.signature);
+
+        // Perform the component calls
+        assertTrue(this.preSigner.take(this, "aton", this.newMessage(this.planned.getTimestamp())).isPresent());
+        assertTrue(this.preSigner.take(this, "aton", this.newMessage(this.planned.getTimestamp())).isEmpty());
+        assertTrue(this.preSigner.take(this, "other", this.newMessage(this.planned.getTimestamp())).isEmpty());
+
+        // Make sure the misses were counted
+        assertEquals(2.0, this.preSigner.meterRegistry.find("pre.signer.lookups").tag("result", "miss").functionCounter().count());
+        assertEquals(1.0 / 3, this.preSigner.getHitRate(), 0.001);
+    }
+
+    /**
+     * Test that a pre-computed signature is discarded when the transmission
+     * falls outside the tolerance of its planned time.
+     */
+    @Test
+    void testTakeOutsideTolerance() {
+        final AISMessage21 late = this.newMessage(this.planned.getTimestamp().minusMinutes(1));
+        this.preSigner.preSign(this, "aton", late, () -> this.signature);
+
+        // Perform the component call
+        final AISMessage21 message = this.newMessage(this.planned.getTimestamp());
+        assertTrue(this.preSigner.take(this, "aton", message).isEmpty());
+
+        // Make sure the message was left untouched
+        assertEquals(this.planned.getTimestamp(), message.getTimestamp());
+        assertEquals(1.0, this.preSigner.meterRegistry.find("pre.signer.lookups").tag("result", "discarded").functionCounter().count());
+    }
+
+    /**
+     * Test that a pre-computed signature is discarded when the message
+     * content has changed since it was generated.
+     */
+    @Test
+    void testTakeContentChanged() {
+        this.preSigner.preSign(this, "aton", this.planned, () -> this.signature);
+
+        // Perform the component call with a different message
+        final AISMessage21 message = this.newMessage(this.planned.getTimestamp().plusSeconds(1));
+        message.setUid("changed");
+        assertTrue(this.preSigner.take(this, "aton", message).isEmpty());
+
+        // Make sure the message kept its own timestamp
+        assertEquals(this.planned.getTimestamp().plusSeconds(1), message.getTimestamp());
+        assertEquals(1.0, this.preSigner.meterRegistry.find("pre.signer.lookups").tag("result", "discarded").functionCounter().count());
+    }
+
+    /**
+     * Test that a pre-computed signature is discarded when its generation
+     * has not completed in time, or has failed.
+     */
+    @Test
+    void testTakeNotReady() {
+        doReturn(new CompletableFuture<>()).when(this.signaturePipeline).signAsync(any());
+        this.preSigner.preSign(this, "aton", this.planned, () -> this.signature);
+        assertTrue(this.preSigner.take(this, "aton", this.newMessage(this.planned.getTimestamp())).isEmpty());
+
+        doReturn(CompletableFuture.completedFuture(null)).when(this.signaturePipeline).signAsync(any());
+        this.preSigner.preSign(this, "aton", this.planned, () -> null);
+        assertTrue(this.preSigner.take(this, "aton", this.newMessage(this.planned.getTimestamp())).isEmpty());
+
+        // Make sure both were discarded
+        assertEquals(2.0, this.preSigner.meterRegistry.find("pre.signer.lookups").tag("result", "discarded").functionCounter().count());
+    }
+
+    /**
+     * Test that nothing is pre-signed or looked up while disabled.
+     */
+    @Test
+    void testDisabled() {
+        this.preSigner.enabled = false;
+
+        // Perform the component calls
+        this.preSigner.preSign(this, "aton", this.planned, () -> this.signature);
+        assertTrue(this.preSigner.take(this, "aton", this.newMessage(this.planned.getTimestamp())).isEmpty());
+
+        // Make sure nothing was signed or counted
+        verify(this.signaturePipeline, never()).signAsync(any());
+        assertEquals(0.0, this.preSigner.getHitRate());
+    }
+
+    /**
+     * Test that only the pre-computed signatures of the retained keys are
+     * kept, and that cancelling an owner drops all of them.
+     */
+    @Test
+    void testRetainAndCancel() {
+        this.preSigner.preSign(this, "aton1", this.planned, () -> this.signature);
+        this.preSigner.preSign(this, "aton2", this.planned, () -> this.signature);
+
+        // Retain only the first AtoN
+        this.preSigner.retain(this, Collections.singleton("aton1"));
+        assertEquals(Collections.singleton("aton1"), this.preSigner.entries.get(this).keySet());
+
+        // And cancel the owner
+        this.preSigner.cancel(this);
+        assertTrue(this.preSigner.entries.isEmpty());
+    }
+
+    /**
+     * Helper function to create a test AIS message 21 with the provided
+     * timestamp.
+     *
+     * @param timestamp the message timestamp
+     * @return the AIS message 21
+     */
+    private AISMessage21 newMessage(LocalDateTime timestamp) {
+        final AISMessage21 message = new AISMessage21();
+        message.setUid("aton");
+        message.setTimestamp(timestamp);
+        return message;
+    }
+
+}
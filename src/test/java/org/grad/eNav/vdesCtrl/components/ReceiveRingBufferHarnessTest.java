@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.grad.eNav.vdesCtrl.models.domain.StationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The Receive Ring Buffer Harness.
+ * <p/>
+ * Feeds the ring buffer with synthetic NMEA sentences from a number of
+ * stations, at the documented throughput target of 50k messages per second,
+ * through a web-socket like subscriber that decodes each sentence, and a
+ * forwarding like one that only counts them. The target is met if every
+ * message reaches both subscribers without any drops.
+ * <p/>
+ * This is only run on demand, i.e. with "mvn test -Dbenchmark=true
+ * -Dtest=ReceiveRingBufferHarnessTest".
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ReceiveRingBufferHarnessTest {
+
+    /**
+     * The target rate in messages per second.
+     */
+    static final int RATE = 50_000;
+
+    /**
+     * The duration of the run in seconds.
+     */
+    static final int SECONDS = 10;
+
+    /**
+     * The number of publishing stations.
+     */
+    static final int STATIONS = 4;
+
+    // Test Variables
+    private ReceiveRingBuffer receiveRingBuffer;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.receiveRingBuffer = new ReceiveRingBuffer();
+        this.receiveRingBuffer.enabled = true;
+        this.receiveRingBuffer.capacity = 8192;
+        this.receiveRingBuffer.batchSize = 256;
+        this.receiveRingBuffer.idleWaitMicros = 50L;
+        this.receiveRingBuffer.maxIdleWaitMillis = 100L;
+        this.receiveRingBuffer.meterRegistry = new SimpleMeterRegistry();
+        this.receiveRingBuffer.init();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.receiveRingBuffer.destroy();
+    }
+
+    /**
+     * Feed the ring buffer at the target rate and make sure no messages were
+     * dropped.
+     */
+    @Test
+    void harnessTargetRate() throws InterruptedException {
+        final AtomicLong decoded = new AtomicLong();
+        final AtomicLong forwarded = new AtomicLong();
+        this.receiveRingBuffer.subscribe("websocket", (source, payload, endOfBatch) -> {
+            if(!new String((byte[]) payload, StandardCharsets.US_ASCII).isEmpty()) {
+                decoded.incrementAndGet();
+            }
+        });
+        this.receiveRingBuffer.subscribe("forwarding", (source, payload, endOfBatch) -> forwarded.incrementAndGet());
+
+        // Each station publishes its share of the target rate on a thread of its own
+        final long perStation = RATE / STATIONS;
+        final long interval = 1_000_000_000L / perStation;
+        final byte[] sentence = NmeaParserTest.SINGLE.getBytes(StandardCharsets.US_ASCII);
+        final AtomicLong dropped = new AtomicLong();
+        final List<Thread> threads = new ArrayList<>();
+        final long start = System.nanoTime();
+        for(int s = 0; s < STATIONS; s++) {
+            final ReceiveRingBuffer.Source source = new ReceiveRingBuffer.Source(this, StationType.VDES_1000, "10.0.0." + s, 8000 + s, null);
+            final Thread thread = new Thread(() -> {
+                for(long i = 0; i < perStation * SECONDS; i++) {
+                    while(System.nanoTime() < start + i * interval) {
+                        Thread.onSpinWait();
+                    }
+                    if(!this.receiveRingBuffer.publish(source, sentence)) {
+                        dropped.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        final double elapsed = (System.nanoTime() - start) / 1e9;
+
+        // Wait for the subscribers to catch up
+        final long deadline = System.currentTimeMillis() + 5000;
+        while(this.receiveRingBuffer.getBacklog() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Report and check the results
+        final long total = perStation * SECONDS * STATIONS;
+        log.info("Ring buffer harness: {} messages in {}s ({} msg/s), {} dropped",
+                total, String.format("%.2f", elapsed), String.format("%.0f", total / elapsed), dropped.get());
+        assertEquals(0, dropped.get());
+        assertEquals(total, decoded.get());
+        assertEquals(total, forwarded.get());
+    }
+
+}
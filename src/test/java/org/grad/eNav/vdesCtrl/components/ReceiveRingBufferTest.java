@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.eNav.vdesCtrl.models.domain.Station;
+import org.grad.eNav.vdesCtrl.models.domain.StationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReceiveRingBufferTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    ReceiveRingBuffer receiveRingBuffer;
+
+    // Test Variables
+    private ReceiveRingBuffer.Source source;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        // Create a station to receive the messages from
+        final Station station = new Station();
+        station.setId(BigInteger.ONE);
+        station.setType(StationType.VDES_1000);
+        station.setIpAddress("10.0.0.2");
+        station.setBroadcastPort(8003);
+        station.setMmsi("222222222");
+
+        // Initialise the ring buffer
+        this.receiveRingBuffer.enabled = true;
+        this.receiveRingBuffer.capacity = 6;
+        this.receiveRingBuffer.batchSize = 4;
+        this.receiveRingBuffer.idleWaitMicros = 50L;
+        this.receiveRingBuffer.maxIdleWaitMillis = 100L;
+        this.receiveRingBuffer.meterRegistry = new SimpleMeterRegistry();
+        this.receiveRingBuffer.init();
+        this.source = this.receiveRingBuffer.source(this, station);
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.receiveRingBuffer.destroy();
+    }
+
+    /**
+     * Test that the ring capacity is rounded up to a power of two, and that
+     * the station sources are created correctly.
+     */
+    @Test
+    void testInit() {
+        assertEquals(8, this.receiveRingBuffer.events.length);
+        assertEquals(7, this.receiveRingBuffer.mask);
+        assertEquals(1, this.receiveRingBuffer.subscribers.size());
+        assertSame(this, this.source.getOwner());
+        assertEquals(StationType.VDES_1000, this.source.getType());
+        assertEquals("10.0.0.2", this.source.getAddress());
+        assertEquals(8003, this.source.getPort());
+        assertEquals("222222222", this.source.getMmsi());
+    }
+
+    /**
+     * Test that all the subscribers receive all the published messages, in
+     * order, along with their source.
+     */
+    @Test
+    void testPublish() throws InterruptedException {
+        final BlockingQueue<Object> first = new LinkedBlockingQueue<>();
+        final BlockingQueue<Object> second = new LinkedBlockingQueue<>();
+        this.receiveRingBuffer.subscribe("first", (source, payload, endOfBatch) -> {
+            assertSame(this.source, source);
+            first.add(payload);
+        });
+        this.receiveRingBuffer.subscribe("second", (source, payload, endOfBatch) -> second.add(payload));
+
+        // Perform the component calls, wrapping around the ring
+        for(int i = 0; i < 20; i++) {
+            while(!this.receiveRingBuffer.publish(this.source, "message" + i)) {
+                Thread.sleep(1);
+            }
+        }
+
+        // Make sure both subscribers received everything in order
+        for(int i = 0; i < 20; i++) {
+            assertEquals("message" + i, first.poll(2, TimeUnit.SECONDS));
+            assertEquals("message" + i, second.poll(2, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Test that the subscribers backed off for a long time while idle are
+     * woken up as soon as a new message is published.
+     */
+    @Test
+    void testPublishAfterIdle() throws InterruptedException {
+        this.receiveRingBuffer.maxIdleWaitMillis = 60000L;
+        final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+        this.receiveRingBuffer.subscribe("idle", (source, payload, endOfBatch) -> received.add(payload));
+
+        // Let the subscriber back off for well over a second
+        Thread.sleep(1500);
+
+        // Perform the component call
+        assertTrue(this.receiveRingBuffer.publish(this.source, "message"));
+
+        // Make sure the message was received without waiting for the back-off
+        assertEquals("message", received.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Test that when the slowest subscriber falls a full ring behind, the new
+     * messages are dropped instead of blocking the publisher.
+     */
+    @Test
+    void testPublishFull() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        this.receiveRingBuffer.subscribe("slow", (source, payload, endOfBatch) -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Fill up the ring while the subscriber is blocked on the first message,
+        // which it still holds until its batch is complete
+        assertTrue(this.receiveRingBuffer.publish(this.source, "first"));
+        assertTrue(blocked.await(2, TimeUnit.SECONDS));
+        for(int i = 1; i < 7; i++) {
+            assertTrue(this.receiveRingBuffer.publish(this.source, "message" + i));
+        }
+
+        // Make sure the next message is dropped
+        assertFalse(this.receiveRingBuffer.publish(this.source, "dropped"));
+        assertEquals(1.0, this.receiveRingBuffer.meterRegistry.find("receive.ring.dropped").counter().count());
+        assertEquals(7, this.receiveRingBuffer.getBacklog());
+        release.countDown();
+    }
+
+    /**
+     * Test that the metrics subscriber counts the received messages per
+     * type.
+     */
+    @Test
+    void testMetrics() throws InterruptedException {
+        // Perform the component calls
+        this.receiveRingBuffer.publish(this.source, "sentence");
+        this.receiveRingBuffer.publish(this.source, "raw".getBytes(StandardCharsets.US_ASCII));
+
+        // Make sure the messages were counted
+        final long deadline = System.currentTimeMillis() + 2000;
+        while(this.receiveRingBuffer.getBacklog() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        for(String type : List.of("sentence", "raw")) {
+            assertEquals(1.0, this.receiveRingBuffer.meterRegistry.find("receive.ring.messages").tag("type", type).counter().count());
+        }
+        assertEquals(0.0, this.receiveRingBuffer.meterRegistry.find("receive.ring.messages").tag("type", "ais").counter().count());
+        assertEquals(2.0, this.receiveRingBuffer.meterRegistry.find("receive.ring.published").counter().count());
+    }
+
+}
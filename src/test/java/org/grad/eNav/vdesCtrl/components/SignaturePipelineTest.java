@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.eNav.vdesCtrl.feign.CKeeperClient;
+import org.grad.eNav.vdesCtrl.models.domain.McpEntityType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class SignaturePipelineTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    SignaturePipeline signaturePipeline;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.signaturePipeline.maxInFlight = 4;
+        this.signaturePipeline.queueCapacity = 8;
+        this.signaturePipeline.meterRegistry = new SimpleMeterRegistry();
+        this.signaturePipeline.init();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.signaturePipeline.destroy();
+    }
+
+    /**
+     * Test that the pipeline registers its metrics on initialisation.
+     */
+    @Test
+    void testInit() {
+        assertNotNull(this.signaturePipeline.meterRegistry.find("signature.pipeline.latency").timer());
+        assertNotNull(this.signaturePipeline.meterRegistry.find("signature.pipeline.in.flight").gauge());
+        assertNotNull(this.signaturePipeline.meterRegistry.find("signature.pipeline.queued").gauge());
+        assertNotNull(this.signaturePipeline.meterRegistry.find("signature.pipeline.rejected").counter());
+    }
+
+    /**
+     * Test that the transmissions are performed in the order they were
+     * submitted, even when the later signatures complete first.
+     */
+    @Test
+    void testSubmitKeepsOrder() throws Exception {
+        // The earlier requests are the slowest ones
+        final LatentCKeeperClient cKeeperClient = new LatentCKeeperClient(i -> (10 - i) * 10);
+        final List<String> transmitted = Collections.synchronizedList(new ArrayList<>());
+
+        // Perform the component calls
+        CompletableFuture<Void> last = null;
+        for(int i = 0; i < 10; i++) {
+            final String entityName = String.valueOf(i);
+            last = this.signaturePipeline.submit(this,
+                    () -> cKeeperClient.sign(entityName),
+                    signature -> transmitted.add(new String(signature, StandardCharsets.UTF_8)));
+        }
+        last.get(5, TimeUnit.SECONDS);
+
+        // Make sure the transmissions kept their order
+        assertEquals(List.of("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"), transmitted);
+        assertEquals(10, this.signaturePipeline.meterRegistry.find("signature.pipeline.latency").timer().count());
+    }
+
+    /**
+     * Test that the signature requests are sent concurrently, but never more
+     * than the configured number at a time.
+     */
+    @Test
+    void testSubmitConcurrently() throws Exception {
+        final LatentCKeeperClient cKeeperClient = new LatentCKeeperClient(i -> 100);
+
+        // Perform the component calls
+        final long start = System.currentTimeMillis();
+        CompletableFuture<Void> last = null;
+        for(int i = 0; i < 8; i++) {
+            final String entityName = String.valueOf(i);
+            last = this.signaturePipeline.submit(this, () -> cKeeperClient.sign(entityName), signature -> {});
+        }
+        last.get(5, TimeUnit.SECONDS);
+
+        // Make sure the requests overlapped without exceeding the limit
+        assertTrue(System.currentTimeMillis() - start < 8 * 100);
+        assertTrue(cKeeperClient.maxInFlight.get() > 1);
+        assertTrue(cKeeperClient.maxInFlight.get() <= 4);
+    }
+
+    /**
+     * Test that failing signatures still get transmitted, without a
+     * signature, and do not block the following transmissions.
+     */
+    @Test
+    void testSubmitSigningFailure() throws Exception {
+        final List<byte[]> transmitted = Collections.synchronizedList(new ArrayList<>());
+
+        // Perform the component calls
+        this.signaturePipeline.<byte[]>submit(this, () -> { throw new IllegalStateException("cKeeper unavailable"); }, transmitted::add);
+        this.signaturePipeline.submit(this, () -> new byte[]{1}, transmitted::add)
+                .get(5, TimeUnit.SECONDS);
+
+        // Make sure both transmissions were performed in order
+        assertEquals(2, transmitted.size());
+        assertNull(transmitted.get(0));
+        assertArrayEquals(new byte[]{1}, transmitted.get(1));
+    }
+
+    /**
+     * Test that once the signature queue is full, the new signature requests
+     * are shed and counted, while their transmissions are still performed in
+     * order without a signature.
+     */
+    @Test
+    void testSubmitQueueFull() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<byte[]> transmitted = Collections.synchronizedList(new ArrayList<>());
+
+        // Occupy all the signers and fill up the queue
+        for(int i = 0; i < 12; i++) {
+            this.signaturePipeline.submit(this, () -> {
+                release.await();
+                return new byte[]{1};
+            }, transmitted::add);
+        }
+
+        // Perform the component call
+        final CompletableFuture<Void> shed = this.signaturePipeline.submit(this, () -> new byte[]{2}, transmitted::add);
+        release.countDown();
+        shed.get(5, TimeUnit.SECONDS);
+
+        // Make sure the request was shed, but transmitted last without a signature
+        assertEquals(1, this.signaturePipeline.meterRegistry.find("signature.pipeline.rejected").counter().count());
+        assertEquals(13, transmitted.size());
+        assertNull(transmitted.getLast());
+    }
+
+    /**
+     * Test that a signing already completed, e.g. a signature generated ahead
+     * of time, does not take a signer, so it is not shed when the queue is
+     * full, while its transmission is still performed in order.
+     */
+    @Test
+    void testSubmitCompletedQueueFull() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<byte[]> transmitted = Collections.synchronizedList(new ArrayList<>());
+
+        // Occupy all the signers and fill up the queue
+        for(int i = 0; i < 12; i++) {
+            this.signaturePipeline.submit(this, () -> {
+                release.await();
+                return new byte[]{1};
+            }, transmitted::add);
+        }
+
+        // Perform the component call
+        final CompletableFuture<Void> completed = this.signaturePipeline.submit(this, CompletableFuture.completedFuture(new byte[]{2}), transmitted::add);
+        release.countDown();
+        completed.get(5, TimeUnit.SECONDS);
+
+        // Make sure the signature was not shed, and was transmitted last
+        assertEquals(0, this.signaturePipeline.meterRegistry.find("signature.pipeline.rejected").counter().count());
+        assertEquals(13, transmitted.size());
+        assertArrayEquals(new byte[]{2}, transmitted.getLast());
+    }
+
+    /**
+     * Test that the transmissions of the different owners are independent.
+     */
+    @Test
+    void testSubmitDifferentOwners() throws Exception {
+        final LatentCKeeperClient cKeeperClient = new LatentCKeeperClient(i -> i == 0 ? 500 : 0);
+        final List<String> transmitted = Collections.synchronizedList(new ArrayList<>());
+
+        // Perform the component calls
+        final CompletableFuture<Void> slow = this.signaturePipeline.submit(this,
+                () -> cKeeperClient.sign("0"),
+                signature -> transmitted.add("slow"));
+        this.signaturePipeline.submit(new Object(), () -> cKeeperClient.sign("1"), signature -> transmitted.add("fast"))
+                .get(5, TimeUnit.SECONDS);
+        slow.get(5, TimeUnit.SECONDS);
+
+        // Make sure the slow owner did not hold up the fast one
+        assertEquals(List.of("fast", "slow"), transmitted);
+    }
+
+    /**
+     * Test that the pending transmissions of cancelled owners are dropped.
+     */
+    @Test
+    void testCancel() throws Exception {
+        final LatentCKeeperClient cKeeperClient = new LatentCKeeperClient(i -> 100);
+        final AtomicInteger transmitted = new AtomicInteger();
+
+        // Perform the component calls
+        final CompletableFuture<Void> future = this.signaturePipeline.submit(this,
+                () -> cKeeperClient.sign("0"),
+                signature -> transmitted.incrementAndGet());
+        this.signaturePipeline.cancel(this);
+        future.get(5, TimeUnit.SECONDS);
+
+        // Make sure the transmission was never performed
+        assertEquals(0, transmitted.get());
+        assertTrue(this.signaturePipeline.owners.isEmpty());
+    }
+
+    /**
+     * A local stand-in for the cKeeper service, which responds after a
+     * configurable latency per request and keeps track of the maximum number
+     * of requests in flight.
+     */
+    static class LatentCKeeperClient implements CKeeperClient {
+
+        // Class Variables
+        private final LongUnaryOperator latency;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        /**
+         * The Latency Constructor.
+         *
+         * @param latency the latency in milliseconds for each numeric entity name
+         */
+        LatentCKeeperClient(LongUnaryOperator latency) {
+            this.latency = latency;
+        }
+
+        /**
+         * Signs the provided entity name, the same way as the advertisers do.
+         *
+         * @param entityName the entity name
+         * @return the signature
+         */
+        byte[] sign(String entityName) {
+            return this.generateEntitySignature(entityName, "0", "SHA256withCVC-ECDSA", McpEntityType.DEVICE.getValue(),
+                    entityName.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public byte[] generateEntitySignature(String entityName, String mmsi, String algorithm, String entityType, byte[] signaturePayload) {
+            this.maxInFlight.accumulateAndGet(this.inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(this.latency.applyAsLong(Long.parseLong(entityName)));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                this.inFlight.decrementAndGet();
+            }
+            return signaturePayload;
+        }
+
+    }
+
+}
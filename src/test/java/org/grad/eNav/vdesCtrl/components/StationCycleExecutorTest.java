@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class StationCycleExecutorTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    StationCycleExecutor stationCycleExecutor;
+
+    // Test Variables
+    private ExecutorService workers;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.workers = Executors.newFixedThreadPool(2);
+        this.stationCycleExecutor.period = 200L;
+        this.stationCycleExecutor.overlapPolicy = StationCycleExecutor.OverlapPolicy.COALESCE;
+        this.stationCycleExecutor.meterRegistry = new SimpleMeterRegistry();
+        this.stationCycleExecutor.init();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.stationCycleExecutor.destroy();
+        this.workers.shutdownNow();
+    }
+
+    /**
+     * Test that the executor registers its metrics on initialisation.
+     */
+    @Test
+    void testInit() {
+        assertNotNull(this.stationCycleExecutor.meterRegistry.find("station.cycle.active").gauge());
+    }
+
+    /**
+     * Test that the phase offsets of the stations are spread evenly across
+     * the cycle period, and that they are kept when registering again.
+     */
+    @Test
+    void testRegisterSpreadsPhaseOffsets() {
+        final List<Object> owners = new ArrayList<>();
+        for(int i = 0; i < 10; i++) {
+            owners.add(new Object());
+            this.stationCycleExecutor.register(owners.get(i), "station_" + i, this.workers);
+        }
+
+        // Sort the phase offsets
+        final List<Long> offsets = new ArrayList<>();
+        owners.forEach(owner -> offsets.add(this.stationCycleExecutor.getPhaseOffset(owner).orElseThrow()));
+        Collections.sort(offsets);
+
+        // Make sure there are no large gaps between the offsets
+        assertEquals(0L, offsets.getFirst());
+        assertTrue(offsets.getLast() < 200);
+        for(int i = 1; i < offsets.size(); i++) {
+            assertTrue(offsets.get(i) - offsets.get(i-1) <= 200 / 5);
+        }
+
+        // Registering again should not move the station
+        final Long offset = this.stationCycleExecutor.getPhaseOffset(owners.get(5)).orElseThrow();
+        this.stationCycleExecutor.register(owners.get(5), "station_5", this.workers);
+        assertEquals(offset, this.stationCycleExecutor.getPhaseOffset(owners.get(5)).orElseThrow());
+    }
+
+    /**
+     * Test that the station cycles are run no earlier than their phase
+     * offsets, and that the start lag is recorded for each station.
+     */
+    @Test
+    void testSubmit() throws InterruptedException {
+        final Object first = new Object();
+        final Object second = new Object();
+        this.stationCycleExecutor.register(first, "first", this.workers);
+        this.stationCycleExecutor.register(second, "second", this.workers);
+        final long offset = this.stationCycleExecutor.getPhaseOffset(second).orElseThrow();
+        final CountDownLatch latch = new CountDownLatch(2);
+        final List<Long> started = Collections.synchronizedList(new ArrayList<>());
+
+        // Perform the component calls
+        final long before = System.currentTimeMillis();
+        this.stationCycleExecutor.submit(first, latch::countDown);
+        this.stationCycleExecutor.submit(second, () -> {
+            started.add(System.currentTimeMillis());
+            latch.countDown();
+        });
+
+        // Make sure the cycles were run on their phase
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(started.getFirst() - before >= offset);
+        assertEquals(1, this.stationCycleExecutor.meterRegistry.find("station.cycle.start.lag").tag("station", "first").timer().count());
+        assertEquals(1, this.stationCycleExecutor.meterRegistry.find("station.cycle.start.lag").tag("station", "second").timer().count());
+    }
+
+    /**
+     * Test that the stations late in the cycle period do not get overruns
+     * when their cycles are submitted every period, even if their cycles
+     * run past the end of the period they were submitted in, and that each
+     * cycle keeps starting on the station's phase.
+     */
+    @Test
+    void testSubmitLatePhase() throws InterruptedException {
+        final Object owner = new Object();
+        for(int i = 0; i < 3; i++) {
+            this.stationCycleExecutor.register(new Object(), "other_" + i, this.workers);
+        }
+        this.stationCycleExecutor.register(owner, "station", this.workers);
+        final long offset = this.stationCycleExecutor.getPhaseOffset(owner).orElseThrow();
+        assertTrue(offset > 150);
+        final CountDownLatch latch = new CountDownLatch(4);
+        final List<Long> lags = Collections.synchronizedList(new ArrayList<>());
+
+        // Submit a cycle every period, each running for a third of it
+        for(int i = 0; i < 4; i++) {
+            final long submitted = System.currentTimeMillis();
+            this.stationCycleExecutor.submit(owner, () -> {
+                lags.add(System.currentTimeMillis() - submitted);
+                try {
+                    Thread.sleep(60);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                latch.countDown();
+            });
+            Thread.sleep(200);
+        }
+
+        // Make sure all the cycles were run on the phase without overruns
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(4, lags.size());
+        lags.forEach(lag -> assertTrue(lag >= offset && lag < offset + 100));
+        assertEquals(0, this.stationCycleExecutor.meterRegistry.find("station.cycle.overruns").tag("station", "station").counter().count());
+    }
+
+    /**
+     * Test that no more station cycles run at the same time than the workers
+     * the stations were registered with.
+     */
+    @Test
+    void testSubmitBoundedByWorkers() throws InterruptedException {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(6);
+        final List<Object> owners = new ArrayList<>();
+        for(int i = 0; i < 6; i++) {
+            owners.add(new Object());
+            this.stationCycleExecutor.register(owners.get(i), "station_" + i, this.workers);
+        }
+
+        // Perform the component calls
+        for(int i = 0; i < 6; i++) {
+            this.stationCycleExecutor.submit(owners.get(i), () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                latch.countDown();
+            });
+        }
+
+        // Make sure all the cycles were run, but only two at a time
+        assertTrue(latch.await(3, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    /**
+     * Test that the cycles submitted for unregistered stations are ignored.
+     */
+    @Test
+    void testSubmitUnregistered() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        // Perform the component call
+        this.stationCycleExecutor.submit(new Object(), latch::countDown);
+
+        // Make sure the cycle was never run
+        assertFalse(latch.await(300, TimeUnit.MILLISECONDS));
+        assertTrue(this.stationCycleExecutor.getStationCycles().isEmpty());
+    }
+
+    /**
+     * Test that with the skip policy, the cycles submitted while the previous
+     * one is still in flight are dropped and counted as overruns.
+     */
+    @Test
+    void testSubmitSkipsOverlapping() throws InterruptedException {
+        this.stationCycleExecutor.overlapPolicy = StationCycleExecutor.OverlapPolicy.SKIP;
+        this.stationCycleExecutor.register(this, "station", this.workers);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger runs = new AtomicInteger();
+
+        // Perform the component calls
+        this.stationCycleExecutor.submit(this, () -> {
+            runs.incrementAndGet();
+            awaitQuietly(release);
+            done.countDown();
+        });
+        this.stationCycleExecutor.submit(this, runs::incrementAndGet);
+        this.stationCycleExecutor.submit(this, runs::incrementAndGet);
+        release.countDown();
+
+        // Make sure only the first cycle was run and the overruns were counted
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, runs.get());
+        assertEquals(2, this.stationCycleExecutor.meterRegistry.find("station.cycle.overruns").tag("station", "station").counter().count());
+        assertFalse(this.stationCycleExecutor.getStationCycles().iterator().next().isInFlight());
+    }
+
+    /**
+     * Test that with the coalesce policy, the cycles submitted while the
+     * previous one is still in flight are merged into a single follow-up
+     * cycle, and that the station is released afterwards.
+     */
+    @Test
+    void testSubmitCoalescesOverlapping() throws InterruptedException {
+        this.stationCycleExecutor.register(this, "station", this.workers);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<String> runs = Collections.synchronizedList(new ArrayList<>());
+
+        // Perform the component calls
+        this.stationCycleExecutor.submit(this, () -> {
+            runs.add("first");
+            awaitQuietly(release);
+        });
+        this.stationCycleExecutor.submit(this, () -> runs.add("second"));
+        this.stationCycleExecutor.submit(this, () -> {
+            runs.add("third");
+            done.countDown();
+        });
+        release.countDown();
+
+        // Make sure only the latest overlapping cycle was run after the first
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(List.of("first", "third"), runs);
+        assertEquals(2, this.stationCycleExecutor.getStationCycles().iterator().next().getOverruns());
+        assertFalse(this.stationCycleExecutor.getStationCycles().iterator().next().isInFlight());
+
+        // And that new cycles can be run again
+        final CountDownLatch again = new CountDownLatch(1);
+        this.stationCycleExecutor.submit(this, again::countDown);
+        assertTrue(again.await(2, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test that the pending cycles of cancelled stations will not be run.
+     */
+    @Test
+    void testCancel() throws InterruptedException {
+        final Object owner = new Object();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        // Make sure the owner has a non-zero phase
+        this.stationCycleExecutor.register(new Object(), "other", this.workers);
+        this.stationCycleExecutor.register(owner, "station", this.workers);
+
+        // Perform the component calls
+        this.stationCycleExecutor.submit(owner, latch::countDown);
+        this.stationCycleExecutor.cancel(owner);
+
+        // Make sure the cycle was never run
+        assertFalse(latch.await(300, TimeUnit.MILLISECONDS));
+        assertTrue(this.stationCycleExecutor.getPhaseOffset(owner).isEmpty());
+
+        // And that the station metrics were removed
+        assertNull(this.stationCycleExecutor.meterRegistry.find("station.cycle.start.lag").tag("station", "station").timer());
+        assertNull(this.stationCycleExecutor.meterRegistry.find("station.cycle.overruns").tag("station", "station").counter());
+        assertNotNull(this.stationCycleExecutor.meterRegistry.find("station.cycle.overruns").tag("station", "other").counter());
+    }
+
+    /**
+     * Helper function to wait on a latch without propagating interrupts.
+     *
+     * @param latch the latch to wait on
+     */
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Test that the stations registered with workers of their own have their
+     * cycles run by them.
+     */
+    @Test
+    void testSubmitOwnWorkers() throws InterruptedException {
+        final Object owner = new Object();
+        final AtomicInteger executed = new AtomicInteger();
+        final Executor workers = task -> {
+            executed.incrementAndGet();
+            task.run();
+        };
+        this.stationCycleExecutor.register(owner, "station", workers);
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        // Perform the component call
+        this.stationCycleExecutor.submit(owner, latch::countDown);
+
+        // Make sure the cycle was run by the station workers
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(1, executed.get());
+    }
+
+    /**
+     * Test that when the workers of a station reject its cycle, the station
+     * is released so that its next cycles can still be run.
+     */
+    @Test
+    void testSubmitRejected() throws InterruptedException {
+        final Object owner = new Object();
+        final AtomicInteger attempts = new AtomicInteger();
+        final Executor workers = task -> {
+            if(attempts.incrementAndGet() == 1) {
+                throw new RejectedExecutionException("rejected");
+            }
+            task.run();
+        };
+        this.stationCycleExecutor.register(owner, "station", workers);
+
+        // Submit a cycle that gets rejected
+        this.stationCycleExecutor.submit(owner, () -> fail("Rejected cycle should not run"));
+        while(attempts.get() < 1 || this.stationCycleExecutor.getStationCycles().iterator().next().isInFlight()) {
+            Thread.sleep(10);
+        }
+
+        // Make sure the next cycle is run
+        final CountDownLatch latch = new CountDownLatch(1);
+        this.stationCycleExecutor.submit(owner, latch::countDown);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(0, this.stationCycleExecutor.getStationCycles().iterator().next().getOverruns());
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class StripedDispatcherTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    StripedDispatcher stripedDispatcher;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.stripedDispatcher.enabled = true;
+        this.stripedDispatcher.stripes = 4;
+        this.stripedDispatcher.queueCapacity = 2;
+        this.stripedDispatcher.meterRegistry = new SimpleMeterRegistry();
+        this.stripedDispatcher.init();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.stripedDispatcher.destroy();
+    }
+
+    /**
+     * Test that the stripes are created along with their queue depth
+     * metrics, and that a station key is always mapped to the same stripe.
+     */
+    @Test
+    void testInit() {
+        assertEquals(4, this.stripedDispatcher.stripeArray.length);
+        assertEquals(4, this.stripedDispatcher.meterRegistry.find("striped.dispatcher.queue.depth").gauges().size());
+        assertEquals("10.0.0.1:8001", StripedDispatcher.key("10.0.0.1", 8001));
+        assertEquals(this.stripedDispatcher.stripeOf("10.0.0.1:8001"), this.stripedDispatcher.stripeOf(StripedDispatcher.key("10.0.0.1", 8001)));
+    }
+
+    /**
+     * Test that the tasks of the same key are run in the order they were
+     * dispatched.
+     */
+    @Test
+    void testDispatchOrdered() throws InterruptedException {
+        final List<Integer> results = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(100);
+
+        // Perform the component calls
+        for(int i = 0; i < 100; i++) {
+            final int index = i;
+            while(!this.stripedDispatcher.dispatch("10.0.0.1:8001", () -> {
+                results.add(index);
+                done.countDown();
+            })) {
+                Thread.sleep(1);
+            }
+        }
+
+        // Make sure the tasks were run in order
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        for(int i = 0; i < 100; i++) {
+            assertEquals(i, results.get(i));
+        }
+    }
+
+    /**
+     * Test that the tasks of keys mapped on different stripes are run in
+     * parallel, so a blocked station does not hold back the rest.
+     */
+    @Test
+    void testDispatchParallel() throws InterruptedException {
+        final String first = "10.0.0.1:8001";
+        String second = "10.0.0.2:8002";
+        for(int port = 8003; this.stripedDispatcher.stripeOf(second) == this.stripedDispatcher.stripeOf(first); port++) {
+            second = StripedDispatcher.key("10.0.0.2", port);
+        }
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        // Perform the component calls, blocking the first stripe
+        assertTrue(this.stripedDispatcher.dispatch(first, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(this.stripedDispatcher.dispatch(second, done::countDown));
+
+        // Make sure the second task was run while the first was blocked
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    /**
+     * Test that when a stripe is full, the new tasks are dropped instead of
+     * blocking the receive listeners.
+     */
+    @Test
+    void testDispatchFull() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final String key = "10.0.0.1:8001";
+
+        // Block the stripe thread and fill up its queue
+        assertTrue(this.stripedDispatcher.dispatch(key, () -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(blocked.await(2, TimeUnit.SECONDS));
+        assertTrue(this.stripedDispatcher.dispatch(key, () -> {}));
+        assertTrue(this.stripedDispatcher.dispatch(key, () -> {}));
+
+        // Make sure the next task is dropped
+        assertFalse(this.stripedDispatcher.dispatch(key, () -> {}));
+        assertEquals(2, this.stripedDispatcher.getQueueDepth(this.stripedDispatcher.stripeOf(key)));
+        assertEquals(3.0, this.stripedDispatcher.meterRegistry.find("striped.dispatcher.dispatched").counter().count());
+        assertEquals(1.0, this.stripedDispatcher.meterRegistry.find("striped.dispatcher.dropped").counter().count());
+        release.countDown();
+    }
+
+    /**
+     * Test that a failing task does not stop its stripe.
+     */
+    @Test
+    void testDispatchFailure() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final String key = "10.0.0.1:8001";
+
+        // Perform the component calls
+        assertTrue(this.stripedDispatcher.dispatch(key, () -> {
+            throw new IllegalStateException("failure");
+        }));
+        assertTrue(this.stripedDispatcher.dispatch(key, done::countDown));
+
+        // Make sure the stripe carried on
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+    }
+
+}
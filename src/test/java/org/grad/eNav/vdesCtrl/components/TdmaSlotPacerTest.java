@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class TdmaSlotPacerTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    TdmaSlotPacer tdmaSlotPacer;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.tdmaSlotPacer.maxLag = 500L;
+        this.tdmaSlotPacer.meterRegistry = new SimpleMeterRegistry();
+        this.tdmaSlotPacer.init();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.tdmaSlotPacer.destroy();
+    }
+
+    /**
+     * Test that the TDMA slot calculations are aligned to the UTC minute.
+     */
+    @Test
+    void testSlotCalculations() {
+        assertEquals(0, TdmaSlotPacer.slotAt(0));
+        assertEquals(0, TdmaSlotPacer.slotAt(26));
+        assertEquals(1, TdmaSlotPacer.slotAt(27));
+        assertEquals(2250, TdmaSlotPacer.slotAt(60000));
+        assertEquals(27, TdmaSlotPacer.slotStart(1));
+        assertEquals(60000, TdmaSlotPacer.slotStart(2250));
+        assertEquals(19, TdmaSlotPacer.slotsFor(500));
+        assertEquals(2250, TdmaSlotPacer.slotsFor(60000));
+    }
+
+    /**
+     * Test that the pacer registers its metrics on initialisation.
+     */
+    @Test
+    void testInit() {
+        assertNotNull(this.tdmaSlotPacer.meterRegistry.find("tdma.pacer.error").timer());
+        assertNotNull(this.tdmaSlotPacer.meterRegistry.find("tdma.pacer.skipped.slots").counter());
+        assertNotNull(this.tdmaSlotPacer.meterRegistry.find("tdma.pacer.pending").gauge());
+        assertNotNull(this.tdmaSlotPacer.meterRegistry.find("tdma.pacer.dropped.bursts").counter());
+    }
+
+    /**
+     * Test that the transmission bursts get consecutive free slots, the
+     * bursts of the same owner are spaced by the requested interval, and
+     * the different owners do not share any slots.
+     */
+    @Test
+    void testSchedule() throws InterruptedException {
+        final Object owner = new Object();
+        final Object otherOwner = new Object();
+        final CountDownLatch latch = new CountDownLatch(5);
+        final Runnable transmission = latch::countDown;
+
+        // Perform the component calls
+        final List<Long> first = this.tdmaSlotPacer.schedule(owner, 100, List.of(transmission, transmission));
+        final List<Long> second = this.tdmaSlotPacer.schedule(owner, 100, List.of(transmission, transmission));
+        final List<Long> other = this.tdmaSlotPacer.schedule(otherOwner, 100, List.of(transmission));
+
+        // Make sure the slots were reserved correctly
+        assertEquals(first.get(0) + 1, first.get(1));
+        assertEquals(first.get(0) + TdmaSlotPacer.slotsFor(100), second.get(0));
+        assertEquals(second.get(0) + 1, second.get(1));
+        assertFalse(first.contains(other.getFirst()));
+
+        // Make sure all the transmissions were performed
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(5, this.tdmaSlotPacer.meterRegistry.find("tdma.pacer.error").timer().count());
+    }
+
+    /**
+     * Test that an owner scheduling more bursts than fit in its interval
+     * cannot book slots beyond the maximum lag, and that the bursts which
+     * would start too far ahead are dropped and counted.
+     */
+    @Test
+    void testScheduleMaxLag() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(20);
+
+        // Perform the component calls
+        final long currentSlot = TdmaSlotPacer.slotAt(System.currentTimeMillis());
+        int scheduled = 0;
+        for(int i = 0; i < 20; i++) {
+            final List<Long> slots = this.tdmaSlotPacer.schedule(this, 100, List.of(latch::countDown));
+            slots.forEach(slot -> assertTrue(slot <= currentSlot + TdmaSlotPacer.slotsFor(500) + 1));
+            scheduled += slots.size();
+            if(slots.isEmpty()) {
+                latch.countDown();
+            }
+        }
+
+        // Make sure only the bursts within the maximum lag were scheduled
+        assertTrue(scheduled > 0 && scheduled < 20);
+        assertEquals(20 - scheduled, this.tdmaSlotPacer.meterRegistry.find("tdma.pacer.dropped.bursts").counter().count());
+
+        // And that the owner can schedule again once its bursts have gone out
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertFalse(this.tdmaSlotPacer.schedule(this, 100, List.of(() -> {})).isEmpty());
+    }
+
+    /**
+     * Test that the transmissions are fired on their slot boundaries and in
+     * the order they were scheduled.
+     */
+    @Test
+    void testScheduleOnSlotBoundaries() throws InterruptedException {
+        final ConcurrentLinkedQueue<Long> fired = new ConcurrentLinkedQueue<>();
+        final CountDownLatch latch = new CountDownLatch(3);
+
+        // Perform the component call
+        final List<Long> slots = this.tdmaSlotPacer.schedule(this, 0, List.of(
+                () -> { fired.add(System.currentTimeMillis()); latch.countDown(); },
+                () -> { fired.add(System.currentTimeMillis()); latch.countDown(); },
+                () -> { fired.add(System.currentTimeMillis()); latch.countDown(); }));
+
+        // Make sure the transmissions were not fired before their slots
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        final List<Long> firedTimes = List.copyOf(fired);
+        for(int i = 0; i < slots.size(); i++) {
+            assertTrue(firedTimes.get(i) >= TdmaSlotPacer.slotStart(slots.get(i)));
+        }
+    }
+
+    /**
+     * Test that the pending transmissions of an owner can be cancelled.
+     */
+    @Test
+    void testCancel() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        // Perform the component calls
+        this.tdmaSlotPacer.schedule(this, 0, List.of(latch::countDown));
+        this.tdmaSlotPacer.cancel(this);
+
+        // Make sure the transmission was never performed
+        assertFalse(latch.await(200, TimeUnit.MILLISECONDS));
+        assertTrue(this.tdmaSlotPacer.owners.isEmpty());
+        assertEquals(0, this.tdmaSlotPacer.pending.get());
+    }
+
+    /**
+     * Test that the transmissions scheduled by an owner after it has been
+     * cancelled, e.g. by late callbacks, are ignored.
+     */
+    @Test
+    void testScheduleAfterCancel() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        // Perform the component calls
+        this.tdmaSlotPacer.cancel(this);
+        final List<Long> slots = this.tdmaSlotPacer.schedule(this, 0, List.of(latch::countDown));
+
+        // Make sure the transmission was never scheduled
+        assertTrue(slots.isEmpty());
+        assertFalse(latch.await(200, TimeUnit.MILLISECONDS));
+        assertTrue(this.tdmaSlotPacer.owners.isEmpty());
+        assertTrue(this.tdmaSlotPacer.reservedSlots.isEmpty());
+        assertEquals(0, this.tdmaSlotPacer.pending.get());
+    }
+
+    /**
+     * Test that nothing gets scheduled for empty transmission bursts.
+     */
+    @Test
+    void testScheduleEmpty() {
+        assertTrue(this.tdmaSlotPacer.schedule(this, 0, Collections.emptyList()).isEmpty());
+        assertTrue(this.tdmaSlotPacer.reservedSlots.isEmpty());
+    }
+
+}
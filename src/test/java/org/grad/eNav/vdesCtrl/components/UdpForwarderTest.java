@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.eNav.vdesCtrl.models.domain.Station;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UdpForwarderTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    UdpForwarder udpForwarder;
+
+    /**
+     * The Receive Ring Buffer mock.
+     */
+    @Mock
+    ReceiveRingBuffer receiveRingBuffer;
+
+    // Test Variables
+    private Station station;
+    private DatagramSocket receiver;
+    private DatagramSocket otherReceiver;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        this.receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        this.receiver.setSoTimeout(2000);
+        this.otherReceiver = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        this.otherReceiver.setSoTimeout(2000);
+
+        // Create a station with two forward targets
+        this.station = new Station();
+        this.station.setId(BigInteger.ONE);
+        this.station.setName("station");
+        this.station.setFwdIpAddress("127.0.0.1");
+        this.station.setFwdPort(this.receiver.getLocalPort());
+        this.station.setFwdTargets("127.0.0.1:" + this.otherReceiver.getLocalPort());
+
+        // Initialise the forwarder
+        this.udpForwarder.queueCapacity = 10;
+        this.udpForwarder.batchSize = 4;
+        this.udpForwarder.dropPolicy = UdpForwarder.DropPolicy.DROP_OLDEST;
+        this.udpForwarder.meterRegistry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.udpForwarder.destroy();
+        this.receiver.close();
+        this.otherReceiver.close();
+    }
+
+    /**
+     * Test that the received messages are forwarded to all the station
+     * forward targets.
+     */
+    @Test
+    void testForward() throws IOException {
+        this.udpForwarder.init();
+        this.udpForwarder.register(this, this.station);
+
+        // Perform the component call
+        this.udpForwarder.forward(this, "!AIVDM,1,1,,A,message,0*00");
+
+        // Make sure the message reached both targets
+        assertEquals("!AIVDM,1,1,,A,message,0*00", this.receive(this.receiver));
+        assertEquals("!AIVDM,1,1,,A,message,0*00", this.receive(this.otherReceiver));
+    }
+
+    /**
+     * Test that the received messages picked up from the receive ring buffer
+     * are forwarded to the targets of their station.
+     */
+    @Test
+    void testForwardFromRingBuffer() throws IOException {
+        doReturn(Boolean.TRUE).when(this.receiveRingBuffer).isEnabled();
+        this.udpForwarder.init();
+        this.udpForwarder.register(this, this.station);
+
+        // Capture the ring buffer subscription
+        ArgumentCaptor<ReceiveRingBuffer.EventHandler> handlerArgument = ArgumentCaptor.forClass(ReceiveRingBuffer.EventHandler.class);
+        verify(this.receiveRingBuffer, times(1)).subscribe(eq("forwarding"), handlerArgument.capture());
+
+        // Perform the subscriber call
+        handlerArgument.getValue().onEvent(new ReceiveRingBuffer.Source(this, this.station.getType(), null, null, null),
+                "!AIVDM,1,1,,A,message,0*00".getBytes(StandardCharsets.US_ASCII), true);
+
+        // Make sure the message was forwarded
+        assertEquals("!AIVDM,1,1,,A,message,0*00", this.receive(this.receiver));
+    }
+
+    /**
+     * Test that only the messages of the selected sentence types are
+     * forwarded.
+     */
+    @Test
+    void testForwardFiltered() throws IOException {
+        this.station.setFwdTargets(null);
+        this.station.setFwdMessageTypes("vdo");
+        this.udpForwarder.init();
+        this.udpForwarder.register(this, this.station);
+
+        // Perform the component calls
+        this.udpForwarder.forward(this, "!AIVDM,1,1,,A,first,0*00");
+        this.udpForwarder.forward(this, "!AIVDO,1,1,,A,second,0*00");
+
+        // Make sure only the VDO message was forwarded
+        assertEquals("!AIVDO,1,1,,A,second,0*00", this.receive(this.receiver));
+        assertThrows(SocketTimeoutException.class, () -> {
+            this.receiver.setSoTimeout(200);
+            this.receive(this.receiver);
+        });
+    }
+
+    /**
+     * Test that the messages of the stations without forward targets, or of
+     * cancelled stations, are not forwarded.
+     */
+    @Test
+    void testForwardNoTargets() {
+        this.udpForwarder.queue = new ArrayBlockingQueue<>(10);
+        this.station.setFwdIpAddress(null);
+        this.station.setFwdTargets(null);
+
+        // Perform the component calls
+        this.udpForwarder.register(this, this.station);
+        this.udpForwarder.forward(this, "!AIVDM,1,1,,A,message,0*00");
+
+        // Make sure nothing was queued
+        assertTrue(this.udpForwarder.forwardings.isEmpty());
+        assertTrue(this.udpForwarder.queue.isEmpty());
+    }
+
+    /**
+     * Test that the station metrics are removed when the forwarding is
+     * cancelled, or when the station gets renamed.
+     */
+    @Test
+    void testCancel() {
+        this.udpForwarder.queue = new ArrayBlockingQueue<>(10);
+        this.udpForwarder.register(this, this.station);
+
+        // Rename the station
+        this.station.setName("renamed");
+        this.udpForwarder.register(this, this.station);
+
+        // Make sure only the metrics of the new name are kept
+        assertNull(this.udpForwarder.meterRegistry.find("udp.forwarder.forwarded").tag("station", "station").counter());
+        assertNotNull(this.udpForwarder.meterRegistry.find("udp.forwarder.forwarded").tag("station", "renamed").counter());
+
+        // Perform the component call
+        this.udpForwarder.cancel(this);
+
+        // Make sure the forwarding and its metrics were removed
+        assertTrue(this.udpForwarder.forwardings.isEmpty());
+        assertNull(this.udpForwarder.meterRegistry.find("udp.forwarder.forwarded").tag("station", "renamed").counter());
+        assertNull(this.udpForwarder.meterRegistry.find("udp.forwarder.dropped").tag("station", "renamed").counter());
+        assertNull(this.udpForwarder.meterRegistry.find("udp.forwarder.errors").tag("station", "renamed").counter());
+    }
+
+    /**
+     * Test that when the queue is full, the oldest message gets dropped with
+     * the DROP_OLDEST policy.
+     */
+    @Test
+    void testForwardDropOldest() {
+        this.udpForwarder.queue = new ArrayBlockingQueue<>(1);
+        this.udpForwarder.register(this, this.station);
+
+        // Perform the component calls
+        this.udpForwarder.forward(this, "first");
+        this.udpForwarder.forward(this, "second");
+
+        // Make sure the newest message was kept
+        assertEquals(1, this.udpForwarder.queue.size());
+        assertEquals(1.0, this.udpForwarder.meterRegistry.find("udp.forwarder.dropped").counter().count());
+        assertEquals("second", this.dequeue());
+    }
+
+    /**
+     * Test that when the queue is full, the new message gets dropped with
+     * the DROP_NEWEST policy.
+     */
+    @Test
+    void testForwardDropNewest() {
+        this.udpForwarder.dropPolicy = UdpForwarder.DropPolicy.DROP_NEWEST;
+        this.udpForwarder.queue = new ArrayBlockingQueue<>(1);
+        this.udpForwarder.register(this, this.station);
+
+        // Perform the component calls
+        this.udpForwarder.forward(this, "first");
+        this.udpForwarder.forward(this, "second");
+
+        // Make sure the oldest message was kept
+        assertEquals(1, this.udpForwarder.queue.size());
+        assertEquals(1.0, this.udpForwarder.meterRegistry.find("udp.forwarder.dropped").counter().count());
+        assertEquals("first", this.dequeue());
+    }
+
+    /**
+     * Test that the forward targets are collected from both the forward
+     * address and the additional targets, skipping the invalid ones.
+     */
+    @Test
+    void testParseTargets() {
+        this.station.setFwdTargets(" 127.0.0.1:9001, invalid , 127.0.0.1:9002");
+
+        // Perform the component call
+        final List<InetSocketAddress> targets = UdpForwarder.parseTargets(this.station);
+
+        // Make sure the valid targets were resolved
+        assertEquals(3, targets.size());
+        assertEquals(this.receiver.getLocalPort(), targets.get(0).getPort());
+        assertEquals(9001, targets.get(1).getPort());
+        assertEquals(9002, targets.get(2).getPort());
+    }
+
+    /**
+     * Test that the sentence types are parsed and extracted correctly.
+     */
+    @Test
+    void testSentenceTypes() {
+        assertEquals(Set.of("VDM", "VDO"), UdpForwarder.parseMessageTypes("vdm, VDO,"));
+        assertTrue(UdpForwarder.parseMessageTypes(null).isEmpty());
+        assertEquals("VDM", UdpForwarder.sentenceType("!AIVDM,1,1,,A,message,0*00".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("ABK", UdpForwarder.sentenceType("\\s:station*00\\$AIABK,,A,8,5,3*17".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("", UdpForwarder.sentenceType("message".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Helper function to take the message of the first queued request.
+     *
+     * @return the message of the first queued request
+     */
+    private String dequeue() {
+        final UdpForwarder.ForwardRequest request = this.udpForwarder.queue.poll();
+        assertNotNull(request);
+        return request.getMessage();
+    }
+
+    /**
+     * Helper function to receive a datagram from a test receiver.
+     *
+     * @param socket the test receiver
+     * @return the datagram content
+     */
+    private String receive(DatagramSocket socket) throws IOException {
+        final DatagramPacket packet = new DatagramPacket(new byte[512], 512);
+        socket.receive(packet);
+        return new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.US_ASCII);
+    }
+
+}
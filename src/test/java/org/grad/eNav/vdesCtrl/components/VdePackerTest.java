@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class VdePackerTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    VdePacker vdePacker;
+
+    // Test Variables
+    private List<byte[]> sent;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.sent = Collections.synchronizedList(new ArrayList<>());
+
+        // Initialise the packer
+        this.vdePacker.enabled = true;
+        this.vdePacker.frameSize = 100;
+        this.vdePacker.flushDelay = 60000L;
+        this.vdePacker.meterRegistry = new SimpleMeterRegistry();
+        this.vdePacker.init();
+        this.vdePacker.register(this, "station", this.sent::add);
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.vdePacker.destroy();
+    }
+
+    /**
+     * Test that the packer registers the station metrics.
+     */
+    @Test
+    void testRegister() {
+        assertNotNull(this.vdePacker.meterRegistry.find("vde.packer.records").tag("station", "station").counter());
+        assertNotNull(this.vdePacker.meterRegistry.find("vde.packer.frames").tag("station", "station").counter());
+        assertNotNull(this.vdePacker.meterRegistry.find("vde.packer.bytes").tag("station", "station").counter());
+        assertNotNull(this.vdePacker.meterRegistry.find("vde.packer.rejected").tag("station", "station").counter());
+    }
+
+    /**
+     * Test that the collected records are packed into as few payloads as
+     * possible, and that the metrics report the gain.
+     */
+    @Test
+    void testFlush() {
+        // Add 6 records of 30 (+2) bytes, i.e. 3 per payload
+        for(int i = 0; i < 6; i++) {
+            this.vdePacker.add(this, 0, this.record(i, 30));
+        }
+
+        // Perform the component call
+        this.vdePacker.flush(this);
+
+        // Make sure only 2 payloads were sent
+        assertEquals(2, this.sent.size());
+        assertEquals(List.of(0, 1, 2), this.unpack(this.sent.get(0)));
+        assertEquals(List.of(3, 4, 5), this.unpack(this.sent.get(1)));
+        assertEquals(6.0, this.vdePacker.meterRegistry.find("vde.packer.records").counter().count());
+        assertEquals(2.0, this.vdePacker.meterRegistry.find("vde.packer.frames").counter().count());
+        assertEquals(6 * 32.0, this.vdePacker.meterRegistry.find("vde.packer.bytes").counter().count());
+    }
+
+    /**
+     * Test that the higher priority records go first, and that the smaller
+     * records fill up the space left in the earlier payloads.
+     */
+    @Test
+    void testFlushPriority() {
+        this.vdePacker.add(this, 3, this.record(0, 60));
+        this.vdePacker.add(this, 1, this.record(1, 60));
+        this.vdePacker.add(this, 2, this.record(2, 20));
+        this.vdePacker.add(this, 1, this.record(3, 60));
+
+        // Perform the component call
+        this.vdePacker.flush(this);
+
+        // Make sure the records were packed by priority and first-fit
+        assertEquals(3, this.sent.size());
+        assertEquals(List.of(1, 2), this.unpack(this.sent.get(0)));
+        assertEquals(List.of(3), this.unpack(this.sent.get(1)));
+        assertEquals(List.of(0), this.unpack(this.sent.get(2)));
+    }
+
+    /**
+     * Test that the records larger than a payload are rejected and counted,
+     * while the ones that fit exactly are still packed.
+     */
+    @Test
+    void testAddOversizedRecord() {
+        // Perform the component calls
+        assertFalse(this.vdePacker.add(this, 0, this.record(0, 99)));
+        assertTrue(this.vdePacker.add(this, 0, this.record(1, 98)));
+        this.vdePacker.flush(this);
+
+        // Make sure only the fitting record was sent
+        assertEquals(1, this.sent.size());
+        assertEquals(100, this.sent.getFirst().length);
+        assertEquals(List.of(1), this.unpack(this.sent.getFirst()));
+        assertEquals(1.0, this.vdePacker.meterRegistry.find("vde.packer.rejected").counter().count());
+        assertEquals(1.0, this.vdePacker.meterRegistry.find("vde.packer.records").counter().count());
+    }
+
+    /**
+     * Test that the collected records get flushed automatically after the
+     * flush delay.
+     */
+    @Test
+    void testAddSchedulesFlush() throws InterruptedException {
+        this.vdePacker.flushDelay = 10L;
+
+        // Perform the component calls
+        this.vdePacker.add(this, 0, this.record(0, 10));
+        this.vdePacker.add(this, 0, this.record(1, 10));
+
+        // Make sure both records were sent together
+        for(int i = 0; i < 100 && this.sent.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, this.sent.size());
+        assertEquals(List.of(0, 1), this.unpack(this.sent.getFirst()));
+    }
+
+    /**
+     * Test that the records collected for a station are sent when it gets
+     * cancelled, while the ones added afterwards are dropped.
+     */
+    @Test
+    void testCancel() {
+        this.vdePacker.add(this, 0, this.record(0, 10));
+
+        // Perform the component calls
+        this.vdePacker.cancel(this);
+        this.vdePacker.flush(this);
+        assertFalse(this.vdePacker.add(this, 0, this.record(1, 10)));
+
+        // Make sure only the collected record was sent
+        assertEquals(1, this.sent.size());
+        assertEquals(List.of(0), this.unpack(this.sent.getFirst()));
+        assertTrue(this.vdePacker.stations.isEmpty());
+
+        // And that the station metrics were removed
+        assertNull(this.vdePacker.meterRegistry.find("vde.packer.records").tag("station", "station").counter());
+        assertNull(this.vdePacker.meterRegistry.find("vde.packer.frames").tag("station", "station").counter());
+        assertNull(this.vdePacker.meterRegistry.find("vde.packer.bytes").tag("station", "station").counter());
+        assertNull(this.vdePacker.meterRegistry.find("vde.packer.rejected").tag("station", "station").counter());
+    }
+
+    /**
+     * Helper function to generate a test record, with its index as the first
+     * byte.
+     *
+     * @param index the index of the record
+     * @param size the size of the record
+     * @return the test record
+     */
+    private byte[] record(int index, int size) {
+        final byte[] record = new byte[size];
+        record[0] = (byte) index;
+        return record;
+    }
+
+    /**
+     * Helper function to unpack the record indexes from a payload.
+     *
+     * @param payload the packed payload
+     * @return the record indexes
+     */
+    private List<Integer> unpack(byte[] payload) {
+        final List<Integer> indexes = new ArrayList<>();
+        final ByteBuffer buffer = ByteBuffer.wrap(payload);
+        while(buffer.hasRemaining()) {
+            final byte[] record = new byte[buffer.getShort()];
+            buffer.get(record);
+            indexes.add((int) record[0]);
+        }
+        return indexes;
+    }
+
+}
@@ -17,12 +17,13 @@
 package org.grad.eNav.vdesCtrl.components;
 
 import org.grad.eNav.vdesCtrl.config.Vdes1000BaseStationConfigProperties;
-import org.grad.eNav.vdesCtrl.feign.CKeeperClient;
 import org.grad.eNav.vdesCtrl.models.PubSubMsgHeaders;
 import org.grad.eNav.vdesCtrl.models.domain.McpEntityType;
 import org.grad.eNav.vdesCtrl.models.domain.SignatureMode;
 import org.grad.eNav.vdesCtrl.models.domain.Station;
+import org.grad.eNav.vdesCtrl.models.domain.StationSnapshot;
 import org.grad.eNav.vdesCtrl.models.domain.StationType;
+import org.grad.eNav.vdesCtrl.models.dtos.AisMessageDto;
 import org.grad.eNav.vdesCtrl.models.dtos.AtonMessageDto;
 import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
 import org.grad.eNav.vdesCtrl.services.StationService;
@@ -47,13 +48,10 @@ import org.springframework.integration.channel.PublishSubscribeChannel;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.SocketException;
-import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -61,6 +59,11 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -84,10 +87,10 @@ class Vdes1000AdvertiserTest {
     PublishSubscribeChannel publishSubscribeChannel;
 
     /**
-     * The CKeeper Client mock.
+     * The CKeeper Guard mock.
      */
     @Mock
-    CKeeperClient cKeeperClient;
+    CKeeperGuard cKeeperGuard;
 
     /**
      * The Station Service mock.
@@ -95,6 +98,102 @@ class Vdes1000AdvertiserTest {
     @Mock
     StationService stationService;
 
+    /**
+     * The Blacklist Index mock.
+     */
+    @Mock
+    BlacklistIndex blacklistIndex;
+
+    /**
+     * The AtoN Message Cache spy.
+     */
+    @Spy
+    AtonMessageCache atonMessageCache;
+
+    /**
+     * The AtoN Timing Wheel mock.
+     */
+    @Mock
+    AtonTimingWheel atonTimingWheel;
+
+    /**
+     * The Station Cycle Executor mock.
+     */
+    @Mock
+    StationCycleExecutor stationCycleExecutor;
+
+    /**
+     * The Executor Bulkheads mock.
+     */
+    @Mock
+    ExecutorBulkheads executorBulkheads;
+
+    /**
+     * The Advertising Bulkhead mock.
+     */
+    @Mock
+    ExecutorBulkheads.Bulkhead bulkhead;
+
+    /**
+     * The Signature Pipeline mock.
+     */
+    @Mock
+    SignaturePipeline signaturePipeline;
+
+    /**
+     * The Local Signer mock.
+     */
+    @Mock
+    LocalSigner localSigner;
+
+    /**
+     * The Pre-Signer mock.
+     */
+    @Mock
+    PreSigner preSigner;
+
+    /**
+     * The Merkle Aggregator mock.
+     */
+    @Mock
+    MerkleAggregator merkleAggregator;
+
+    /**
+     * The VDE Packer mock.
+     */
+    @Mock
+    VdePacker vdePacker;
+
+    /**
+     * The UDP Forwarder mock.
+     */
+    @Mock
+    UdpForwarder udpForwarder;
+
+    /**
+     * The VDES-1000 Receiver mock.
+     */
+    @Mock
+    Vdes1000Receiver vdes1000Receiver;
+
+    /**
+     * The NMEA Parser mock.
+     */
+    @Mock
+    NmeaParser nmeaParser;
+
+    /**
+     * The Receive Ring Buffer mock.
+     */
+    @Mock
+    ReceiveRingBuffer receiveRingBuffer;
+
+    /**
+     * The Striped Dispatcher mock.
+     */
+    @Mock
+    StripedDispatcher stripedDispatcher;
+
     /**
      * The Base Station Configuration Properties mock.
      */
@@ -106,7 +205,6 @@ class Vdes1000AdvertiserTest {
     private AtonMessageDto atonMessageDto;
     private byte[] signature;
     private VDES1000Conn vdes1000Conn;
-    private DatagramSocket fwdSocket;
     private VDES1000BaseStationConfiguration config;
 
     /**
@@ -146,9 +244,6 @@ class Vdes1000AdvertiserTest {
         // Mock the VDES-1000 connection, to be used in the tests
         this.vdes1000Conn = mock(VDES1000Conn.class);
 
-        // Finally moch the VDES-1000 UDP forward socket
-        this.fwdSocket = mock(DatagramSocket.class);
-
         // Make up some configuration for the base stations
         this.config = new VDES1000BaseStationConfiguration();
         this.config.setUniqueId("uniqueId");
@@ -162,23 +257,63 @@ class Vdes1000AdvertiserTest {
         this.config.setVdlMessageRepeatIndicator(VdlMessageRepeatIndicator.DO_NOT_REPEAT);
         this.config.setRatdmaControl(RATDMAControl.OFF);
         this.config.setAdsInterval(100);
+
+        // And let the AtoN timing wheel perform the advertisements right away
+        lenient().doAnswer(inv -> {
+            inv.<Runnable>getArgument(4).run();
+            return null;
+        }).when(this.atonTimingWheel).register(any(), any(), anyLong(), any(), any());
+        // And let the signature pipeline sign and transmit right away
+        lenient().doAnswer(inv -> {
+            inv.<Consumer<Object>>getArgument(2).accept(inv.<Callable<Object>>getArgument(1).call());
+            return CompletableFuture.completedFuture(null);
+        }).when(this.signaturePipeline).submit(any(), any(Callable.class), any());
+        lenient().doAnswer(inv -> {
+            inv.<Consumer<Object>>getArgument(2).accept(inv.<CompletableFuture<Object>>getArgument(1).join());
+            return CompletableFuture.completedFuture(null);
+        }).when(this.signaturePipeline).submit(any(), any(CompletableFuture.class), any());
     }
 
     /**
      * Test that the VDES-1000 advertiser can initialise correctly.
      */
     @Test
-    void testInit() throws SocketException, UnknownHostException, VDES1000ConnException {
+    void testInit() throws IOException, VDES1000ConnException {
+        doReturn(this.bulkhead).when(this.executorBulkheads).get(ExecutorBulkheads.VDES1000_ADVERTISING);
+
         // Perform the component call
         doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
         this.vdes1000Advertiser.init(this.station);
 
-        assertEquals(this.station, this.vdes1000Advertiser.station);
+        assertEquals(StationSnapshot.of(this.station), this.vdes1000Advertiser.station);
+        verify(this.stationCycleExecutor, times(1)).register(this.vdes1000Advertiser, this.station.getName(), this.bulkhead);
+        verify(this.vdePacker, times(1)).register(eq(this.vdes1000Advertiser), eq(this.station.getName()), any());
+        verify(this.udpForwarder, times(1)).register(this.vdes1000Advertiser, this.station);
         assertNotNull(this.vdes1000Advertiser.vdes1000Conn);
 
         // Make sure the monitoring will attempt to start
         verify(this.vdes1000Conn, times(1)).startMonitoring();
         verify(this.vdes1000Conn, never()).configureBaseStation(any(VDES1000BaseStationConfiguration.class));
+        verify(this.vdes1000Receiver, never()).register(any(), anyInt(), any());
+    }
+
+    /**
+     * Test that the VDES-1000 advertiser registers its broadcast port with
+     * the shared receiver, instead of starting its own monitoring, when the
+     * shared receiver is enabled.
+     */
+    @Test
+    void testInitWithReceiver() throws IOException, VDES1000ConnException {
+        this.station.setBroadcastPort(8003);
+
+        // Perform the component call
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+        doReturn(Boolean.TRUE).when(this.vdes1000Receiver).isEnabled();
+        this.vdes1000Advertiser.init(this.station);
+
+        // Make sure the shared receiver was used instead of the monitoring
+        verify(this.vdes1000Receiver, times(1)).register(eq(this.vdes1000Advertiser), eq(8003), any());
+        verify(this.vdes1000Conn, never()).startMonitoring();
     }
 
     /**
@@ -186,14 +321,14 @@ class Vdes1000AdvertiserTest {
      * VDES-1000 AIS Base Station configuration is to be applied on boot.
      */
     @Test
-    void testInitWithBaseStationConfig() throws SocketException, UnknownHostException, VDES1000ConnException {
+    void testInitWithBaseStationConfig() throws IOException, VDES1000ConnException {
         // Perform the component call
         doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
         doReturn(Boolean.TRUE).when(baseStationConfigProperties).isValid();
         doReturn(this.config).when(baseStationConfigProperties).getVdesBaseStationConfig();
         this.vdes1000Advertiser.init(this.station);
 
-        assertEquals(this.station, this.vdes1000Advertiser.station);
+        assertEquals(StationSnapshot.of(this.station), this.vdes1000Advertiser.station);
         assertNotNull(this.vdes1000Advertiser.vdes1000Conn);
 
         // Make sure the monitoring will attempt to start
@@ -206,7 +341,7 @@ class Vdes1000AdvertiserTest {
      * will close its UDP connection to the GNURadio device.
      */
     @Test
-    void testDestroy() throws SocketException, UnknownHostException, VDES1000ConnException, InterruptedException {
+    void testDestroy() throws IOException, VDES1000ConnException, InterruptedException {
         // Initialise the advertiser
         doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
         this.vdes1000Advertiser.init(this.station);
@@ -214,10 +349,34 @@ class Vdes1000AdvertiserTest {
         // Perform the service class
         this.vdes1000Advertiser.destroy();
 
-        // Assert that the UDP socket was closed
+        // Assert that the AtoN advertisements were cancelled and the connection was closed
+        verify(this.stationCycleExecutor, times(1)).cancel(this.vdes1000Advertiser);
+        verify(this.atonTimingWheel, times(1)).cancel(this.vdes1000Advertiser);
+        verify(this.signaturePipeline, times(1)).cancel(this.vdes1000Advertiser);
+        verify(this.preSigner, times(1)).cancel(this.vdes1000Advertiser);
+        verify(this.merkleAggregator, times(1)).cancel(this.vdes1000Advertiser);
+        verify(this.vdePacker, times(1)).cancel(this.vdes1000Advertiser);
+        verify(this.udpForwarder, times(1)).cancel(this.vdes1000Advertiser);
+        verify(this.vdes1000Receiver, times(1)).cancel(this.vdes1000Advertiser);
+        verify(this.nmeaParser, times(1)).cancel(this.vdes1000Advertiser);
         verify(this.vdes1000Conn, times(1)).close();
     }
 
+    /**
+     * Test that a VDES-1000 advertiser which failed to connect to its station
+     * can still be destroyed gracefully, releasing its registrations.
+     */
+    @Test
+    void testDestroyWithoutConnection() {
+        // Perform the service class
+        this.vdes1000Advertiser.destroy();
+
+        // Assert that the AtoN advertisements were still cancelled
+        verify(this.stationCycleExecutor, times(1)).cancel(this.vdes1000Advertiser);
+        verify(this.vdePacker, times(1)).cancel(this.vdes1000Advertiser);
+        verify(this.vdes1000Receiver, times(1)).cancel(this.vdes1000Advertiser);
+    }
+
     /**
      * Test that the VDES-1000 advertiser can actually read the station
      * messages from the message service and advertise the connected VDES-1000
@@ -226,14 +385,20 @@ class Vdes1000AdvertiserTest {
     @Test
     void testAdvertiseAtons() throws VDES1000ConnException {
         doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
-        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(this.station.getId()), eq(Boolean.FALSE));
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
 
         // Initialise the advertiser and perform the component call
-        this.vdes1000Advertiser.station = this.station;
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
         this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
         this.vdes1000Advertiser.signatureDestMmsi = 123456789;
+        doReturn(this.bulkhead).when(this.executorBulkheads).get(ExecutorBulkheads.VDES1000_ADVERTISING);
         this.vdes1000Advertiser.advertiseAtons();
 
+        // Make sure the AtoN was registered with the timing wheel, on the advertising bulkhead
+        verify(this.atonTimingWheel, times(1)).register(eq(this.vdes1000Advertiser), eq("test_aton"), anyLong(), eq(this.bulkhead), any());
+        verify(this.atonTimingWheel, times(1)).retain(this.vdes1000Advertiser, Collections.singleton("test_aton"));
+        verify(this.preSigner, times(1)).retain(this.vdes1000Advertiser, Collections.singleton("test_aton"));
+
         // Make sure the UDP packet was sent to the AIS station
         verify(this.vdes1000Conn, times(1)).sendMessage(any(), eq(this.station.getChannel()));
         verify(this.vdes1000Conn, never()).sendDataWithASM(any(), any());
@@ -243,19 +408,25 @@ class Vdes1000AdvertiserTest {
     /**
      * Test that the VDES-1000 advertiser can actually read the station
      * messages from the message service but will not advertise the ones that
-     * have been blacklisted.
+     * have been blacklisted. These are still registered with the timing
+     * wheel, so that they are advertised again as soon as they are removed
+     * from the blacklist.
      */
     @Test
     void testAdvertiseAtonsBlacklisted() throws VDES1000ConnException {
-        doReturn(Collections.emptyList()).when(this.stationService).findMessagesForStation(eq(this.station.getId()), eq(Boolean.FALSE));
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(true).when(this.blacklistIndex).isBlacklisted(this.station.getId(), "test_aton");
 
         // Initialise the advertiser and perform the component call
-        this.vdes1000Advertiser.station = this.station;
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
         this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
         this.vdes1000Advertiser.signatureDestMmsi = 123456789;
         this.vdes1000Advertiser.advertiseAtons();
 
-        // Make sure the UDP packet was sent to the AIS station
+        // Make sure the AtoN is still registered with the timing wheel
+        verify(this.atonTimingWheel, times(1)).register(eq(this.vdes1000Advertiser), eq("test_aton"), anyLong(), any(), any());
+
+        // Make sure the UDP packet was NOT sent to the AIS station
         verify(this.vdes1000Conn, never()).sendMessage(any(), eq(this.station.getChannel()));
         verify(this.vdes1000Conn, never()).sendMessageWithBBM(any(), any());
         verify(this.vdes1000Conn, never()).sendDataWithASM(any(), any());
@@ -269,16 +440,16 @@ class Vdes1000AdvertiserTest {
      * signature of the first, if that feature is enabled.
      */
     @Test
-    void testAdvertiseAtonsWithSignatureAIS() throws VDES1000ConnException, IOException {
+    void testAdvertiseAtonsWithSignatureAIS() throws VDES1000ConnException, IOException, XMLStreamException {
         // Enable AIS signatures for this station
         this.station.setSignatureMode(SignatureMode.AIS);
 
         doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
-        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(this.station.getId()), eq(Boolean.FALSE));
-        doReturn(this.signature).when(this.cKeeperClient).generateEntitySignature(any(String.class), any(String.class), any(String.class), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(this.signature).when(this.cKeeperGuard).generateEntitySignature(any(String.class), any(String.class), any(String.class), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
 
         // Initialise the advertiser and perform the component call
-        this.vdes1000Advertiser.station = this.station;
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
         this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
         this.vdes1000Advertiser.signatureDestMmsi = 123456789;
 
@@ -286,15 +457,14 @@ class Vdes1000AdvertiserTest {
         final AISMessage21 testMsg = AISMessageUtils.s125ToAisMessage21(this.atonMessageDto);
         testMsg.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochSecond(65535), ZoneOffset.UTC));
 
-        // Now mock the construction of Message 21, to return the test message
-        try (MockedStatic<AISMessageUtils> utilities = Mockito.mockStatic(AISMessageUtils.class)) {
-            utilities.when(() -> AISMessageUtils.s125ToAisMessage21(any())).thenReturn(testMsg);
-            this.vdes1000Advertiser.advertiseAtons();
-        }
+        // Now mock the AtoN message cache, to return the test message
+        doReturn(testMsg).when(this.atonMessageCache).getAisMessage21(any());
+        this.vdes1000Advertiser.advertiseAtons();
 
         // Make sure the UDP packet was sent to the AIS station
         ArgumentCaptor<AbstractMessage> msgArgument = ArgumentCaptor.forClass(AbstractMessage.class);
         verify(this.vdes1000Conn, times(1)).sendMessage(any(), eq(this.station.getChannel()));
+        verify(this.signaturePipeline, times(1)).submit(eq(this.vdes1000Advertiser), any(Callable.class), any());
         verify(this.vdes1000Conn, times(1)).sendMessageWithBBM(msgArgument.capture(), eq(this.station.getChannel()));
         verify(this.vdes1000Conn, never()).sendDataWithASM(any(), any());
         verify(this.vdes1000Conn, never()).sendDataWithVDE(any());
@@ -306,6 +476,30 @@ class Vdes1000AdvertiserTest {
         assertTrue(msgArgument.getValue().getBinaryMessageString().endsWith("1111111111111111"));
     }
 
+    /**
+     * Test that the VDES-1000 advertiser will send the AIS Message 21 of the
+     * AtoN straight away, even if its signature is never generated.
+     */
+    @Test
+    void testAdvertiseAtonsWithSignatureFailure() throws VDES1000ConnException {
+        // Enable AIS signatures for this station
+        this.station.setSignatureMode(SignatureMode.AIS);
+
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(new CompletableFuture<>()).when(this.signaturePipeline).submit(any(), any(Callable.class), any());
+
+        // Initialise the advertiser and perform the component call
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
+        this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
+        this.vdes1000Advertiser.advertiseAtons();
+
+        // Make sure the message was still sent
+        verify(this.signaturePipeline, times(1)).submit(eq(this.vdes1000Advertiser), any(Callable.class), any());
+        verify(this.vdes1000Conn, times(1)).sendMessage(any(), eq(this.station.getChannel()));
+        verify(this.vdes1000Conn, never()).sendMessageWithBBM(any(), any());
+    }
+
     /**
      * Test that the VDES-1000 advertiser can actually read the station
      * messages from the message service and advertise the connected VDES-1000
@@ -318,11 +512,11 @@ class Vdes1000AdvertiserTest {
         this.station.setSignatureMode(SignatureMode.VDE);
 
         doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
-        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(this.station.getId()), eq(Boolean.FALSE));
-        doReturn(this.signature).when(this.cKeeperClient).generateEntitySignature(any(String.class), any(String.class), any(String.class), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(this.signature).when(this.cKeeperGuard).generateEntitySignature(any(String.class), any(String.class), any(String.class), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
 
         // Initialise the advertiser and perform the component call
-        this.vdes1000Advertiser.station = this.station;
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
         this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
         this.vdes1000Advertiser.signatureDestMmsi = 123456789;
         this.vdes1000Advertiser.advertiseAtons();
@@ -334,6 +528,214 @@ class Vdes1000AdvertiserTest {
         verify(this.vdes1000Conn, times(1)).sendDataWithVDE(any());
     }
 
+    /**
+     * Test that in the VDE bulk mode, the VDES-1000 advertiser will hand the
+     * VDE signature messages over to the VDE packer, prioritised by the AtoN
+     * advertisement interval, instead of sending them straight away.
+     */
+    @Test
+    void testAdvertiseAtonsWithSignatureVDEBulk() throws VDES1000ConnException {
+        // Enable VDE signatures for this station
+        this.station.setSignatureMode(SignatureMode.VDE);
+
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(this.signature).when(this.cKeeperGuard).generateEntitySignature(any(String.class), any(String.class), any(String.class), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
+        doReturn(true).when(this.vdePacker).isEnabled();
+        doReturn(true).when(this.vdePacker).add(any(), anyLong(), any());
+        doReturn(10000L).when(this.atonTimingWheel).getInterval(any());
+
+        // Initialise the advertiser and perform the component call
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
+        this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
+        this.vdes1000Advertiser.signatureDestMmsi = 123456789;
+        this.vdes1000Advertiser.advertiseAtons();
+
+        // Make sure the signature message was packed rather than sent
+        verify(this.vdes1000Conn, times(1)).sendMessage(any(), eq(this.station.getChannel()));
+        verify(this.vdePacker, times(1)).add(eq(this.vdes1000Advertiser), eq(10000L), any());
+        verify(this.vdes1000Conn, never()).sendDataWithVDE(any());
+    }
+
+    /**
+     * Test that in the VDE bulk mode, the VDE signature messages rejected by
+     * the VDE packer, i.e. the ones not fitting in a payload, are sent
+     * straight away instead.
+     */
+    @Test
+    void testAdvertiseAtonsWithSignatureVDEBulkRejected() throws VDES1000ConnException {
+        // Enable VDE signatures for this station
+        this.station.setSignatureMode(SignatureMode.VDE);
+
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(this.signature).when(this.cKeeperGuard).generateEntitySignature(any(String.class), any(String.class), any(String.class), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
+        doReturn(true).when(this.vdePacker).isEnabled();
+        doReturn(false).when(this.vdePacker).add(any(), anyLong(), any());
+        doReturn(10000L).when(this.atonTimingWheel).getInterval(any());
+
+        // Initialise the advertiser and perform the component call
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
+        this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
+        this.vdes1000Advertiser.signatureDestMmsi = 123456789;
+        this.vdes1000Advertiser.advertiseAtons();
+
+        // Make sure the signature message was sent on its own
+        verify(this.vdes1000Conn, times(1)).sendMessage(any(), eq(this.station.getChannel()));
+        verify(this.vdePacker, times(1)).add(eq(this.vdes1000Advertiser), eq(10000L), any());
+        verify(this.vdes1000Conn, times(1)).sendDataWithVDE(any());
+    }
+
+    /**
+     * Test that the packed VDE payloads are sent through the VDES-1000
+     * connection.
+     */
+    @Test
+    void testSendVdePayload() throws VDES1000ConnException {
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+
+        // Perform the component call
+        this.vdes1000Advertiser.sendVdePayload(this.signature);
+
+        // Make sure the payload was sent over VDE
+        verify(this.vdes1000Conn, times(1)).sendDataWithVDE(this.signature);
+    }
+
+    /**
+     * Test that the VDES-1000 advertiser will use the signature generated
+     * ahead of time when available, without contacting cKeeper, and will
+     * generate the signature of the next planned transmission in advance.
+     */
+    @Test
+    void testAdvertiseAtonsWithPreSignature() throws VDES1000ConnException {
+        // Enable VDE signatures for this station
+        this.station.setSignatureMode(SignatureMode.VDE);
+
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(Optional.of(this.signature)).when(this.preSigner).take(eq(this.vdes1000Advertiser), eq("test_aton"), any());
+        doReturn(true).when(this.preSigner).isEnabled();
+
+        // Initialise the advertiser and perform the component call
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
+        this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
+        this.vdes1000Advertiser.signatureDestMmsi = 123456789;
+        this.vdes1000Advertiser.advertiseAtons();
+
+        // Make sure the pre-computed signature was sent, without taking a signer
+        verify(this.signaturePipeline, never()).submit(any(), any(Callable.class), any());
+        verify(this.signaturePipeline, times(1)).submit(eq(this.vdes1000Advertiser), any(CompletableFuture.class), any());
+        verify(this.cKeeperGuard, never()).generateEntitySignature(any(), any(), any(), any(), any());
+        verify(this.vdes1000Conn, times(1)).sendMessage(any(), eq(this.station.getChannel()));
+        verify(this.vdes1000Conn, times(1)).sendDataWithVDE(this.signature);
+
+        // And that the next transmission was signed ahead of time
+        verify(this.preSigner, times(1)).preSign(eq(this.vdes1000Advertiser), eq("test_aton"), any(), any());
+    }
+
+    /**
+     * Test that in the MERKLE signature mode the VDES-1000 advertiser will
+     * send the messages without any individual signatures, but will record
+     * them in the station's Merkle window.
+     */
+    @Test
+    void testAdvertiseAtonsWithSignatureMerkle() throws VDES1000ConnException {
+        // Enable Merkle signatures for this station
+        this.station.setSignatureMode(SignatureMode.MERKLE);
+
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+
+        // Initialise the advertiser and perform the component call
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
+        this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
+        this.vdes1000Advertiser.advertiseAtons();
+
+        // Make sure only the message was sent and recorded
+        verify(this.merkleAggregator, times(1)).close(this.vdes1000Advertiser);
+        verify(this.merkleAggregator, times(1)).add(eq(this.vdes1000Advertiser), argThat(message -> "test_aton".equals(message.getUid())), any(String.class));
+        verify(this.signaturePipeline, never()).submit(any(), any(Callable.class), any());
+        verify(this.vdes1000Conn, times(1)).sendMessage(any(), eq(this.station.getChannel()));
+        verify(this.vdes1000Conn, never()).sendMessageWithBBM(any(), any());
+        verify(this.vdes1000Conn, never()).sendDataWithVDE(any());
+    }
+
+    /**
+     * Test that in the MERKLE signature mode the VDES-1000 advertiser will
+     * sign a Merkle window straight away if it fills up before the end of
+     * the cycle.
+     */
+    @Test
+    void testAdvertiseAtonsWithSignatureMerkleWindowFull() throws VDES1000ConnException {
+        // Enable Merkle signatures for this station
+        this.station.setSignatureMode(SignatureMode.MERKLE);
+
+        final MerkleAggregator.MerkleWindow window = new MerkleAggregator.MerkleWindow(65535, List.of(new byte[32], new byte[32]), new byte[32]);
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+        doReturn(Collections.singletonList(this.atonMessageDto)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
+        doReturn(Optional.of(window)).when(this.merkleAggregator).add(eq(this.vdes1000Advertiser), any(), any());
+        doReturn(this.signature).when(this.cKeeperGuard).generateEntitySignature(eq(this.station.getName()), eq(this.station.getMmsi()), eq("algorithm"), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
+
+        // Initialise the advertiser and perform the component call
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
+        this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
+        this.vdes1000Advertiser.advertiseAtons();
+
+        // Make sure the message was sent and the full window signed
+        verify(this.vdes1000Conn, times(1)).sendMessage(any(), eq(this.station.getChannel()));
+        verify(this.signaturePipeline, times(1)).submit(eq(this.vdes1000Advertiser), any(Callable.class), any());
+        verify(this.vdes1000Conn, times(1)).sendDataWithVDE(window.toDigestList(this.signature));
+    }
+
+    /**
+     * Test that the VDES-1000 advertiser will sign the Merkle window of the
+     * previous cycle on behalf of the station, and transmit the signature
+     * along with the message digests over VDE.
+     */
+    @Test
+    void testSignMerkleWindow() throws VDES1000ConnException {
+        final MerkleAggregator.MerkleWindow window = new MerkleAggregator.MerkleWindow(65535, List.of(new byte[32], new byte[32]), new byte[32]);
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+        doReturn(Optional.of(window)).when(this.merkleAggregator).close(this.vdes1000Advertiser);
+        doReturn(this.signature).when(this.cKeeperGuard).generateEntitySignature(eq(this.station.getName()), eq(this.station.getMmsi()), eq("algorithm"), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
+
+        // Initialise the advertiser and perform the component call
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
+        this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
+        this.vdes1000Advertiser.signMerkleWindow();
+
+        // Make sure the signature and the digest list were sent over VDE
+        verify(this.vdes1000Conn, times(1)).sendDataWithVDE(window.toDigestList(this.signature));
+        verify(this.vdes1000Conn, never()).sendMessage(any(), any());
+    }
+
+    /**
+     * Test that the VDES-1000 advertiser will split the digest list of a
+     * Merkle window into frames of the VDE packer frame size, and send them
+     * one after the other.
+     */
+    @Test
+    void testSignMerkleWindowInFrames() throws VDES1000ConnException {
+        final MerkleAggregator.MerkleWindow window = new MerkleAggregator.MerkleWindow(65535, List.of(new byte[32], new byte[32], new byte[32]), new byte[32]);
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+        doReturn(Optional.of(window)).when(this.merkleAggregator).close(this.vdes1000Advertiser);
+        doReturn(this.signature).when(this.cKeeperGuard).generateEntitySignature(eq(this.station.getName()), eq(this.station.getMmsi()), eq("algorithm"), eq(McpEntityType.DEVICE.getValue()), any(byte[].class));
+        doReturn(64).when(this.vdePacker).getFrameSize();
+
+        // Initialise the advertiser and perform the component call
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
+        this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
+        this.vdes1000Advertiser.signMerkleWindow();
+
+        // Make sure the digest list was sent in frames of the packer frame size
+        final List<byte[]> frames = window.toDigestFrames(this.signature, 64);
+        assertTrue(frames.size() > 1);
+        for (byte[] frame : frames) {
+            verify(this.vdes1000Conn, times(1)).sendDataWithVDE(frame);
+        }
+        verify(this.vdes1000Conn, times(frames.size())).sendDataWithVDE(any());
+    }
+
     /**
      * Test that the VDES-1000 advertiser will not actually send anything
      * if an empty/null S125 message is received
@@ -344,10 +746,10 @@ class Vdes1000AdvertiserTest {
         this.station.setSignatureMode(SignatureMode.AIS);
 
         this.atonMessageDto.setContent(null);
-        doReturn(Collections.singletonList(null)).when(this.stationService).findMessagesForStation(eq(this.station.getId()), eq(Boolean.FALSE));
+        doReturn(Collections.singletonList(null)).when(this.stationService).findMessagesForStation(eq(StationSnapshot.of(this.station)), eq(Boolean.TRUE));
 
         // Initialise the advertiser and perform the component call
-        this.vdes1000Advertiser.station = this.station;
+        this.vdes1000Advertiser.station = StationSnapshot.of(this.station);
         this.vdes1000Advertiser.signatureAlgorithm = "algorithm";
         this.vdes1000Advertiser.signatureDestMmsi = 123456789;
 
@@ -364,10 +766,15 @@ class Vdes1000AdvertiserTest {
     /**
      * Test that the VDES-1000 connection monitoring handler will pick up
      * the received messages and attempt to publish them in the publish
-     * subscribe channel.
+     * subscribe channel, as well as hand them over to the UDP forwarder,
+     * which will forward them to the station forward targets if defined.
      */
     @Test
     void testHandleMessage() throws IOException, VDES1000ConnException {
+        // Turn on the forwarding
+        this.station.setFwdIpAddress("10.0.0.2");
+        this.station.setFwdPort(8003);
+
         // Initialise the advertiser
         doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
         this.vdes1000Advertiser.init(this.station);
@@ -386,49 +793,119 @@ class Vdes1000AdvertiserTest {
         assertEquals(this.station.getMmsi(), messageArgument.getValue().getHeaders().get(PubSubMsgHeaders.MMSI.getHeader()));
         assertEquals("This is a test message", messageArgument.getValue().getPayload());
 
-        // Verify that no forwarding took place
-        verify(this.fwdSocket, never()).send(any());
+        // Verify that the message was handed over for forwarding
+        verify(this.udpForwarder, times(1)).register(this.vdes1000Advertiser, this.station);
+        verify(this.udpForwarder, times(1)).forward(this.vdes1000Advertiser, "This is a test message");
     }
 
     /**
-     * Test that the VDES-1000 connection monitoring handler will pick up
-     * the received messages and attempt to publish them in the publish
-     * subscribe channel, as well as forward them in the forward port if that
-     * has been defined.
+     * Test that when a received sentence completes an AIS message, the
+     * decoded message is also published in the publish subscribe channel.
      */
     @Test
-    void testHandleMessageWithForward() throws IOException, VDES1000ConnException {
-        // Turn on the forwarding
-        this.station.setFwdIpAddress("10.0.0.2");
-        this.station.setFwdPort(8003);
+    void testHandleMessageDecoded() throws IOException, VDES1000ConnException {
+        final AisMessageDto aisMessage = new AisMessageDto("VDM", 'B', "177KQJ5000G?tO`K>RA1wUbN0TKH".getBytes(StandardCharsets.US_ASCII), 0);
+        doReturn(Optional.of(aisMessage)).when(this.nmeaParser).parse(any(), any(String.class));
 
         // Initialise the advertiser
         doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
-        doReturn(this.fwdSocket).when(vdes1000Advertiser).getFwdSocket();
         this.vdes1000Advertiser.init(this.station);
 
-        // Spy on the publish/subscribe channel to pick up the published message
+        // Spy on the publish/subscribe channel to pick up the published messages
         ArgumentCaptor<Message> messageArgument = ArgumentCaptor.forClass(Message.class);
 
-        // Spy on the forward
-        ArgumentCaptor<DatagramPacket> datagramPacketArgument = ArgumentCaptor.forClass(DatagramPacket.class);
+        // Perform the component call
+        this.vdes1000Advertiser.handleMessage("!AIVDM,1,1,,B,177KQJ5000G?tO`K>RA1wUbN0TKH,0*5C");
+
+        // Verify that both the sentence and the AIS message were published
+        verify(this.publishSubscribeChannel, times(2)).send(messageArgument.capture());
+        assertEquals("!AIVDM,1,1,,B,177KQJ5000G?tO`K>RA1wUbN0TKH,0*5C", messageArgument.getAllValues().get(0).getPayload());
+        assertSame(aisMessage, messageArgument.getAllValues().get(1).getPayload());
+        assertEquals(this.station.getMmsi(), messageArgument.getAllValues().get(1).getHeaders().get(PubSubMsgHeaders.MMSI.getHeader()));
+    }
+
+    /**
+     * Test that when the receive ring buffer is enabled, the received
+     * messages are published there instead, along with the station source,
+     * and are left to its subscribers to forward.
+     */
+    @Test
+    void testHandleMessageRingBuffer() throws IOException, VDES1000ConnException {
+        final ReceiveRingBuffer.Source source = new ReceiveRingBuffer.Source(this.vdes1000Advertiser, this.station.getType(), this.station.getIpAddress(), this.station.getBroadcastPort(), this.station.getMmsi());
+        doReturn(source).when(this.receiveRingBuffer).source(any(), any());
+        doReturn(Boolean.TRUE).when(this.receiveRingBuffer).isEnabled();
+
+        // Initialise the advertiser
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+        this.vdes1000Advertiser.init(this.station);
 
         // Perform the component call
         this.vdes1000Advertiser.handleMessage("This is a test message");
 
-        // Verify that a correct message was published
+        // Verify that the message was published in the ring buffer only
+        verify(this.receiveRingBuffer, times(1)).publish(source, "This is a test message");
+        verify(this.publishSubscribeChannel, never()).send(any());
+        verify(this.udpForwarder, never()).forward(any(), any(String.class));
+    }
+
+    /**
+     * Test that when the striped dispatcher is enabled, the received messages
+     * are sent to the publish subscribe channel on the stripe of the station,
+     * in the order they were received.
+     */
+    @Test
+    void testHandleMessageStriped() throws IOException, VDES1000ConnException {
+        final AisMessageDto aisMessage = new AisMessageDto("VDM", 'B', "177KQJ5000G?tO`K>RA1wUbN0TKH".getBytes(StandardCharsets.US_ASCII), 0);
+        doReturn(Optional.of(aisMessage)).when(this.nmeaParser).parse(any(), any(String.class));
+        doReturn(Boolean.TRUE).when(this.stripedDispatcher).isEnabled();
+
+        // Initialise the advertiser
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+        this.vdes1000Advertiser.init(this.station);
+
+        // Perform the component call
+        this.vdes1000Advertiser.handleMessage("!AIVDM,1,1,,B,177KQJ5000G?tO`K>RA1wUbN0TKH,0*5C");
+
+        // Verify that both messages were dispatched on the station stripe
+        ArgumentCaptor<Runnable> taskArgument = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.stripedDispatcher, times(2)).dispatch(eq(this.station.getIpAddress() + ":" + this.station.getBroadcastPort()), taskArgument.capture());
+        verify(this.publishSubscribeChannel, never()).send(any());
+
+        // And that running the dispatched tasks sends them in order
+        taskArgument.getAllValues().forEach(Runnable::run);
+        ArgumentCaptor<Message> messageArgument = ArgumentCaptor.forClass(Message.class);
+        verify(this.publishSubscribeChannel, times(2)).send(messageArgument.capture());
+        assertEquals("!AIVDM,1,1,,B,177KQJ5000G?tO`K>RA1wUbN0TKH,0*5C", messageArgument.getAllValues().get(0).getPayload());
+        assertSame(aisMessage, messageArgument.getAllValues().get(1).getPayload());
+    }
+
+    /**
+     * Test that the raw messages picked up by the shared VDES-1000 receiver
+     * are published in the publish subscribe channel as they are, without
+     * being decoded, and handed over to the UDP forwarder.
+     */
+    @Test
+    void testHandleRawMessage() throws IOException, VDES1000ConnException {
+        final byte[] message = "This is a test message".getBytes(StandardCharsets.US_ASCII);
+
+        // Initialise the advertiser
+        doReturn(this.vdes1000Conn).when(vdes1000Advertiser).getVdes1000Conn();
+        this.vdes1000Advertiser.init(this.station);
+
+        // Spy on the publish/subscribe channel to pick up the published message
+        ArgumentCaptor<Message> messageArgument = ArgumentCaptor.forClass(Message.class);
+
+        // Perform the component call
+        this.vdes1000Advertiser.handleRawMessage(message);
+
+        // Verify that the raw message was published
         verify(this.publishSubscribeChannel, times(1)).send(messageArgument.capture());
         assertEquals(this.station.getType(), messageArgument.getValue().getHeaders().get(MessageHeaders.CONTENT_TYPE));
-        assertEquals(this.station.getIpAddress(), messageArgument.getValue().getHeaders().get(PubSubMsgHeaders.ADDRESS.getHeader()));
-        assertEquals(this.station.getBroadcastPort(), messageArgument.getValue().getHeaders().get(PubSubMsgHeaders.PORT.getHeader()));
         assertEquals(this.station.getMmsi(), messageArgument.getValue().getHeaders().get(PubSubMsgHeaders.MMSI.getHeader()));
-        assertEquals("This is a test message", messageArgument.getValue().getPayload());
+        assertSame(message, messageArgument.getValue().getPayload());
 
-        // Verify that the correcy datagram packet was sent
-        verify(this.fwdSocket, times(1)).send(datagramPacketArgument.capture());
-        assertEquals(this.station.getFwdIpAddress(), datagramPacketArgument.getValue().getAddress().getHostAddress());
-        assertEquals(this.station.getFwdPort(), datagramPacketArgument.getValue().getPort());
-        assertEquals("This is a test message", new String(datagramPacketArgument.getValue().getData()));
+        // Verify that the message was handed over for forwarding
+        verify(this.udpForwarder, times(1)).forward(this.vdes1000Advertiser, message);
     }
 
-}
\ No newline at end of file
+}
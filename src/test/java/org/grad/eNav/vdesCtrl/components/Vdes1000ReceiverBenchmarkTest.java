@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The VDES-1000 Receiver Benchmark.
+ * <p/>
+ * Compares the thread count and heap use of monitoring the broadcast ports
+ * of 500 stations with a blocking receive thread per station, as done by
+ * each VDES-1000 connection, against the shared selector-based receiver.
+ * The per-station model is emulated with a single thread per port, so its
+ * figures are a lower bound.
+ * <p/>
+ * This is only run on demand, i.e. with "mvn test -Dbenchmark=true
+ * -Dtest=Vdes1000ReceiverBenchmarkTest".
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class Vdes1000ReceiverBenchmarkTest {
+
+    /**
+     * The number of stations to benchmark.
+     */
+    static final int STATIONS = 500;
+
+    // Test Variables
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+
+    /**
+     * Benchmark the thread count and heap use of both receive models, making
+     * sure that every station datagram is received by each.
+     */
+    @Test
+    void benchmarkReceiveModels() throws IOException, InterruptedException {
+        final long[] perStation = this.benchmarkPerStationThreads();
+        final long[] shared = this.benchmarkSharedReceiver();
+
+        log.info("VDES-1000 receive benchmark for {} stations:", STATIONS);
+        log.info("  Thread per station: {} threads, {} KB heap", perStation[0], perStation[1] / 1024);
+        log.info("  Shared receiver:    {} threads, {} KB heap", shared[0], shared[1] / 1024);
+
+        // The shared receiver should need only a handful of threads
+        assertTrue(perStation[0] >= STATIONS);
+        assertTrue(shared[0] < perStation[0]);
+    }
+
+    /**
+     * Monitors the station ports with a blocking receive thread each.
+     *
+     * @return the thread count and heap use deltas
+     */
+    private long[] benchmarkPerStationThreads() throws IOException, InterruptedException {
+        final long[] baseline = this.snapshot();
+        final CountDownLatch latch = new CountDownLatch(STATIONS);
+        final List<DatagramSocket> sockets = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < STATIONS; i++) {
+            final DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+            final Thread thread = new Thread(() -> {
+                final DatagramPacket packet = new DatagramPacket(new byte[Vdes1000Receiver.MAX_DATAGRAM_SIZE], Vdes1000Receiver.MAX_DATAGRAM_SIZE);
+                try {
+                    while(!socket.isClosed()) {
+                        socket.receive(packet);
+                        new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.US_ASCII);
+                        latch.countDown();
+                    }
+                } catch (IOException ex) {
+                    // Socket closed
+                }
+            }, "station-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            sockets.add(socket);
+            threads.add(thread);
+        }
+
+        // Send a sentence to each station and take the measurements
+        this.sendToAll(sockets.stream().map(DatagramSocket::getLocalPort).toList());
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        final long[] result = this.delta(baseline);
+
+        // Clean up
+        sockets.forEach(DatagramSocket::close);
+        for(Thread thread : threads) {
+            thread.join(1000);
+        }
+        return result;
+    }
+
+    /**
+     * Monitors the station ports with the shared selector-based receiver.
+     *
+     * @return the thread count and heap use deltas
+     */
+    private long[] benchmarkSharedReceiver() throws IOException, InterruptedException {
+        final long[] baseline = this.snapshot();
+        final CountDownLatch latch = new CountDownLatch(STATIONS);
+        final Vdes1000Receiver receiver = new Vdes1000Receiver();
+        receiver.enabled = true;
+        receiver.threads = 1;
+        receiver.meterRegistry = new SimpleMeterRegistry();
+        receiver.init();
+        final List<Integer> ports = new ArrayList<>();
+        for(int i = 0; i < STATIONS; i++) {
+            final int port = Vdes1000ReceiverTest.freePort();
+            receiver.register(new Object(), port, message -> latch.countDown());
+            ports.add(port);
+        }
+
+        // Send a sentence to each station and take the measurements
+        this.sendToAll(ports);
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        final long[] result = this.delta(baseline);
+
+        // Clean up
+        receiver.destroy();
+        return result;
+    }
+
+    /**
+     * Sends a single sentence to each of the provided local ports.
+     *
+     * @param ports the local ports
+     */
+    private void sendToAll(List<Integer> ports) throws IOException {
+        final byte[] data = "!AIVDM,1,1,,A,15M67FC000G?ufbE`FepT@3n00Sa,0*5C\r\n".getBytes(StandardCharsets.US_ASCII);
+        try(DatagramSocket sender = new DatagramSocket()) {
+            for(int port : ports) {
+                sender.send(new DatagramPacket(data, data.length, InetAddress.getLoopbackAddress(), port));
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of the live thread count and the used heap, after a
+     * garbage collection.
+     *
+     * @return the thread count and the used heap
+     */
+    private long[] snapshot() throws InterruptedException {
+        System.gc();
+        Thread.sleep(200);
+        return new long[]{this.threadMXBean.getThreadCount(), this.memoryMXBean.getHeapMemoryUsage().getUsed()};
+    }
+
+    /**
+     * Takes a new snapshot and returns its difference from the baseline.
+     *
+     * @param baseline the baseline snapshot
+     * @return the thread count and heap use deltas
+     */
+    private long[] delta(long[] baseline) throws InterruptedException {
+        final long[] current = this.snapshot();
+        return new long[]{current[0] - baseline[0], Math.max(0, current[1] - baseline[1])};
+    }
+
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class Vdes1000ReceiverTest {
+
+    /**
+     * The Tested Component.
+     */
+    @InjectMocks
+    Vdes1000Receiver vdes1000Receiver;
+
+    // Test Variables
+    private DatagramSocket sender;
+    private BlockingQueue<String> received;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        this.sender = new DatagramSocket();
+        this.received = new LinkedBlockingQueue<>();
+
+        // Initialise the receiver
+        this.vdes1000Receiver.enabled = true;
+        this.vdes1000Receiver.threads = 2;
+        this.vdes1000Receiver.meterRegistry = new SimpleMeterRegistry();
+        this.vdes1000Receiver.init();
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.vdes1000Receiver.destroy();
+        this.sender.close();
+    }
+
+    /**
+     * Test that the sentences received on the registered broadcast ports are
+     * handed over to the station handlers, one by one.
+     */
+    @Test
+    void testReceive() throws IOException, InterruptedException {
+        final int port = freePort();
+        this.vdes1000Receiver.register(this, port, message -> this.received.add(new String(message, StandardCharsets.US_ASCII)));
+
+        // Send a datagram with two sentences
+        this.send(port, "!AIVDM,1,1,,A,first,0*00\r\n!AIVDM,1,1,,A,second,0*00\r\n");
+
+        // Make sure both sentences were handed over
+        assertEquals("!AIVDM,1,1,,A,first,0*00", this.received.poll(2, TimeUnit.SECONDS));
+        assertEquals("!AIVDM,1,1,,A,second,0*00", this.received.poll(2, TimeUnit.SECONDS));
+        assertEquals(1, this.vdes1000Receiver.registrations.size());
+        assertEquals(1.0, this.vdes1000Receiver.meterRegistry.find("vdes1000.receiver.datagrams").counter().count());
+    }
+
+    /**
+     * Test that the broadcast ports are spread across the selector threads.
+     */
+    @Test
+    void testRegisterBalanced() throws IOException {
+        final Object first = new Object();
+        final Object second = new Object();
+
+        // Perform the component calls
+        this.vdes1000Receiver.register(first, freePort(), message -> {});
+        this.vdes1000Receiver.register(second, freePort(), message -> {});
+
+        // Make sure each selector serves one channel
+        assertEquals(2, this.vdes1000Receiver.loops.size());
+        this.vdes1000Receiver.loops.forEach(loop -> assertEquals(1, loop.getChannels()));
+    }
+
+    /**
+     * Test that the cancelled broadcast ports are no longer monitored.
+     */
+    @Test
+    void testCancel() throws IOException, InterruptedException {
+        final int port = freePort();
+        this.vdes1000Receiver.register(this, port, message -> this.received.add(new String(message, StandardCharsets.US_ASCII)));
+
+        // Perform the component call
+        this.vdes1000Receiver.cancel(this);
+
+        // Give the selector some time to close the channel
+        assertTrue(this.vdes1000Receiver.registrations.isEmpty());
+        Thread.sleep(200);
+
+        // Make sure nothing is received
+        this.send(port, "!AIVDM,1,1,,A,message,0*00");
+        assertNull(this.received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Test that the broadcast ports cannot be registered while the receiver
+     * is disabled.
+     */
+    @Test
+    void testRegisterDisabled() {
+        this.vdes1000Receiver.destroy();
+        this.vdes1000Receiver.enabled = false;
+
+        // Make sure the registration fails
+        assertFalse(this.vdes1000Receiver.isEnabled());
+        assertThrows(IOException.class, () -> this.vdes1000Receiver.register(this, freePort(), message -> {}));
+        assertTrue(this.vdes1000Receiver.registrations.isEmpty());
+    }
+
+    /**
+     * Test that in virtual thread mode, the receiver is enabled without the
+     * selector threads, and the broadcast ports are read by virtual threads
+     * of their own until cancelled.
+     */
+    @Test
+    void testReceiveVirtualThreads() throws IOException, InterruptedException {
+        this.vdes1000Receiver.destroy();
+        this.vdes1000Receiver.enabled = false;
+        this.vdes1000Receiver.virtualThreads = true;
+        this.vdes1000Receiver.meterRegistry = new SimpleMeterRegistry();
+        this.vdes1000Receiver.init();
+        final int port = freePort();
+        final BlockingQueue<Boolean> virtual = new LinkedBlockingQueue<>();
+        this.vdes1000Receiver.register(this, port, message -> {
+            virtual.add(Thread.currentThread().isVirtual());
+            this.received.add(new String(message, StandardCharsets.US_ASCII));
+        });
+
+        // Send a datagram and make sure it was handed over on a virtual thread
+        this.send(port, "!AIVDM,1,1,,A,message,0*00\r\n");
+        assertEquals("!AIVDM,1,1,,A,message,0*00", this.received.poll(2, TimeUnit.SECONDS));
+        assertTrue(virtual.poll(2, TimeUnit.SECONDS));
+        assertTrue(this.vdes1000Receiver.isEnabled());
+        assertTrue(this.vdes1000Receiver.loops.isEmpty());
+
+        // Cancel the port and make sure nothing else is received
+        this.vdes1000Receiver.cancel(this);
+        Thread.sleep(200);
+        this.send(port, "!AIVDM,1,1,,A,message,0*00");
+        assertNull(this.received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Test that in virtual thread mode, the datagrams larger than a network
+     * frame are received in full.
+     */
+    @Test
+    void testReceiveVirtualThreadsLargeDatagram() throws IOException, InterruptedException {
+        this.vdes1000Receiver.destroy();
+        this.vdes1000Receiver.virtualThreads = true;
+        this.vdes1000Receiver.meterRegistry = new SimpleMeterRegistry();
+        this.vdes1000Receiver.init();
+        final int port = freePort();
+        this.vdes1000Receiver.register(this, port, message -> this.received.add(new String(message, StandardCharsets.US_ASCII)));
+
+        // Send a datagram larger than a network frame
+        final String sentence = "!AIVDM," + "A".repeat(20000);
+        this.send(port, sentence);
+
+        // Make sure it was not truncated
+        assertEquals(sentence, this.received.poll(2, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test that the consecutive receive errors of a port are retried with an
+     * increasing delay, rather than straight away.
+     */
+    @Test
+    void testReceiveBackoff() throws IOException, InterruptedException {
+        final DatagramChannel channel = mock(DatagramChannel.class);
+        doReturn(true).when(channel).isOpen();
+        doThrow(new IOException("receive failure")).when(channel).receive(any());
+
+        // Read the failing channel for a while
+        final Thread thread = Thread.ofVirtual().start(() ->
+                this.vdes1000Receiver.receive(new Vdes1000Receiver.Registration(channel, message -> {}, null)));
+        Thread.sleep(500);
+        thread.interrupt();
+        thread.join(2000);
+
+        // Make sure the errors were retried after 100, 200 and 400 milliseconds
+        assertFalse(thread.isAlive());
+        verify(channel, atMost(3)).receive(any());
+    }
+
+    /**
+     * Test that the datagrams are split into their sentences, skipping any
+     * empty lines.
+     */
+    @Test
+    void testDispatch() {
+        final List<String> sentences = new ArrayList<>();
+
+        // Perform the component call
+        Vdes1000Receiver.dispatch(ByteBuffer.wrap("\r\nfirst\r\n\nsecond".getBytes(StandardCharsets.US_ASCII)),
+                message -> sentences.add(new String(message, StandardCharsets.US_ASCII)));
+
+        // Make sure the sentences were split correctly
+        assertEquals(List.of("first", "second"), sentences);
+    }
+
+    /**
+     * Helper function to send a datagram to a local port.
+     *
+     * @param port the local port
+     * @param content the datagram content
+     */
+    private void send(int port, String content) throws IOException {
+        final byte[] data = content.getBytes(StandardCharsets.US_ASCII);
+        this.sender.send(new DatagramPacket(data, data.length, InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Helper function to find a free local UDP port.
+     *
+     * @return the free local UDP port
+     */
+    static int freePort() throws IOException {
+        try(DatagramSocket socket = new DatagramSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+}
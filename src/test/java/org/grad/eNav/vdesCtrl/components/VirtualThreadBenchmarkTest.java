@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.components;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The Virtual Thread Benchmark.
+ * <p/>
+ * Compares the platform thread count, heap use and completion time of a
+ * single advertising cycle for 1000 simulated stations, when the cycles are
+ * run by a bulkhead of platform threads against one of virtual threads. Each
+ * cycle blocks for a while, as if waiting for the AtoN service and the
+ * station transmission, so the bulkheads are sized to let all of them run
+ * at once.
+ * <p/>
+ * This is only run on demand, i.e. with "mvn test -Dbenchmark=true
+ * -Dtest=VirtualThreadBenchmarkTest".
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VirtualThreadBenchmarkTest {
+
+    /**
+     * The number of stations to benchmark.
+     */
+    static final int STATIONS = 1000;
+
+    /**
+     * The simulated blocking time of each cycle in milliseconds.
+     */
+    static final long BLOCKING_TIME = 50;
+
+    /**
+     * The cycle period in milliseconds, over which the stations are phased.
+     */
+    static final long PERIOD = 200;
+
+    // Test Variables
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+
+    /**
+     * Benchmark both thread models, making sure that every station cycle is
+     * completed by each.
+     */
+    @Test
+    void benchmarkThreadModels() throws InterruptedException {
+        final long[] platform = this.benchmarkCycles(false);
+        final long[] virtual = this.benchmarkCycles(true);
+
+        log.info("Station cycle benchmark for {} stations:", STATIONS);
+        log.info("  Platform threads: {} peak threads, {} KB heap, {} ms", platform[0], platform[1] / 1024, platform[2]);
+        log.info("  Virtual threads:  {} peak threads, {} KB heap, {} ms", virtual[0], virtual[1] / 1024, virtual[2]);
+
+        // The virtual threads should only need a handful of carrier threads
+        assertTrue(platform[0] >= STATIONS);
+        assertTrue(virtual[0] < platform[0]);
+    }
+
+    /**
+     * Runs a single cycle for each of the simulated stations, on a bulkhead
+     * of platform or virtual threads.
+     *
+     * @param virtual whether to use virtual threads
+     * @return the peak thread count and heap use deltas, and the completion time
+     */
+    private long[] benchmarkCycles(boolean virtual) throws InterruptedException {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final ExecutorBulkheads.Bulkhead bulkhead = new ExecutorBulkheads.Bulkhead(ExecutorBulkheads.VDES1000_ADVERTISING,
+                STATIONS, STATIONS, STATIONS, ExecutorBulkheads.RejectionPolicy.ABORT,
+                meterRegistry.counter("rejected"), virtual);
+        final StationCycleExecutor stationCycleExecutor = new StationCycleExecutor();
+        stationCycleExecutor.period = PERIOD;
+        stationCycleExecutor.overlapPolicy = StationCycleExecutor.OverlapPolicy.SKIP;
+        stationCycleExecutor.meterRegistry = meterRegistry;
+        stationCycleExecutor.init();
+
+        // Register the stations and take the baseline
+        final List<Object> stations = new ArrayList<>();
+        for(int i = 0; i < STATIONS; i++) {
+            final Object station = new Object();
+            stationCycleExecutor.register(station, "station-" + i, bulkhead);
+            stations.add(station);
+        }
+        final long[] baseline = this.snapshot();
+        this.threadMXBean.resetPeakThreadCount();
+
+        // Submit a blocking cycle for each station and wait for all of them
+        final CountDownLatch latch = new CountDownLatch(STATIONS);
+        final long start = System.nanoTime();
+        stations.forEach(station -> stationCycleExecutor.submit(station, () -> {
+            try {
+                Thread.sleep(BLOCKING_TIME);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            latch.countDown();
+        }));
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        final long peakThreads = this.threadMXBean.getPeakThreadCount() - baseline[0];
+        final long heap = Math.max(0, this.memoryMXBean.getHeapMemoryUsage().getUsed() - baseline[1]);
+
+        // Clean up
+        assertEquals(0, bulkhead.getRejected());
+        stationCycleExecutor.destroy();
+        bulkhead.shutdownNow();
+        return new long[]{peakThreads, heap, elapsed};
+    }
+
+    /**
+     * Takes a snapshot of the live thread count and the used heap, after a
+     * garbage collection.
+     *
+     * @return the thread count and the used heap
+     */
+    private long[] snapshot() throws InterruptedException {
+        System.gc();
+        Thread.sleep(200);
+        return new long[]{this.threadMXBean.getThreadCount(), this.memoryMXBean.getHeapMemoryUsage().getUsed()};
+    }
+
+}
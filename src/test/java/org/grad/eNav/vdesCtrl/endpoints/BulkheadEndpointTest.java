@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.endpoints;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.grad.eNav.vdesCtrl.components.ExecutorBulkheads;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+class BulkheadEndpointTest {
+
+    /**
+     * The Tested Endpoint.
+     */
+    @InjectMocks
+    BulkheadEndpoint bulkheadEndpoint;
+
+    /**
+     * The Executor Bulkheads mock.
+     */
+    @Mock
+    ExecutorBulkheads executorBulkheads;
+
+    // Test Variables
+    private ExecutorBulkheads.Bulkhead remoteIo;
+    private ExecutorBulkheads.Bulkhead receiveDispatch;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        this.remoteIo = new ExecutorBulkheads.Bulkhead(ExecutorBulkheads.REMOTE_IO, 8, 8, 16,
+                ExecutorBulkheads.RejectionPolicy.ABORT, meterRegistry.counter("remote"));
+        this.receiveDispatch = new ExecutorBulkheads.Bulkhead(ExecutorBulkheads.RECEIVE_DISPATCH, 2, 10, 500,
+                ExecutorBulkheads.RejectionPolicy.CALLER_RUNS, meterRegistry.counter("receive"));
+    }
+
+    /**
+     * Common teardown for all the tests.
+     */
+    @AfterEach
+    void teardown() {
+        this.remoteIo.shutdownNow();
+        this.receiveDispatch.shutdownNow();
+    }
+
+    /**
+     * Test that the endpoint reports the state of all the bulkheads, sorted
+     * by their names.
+     */
+    @Test
+    void testBulkheads() {
+        doReturn(List.of(this.remoteIo, this.receiveDispatch)).when(this.executorBulkheads).getBulkheads();
+
+        // Perform the endpoint call
+        final Map<String, Object> result = this.bulkheadEndpoint.bulkheads();
+
+        // Make sure the response is correct
+        assertEquals(List.of(ExecutorBulkheads.RECEIVE_DISPATCH, ExecutorBulkheads.REMOTE_IO), List.copyOf(result.keySet()));
+        final Map<String, Object> remoteIo = (Map<String, Object>) result.get(ExecutorBulkheads.REMOTE_IO);
+        assertEquals(8, remoteIo.get("coreSize"));
+        assertEquals(8, remoteIo.get("maxSize"));
+        assertEquals(0, remoteIo.get("active"));
+        assertEquals(0, remoteIo.get("queued"));
+        assertEquals(16, remoteIo.get("queueRemaining"));
+        assertEquals(0L, remoteIo.get("rejected"));
+        assertEquals(ExecutorBulkheads.RejectionPolicy.ABORT, remoteIo.get("rejectionPolicy"));
+    }
+
+    /**
+     * Test that the endpoint resizes a bulkhead and changes its rejection
+     * policy, leaving any parameters not provided unchanged.
+     */
+    @Test
+    void testResize() {
+        doReturn(this.receiveDispatch).when(this.executorBulkheads).get(ExecutorBulkheads.RECEIVE_DISPATCH);
+
+        // Perform the endpoint calls
+        Map<String, Object> result = this.bulkheadEndpoint.resize(ExecutorBulkheads.RECEIVE_DISPATCH, 4, null, null);
+        assertEquals(4, result.get("coreSize"));
+        assertEquals(10, result.get("maxSize"));
+        assertEquals(ExecutorBulkheads.RejectionPolicy.CALLER_RUNS, result.get("rejectionPolicy"));
+        result = this.bulkheadEndpoint.resize(ExecutorBulkheads.RECEIVE_DISPATCH, null, 6, ExecutorBulkheads.RejectionPolicy.DISCARD_OLDEST);
+        assertEquals(4, result.get("coreSize"));
+        assertEquals(6, result.get("maxSize"));
+        assertEquals(ExecutorBulkheads.RejectionPolicy.DISCARD_OLDEST, result.get("rejectionPolicy"));
+
+        // Make sure invalid sizes are rejected
+        assertThrows(IllegalArgumentException.class, () -> this.bulkheadEndpoint.resize(ExecutorBulkheads.RECEIVE_DISPATCH, null, 2, null));
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.endpoints;
+
+import org.grad.eNav.vdesCtrl.components.CKeeperGuard;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+class CKeeperEndpointTest {
+
+    /**
+     * The Tested Endpoint.
+     */
+    @InjectMocks
+    CKeeperEndpoint cKeeperEndpoint;
+
+    /**
+     * The CKeeper Guard mock.
+     */
+    @Mock
+    CKeeperGuard cKeeperGuard;
+
+    /**
+     * Test that the endpoint reports the state of the cKeeper guard.
+     */
+    @Test
+    void testCKeeper() {
+        doReturn(CKeeperGuard.CircuitState.OPEN).when(this.cKeeperGuard).getState();
+        doReturn(5).when(this.cKeeperGuard).getConsecutiveFailures();
+        doReturn(12L).when(this.cKeeperGuard).getRejectedOpen();
+        doReturn(3L).when(this.cKeeperGuard).getRejectedFull();
+        doReturn(2L).when(this.cKeeperGuard).getTimeouts();
+
+        // Perform the endpoint call
+        final Map<String, Object> result = this.cKeeperEndpoint.cKeeper();
+
+        // Make sure the response is correct
+        assertEquals(CKeeperGuard.CircuitState.OPEN, result.get("state"));
+        assertEquals(5, result.get("consecutiveFailures"));
+        final Map<String, Object> rejected = (Map<String, Object>) result.get("rejected");
+        assertEquals(12L, rejected.get("open"));
+        assertEquals(3L, rejected.get("bulkhead"));
+        assertEquals(2L, result.get("timeouts"));
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.endpoints;
+
+import org.grad.eNav.vdesCtrl.components.StationCycleExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StationCycleEndpointTest {
+
+    /**
+     * The Tested Endpoint.
+     */
+    @InjectMocks
+    StationCycleEndpoint stationCycleEndpoint;
+
+    /**
+     * The Station Cycle Executor mock.
+     */
+    @Mock
+    StationCycleExecutor stationCycleExecutor;
+
+    /**
+     * Test that the endpoint reports the state of the station cycles, sorted
+     * by their phase within the cycle.
+     */
+    @Test
+    void testStationCycles() {
+        final StationCycleExecutor.StationCycle first = mock(StationCycleExecutor.StationCycle.class);
+        doReturn("first").when(first).getName();
+        doReturn(100L).when(first).getPhaseOffset();
+        doReturn(3L).when(first).getOverruns();
+        final StationCycleExecutor.StationCycle second = mock(StationCycleExecutor.StationCycle.class);
+        doReturn("second").when(second).getName();
+        doReturn(0L).when(second).getPhaseOffset();
+        doReturn(Boolean.TRUE).when(second).isInFlight();
+        doReturn(List.of(first, second)).when(this.stationCycleExecutor).getStationCycles();
+        doReturn(StationCycleExecutor.OverlapPolicy.SKIP).when(this.stationCycleExecutor).getOverlapPolicy();
+
+        // Perform the endpoint call
+        final Map<String, Object> result = this.stationCycleEndpoint.stationCycles();
+
+        // Make sure the response is correct
+        assertEquals(StationCycleExecutor.OverlapPolicy.SKIP, result.get("overlapPolicy"));
+        final List<Map<String, Object>> stations = (List<Map<String, Object>>) result.get("stations");
+        assertEquals(2, stations.size());
+        assertEquals("second", stations.get(0).get("name"));
+        assertEquals(Boolean.TRUE, stations.get(0).get("inFlight"));
+        assertEquals("first", stations.get(1).get("name"));
+        assertEquals(3L, stations.get(1).get("overruns"));
+    }
+
+}
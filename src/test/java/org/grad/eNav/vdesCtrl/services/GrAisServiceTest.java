@@ -17,6 +17,7 @@
 package org.grad.eNav.vdesCtrl.services;
 
 import org.grad.eNav.vdesCtrl.components.GrAisAdvertiser;
+import org.grad.eNav.vdesCtrl.components.StationCycleExecutor;
 import org.grad.eNav.vdesCtrl.models.domain.Station;
 import org.grad.eNav.vdesCtrl.models.domain.StationType;
 import org.grad.vdes1000.formats.generic.AISChannelPref;
@@ -39,7 +40,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -64,6 +65,12 @@ class GrAisServiceTest {
     @Mock
     StationService stationService;
 
+    /**
+     * The Station Cycle Executor mock.
+     */
+    @Mock
+    StationCycleExecutor stationCycleExecutor;
+
     // Test Variables
     private List<Station> stations;
 
@@ -137,16 +144,53 @@ class GrAisServiceTest {
     }
 
     /**
-     * Test that we can call the service to reload all the advertisers.
+     * Test that reloading the service reconciles the advertisers with the
+     * stored stations, i.e. only the advertisers of the changed stations
+     * are created, replaced, updated or closed, while the rest of them are
+     * left untouched.
      */
     @Test
     void testReload() {
-        //Perform the service call
+        doReturn(this.stations).when(this.stationService).findAllByType(StationType.GNU_RADIO);
+        doAnswer(inv -> mock(GrAisAdvertiser.class)).when(this.applicationContext).getBean(GrAisAdvertiser.class);
+
+        // First initialise the service to pick up the advertisers
+        this.grAisService.init();
+        final GrAisAdvertiser updated = this.grAisService.grAisAdvertisers.get(BigInteger.ZERO).orElseThrow();
+        final GrAisAdvertiser replaced = this.grAisService.grAisAdvertisers.get(BigInteger.ONE).orElseThrow();
+        final GrAisAdvertiser closed = this.grAisService.grAisAdvertisers.get(BigInteger.TWO).orElseThrow();
+        final GrAisAdvertiser unchanged = this.grAisService.grAisAdvertisers.get(BigInteger.TEN.subtract(BigInteger.ONE)).orElseThrow();
+
+        // Update, re-link, delete and add a station
+        this.stations.get(0).setChannel(AISChannelPref.B);
+        this.stations.get(1).setIpAddress("10.0.1.1");
+        this.stations.remove(2);
+        final Station added = new Station();
+        added.setId(BigInteger.valueOf(10));
+        added.setName("Station Name");
+        added.setChannel(AISChannelPref.A);
+        added.setMmsi("123456780");
+        added.setIpAddress("10.0.0.10");
+        added.setType(StationType.GNU_RADIO);
+        added.setPort(8010);
+        this.stations.add(added);
+
+        // Perform the service call
         this.grAisService.reload();
 
-        // Make sure we first destroy and re-init the service
-        verify(this.grAisService, times(1)).destroy();
-        verify(this.grAisService, times(1)).init();
+        // Make sure only the changed advertisers were touched
+        assertEquals(10, this.grAisService.grAisAdvertisers.size());
+        verify(updated, times(1)).update(this.stations.get(0));
+        verify(updated, never()).destroy();
+        verify(replaced, times(1)).destroy();
+        assertNotSame(replaced, this.grAisService.grAisAdvertisers.get(BigInteger.ONE).orElseThrow());
+        verify(closed, times(1)).destroy();
+        assertTrue(this.grAisService.grAisAdvertisers.get(BigInteger.TWO).isEmpty());
+        assertTrue(this.grAisService.grAisAdvertisers.get(BigInteger.valueOf(10)).isPresent());
+        verify(unchanged, never()).update(any());
+        verify(unchanged, never()).destroy();
+        assertSame(unchanged, this.grAisService.grAisAdvertisers.get(BigInteger.TEN.subtract(BigInteger.ONE)).orElseThrow());
+        verify(this.applicationContext, times(12)).getBean(GrAisAdvertiser.class);
     }
 
     /**
@@ -163,10 +207,17 @@ class GrAisServiceTest {
         // First initialise the service to pick up the advertisers
         this.grAisService.init();
 
+        // Run the submitted station cycles straight away
+        doAnswer(inv -> {
+            inv.<Runnable>getArgument(1).run();
+            return null;
+        }).when(this.stationCycleExecutor).submit(any(), any());
+
         // Perform the service call
         this.grAisService.advertiseAtons();
 
-        // Make sure all advertisers were called
+        // Make sure all advertisers were called through the station cycle executor
+        verify(this.stationCycleExecutor, times(this.stations.size())).submit(eq(mockAdvertiser), any());
         verify(mockAdvertiser, times(this.stations.size())).advertiseAtons();
     }
 
@@ -192,6 +243,7 @@ class GrAisServiceTest {
         this.grAisService.advertiseAtons();
 
         // Make sure all advertisers were NOT called
+        verify(this.stationCycleExecutor, never()).submit(any(), any());
         verify(mockAdvertiser, never()).advertiseAtons();
     }
 
@@ -17,8 +17,10 @@
 package org.grad.eNav.vdesCtrl.services;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import org.grad.eNav.vdesCtrl.components.ReceiveRingBuffer;
 import org.grad.eNav.vdesCtrl.models.PubSubMsgHeaders;
 import org.grad.eNav.vdesCtrl.models.domain.StationType;
+import org.grad.eNav.vdesCtrl.models.dtos.AisMessageDto;
 import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
 import org.grad.eNav.vdesCtrl.utils.GeoJSONUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -46,6 +48,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -71,6 +74,12 @@ class S125WebSocketServiceTest {
     @Mock
     SimpMessagingTemplate webSocket;
 
+    /**
+     * The Receive Ring Buffer mock.
+     */
+    @Mock
+    ReceiveRingBuffer receiveRingBuffer;
+
     // Test Variables
     private S125Node s125Node;
 
@@ -107,6 +116,29 @@ class S125WebSocketServiceTest {
         this.s125WebSocketService.init();
 
         verify(this.publishSubscribeChannel, times(1)).subscribe(this.s125WebSocketService);
+        verify(this.receiveRingBuffer, never()).subscribe(any(), any());
+    }
+
+    /**
+     * Test that the S125 web-socket service also subscribes to the receive
+     * ring buffer, when that is enabled, and pushes its messages down the
+     * web-socket.
+     */
+    @Test
+    void testInitWithRingBuffer() {
+        doReturn(Boolean.TRUE).when(this.receiveRingBuffer).isEnabled();
+
+        // Perform the service call
+        this.s125WebSocketService.init();
+
+        // Capture the ring buffer subscription
+        ArgumentCaptor<ReceiveRingBuffer.EventHandler> handlerArgument = ArgumentCaptor.forClass(ReceiveRingBuffer.EventHandler.class);
+        verify(this.publishSubscribeChannel, times(1)).subscribe(this.s125WebSocketService);
+        verify(this.receiveRingBuffer, times(1)).subscribe(eq("websocket"), handlerArgument.capture());
+
+        // Make sure the ring buffer messages reach the web-socket
+        handlerArgument.getValue().onEvent(new ReceiveRingBuffer.Source(this, StationType.VDES_1000, "127.0.0.1", 8000, "111111111"), "This is a simple message", true);
+        verify(this.webSocket, times(1)).convertAndSend("/topic/messages/127.0.0.1:8000", (Object) "This is a simple message");
     }
 
     /**
@@ -177,6 +209,64 @@ class S125WebSocketServiceTest {
         assertEquals("This is a simple message", payLoadArgument.getValue());
     }
 
+    /**
+     * Test that the Web-Socket controlling service can process correctly the
+     * raw byte messages published in the AtoN publish-subscribe channel.
+     */
+    @Test
+    void testHandleRawMessage() throws IOException {
+        // Create a message to be handled
+        Message message = Optional.of("This is a raw message".getBytes(StandardCharsets.US_ASCII)).map(MessageBuilder::withPayload)
+                .map(builder -> builder.setHeader(MessageHeaders.CONTENT_TYPE, StationType.VDES_1000))
+                .map(builder -> builder.setHeader(PubSubMsgHeaders.ADDRESS.getHeader(), "127.0.0.1"))
+                .map(builder -> builder.setHeader(PubSubMsgHeaders.PORT.getHeader(), 8000))
+                .map(builder -> builder.setHeader(PubSubMsgHeaders.MMSI.getHeader(), "111111111"))
+                .map(MessageBuilder::build)
+                .orElse(null);
+
+        // Perform the service call
+        this.s125WebSocketService.handleMessage(message);
+
+        // Verify that we send the decoded message down the web-socket
+        ArgumentCaptor<String> topicArgument = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> payLoadArgument = ArgumentCaptor.forClass(String.class);
+        verify(this.webSocket, times(1)).convertAndSend(topicArgument.capture(), payLoadArgument.capture());
+
+        // Verify the packet
+        assertEquals("/topic/messages/127.0.0.1:8000", topicArgument.getValue());
+        assertEquals("This is a raw message", payLoadArgument.getValue());
+    }
+
+    /**
+     * Test that the Web-Socket controlling service can process correctly the
+     * decoded AIS messages published in the AtoN publish-subscribe channel.
+     */
+    @Test
+    void testHandleAisMessage() throws IOException {
+        final AisMessageDto aisMessage = new AisMessageDto("VDM", 'B', "177KQJ5000G?tO`K>RA1wUbN0TKH".getBytes(StandardCharsets.US_ASCII), 0);
+
+        // Create a message to be handled
+        Message message = Optional.of(aisMessage).map(MessageBuilder::withPayload)
+                .map(builder -> builder.setHeader(MessageHeaders.CONTENT_TYPE, StationType.VDES_1000))
+                .map(builder -> builder.setHeader(PubSubMsgHeaders.ADDRESS.getHeader(), "127.0.0.1"))
+                .map(builder -> builder.setHeader(PubSubMsgHeaders.PORT.getHeader(), 8000))
+                .map(builder -> builder.setHeader(PubSubMsgHeaders.MMSI.getHeader(), "111111111"))
+                .map(MessageBuilder::build)
+                .orElse(null);
+
+        // Perform the service call
+        this.s125WebSocketService.handleMessage(message);
+
+        // Verify that we send the AIS message down the web-socket
+        ArgumentCaptor<String> topicArgument = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<AisMessageDto> payLoadArgument = ArgumentCaptor.forClass(AisMessageDto.class);
+        verify(this.webSocket, times(1)).convertAndSend(topicArgument.capture(), payLoadArgument.capture());
+
+        // Verify the packet
+        assertEquals("/topic/ais/127.0.0.1:8000", topicArgument.getValue());
+        assertSame(aisMessage, payLoadArgument.getValue());
+    }
+
     /**
      * Test that we can only send S125 messages down to the web-socket.
      */
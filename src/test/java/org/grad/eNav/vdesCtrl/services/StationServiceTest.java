@@ -17,11 +17,13 @@
 package org.grad.eNav.vdesCtrl.services;
 
 import jakarta.persistence.TypedQuery;
+import org.grad.eNav.vdesCtrl.components.AtonLookupCache;
+import org.grad.eNav.vdesCtrl.components.BlacklistIndex;
 import org.grad.eNav.vdesCtrl.exceptions.DataNotFoundException;
 import org.grad.eNav.vdesCtrl.exceptions.ValidationException;
-import org.grad.eNav.vdesCtrl.feign.AtonServiceClient;
 import org.grad.eNav.vdesCtrl.models.domain.SignatureMode;
 import org.grad.eNav.vdesCtrl.models.domain.Station;
+import org.grad.eNav.vdesCtrl.models.domain.StationSnapshot;
 import org.grad.eNav.vdesCtrl.models.domain.StationType;
 import org.grad.eNav.vdesCtrl.models.dtos.AtonMessageDto;
 import org.grad.eNav.vdesCtrl.models.dtos.S100AbstractNode;
@@ -36,7 +38,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.PrecisionModel;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
@@ -72,10 +73,10 @@ class StationServiceTest {
     EntityManager entityManager;
 
     /**
-     * The AtoN Service Client mock.
+     * The AtoN Lookup Cache mock.
      */
     @Mock
-    AtonServiceClient atonServiceClient;
+    AtonLookupCache atonLookupCache;
 
     /**
      * The GNURadio AIS Service mock.
@@ -95,6 +96,12 @@ class StationServiceTest {
     @Mock
     private StationRepo stationRepo;
 
+    /**
+     * The Blacklist Index mock.
+     */
+    @Mock
+    BlacklistIndex blacklistIndex;
+
     // Test Variables
     private List<Station> stations;
     private List<S100AbstractNode> messages;
@@ -306,6 +313,7 @@ class StationServiceTest {
     @Test
     void testSaveUpdateNodes() {
         doAnswer(returnsFirstArg()).when(this.stationRepo).save(any());
+        doReturn(Collections.singleton("blacklisted")).when(this.blacklistIndex).get(this.existingStation.getId());
 
         // Perform the service call
         Station result = this.stationService.save(this.existingStation);
@@ -319,6 +327,7 @@ class StationServiceTest {
         assertEquals(this.existingStation.getMmsi(), result.getMmsi());
         assertEquals(this.existingStation.getChannel(), result.getChannel());
         assertEquals(this.existingStation.getGeometry(), result.getGeometry());
+        assertEquals(Collections.singleton("blacklisted"), result.getBlacklistedUids());
 
         // Verify that a saving call took place in the repository
         verify(this.stationRepo, times(1)).save(this.existingStation);
@@ -345,6 +354,23 @@ class StationServiceTest {
         );
     }
 
+    /**
+     * Test that if we try to assign a MERKLE mode to a GNURadio-based station
+     * a ValidationException will be thrown since the leaf digests of the
+     * Merkle windows cannot be transmitted over AIS.
+     */
+    @Test
+    void testSaveGNURadioWithMerkleMode() {
+        // Set the station as GNURadio with MERKLE mode
+        this.newStation.setType(StationType.GNU_RADIO);
+        this.newStation.setSignatureMode(SignatureMode.MERKLE);
+
+        // Perform the service call
+        assertThrows(ValidationException.class, () ->
+                this.stationService.save(this.newStation)
+        );
+    }
+
     /**
      * Test that we can successfully delete an existing station.
      */
@@ -358,6 +384,7 @@ class StationServiceTest {
 
         // Verify that a deletion call took place in the repository
         verify(this.stationRepo, times(1)).deleteById(this.existingStation.getId());
+        verify(this.blacklistIndex, times(1)).evict(this.existingStation.getId());
 
         // Make sure all the relevant services have been reloaded
         verify(this.grAisService, times(1)).reload();
@@ -390,7 +417,7 @@ class StationServiceTest {
     void testFindMessagesForStation() {
         List<S125Node> atonList = this.messages.subList(0, 5).stream().map(S125Node.class::cast).collect(Collectors.toList());
         doReturn(Optional.of(this.existingStation)).when(this.stationRepo).findById(this.existingStation.getId());
-        doReturn(atonList).when(this.atonServiceClient).getMessagesForGeometry(any(String.class));
+        doReturn(new AtonLookupCache.Lookup(atonList, false)).when(this.atonLookupCache).get(any(String.class));
 
         // Perform the service call
         List<AtonMessageDto> result = this.stationService.findMessagesForStation(this.existingStation.getId());
@@ -412,14 +439,11 @@ class StationServiceTest {
     @Test
     void testFindMessagesForStationBlacklisted() {
         // Blacklist all messages
-        this.existingStation.setBlacklistedUids(this.messages.stream()
-                .map(AtonMessageDto.class::cast)
-                .map(AtonMessageDto::getIdCode)
-                .collect(Collectors.toSet()));
+        doReturn(true).when(this.blacklistIndex).isBlacklisted(eq(this.existingStation.getId()), any());
 
         List<S125Node> atonList = this.messages.subList(0, 5).stream().map(S125Node.class::cast).collect(Collectors.toList());
         doReturn(Optional.of(this.existingStation)).when(this.stationRepo).findById(this.existingStation.getId());
-        doReturn(atonList).when(this.atonServiceClient).getMessagesForGeometry(any(String.class));
+        doReturn(new AtonLookupCache.Lookup(atonList, false)).when(this.atonLookupCache).get(any(String.class));
 
         // Perform the service call
         List<AtonMessageDto> result = this.stationService.findMessagesForStation(this.existingStation.getId(), false);
@@ -443,8 +467,46 @@ class StationServiceTest {
         // Test the result
         assertEquals(0, result.size());
 
-        // Make sure the Feign call was never made
-        verify(this.atonServiceClient, never()).getMessagesForGeometry(any(String.class));
+        // Make sure the AtoN lookup was never made
+        verify(this.atonLookupCache, never()).get(any(String.class));
+    }
+
+    /**
+     * Test that we can correctly receive and process the S125 messages for
+     * a station snapshot, without accessing the station repository at all.
+     */
+    @Test
+    void testFindMessagesForStationSnapshot() {
+        List<S125Node> atonList = this.messages.subList(0, 5).stream().map(S125Node.class::cast).collect(Collectors.toList());
+        doReturn(new AtonLookupCache.Lookup(atonList, false)).when(this.atonLookupCache).get(any(String.class));
+        doAnswer(inv -> atonList.get(0).getIdCode().equals(inv.getArgument(1))).when(this.blacklistIndex).isBlacklisted(eq(this.existingStation.getId()), any());
+
+        // Perform the service call
+        List<AtonMessageDto> result = this.stationService.findMessagesForStation(StationSnapshot.of(this.existingStation), false);
+
+        // Test the result
+        assertEquals(atonList.size() - 1, result.size());
+        assertTrue(result.stream().noneMatch(AtonMessageDto::isBlacklisted));
+
+        // Make sure the database was never accessed
+        verifyNoInteractions(this.stationRepo);
+    }
+
+    /**
+     * Test that the S125 messages served stale by the AtoN lookup cache,
+     * because the AtoN service could not be reached, are marked as such.
+     */
+    @Test
+    void testFindMessagesForStationStale() {
+        List<S125Node> atonList = this.messages.subList(0, 5).stream().map(S125Node.class::cast).collect(Collectors.toList());
+        doReturn(new AtonLookupCache.Lookup(atonList, true)).when(this.atonLookupCache).get(any(String.class));
+
+        // Perform the service call
+        List<AtonMessageDto> result = this.stationService.findMessagesForStation(StationSnapshot.of(this.existingStation), true);
+
+        // Test the result
+        assertEquals(atonList.size(), result.size());
+        assertTrue(result.stream().allMatch(AtonMessageDto::isStale));
     }
 
     /**
@@ -496,44 +558,109 @@ class StationServiceTest {
     }
 
     /**
-     * Test that we can add a new message UID into a station's blacklist.
+     * Test that we can retrieve the blacklists of all the stations, mapped
+     * by their IDs.
+     */
+    @Test
+    void testFindAllBlacklists() {
+        this.existingStation.getBlacklistedUids().add("test_message_uid");
+        doReturn(List.of(this.existingStation)).when(this.stationRepo).findAll();
+
+        // Perform the service call
+        Map<BigInteger, Set<String>> result = this.stationService.findAllBlacklists();
+
+        // Test the result
+        assertEquals(1, result.size());
+        assertEquals(Collections.singleton("test_message_uid"), result.get(this.existingStation.getId()));
+    }
+
+    /**
+     * Test that we can add a new message UID into a station's blacklist,
+     * through the blacklist index and without reloading any advertisers.
      */
     @Test
     void testAddBlacklistUid() {
-        doReturn(this.existingStation).when(this.stationService).findOne(this.existingStation.getId());
+        doReturn(Boolean.TRUE).when(this.stationRepo).existsById(this.existingStation.getId());
 
         // Perform the service call
         this.stationService.addBlacklistAtonNumber(this.existingStation.getId(), "test_message_uid");
 
-        // Check that during the station update the blacklist was updated
-        ArgumentCaptor<Station> stationsArgument = ArgumentCaptor.forClass(Station.class);
-        verify(this.stationRepo, times(1)).save(stationsArgument.capture());
-        assertNotNull(stationsArgument.getValue());
-        assertNotNull(stationsArgument.getValue().getBlacklistedUids());
-        assertEquals(1, stationsArgument.getValue().getBlacklistedUids().size());
-        assertTrue(stationsArgument.getValue().getBlacklistedUids().contains("test_message_uid"));
+        // Check that the blacklist index was updated instead of the station
+        verify(this.blacklistIndex, times(1)).add(this.existingStation.getId(), "test_message_uid");
+        verify(this.stationRepo, never()).save(any());
+        verify(this.grAisService, never()).reload();
+        verify(this.vdes1000Service, never()).reload();
+    }
+
+    /**
+     * Test that if we try to add a new message UID into the blacklist of a
+     * non-existing station, then a DataNotFoundException will be thrown.
+     */
+    @Test
+    void testAddBlacklistUidNotFound() {
+        doReturn(Boolean.FALSE).when(this.stationRepo).existsById(this.existingStation.getId());
+
+        // Perform the service call
+        assertThrows(DataNotFoundException.class, () ->
+                this.stationService.addBlacklistAtonNumber(this.existingStation.getId(), "test_message_uid")
+        );
+
+        // Make sure the blacklist index was not updated
+        verify(this.blacklistIndex, never()).add(any(), any());
     }
 
     /**
      * Test that we can remove an existing message UID from a station's
-     * blacklist.
+     * blacklist, through the blacklist index and without reloading any
+     * advertisers.
      */
     @Test
     void testRemoveBlacklistUid() {
-        // Initialise the station with an existing blacklisted message UID
-        this.existingStation.getBlacklistedUids().add("test_message_iod");
-
-        doReturn(this.existingStation).when(this.stationService).findOne(this.existingStation.getId());
+        doReturn(Boolean.TRUE).when(this.stationRepo).existsById(this.existingStation.getId());
 
         // Perform the service call
         this.stationService.removeBlacklisAtonNumber(this.existingStation.getId(), "test_message_iod");
 
-        // Check that during the station update the blacklist was updated
-        ArgumentCaptor<Station> stationsArgument = ArgumentCaptor.forClass(Station.class);
-        verify(this.stationRepo, times(1)).save(stationsArgument.capture());
-        assertNotNull(stationsArgument.getValue());
-        assertNotNull(stationsArgument.getValue().getBlacklistedUids());
-        assertEquals(0, stationsArgument.getValue().getBlacklistedUids().size());
+        // Check that the blacklist index was updated instead of the station
+        verify(this.blacklistIndex, times(1)).remove(this.existingStation.getId(), "test_message_iod");
+        verify(this.stationRepo, never()).save(any());
+        verify(this.grAisService, never()).reload();
+        verify(this.vdes1000Service, never()).reload();
+    }
+
+    /**
+     * Test that we can persist the blacklist of a station without reloading
+     * any advertisers.
+     */
+    @Test
+    void testSaveBlacklist() {
+        doReturn(Boolean.TRUE).when(this.stationRepo).existsById(this.existingStation.getId());
+
+        // Perform the service call
+        this.stationService.saveBlacklist(this.existingStation.getId(), Collections.singleton("test_message_uid"));
+
+        // Check that only the station blacklist was persisted
+        verify(this.stationRepo, times(1)).deleteBlacklist(this.existingStation.getId());
+        verify(this.stationRepo, times(1)).insertBlacklistEntry(this.existingStation.getId(), "test_message_uid");
+        verify(this.stationRepo, never()).save(any());
+        verify(this.grAisService, never()).reload();
+        verify(this.vdes1000Service, never()).reload();
+    }
+
+    /**
+     * Test that the blacklist of a station that no longer exists is not
+     * persisted.
+     */
+    @Test
+    void testSaveBlacklistNotFound() {
+        doReturn(Boolean.FALSE).when(this.stationRepo).existsById(this.existingStation.getId());
+
+        // Perform the service call
+        this.stationService.saveBlacklist(this.existingStation.getId(), Collections.singleton("test_message_uid"));
+
+        // Check that nothing was persisted
+        verify(this.stationRepo, never()).deleteBlacklist(any());
+        verify(this.stationRepo, never()).insertBlacklistEntry(any(), any());
     }
 
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package org.grad.eNav.vdesCtrl.services;
 
 import org.grad.eNav.vdesCtrl.components.Vdes1000Advertiser;
+import org.grad.eNav.vdesCtrl.components.StationCycleExecutor;
 import org.grad.eNav.vdesCtrl.models.domain.Station;
 import org.grad.eNav.vdesCtrl.models.domain.StationType;
 import org.grad.vdes1000.formats.generic.AISChannelPref;
@@ -39,7 +40,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -64,6 +65,12 @@ class VDES1000ServiceTest {
     @Mock
     StationService stationService;
 
+    /**
+     * The Station Cycle Executor mock.
+     */
+    @Mock
+    StationCycleExecutor stationCycleExecutor;
+
     // Test Variables
     private List<Station> stations;
 
@@ -138,16 +145,53 @@ class VDES1000ServiceTest {
     }
 
     /**
-     * Test that we can call the service to reload all the advertisers.
+     * Test that reloading the service reconciles the advertisers with the
+     * stored stations, i.e. only the advertisers of the changed stations
+     * are created, replaced, updated or closed, while the rest of them are
+     * left untouched.
      */
     @Test
     void testReload() {
-        //Perform the service call
+        doReturn(this.stations).when(this.stationService).findAllByType(StationType.VDES_1000);
+        doAnswer(inv -> mock(Vdes1000Advertiser.class)).when(this.applicationContext).getBean(Vdes1000Advertiser.class);
+
+        // First initialise the service to pick up the advertisers
+        this.vdes1000Service.init();
+        final Vdes1000Advertiser updated = this.vdes1000Service.vdes1000Advertisers.get(BigInteger.ZERO).orElseThrow();
+        final Vdes1000Advertiser replaced = this.vdes1000Service.vdes1000Advertisers.get(BigInteger.ONE).orElseThrow();
+        final Vdes1000Advertiser closed = this.vdes1000Service.vdes1000Advertisers.get(BigInteger.TWO).orElseThrow();
+        final Vdes1000Advertiser unchanged = this.vdes1000Service.vdes1000Advertisers.get(BigInteger.TEN.subtract(BigInteger.ONE)).orElseThrow();
+
+        // Update, re-link, delete and add a station
+        this.stations.get(0).setChannel(AISChannelPref.B);
+        this.stations.get(1).setIpAddress("10.0.1.1");
+        this.stations.remove(2);
+        final Station added = new Station();
+        added.setId(BigInteger.valueOf(10));
+        added.setName("Station Name");
+        added.setChannel(AISChannelPref.A);
+        added.setMmsi("123456780");
+        added.setIpAddress("10.0.0.10");
+        added.setType(StationType.VDES_1000);
+        added.setPort(8010);
+        this.stations.add(added);
+
+        // Perform the service call
         this.vdes1000Service.reload();
 
-        // Make sure we first destroy and re-init the service
-        verify(this.vdes1000Service, times(1)).destroy();
-        verify(this.vdes1000Service, times(1)).init();
+        // Make sure only the changed advertisers were touched
+        assertEquals(10, this.vdes1000Service.vdes1000Advertisers.size());
+        verify(updated, times(1)).update(this.stations.get(0));
+        verify(updated, never()).destroy();
+        verify(replaced, times(1)).destroy();
+        assertNotSame(replaced, this.vdes1000Service.vdes1000Advertisers.get(BigInteger.ONE).orElseThrow());
+        verify(closed, times(1)).destroy();
+        assertTrue(this.vdes1000Service.vdes1000Advertisers.get(BigInteger.TWO).isEmpty());
+        assertTrue(this.vdes1000Service.vdes1000Advertisers.get(BigInteger.valueOf(10)).isPresent());
+        verify(unchanged, never()).update(any());
+        verify(unchanged, never()).destroy();
+        assertSame(unchanged, this.vdes1000Service.vdes1000Advertisers.get(BigInteger.TEN.subtract(BigInteger.ONE)).orElseThrow());
+        verify(this.applicationContext, times(12)).getBean(Vdes1000Advertiser.class);
     }
 
     /**
@@ -164,10 +208,17 @@ class VDES1000ServiceTest {
         // First initialise the service to pick up the advertisers
         this.vdes1000Service.init();
 
+        // Run the submitted station cycles straight away
+        doAnswer(inv -> {
+            inv.<Runnable>getArgument(1).run();
+            return null;
+        }).when(this.stationCycleExecutor).submit(any(), any());
+
         // Perform the service call
         this.vdes1000Service.advertiseAtons();
 
-        // Make sure all advertisers were called
+        // Make sure all advertisers were called through the station cycle executor
+        verify(this.stationCycleExecutor, times(this.stations.size())).submit(eq(mockAdvertiser), any());
         verify(mockAdvertiser, times(this.stations.size())).advertiseAtons();
     }
 
@@ -193,6 +244,7 @@ class VDES1000ServiceTest {
         this.vdes1000Service.advertiseAtons();
 
         // Make sure all advertisers were NOT called
+        verify(this.stationCycleExecutor, never()).submit(any(), any());
         verify(mockAdvertiser, never()).advertiseAtons();
     }
 
@@ -17,6 +17,8 @@
 package org.grad.eNav.vdesCtrl.utils;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import org.grad.eNav.vdesCtrl.models.dtos.FeatureNameDto;
 import org.grad.eNav.vdesCtrl.models.dtos.S125Node;
 import org.grad.vdes1000.formats.ais.messages.AISMessage21;
@@ -27,9 +29,18 @@ import org.junit.jupiter.api.Test;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.PrecisionModel;
+import org.springframework.core.io.ClassPathResource;
 
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -75,7 +86,7 @@ class AISMessageUtilsTest {
      * correctly picked up, for a test Virtual AtoN.
      */
     @Test
-    public void testS125NodeConstructorNo1() throws JsonProcessingException {
+    public void testS125NodeConstructorNo1() throws XMLStreamException {
         // Create an S125Node message
         S125Node node = new S125Node("aton.uk.test_aton_no_1", null, S125_NO_1_CONTENT);
         FeatureNameDto featureNameDto = new FeatureNameDto();
@@ -105,7 +116,7 @@ class AISMessageUtilsTest {
      * correctly picked up, for a different Virtual AtoN.
      */
     @Test
-    public void testS125NodeConstructorNo2() throws JsonProcessingException {
+    public void testS125NodeConstructorNo2() throws XMLStreamException {
         // Create an S125Node message
         S125Node node = new S125Node("aton.uk.test_aton_no_2", null, S125_NO_2_CONTENT);
         FeatureNameDto featureNameDto = new FeatureNameDto();
@@ -135,7 +146,7 @@ class AISMessageUtilsTest {
      * correctly picked up, for a real AtoN.
      */
     @Test
-    public void testS125NodeConstructorNo3() throws JsonProcessingException {
+    public void testS125NodeConstructorNo3() throws XMLStreamException {
         // Create an S125Node message
         S125Node node = new S125Node("aton.uk.test_aton_no_3", null, S125_NO_3_CONTENT);
         FeatureNameDto featureNameDto = new FeatureNameDto();
@@ -161,8 +172,8 @@ class AISMessageUtilsTest {
     }
 
     /**
-     * Test that by using the S125Node constructor, if it fails, a JAXBException
-     * will be thrown.
+     * Test that by using the S125Node constructor, if it fails, an
+     * XMLStreamException will be thrown.
      */
     @Test
     public void testS125NodeConstructorFails() {
@@ -170,7 +181,179 @@ class AISMessageUtilsTest {
         S125Node node = new S125Node("aton.uk.test_aton_no_1", null, "Erroneous Content");
 
         // Create the GR-AIS Message 21 Parameters and see it fail
-        assertThrows(JsonProcessingException.class, () -> AISMessageUtils.s125ToAisMessage21(node));
+        assertThrows(XMLStreamException.class, () -> AISMessageUtils.s125ToAisMessage21(node));
     }
 
-}
\ No newline at end of file
+    /**
+     * Test that the S125Node constructor will fail if the S-125 dataset does
+     * not contain any AtoN features.
+     */
+    @Test
+    public void testS125NodeConstructorNoFeatures() {
+        // Create an S125Node message
+        S125Node node = new S125Node("aton.uk.test_aton_no_1", null, dataset(""));
+
+        // Create the GR-AIS Message 21 Parameters and see it fail
+        assertThrows(XMLStreamException.class, () -> AISMessageUtils.s125ToAisMessage21(node));
+    }
+
+    /**
+     * Test that the streaming S-125 extraction will produce the same results
+     * as the original tree-based extraction, for a variety of AtoN types.
+     */
+    @Test
+    public void testReadS125AtonFeatureMatchesTreeExtraction() throws IOException, XMLStreamException {
+        // Read a valid S125 content from the test resources
+        InputStream in = new ClassPathResource("s125-msg.xml").getInputStream();
+        String xml = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+
+        // Compare the two extractions for all the test datasets
+        for(String content : new String[] {
+                S125_NO_1_CONTENT,
+                S125_NO_2_CONTENT,
+                S125_NO_3_CONTENT,
+                xml,
+                dataset("<ns4:BuoyLateral><ns4:length>3.4</ns4:length><ns4:width>1.6</ns4:width><ns4:categoryOfLateralMark>port-hand lateral mark</ns4:categoryOfLateralMark></ns4:BuoyLateral>"),
+                dataset("<ns4:BeaconLateral><ns4:categoryOfLateralMark>unknown</ns4:categoryOfLateralMark></ns4:BeaconLateral>"),
+                dataset("<ns4:BuoyCardinal><ns4:categoryOfCardinalMark>west cardinal mark</ns4:categoryOfCardinalMark><ns4:length>2</ns4:length></ns4:BuoyCardinal>"),
+                dataset("<ns4:Lighthouse><ns4:colour>white</ns4:colour></ns4:Lighthouse>"),
+                dataset("<ns4:Lighthouse><ns4:colour>white</ns4:colour><ns4:colour>red</ns4:colour><ns4:colour>green</ns4:colour></ns4:Lighthouse>"),
+                dataset("<ns4:BeaconCardinal><ns4:categoryOfCardinalMark>unknown</ns4:categoryOfCardinalMark></ns4:BeaconCardinal><ns4:BuoySafeWater><ns4:width>2.5</ns4:width></ns4:BuoySafeWater>"),
+                dataset("<ns4:VirtualAISAidToNavigation><ns4:virtualAISAidToNavigationType>New Danger Marking</ns4:virtualAISAidToNavigationType></ns4:VirtualAISAidToNavigation>"),
+        }) {
+            final S125Node node = new S125Node("aton.uk.test_aton", null, content);
+            final AISMessage21 streamed = AISMessageUtils.s125ToAisMessage21(node);
+            final AISMessage21 tree = treeS125ToAisMessage21(node);
+            assertEquals(tree.getAtonType(), streamed.getAtonType(), content);
+            assertEquals(tree.getLength(), streamed.getLength(), content);
+            assertEquals(tree.getWidth(), streamed.getWidth(), content);
+            assertEquals(tree.getVaton(), streamed.getVaton(), content);
+        }
+    }
+
+    /**
+     * Test that the streaming S-125 extraction stops reading after the first
+     * feature that resolves to a valid AtoN type, so anything after that is
+     * not even looked at.
+     */
+    @Test
+    public void testReadS125AtonFeatureStopsAtFirstValidFeature() throws XMLStreamException {
+        // Create a truncated S-125 dataset
+        final String content = dataset("<ns4:BuoySafeWater><ns4:length>4</ns4:length></ns4:BuoySafeWater>")
+                .replace("</ns4:members></ns4:Dataset>", "<ns4:BuoyLateral><ns4:length>");
+
+        // Perform the utility call
+        final AISMessageUtils.S125AtonFeature atonFeature = AISMessageUtils.readS125AtonFeature(content);
+
+        // Make sure the first valid feature was picked up
+        assertEquals("BuoySafeWater", atonFeature.getType());
+        assertEquals("4", atonFeature.getLength());
+        assertEquals(AtonType.SAFE_WATER, AISMessageUtils.s125TypeToAtonType(atonFeature));
+    }
+
+    /**
+     * A helper function that wraps the provided S-125 members into a test
+     * dataset.
+     *
+     * @param members the S-125 members of the dataset
+     * @return the S-125 dataset content
+     */
+    private static String dataset(String members) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                "<ns4:Dataset xmlns:ns3=\"http://www.opengis.net/gml/3.2\" xmlns:ns4=\"http://www.iho.int/S125/gml/cs0/1.0\" ns3:id=\"TestDataset\">" +
+                "<ns4:members>" + members + "</ns4:members></ns4:Dataset>";
+    }
+
+    /**
+     * The original tree-based S-125 extraction, using the Jackson XML mapper,
+     * to be used as a reference for the streaming extraction.
+     *
+     * @param s125Node the S125Node object
+     * @return the AIS Message 21 populated with the S-125 feature fields
+     */
+    private static AISMessage21 treeS125ToAisMessage21(S125Node s125Node) throws JsonProcessingException {
+        final AISMessage21 aisMessage21 = new AISMessage21();
+        final JsonNode datasetNode = new XmlMapper().readTree(s125Node.getContent());
+        final Iterator<Map.Entry<String, JsonNode>> datasetMembers = datasetNode.get("members").fields();
+
+        String atonNodeType;
+        JsonNode atonNode;
+        AtonType atonType;
+        do {
+            Map.Entry<String, JsonNode> atonNodeEntry = datasetMembers.next();
+            atonNodeType = atonNodeEntry.getKey();
+            atonNode = atonNodeEntry.getValue();
+            atonType = treeS125TypeToAtonType(atonNodeType, atonNode);
+        } while(datasetMembers.hasNext() && atonType == AtonType.DEFAULT);
+
+        aisMessage21.setLength((int) Math.round(Optional.ofNullable(atonNode.get("length")).map(JsonNode::asDouble).orElse(0.0)));
+        aisMessage21.setWidth((int) Math.round(Optional.ofNullable(atonNode.get("width")).map(JsonNode::asDouble).orElse(0.0)));
+        aisMessage21.setAtonType(atonType);
+        aisMessage21.setVaton(atonNodeType.equals("VirtualAISAidToNavigation"));
+        return aisMessage21;
+    }
+
+    /**
+     * The original tree-based S-125 feature type to AtoN type translation,
+     * to be used as a reference for the streaming extraction.
+     *
+     * @param atonNodeType the S-125 AtoN Node Type
+     * @param atonNode the S-125 AtoN node object in JSON format
+     * @return the determined AtoN type for AIS
+     */
+    private static AtonType treeS125TypeToAtonType(String atonNodeType, JsonNode atonNode) {
+        if(Objects.equals(atonNodeType, "BeaconSafeWater")) {
+            return AtonType.BEACON_SAFE_WATER;
+        } else if(Objects.equals(atonNodeType, "BeaconIsolatedDanger")) {
+            return AtonType.BEACON_ISOLATED_DANGER;
+        } else if(Objects.equals(atonNodeType, "BeaconLateral") || Objects.equals(atonNodeType, "BuoyLateral")) {
+            return switch (atonNode.get("categoryOfLateralMark").asText()) {
+                case "port-hand lateral mark" -> AtonType.PORT_HAND_MARK;
+                case "starboard-hand lateral mark" -> AtonType.STARBOARD_HAND_MARK;
+                case "preferred channel to starboard lateral mark" -> AtonType.PREFERRED_PORT;
+                case "preferred channel to port lateral mark" -> AtonType.PREFERRED_STARBOARD;
+                default -> AtonType.DEFAULT;
+            };
+        } else if(Objects.equals(atonNodeType, "BeaconCardinal") || Objects.equals(atonNodeType, "BuoyCardinal")) {
+            return switch (atonNode.get("categoryOfCardinalMark").asText()) {
+                case "north cardinal mark" -> AtonType.CARDINAL_NORTH;
+                case "east cardinal mark" -> AtonType.CARDINAL_EAST;
+                case "south cardinal mark" -> AtonType.CARDINAL_SOUTH;
+                case "west cardinal mark" -> AtonType.CARDINAL_WEST;
+                default -> AtonType.DEFAULT;
+            };
+        } else if(Objects.equals(atonNodeType, "BeaconSpecialPurposeGeneral")) {
+            return AtonType.BEACON_SPECIAL_MARK;
+        } else if(Objects.equals(atonNodeType, "BuoySafeWater")) {
+            return AtonType.SAFE_WATER;
+        } else if(Objects.equals(atonNodeType, "BuoyIsolatedDanger")) {
+            return AtonType.ISOLATED_DANGER;
+        } else if(Objects.equals(atonNodeType, "BuoySpecialPurposeGeneral") || Objects.equals(atonNodeType, "BuoyInstallation")) {
+            return AtonType.SPECIAL_MARK;
+        } else if(Objects.equals(atonNodeType, "Lighthouse")) {
+            return atonNode.get("colour").size() <= 1 ? AtonType.LIGHT_WITHOUT_SECTORS : AtonType.LIGHT_WITH_SECTORS;
+        } else if(Objects.equals(atonNodeType, "OffshorePlatform")) {
+            return AtonType.FIXED_STRUCTURE_OFFSHORE;
+        } else if(Objects.equals(atonNodeType, "LightFloat")) {
+            return AtonType.LIGHT_VESSEL;
+        } else if(Objects.equals(atonNodeType, "VirtualAISAidToNavigation")) {
+            return switch (atonNode.get("virtualAISAidToNavigationType").asText()) {
+                case "New Danger Marking" -> AtonType.WRECK;
+                case "North Cardinal" -> AtonType.CARDINAL_NORTH;
+                case "East Cardinal" -> AtonType.CARDINAL_EAST;
+                case "Special Purpose" -> AtonType.SPECIAL_MARK;
+                case "South Cardinal" -> AtonType.CARDINAL_SOUTH;
+                case "West Cardinal" -> AtonType.CARDINAL_WEST;
+                case "Port Lateral" -> AtonType.PORT_HAND_MARK;
+                case "Starboard Lateral" -> AtonType.STARBOARD_HAND_MARK;
+                case "Preferred Channel to Port" -> AtonType.PREFERRED_PORT;
+                case "Preferred Channel to Starboard" -> AtonType.PREFERRED_STARBOARD;
+                case "Isolated Danger" -> AtonType.ISOLATED_DANGER;
+                case "Safe Water" -> AtonType.SAFE_WATER;
+                default -> AtonType.DEFAULT;
+            };
+        }
+        return  AtonType.DEFAULT;
+    }
+
+}
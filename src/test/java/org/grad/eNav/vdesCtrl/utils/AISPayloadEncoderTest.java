@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.utils;
+
+import org.grad.vdes1000.formats.generic.AISChannel;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AISPayloadEncoderTest {
+
+    // Define a known AIS Message 1 NMEA sentence
+    public static final String NMEA_SENTENCE = "!AIVDM,1,1,,B,177KQJ5000G?tO`K>RA1wUbN0TKH,0*5C";
+
+    /**
+     * Test that the binary payloads can be encoded in the GNURadio format.
+     */
+    @Test
+    void testEncodeBinary() {
+        final ByteBuffer buffer = AISPayloadEncoder.encodeBinary("0101100111");
+
+        // Make sure the encoding is correct
+        assertEquals(0, buffer.position());
+        assertEquals(11, buffer.remaining());
+        assertEquals("0101100111\n", new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()));
+    }
+
+    /**
+     * Test that the encoding buffers are reused by each thread, and that they
+     * will grow when the payloads don't fit.
+     */
+    @Test
+    void testEncodeBufferReuse() {
+        final ByteBuffer first = AISPayloadEncoder.encodeBinary("0101");
+        final ByteBuffer second = AISPayloadEncoder.encodeBinary("1010");
+
+        // Make sure the same buffer was used
+        assertSame(first, second);
+        assertEquals("1010\n", AISPayloadEncoder.toString(second) + "\n");
+
+        // Now encode a large payload
+        final ByteBuffer large = AISPayloadEncoder.encodeBinary("1".repeat(5000));
+
+        // Make sure a larger buffer was used
+        assertNotSame(first, large);
+        assertEquals(5001, large.remaining());
+        assertSame(large, AISPayloadEncoder.encodeBinary("0101"));
+    }
+
+    /**
+     * Test that the binary payloads can be encoded into a single NMEA sentence
+     * with the correct armouring and checksum.
+     */
+    @Test
+    void testEncodeNmea() {
+        final String binaryMessage = this.unarmour(NMEA_SENTENCE.split(",")[5]);
+
+        // Perform the utility call
+        final String nmea = AISPayloadEncoder.toString(AISPayloadEncoder.encodeNmea(binaryMessage, AISChannel.B, 0));
+
+        // Make sure the encoding is correct
+        assertEquals(NMEA_SENTENCE, nmea);
+    }
+
+    /**
+     * Test that the binary payloads can be encoded into NMEA sentences
+     * with a correct number of fill bits.
+     */
+    @Test
+    void testEncodeNmeaFillBits() {
+        final String nmea = AISPayloadEncoder.toString(AISPayloadEncoder.encodeNmea("1111", null, 0));
+
+        // Make sure the encoding is correct
+        assertTrue(nmea.startsWith("!AIVDM,1,1,,,t,2*"));
+        assertEquals(this.checksum(nmea), nmea.substring(nmea.indexOf('*') + 1));
+    }
+
+    /**
+     * Test that the binary payloads that do not fit into a single sentence
+     * will be split into multiple fragments.
+     */
+    @Test
+    void testEncodeNmeaMultipleSentences() {
+        final String binaryMessage = "01".repeat(200);
+
+        // Perform the utility call
+        final String[] sentences = AISPayloadEncoder.toString(AISPayloadEncoder.encodeNmea(binaryMessage, AISChannel.A, 3)).split("\r\n");
+
+        // Make sure the encoding is correct
+        assertEquals(2, sentences.length);
+        assertTrue(sentences[0].startsWith("!AIVDM,2,1,3,A,"));
+        assertTrue(sentences[0].contains(",0*"));
+        assertTrue(sentences[1].startsWith("!AIVDM,2,2,3,A,"));
+        assertTrue(sentences[1].contains(",2*"));
+        final StringBuilder payload = new StringBuilder();
+        for(String sentence : sentences) {
+            assertTrue(sentence.length() <= 82);
+            assertEquals(this.checksum(sentence), sentence.substring(sentence.indexOf('*') + 1));
+            payload.append(sentence.split(",")[5]);
+        }
+        assertEquals(binaryMessage, this.unarmour(payload.toString()).substring(0, binaryMessage.length()));
+    }
+
+    /**
+     * Test that the binary payloads can be packed into bytes, with the last
+     * byte padded on the right.
+     */
+    @Test
+    void testEncodeBytes() {
+        assertArrayEquals(new byte[0], AISPayloadEncoder.encodeBytes(""));
+        assertArrayEquals(new byte[]{(byte) 0xA5}, AISPayloadEncoder.encodeBytes("10100101"));
+        assertArrayEquals(new byte[]{(byte) 0xFF, (byte) 0x80}, AISPayloadEncoder.encodeBytes("111111111"));
+        assertArrayEquals(new byte[]{0x40}, AISPayloadEncoder.encodeBytes("01"));
+    }
+
+    /**
+     * Test that the timestamp bytes are appended to the signatures in a big
+     * endian manner.
+     */
+    @Test
+    void testAppendTimestamp() {
+        final byte[] signature = new byte[]{0x01, 0x02, 0x03};
+
+        // Perform the utility call
+        final byte[] result = AISPayloadEncoder.appendTimestamp(signature, 0x12345678L);
+
+        // Make sure the timestamp was appended correctly
+        assertArrayEquals(new byte[]{0x01, 0x02, 0x03, 0x56, 0x78}, result);
+        assertArrayEquals(new byte[]{(byte) 0xFF, (byte) 0xFF}, AISPayloadEncoder.appendTimestamp(new byte[0], 65535L));
+    }
+
+    /**
+     * A helper function to remove the 6-bit ASCII armouring of an NMEA
+     * payload.
+     *
+     * @param payload the armoured NMEA payload
+     * @return the payload bit string
+     */
+    private String unarmour(String payload) {
+        final StringBuilder bits = new StringBuilder();
+        for(char c : payload.toCharArray()) {
+            int value = c - 48;
+            if(value > 40) {
+                value -= 8;
+            }
+            final String sixBits = Integer.toBinaryString(value);
+            bits.append("000000".substring(sixBits.length())).append(sixBits);
+        }
+        return bits.toString();
+    }
+
+    /**
+     * A helper function to calculate the checksum of an NMEA sentence.
+     *
+     * @param sentence the NMEA sentence
+     * @return the hexadecimal checksum
+     */
+    private String checksum(String sentence) {
+        int checksum = 0;
+        for(char c : sentence.substring(1, sentence.indexOf('*')).toCharArray()) {
+            checksum ^= c;
+        }
+        return String.format("%02X", checksum);
+    }
+
+}
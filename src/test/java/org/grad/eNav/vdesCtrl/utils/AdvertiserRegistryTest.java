@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.utils;
+
+import org.grad.eNav.vdesCtrl.models.domain.SignatureMode;
+import org.grad.eNav.vdesCtrl.models.domain.Station;
+import org.grad.eNav.vdesCtrl.models.domain.StationType;
+import org.grad.vdes1000.formats.generic.AISChannelPref;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdvertiserRegistryTest {
+
+    // Test Variables
+    private AdvertiserRegistry<TestAdvertiser> registry;
+    private List<Station> stations;
+    private List<TestAdvertiser> created;
+
+    /**
+     * Common setup for all the tests.
+     */
+    @BeforeEach
+    void setup() {
+        this.registry = new AdvertiserRegistry<>("Test");
+        this.created = new ArrayList<>();
+
+        // Initialise the stations list
+        this.stations = new ArrayList<>();
+        for(long i=0; i<300; i++) {
+            Station station = new Station();
+            station.setId(BigInteger.valueOf(i));
+            station.setName("Station " + i);
+            station.setChannel(AISChannelPref.A);
+            station.setMmsi("12345678" + i);
+            station.setIpAddress("10.0.0." + i);
+            station.setType(StationType.VDES_1000);
+            station.setPort(8000 + (int)i);
+            this.stations.add(station);
+        }
+    }
+
+    /**
+     * Test that the first reconciliation creates an advertiser per station,
+     * and a second one without any changes leaves all of them untouched.
+     */
+    @Test
+    void testReconcileUnchanged() {
+        AdvertiserRegistry.Reconciliation reconciliation = this.reconcile();
+        assertEquals(300, reconciliation.getCreated());
+        assertEquals(300, this.registry.size());
+
+        // Perform the utility call again
+        reconciliation = this.reconcile();
+
+        // Make sure nothing was touched
+        assertEquals(0, reconciliation.getCreated());
+        assertEquals(300, reconciliation.getUnchanged());
+        assertEquals(300, this.created.size());
+        assertTrue(this.created.stream().noneMatch(advertiser -> advertiser.closed || advertiser.updates > 0));
+    }
+
+    /**
+     * Test that editing a single station only touches its own advertiser,
+     * updating it in place for a settings change and replacing it for a link
+     * change.
+     */
+    @Test
+    void testReconcileChanged() {
+        this.reconcile();
+        final TestAdvertiser first = this.registry.get(BigInteger.ZERO).orElseThrow();
+        final TestAdvertiser second = this.registry.get(BigInteger.ONE).orElseThrow();
+
+        // Change the settings of the first station and the link of the second
+        this.stations.get(0).setSignatureMode(SignatureMode.AIS);
+        this.stations.get(1).setPort(7000);
+
+        // Perform the utility call
+        final AdvertiserRegistry.Reconciliation reconciliation = this.reconcile();
+
+        // Make sure only the changed advertisers were touched
+        assertEquals(1, reconciliation.getUpdated());
+        assertEquals(1, reconciliation.getReplaced());
+        assertEquals(298, reconciliation.getUnchanged());
+        assertSame(first, this.registry.get(BigInteger.ZERO).orElseThrow());
+        assertEquals(1, first.updates);
+        assertFalse(first.closed);
+        assertTrue(second.closed);
+        assertEquals(7000, this.registry.get(BigInteger.ONE).orElseThrow().station.getPort());
+        assertEquals(301, this.created.size());
+    }
+
+    /**
+     * Test that the advertisers of the deleted stations are closed, and that
+     * the ones failing to be initialised are closed and retried on the next
+     * reconciliation.
+     */
+    @Test
+    void testReconcileDeletedAndFailed() {
+        this.reconcile();
+        final TestAdvertiser deleted = this.registry.get(BigInteger.ZERO).orElseThrow();
+        this.stations.remove(0);
+
+        // Add a station whose advertiser fails to be initialised
+        final Station failing = new Station();
+        failing.setId(BigInteger.valueOf(300));
+        failing.setName("Failing");
+        this.stations.add(failing);
+
+        // Perform the utility call
+        final List<TestAdvertiser> failed = new ArrayList<>();
+        final AdvertiserRegistry.Reconciliation reconciliation = this.registry.reconcile(this.stations,
+                station -> {
+                    final TestAdvertiser advertiser = new TestAdvertiser(station);
+                    failed.add(advertiser);
+                    return advertiser;
+                },
+                (advertiser, station) -> {
+                    if(station.getName().equals("Failing")) {
+                        throw new IOException("Connection failed");
+                    }
+                },
+                TestAdvertiser::update,
+                TestAdvertiser::close);
+
+        // Make sure the deleted advertiser was closed and the failed one closed and skipped
+        assertEquals(1, reconciliation.getClosed());
+        assertEquals(0, reconciliation.getCreated());
+        assertTrue(deleted.closed);
+        assertEquals(1, failed.size());
+        assertTrue(failed.getFirst().closed);
+        assertEquals(299, this.registry.size());
+        assertTrue(this.registry.get(BigInteger.valueOf(300)).isEmpty());
+
+        // Make sure the failed advertiser is retried
+        assertEquals(1, this.reconcile().getCreated());
+        assertTrue(this.registry.get(BigInteger.valueOf(300)).isPresent());
+    }
+
+    /**
+     * Test that clearing the registry closes all the advertisers.
+     */
+    @Test
+    void testClear() {
+        this.reconcile();
+
+        // Perform the utility call
+        this.registry.clear(TestAdvertiser::close);
+
+        // Make sure all the advertisers were closed
+        assertEquals(0, this.registry.size());
+        assertTrue(this.registry.getAdvertisers().isEmpty());
+        assertTrue(this.created.stream().allMatch(advertiser -> advertiser.closed));
+    }
+
+    /**
+     * Reconciles the registry against the test stations.
+     *
+     * @return the outcome of the reconciliation
+     */
+    private AdvertiserRegistry.Reconciliation reconcile() {
+        return this.registry.reconcile(this.stations,
+                station -> {
+                    final TestAdvertiser advertiser = new TestAdvertiser(station);
+                    this.created.add(advertiser);
+                    return advertiser;
+                },
+                (advertiser, station) -> {},
+                TestAdvertiser::update,
+                TestAdvertiser::close);
+    }
+
+    /**
+     * An advertiser for testing.
+     */
+    private static class TestAdvertiser {
+
+        // Class Variables
+        private Station station;
+        private int updates;
+        private boolean closed;
+
+        /**
+         * The Fully Populated Constructor.
+         *
+         * @param station       The station of the advertiser
+         */
+        TestAdvertiser(Station station) {
+            this.station = station;
+        }
+
+        void update(Station station) {
+            this.station = station;
+            this.updates++;
+        }
+
+        void close() {
+            this.closed = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2024 GLA Research and Development Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.grad.eNav.vdesCtrl.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MerkleTreeTest {
+
+    /**
+     * Test that the leaves are hashed with SHA-256 and that the leaf and
+     * node hashes are domain separated.
+     */
+    @Test
+    void testHashLeaf() {
+        final byte[] leaf = MerkleTree.hashLeaf("message".getBytes(StandardCharsets.UTF_8));
+
+        // Make sure the hash has the right size and is deterministic
+        assertEquals(MerkleTree.HASH_SIZE, leaf.length);
+        assertArrayEquals(leaf, MerkleTree.hashLeaf("message".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(Arrays.equals(leaf, MerkleTree.hashLeaf("other".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * Test the root of the trivial trees.
+     */
+    @Test
+    void testRootTrivial() {
+        assertNull(MerkleTree.root(null));
+        assertNull(MerkleTree.root(Collections.emptyList()));
+
+        // A single leaf is its own root
+        final byte[] leaf = MerkleTree.hashLeaf(new byte[]{1});
+        assertArrayEquals(leaf, MerkleTree.root(List.of(leaf)));
+    }
+
+    /**
+     * Test that the root changes whenever any of the leaves, or their order,
+     * changes.
+     */
+    @Test
+    void testRootChanges() {
+        final List<byte[]> leaves = this.leaves(5);
+        final byte[] root = MerkleTree.root(leaves);
+
+        // Change a leaf
+        final List<byte[]> changed = new ArrayList<>(leaves);
+        changed.set(3, MerkleTree.hashLeaf(new byte[]{42}));
+        assertFalse(Arrays.equals(root, MerkleTree.root(changed)));
+
+        // Swap two leaves
+        final List<byte[]> swapped = new ArrayList<>(leaves);
+        Collections.swap(swapped, 0, 1);
+        assertFalse(Arrays.equals(root, MerkleTree.root(swapped)));
+    }
+
+    /**
+     * Test that the inclusion proofs of all the leaves verify against the
+     * root, for both balanced and unbalanced trees.
+     */
+    @Test
+    void testProofAndVerify() {
+        for(int size = 1; size <= 17; size++) {
+            final List<byte[]> leaves = this.leaves(size);
+            final byte[] root = MerkleTree.root(leaves);
+            for(int i = 0; i < size; i++) {
+                final List<byte[]> proof = MerkleTree.proof(leaves, i);
+                assertTrue(proof.size() <= 32 - Integer.numberOfLeadingZeros(size));
+                assertTrue(MerkleTree.verify(leaves.get(i), i, size, proof, root), "size " + size + " index " + i);
+            }
+        }
+    }
+
+    /**
+     * Test that the inclusion proofs do not verify for the wrong leaves,
+     * indexes or roots.
+     */
+    @Test
+    void testVerifyFails() {
+        final List<byte[]> leaves = this.leaves(6);
+        final byte[] root = MerkleTree.root(leaves);
+        final List<byte[]> proof = MerkleTree.proof(leaves, 2);
+
+        // Make sure the proof only verifies the right leaf
+        assertTrue(MerkleTree.verify(leaves.get(2), 2, 6, proof, root));
+        assertFalse(MerkleTree.verify(leaves.get(3), 2, 6, proof, root));
+        assertFalse(MerkleTree.verify(leaves.get(2), 3, 6, proof, root));
+        assertFalse(MerkleTree.verify(leaves.get(2), 2, 6, proof, leaves.get(0)));
+        assertFalse(MerkleTree.verify(leaves.get(2), 2, 6, proof.subList(0, 1), root));
+        assertFalse(MerkleTree.verify(leaves.get(2), 6, 6, proof, root));
+    }
+
+    /**
+     * Test that proofs cannot be requested for leaves that do not exist.
+     */
+    @Test
+    void testProofOutOfBounds() {
+        final List<byte[]> leaves = this.leaves(3);
+        assertThrows(IndexOutOfBoundsException.class, () -> MerkleTree.proof(leaves, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> MerkleTree.proof(leaves, -1));
+    }
+
+    /**
+     * Helper function to generate a number of test leaves.
+     *
+     * @param size the number of leaves
+     * @return the leaf hashes
+     */
+    private List<byte[]> leaves(int size) {
+        return IntStream.range(0, size)
+                .mapToObj(i -> MerkleTree.hashLeaf(("message " + i).getBytes(StandardCharsets.UTF_8)))
+                .toList();
+    }
+
+}